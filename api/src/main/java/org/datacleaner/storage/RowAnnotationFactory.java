@@ -41,4 +41,18 @@ public interface RowAnnotationFactory extends RowAnnotationSampleContainer, RowA
      */
     RowAnnotation createAnnotation();
 
+    /**
+     * Creates a new annotation with a hint of how many sample rows to keep for
+     * it, e.g. to keep smaller samples of annotations that are expected to be
+     * numerous. Factories that do not support a sample size per annotation
+     * ignore the hint.
+     *
+     * @param sampleSize
+     *            the preferred number of sample rows of the annotation
+     * @return a new annotation
+     */
+    default RowAnnotation createAnnotation(final int sampleSize) {
+        return createAnnotation();
+    }
+
 }
@@ -0,0 +1,187 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * Bounded memory alternative to commons-math's DescriptiveStatistics, used by
+ * the {@link NumberAnalyzer} when approximating descriptive statistics.
+ *
+ * Skewness and kurtosis are calculated from central moments which are
+ * maintained exactly. Percentiles and the median are estimated using a
+ * {@link QuantileSketch}. Sketches of partial results can be merged.
+ */
+public class DescriptiveStatisticsSketch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final QuantileSketch _quantiles;
+    private long _count;
+    private double _mean;
+    private double _m2;
+    private double _m3;
+    private double _m4;
+
+    public DescriptiveStatisticsSketch() {
+        _quantiles = new QuantileSketch();
+    }
+
+    /**
+     * Creates a new sketch which is the merge of a number of sketches.
+     *
+     * @param sketches
+     * @return
+     */
+    public static DescriptiveStatisticsSketch merge(final Collection<DescriptiveStatisticsSketch> sketches) {
+        final DescriptiveStatisticsSketch result = new DescriptiveStatisticsSketch();
+        for (final DescriptiveStatisticsSketch sketch : sketches) {
+            result.merge(sketch);
+        }
+        return result;
+    }
+
+    public synchronized void addValue(final double value, final int count) {
+        for (int i = 0; i < count; i++) {
+            _quantiles.add(value);
+        }
+        // a block of equal values has no deviation from its own mean
+        mergeMoments(count, value, 0, 0, 0);
+    }
+
+    public synchronized void merge(final DescriptiveStatisticsSketch other) {
+        synchronized (other) {
+            _quantiles.merge(other._quantiles);
+            mergeMoments(other._count, other._mean, other._m2, other._m3, other._m4);
+        }
+    }
+
+    /**
+     * Combines central moments as described by Pébay, "Formulas for Robust,
+     * One-Pass Parallel Computation of Covariances and Arbitrary-Order
+     * Statistical Moments" (2008).
+     */
+    private void mergeMoments(final long otherN, final double otherMean, final double otherM2,
+            final double otherM3, final double otherM4) {
+        if (otherN == 0) {
+            return;
+        }
+        if (_count == 0) {
+            _count = otherN;
+            _mean = otherMean;
+            _m2 = otherM2;
+            _m3 = otherM3;
+            _m4 = otherM4;
+            return;
+        }
+
+        final double na = _count;
+        final double nb = otherN;
+        final double n = na + nb;
+        final double delta = otherMean - _mean;
+        final double delta2 = delta * delta;
+        final double delta3 = delta2 * delta;
+        final double delta4 = delta2 * delta2;
+
+        final double m4 = _m4 + otherM4 + delta4 * na * nb * (na * na - na * nb + nb * nb) / (n * n * n)
+                + 6 * delta2 * (na * na * otherM2 + nb * nb * _m2) / (n * n)
+                + 4 * delta * (na * otherM3 - nb * _m3) / n;
+        final double m3 = _m3 + otherM3 + delta3 * na * nb * (na - nb) / (n * n)
+                + 3 * delta * (na * otherM2 - nb * _m2) / n;
+        final double m2 = _m2 + otherM2 + delta2 * na * nb / n;
+
+        _count += otherN;
+        _mean += delta * nb / n;
+        _m2 = m2;
+        _m3 = m3;
+        _m4 = m4;
+    }
+
+    public synchronized long getN() {
+        return _count;
+    }
+
+    public synchronized double getMean() {
+        return _count == 0 ? Double.NaN : _mean;
+    }
+
+    /**
+     * Determines whether percentiles are exact, which is the case until the
+     * number of values exceeds what the quantile sketch retains.
+     *
+     * @return
+     */
+    public synchronized boolean isExact() {
+        return _quantiles.isExact();
+    }
+
+    /**
+     * Gets an estimate of a percentile.
+     *
+     * @param percentile
+     *            a percentile between 0 and 100
+     * @return
+     */
+    public synchronized double getPercentile(final double percentile) {
+        return _quantiles.getPercentile(percentile);
+    }
+
+    public double getMedian() {
+        return getPercentile(50.0);
+    }
+
+    /**
+     * Gets the bias corrected sample skewness, defined the same way as in
+     * commons-math's Skewness.
+     *
+     * @return
+     */
+    public synchronized double getSkewness() {
+        if (_count < 3) {
+            return Double.NaN;
+        }
+        final double variance = _m2 / (_count - 1);
+        if (variance < 10E-20) {
+            return 0.0;
+        }
+        final double n = _count;
+        return (n * _m3) / ((n - 1) * (n - 2) * Math.sqrt(variance) * variance);
+    }
+
+    /**
+     * Gets the bias corrected sample excess kurtosis, defined the same way as
+     * in commons-math's Kurtosis.
+     *
+     * @return
+     */
+    public synchronized double getKurtosis() {
+        if (_count <= 3) {
+            return Double.NaN;
+        }
+        final double variance = _m2 / (_count - 1);
+        if (variance < 10E-20) {
+            return 0.0;
+        }
+        final double n = _count;
+        return (n * (n + 1) * _m4 - 3 * _m2 * _m2 * (n - 1)) / ((n - 1) * (n - 2) * (n - 3) * variance
+                * variance);
+    }
+}
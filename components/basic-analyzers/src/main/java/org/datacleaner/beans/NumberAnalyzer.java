@@ -20,6 +20,7 @@
 package org.datacleaner.beans;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import javax.inject.Inject;
@@ -91,6 +92,11 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
             + "which have a larger memory-footprint.")
     boolean descriptiveStatistics = false;
     @Inject
+    @Configured(required = false)
+    @Description("Approximate the descriptive statistics using a bounded amount of memory, instead of keeping all "
+            + "values in memory. Skewness and kurtosis remain exact, while median and percentiles are estimated.")
+    boolean approximateDescriptiveStatistics = false;
+    @Inject
     @Provided
     RowAnnotationFactory _annotationFactory;
     private Map<InputColumn<? extends Number>, NumberAnalyzerColumnDelegate> _columnDelegates = new HashMap<>();
@@ -109,7 +115,8 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
     @Initialize
     public void init() {
         for (final InputColumn<? extends Number> column : _columns) {
-            _columnDelegates.put(column, new NumberAnalyzerColumnDelegate(descriptiveStatistics, _annotationFactory));
+            _columnDelegates.put(column, new NumberAnalyzerColumnDelegate(descriptiveStatistics,
+                    approximateDescriptiveStatistics, _annotationFactory));
         }
     }
 
@@ -151,11 +158,17 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
             columnDimension.addCategory(column.getName());
         }
 
+        final Map<String, DescriptiveStatisticsSketch> sketches = new LinkedHashMap<>();
         final Crosstab<Number> crosstab = new Crosstab<>(Number.class, columnDimension, measureDimension);
         for (final InputColumn<? extends Number> column : _columns) {
             final CrosstabNavigator<Number> nav = crosstab.navigate().where(columnDimension, column.getName());
             final NumberAnalyzerColumnDelegate delegate = _columnDelegates.get(column);
 
+            final DescriptiveStatisticsSketch sketch = delegate.getSketch();
+            if (sketch != null) {
+                sketches.put(column.getName(), sketch);
+            }
+
             final StatisticalSummary s = delegate.getStatistics();
             final int nullCount = delegate.getNullCount();
 
@@ -181,7 +194,7 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
                 final double geometricMean;
                 final double secondMoment;
                 final double sumOfSquares;
-                if (descriptiveStatistics) {
+                if (s instanceof DescriptiveStatistics) {
                     final DescriptiveStatistics descriptiveStats = (DescriptiveStatistics) s;
                     geometricMean = descriptiveStats.getGeometricMean();
                     sumOfSquares = descriptiveStats.getSumsq();
@@ -207,7 +220,13 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
                 nav.where(measureDimension, MEASURE_SUM_OF_SQUARES).put(sumOfSquares);
                 nav.where(measureDimension, MEASURE_SECOND_MOMENT).put(secondMoment);
 
-                if (descriptiveStatistics) {
+                if (sketch != null) {
+                    nav.where(measureDimension, MEASURE_MEDIAN).put(sketch.getMedian());
+                    nav.where(measureDimension, MEASURE_PERCENTILE25).put(sketch.getPercentile(25.0));
+                    nav.where(measureDimension, MEASURE_PERCENTILE75).put(sketch.getPercentile(75.0));
+                    nav.where(measureDimension, MEASURE_SKEWNESS).put(sketch.getSkewness());
+                    nav.where(measureDimension, MEASURE_KURTOSIS).put(sketch.getKurtosis());
+                } else if (descriptiveStatistics) {
                     final DescriptiveStatistics descriptiveStatistics = (DescriptiveStatistics) s;
                     final double kurtosis = descriptiveStatistics.getKurtosis();
                     final double skewness = descriptiveStatistics.getSkewness();
@@ -223,7 +242,7 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
                 }
             }
         }
-        return new NumberAnalyzerResult(_columns, crosstab);
+        return new NumberAnalyzerResult(_columns, crosstab, sketches);
     }
 
     private void addAttachment(final CrosstabNavigator<Number> nav, final RowAnnotation annotation,
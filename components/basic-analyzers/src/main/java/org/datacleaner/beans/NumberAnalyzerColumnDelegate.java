@@ -34,21 +34,24 @@ final class NumberAnalyzerColumnDelegate {
 
     private final RowAnnotationFactory _annotationFactory;
     private final StatisticalSummary _statistics;
+    private final DescriptiveStatisticsSketch _sketch;
     private final RowAnnotation _nullAnnotation;
     private final RowAnnotation _maxAnnotation;
     private final RowAnnotation _minAnnotation;
     private volatile int _numRows;
 
     public NumberAnalyzerColumnDelegate(final boolean descriptiveStatistics,
-            final RowAnnotationFactory annotationFactory) {
+            final boolean approximateDescriptiveStatistics, final RowAnnotationFactory annotationFactory) {
         _annotationFactory = annotationFactory;
         _nullAnnotation = _annotationFactory.createAnnotation();
         _maxAnnotation = _annotationFactory.createAnnotation();
         _minAnnotation = _annotationFactory.createAnnotation();
-        if (descriptiveStatistics) {
+        if (descriptiveStatistics && !approximateDescriptiveStatistics) {
             _statistics = new DescriptiveStatistics();
+            _sketch = null;
         } else {
             _statistics = new SummaryStatistics();
+            _sketch = descriptiveStatistics ? new DescriptiveStatisticsSketch() : null;
         }
     }
 
@@ -73,6 +76,9 @@ final class NumberAnalyzerColumnDelegate {
                     ((SummaryStatistics) _statistics).addValue(doubleValue);
                 }
             }
+            if (_sketch != null) {
+                _sketch.addValue(doubleValue, distinctCount);
+            }
 
             max = _statistics.getMax();
             min = _statistics.getMin();
@@ -96,6 +102,15 @@ final class NumberAnalyzerColumnDelegate {
         return _statistics;
     }
 
+    /**
+     * Gets the sketch used for approximating descriptive statistics, if any.
+     *
+     * @return
+     */
+    public DescriptiveStatisticsSketch getSketch() {
+        return _sketch;
+    }
+
     public int getNullCount() {
         return _nullAnnotation.getRowCount();
     }
@@ -19,6 +19,8 @@
  */
 package org.datacleaner.beans;
 
+import java.util.Map;
+
 import org.datacleaner.api.Distributed;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.Metric;
@@ -31,10 +33,35 @@ public class NumberAnalyzerResult extends CrosstabResult {
     private static final long serialVersionUID = 1L;
 
     private final InputColumn<? extends Number>[] _columns;
+    private final Map<String, DescriptiveStatisticsSketch> _sketches;
 
     public NumberAnalyzerResult(final InputColumn<? extends Number>[] columns, final Crosstab<?> crosstab) {
+        this(columns, crosstab, null);
+    }
+
+    public NumberAnalyzerResult(final InputColumn<? extends Number>[] columns, final Crosstab<?> crosstab,
+            final Map<String, DescriptiveStatisticsSketch> sketches) {
         super(crosstab);
         _columns = columns;
+        _sketches = sketches;
+    }
+
+    /**
+     * Gets the sketch of approximated descriptive statistics of a column, if
+     * descriptive statistics were approximated.
+     *
+     * @param col
+     * @return the sketch, or null if not available
+     */
+    public DescriptiveStatisticsSketch getSketch(final InputColumn<?> col) {
+        return getSketch(col.getName());
+    }
+
+    DescriptiveStatisticsSketch getSketch(final String columnName) {
+        if (_sketches == null) {
+            return null;
+        }
+        return _sketches.get(columnName);
     }
 
     public InputColumn<? extends Number>[] getColumns() {
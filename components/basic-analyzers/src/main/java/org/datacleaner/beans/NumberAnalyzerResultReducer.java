@@ -24,7 +24,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.math.stat.descriptive.AggregateSummaryStatistics;
@@ -43,7 +45,8 @@ import org.slf4j.LoggerFactory;
  * Note: Some of the result metrics of {@link NumberAnalyzerResult} are NOT
  * reduceable. Since the inclusion of these metrics are anyways optional (based
  * on a configuration property), we take the optimistic approach and reduce what
- * we can.
+ * we can. Descriptive statistics are reduceable if they were approximated,
+ * since their {@link DescriptiveStatisticsSketch}es can be merged.
  *
  * Warnings will be raised if non-reduceable metrics are encountered.
  */
@@ -55,6 +58,11 @@ public class NumberAnalyzerResultReducer extends AbstractCrosstabResultReducer<N
             Arrays.asList(NumberAnalyzer.MEASURE_SUM, NumberAnalyzer.MEASURE_ROW_COUNT,
                     NumberAnalyzer.MEASURE_NULL_COUNT));
 
+    private static final Set<String> SKETCH_MEASURES = new HashSet<>(
+            Arrays.asList(NumberAnalyzer.MEASURE_MEDIAN, NumberAnalyzer.MEASURE_PERCENTILE25,
+                    NumberAnalyzer.MEASURE_PERCENTILE75, NumberAnalyzer.MEASURE_SKEWNESS,
+                    NumberAnalyzer.MEASURE_KURTOSIS));
+
     @Override
     protected Serializable reduceValues(final List<Object> slaveValues, final String column, final String measure,
             final Collection<? extends NumberAnalyzerResult> results, final Class<?> valueClass) {
@@ -74,12 +82,58 @@ public class NumberAnalyzerResultReducer extends AbstractCrosstabResultReducer<N
         } else if (NumberAnalyzer.MEASURE_VARIANCE.equals(measure)) {
             final StatisticalSummary summary = getSummary(column, results);
             return summary.getVariance();
+        } else if (SKETCH_MEASURES.contains(measure)) {
+            final DescriptiveStatisticsSketch sketch = getSketch(column, results);
+            if (sketch != null) {
+                return getSketchValue(sketch, measure);
+            }
         }
 
         logger.warn("Encountered non-reduceable measure '{}'. Slave values are: {}", measure, slaveValues);
         return null;
     }
 
+    private Double getSketchValue(final DescriptiveStatisticsSketch sketch, final String measure) {
+        if (sketch.getN() == 0) {
+            return null;
+        }
+        switch (measure) {
+        case NumberAnalyzer.MEASURE_MEDIAN:
+            return sketch.getMedian();
+        case NumberAnalyzer.MEASURE_PERCENTILE25:
+            return sketch.getPercentile(25.0);
+        case NumberAnalyzer.MEASURE_PERCENTILE75:
+            return sketch.getPercentile(75.0);
+        case NumberAnalyzer.MEASURE_SKEWNESS:
+            return sketch.getSkewness();
+        case NumberAnalyzer.MEASURE_KURTOSIS:
+            return sketch.getKurtosis();
+        default:
+            throw new IllegalArgumentException("Not a sketch measure: " + measure);
+        }
+    }
+
+    /**
+     * Merges the sketches of a column of all results.
+     *
+     * @param column
+     * @param results
+     * @return the merged sketch, or null if one or more results do not have a
+     *         sketch for the column
+     */
+    private DescriptiveStatisticsSketch getSketch(final String column,
+            final Collection<? extends NumberAnalyzerResult> results) {
+        final List<DescriptiveStatisticsSketch> sketches = new ArrayList<>(results.size());
+        for (final NumberAnalyzerResult analyzerResult : results) {
+            final DescriptiveStatisticsSketch sketch = analyzerResult.getSketch(column);
+            if (sketch == null) {
+                return null;
+            }
+            sketches.add(sketch);
+        }
+        return DescriptiveStatisticsSketch.merge(sketches);
+    }
+
     private StatisticalSummary getSummary(final String column,
             final Collection<? extends NumberAnalyzerResult> results) {
         final List<SummaryStatistics> statistics = new ArrayList<>(results.size());
@@ -154,7 +208,17 @@ public class NumberAnalyzerResultReducer extends AbstractCrosstabResultReducer<N
         final NumberAnalyzerResult firstResult = results.iterator().next();
 
         final InputColumn<? extends Number>[] columns = firstResult.getColumns();
-        return new NumberAnalyzerResult(columns, crosstab);
+
+        // keep the merged sketches so that the result can be reduced further
+        final Map<String, DescriptiveStatisticsSketch> sketches = new LinkedHashMap<>();
+        for (final InputColumn<? extends Number> column : columns) {
+            final DescriptiveStatisticsSketch sketch = getSketch(column.getName(), results);
+            if (sketch != null) {
+                sketches.put(column.getName(), sketch);
+            }
+        }
+
+        return new NumberAnalyzerResult(columns, crosstab, sketches);
     }
 
 }
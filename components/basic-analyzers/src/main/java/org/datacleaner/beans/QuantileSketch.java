@@ -0,0 +1,217 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Mergeable quantile sketch in the style of the KLL sketch (Karnin, Lang and
+ * Liberty). Values are kept in a hierarchy of compactors, where each item on
+ * level h represents 2^h values. When a level exceeds its capacity it is
+ * sorted and every other item is promoted to the level above. The lower levels
+ * have smaller capacities, which keeps the total number of items retained in
+ * the order of three times the accuracy parameter, regardless of the number
+ * of values added.
+ *
+ * As long as no compaction has taken place, the sketch is exact.
+ */
+final class QuantileSketch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int DEFAULT_ACCURACY = 200;
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+    private static final int MIN_CAPACITY = 2;
+
+    private final int _accuracy;
+    private final Random _random;
+    private double[][] _levels;
+    private int[] _sizes;
+    private long _count;
+
+    QuantileSketch() {
+        this(DEFAULT_ACCURACY);
+    }
+
+    QuantileSketch(final int accuracy) {
+        _accuracy = accuracy;
+        _random = new Random(0);
+        _levels = new double[][] { new double[capacity(0, 1)] };
+        _sizes = new int[1];
+        _count = 0;
+    }
+
+    public void add(final double value) {
+        append(0, value);
+        _count++;
+        compress();
+    }
+
+    public void merge(final QuantileSketch other) {
+        for (int level = 0; level < other._levels.length; level++) {
+            for (int i = 0; i < other._sizes[level]; i++) {
+                append(level, other._levels[level][i]);
+            }
+        }
+        _count += other._count;
+        compress();
+    }
+
+    public long getCount() {
+        return _count;
+    }
+
+    /**
+     * Determines whether the sketch still holds every value added to it.
+     *
+     * @return
+     */
+    public boolean isExact() {
+        return _levels.length == 1;
+    }
+
+    /**
+     * Gets a percentile, estimated the same way as the default estimation of
+     * commons-math's Percentile, ie. interpolated between the values at the
+     * ranks surrounding p * (n + 1) / 100.
+     *
+     * @param percentile
+     *            a percentile between 0 and 100
+     * @return
+     */
+    public double getPercentile(final double percentile) {
+        if (_count == 0) {
+            return Double.NaN;
+        }
+
+        final int retained = getRetainedCount();
+        final double[] values = new double[retained];
+        final long[] weights = new long[retained];
+        final long[] sortKeys = new long[retained];
+        int index = 0;
+        for (int level = 0; level < _levels.length; level++) {
+            for (int i = 0; i < _sizes[level]; i++) {
+                values[index] = _levels[level][i];
+                weights[index] = 1L << level;
+                index++;
+            }
+        }
+
+        // sort values and weights together by sorting indices by value
+        final Integer[] order = new Integer[retained];
+        for (int i = 0; i < retained; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (index1, index2) -> Double.compare(values[index1], values[index2]));
+        final double[] sortedValues = new double[retained];
+        long cumulativeWeight = 0;
+        for (int i = 0; i < retained; i++) {
+            sortedValues[i] = values[order[i]];
+            cumulativeWeight += weights[order[i]];
+            sortKeys[i] = cumulativeWeight;
+        }
+
+        final double position = percentile * (_count + 1) / 100;
+        if (position < 1) {
+            return sortedValues[0];
+        }
+        if (position >= _count) {
+            return sortedValues[retained - 1];
+        }
+        final long rank = (long) Math.floor(position);
+        final double lower = valueAtRank(sortedValues, sortKeys, rank);
+        final double upper = valueAtRank(sortedValues, sortKeys, rank + 1);
+        return lower + (position - rank) * (upper - lower);
+    }
+
+    private static double valueAtRank(final double[] sortedValues, final long[] cumulativeWeights, final long rank) {
+        int index = Arrays.binarySearch(cumulativeWeights, rank);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return sortedValues[Math.min(index, sortedValues.length - 1)];
+    }
+
+    private int getRetainedCount() {
+        int retained = 0;
+        for (final int size : _sizes) {
+            retained += size;
+        }
+        return retained;
+    }
+
+    private int capacity(final int level, final int numLevels) {
+        final int depth = numLevels - level - 1;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(_accuracy * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    private void append(final int level, final double value) {
+        while (level >= _levels.length) {
+            _levels = Arrays.copyOf(_levels, _levels.length + 1);
+            _levels[_levels.length - 1] = new double[MIN_CAPACITY];
+            _sizes = Arrays.copyOf(_sizes, _sizes.length + 1);
+        }
+        if (_sizes[level] == _levels[level].length) {
+            _levels[level] = Arrays.copyOf(_levels[level], _levels[level].length * 2);
+        }
+        _levels[level][_sizes[level]++] = value;
+    }
+
+    private void compress() {
+        boolean compacted = true;
+        while (compacted) {
+            compacted = false;
+            for (int level = 0; level < _levels.length; level++) {
+                if (_sizes[level] >= capacity(level, _levels.length)) {
+                    compact(level);
+                    compacted = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sorts a level and promotes every other item of it to the level above.
+     * If the level has an odd number of items, the largest one stays behind.
+     *
+     * @param level
+     */
+    private void compact(final int level) {
+        final double[] items = _levels[level];
+        final int size = _sizes[level];
+        Arrays.sort(items, 0, size);
+
+        final int pairs = size / 2;
+        final int offset = _random.nextBoolean() ? 1 : 0;
+        for (int i = 0; i < pairs; i++) {
+            append(level + 1, items[2 * i + offset]);
+        }
+
+        final double[] levelItems = _levels[level];
+        if (size % 2 == 1) {
+            levelItems[0] = levelItems[size - 1];
+            _sizes[level] = 1;
+        } else {
+            _sizes[level] = 0;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.math.stat.descriptive.DescriptiveStatistics;
+
+import junit.framework.TestCase;
+
+public class DescriptiveStatisticsSketchTest extends TestCase {
+
+    public void testExactForFewValues() throws Exception {
+        final DescriptiveStatisticsSketch sketch = new DescriptiveStatisticsSketch();
+        final DescriptiveStatistics statistics = new DescriptiveStatistics();
+
+        final Random random = new Random(1);
+        for (int i = 0; i < 150; i++) {
+            final double value = Math.round(random.nextGaussian() * 1000) / 10d;
+            sketch.addValue(value, 1);
+            statistics.addValue(value);
+        }
+
+        assertTrue(sketch.isExact());
+        assertEquals(150, sketch.getN());
+        assertEquals(statistics.getMean(), sketch.getMean(), 0.0000001);
+        assertEquals(statistics.getPercentile(50), sketch.getMedian(), 0.0000001);
+        assertEquals(statistics.getPercentile(25), sketch.getPercentile(25), 0.0000001);
+        assertEquals(statistics.getPercentile(75), sketch.getPercentile(75), 0.0000001);
+        assertEquals(statistics.getPercentile(1), sketch.getPercentile(1), 0.0000001);
+        assertEquals(statistics.getSkewness(), sketch.getSkewness(), 0.0000001);
+        assertEquals(statistics.getKurtosis(), sketch.getKurtosis(), 0.0000001);
+    }
+
+    public void testFewerThanFourValues() throws Exception {
+        final DescriptiveStatisticsSketch sketch = new DescriptiveStatisticsSketch();
+        sketch.addValue(1, 1);
+        sketch.addValue(5, 2);
+
+        final DescriptiveStatistics statistics = new DescriptiveStatistics(new double[] { 1, 5, 5 });
+        assertEquals(statistics.getSkewness(), sketch.getSkewness(), 0.0000001);
+        assertEquals(statistics.getKurtosis(), sketch.getKurtosis());
+        assertEquals(statistics.getPercentile(50), sketch.getMedian());
+    }
+
+    public void testApproximationOfManyValues() throws Exception {
+        final DescriptiveStatisticsSketch sketch = new DescriptiveStatisticsSketch();
+        final DescriptiveStatistics statistics = new DescriptiveStatistics();
+
+        final Random random = new Random(2);
+        for (int i = 0; i < 200000; i++) {
+            final double value = random.nextDouble() * 1000;
+            sketch.addValue(value, 1);
+            statistics.addValue(value);
+        }
+
+        assertFalse(sketch.isExact());
+
+        // uniformly distributed values, so a percentile error of 2% of the
+        // ranks equals an error of 20
+        assertEquals(statistics.getPercentile(50), sketch.getMedian(), 20);
+        assertEquals(statistics.getPercentile(25), sketch.getPercentile(25), 20);
+        assertEquals(statistics.getPercentile(75), sketch.getPercentile(75), 20);
+        assertEquals(statistics.getSkewness(), sketch.getSkewness(), 0.0000001);
+        assertEquals(statistics.getKurtosis(), sketch.getKurtosis(), 0.0000001);
+    }
+
+    public void testMerge() throws Exception {
+        final DescriptiveStatistics statistics = new DescriptiveStatistics();
+        final List<DescriptiveStatisticsSketch> sketches = new ArrayList<>();
+
+        final Random random = new Random(3);
+        for (int i = 0; i < 4; i++) {
+            final DescriptiveStatisticsSketch sketch = new DescriptiveStatisticsSketch();
+            for (int j = 0; j < 30000; j++) {
+                // each partial sketch sees a differently shifted distribution
+                final double value = random.nextGaussian() * 100 + i * 50;
+                sketch.addValue(value, 1);
+                statistics.addValue(value);
+            }
+            sketches.add(sketch);
+        }
+
+        final DescriptiveStatisticsSketch merged = DescriptiveStatisticsSketch.merge(sketches);
+        assertEquals(120000, merged.getN());
+        assertEquals(statistics.getMean(), merged.getMean(), 0.0000001);
+        assertEquals(statistics.getPercentile(50), merged.getMedian(), 5);
+        assertEquals(statistics.getPercentile(25), merged.getPercentile(25), 5);
+        assertEquals(statistics.getPercentile(75), merged.getPercentile(75), 5);
+        assertEquals(statistics.getSkewness(), merged.getSkewness(), 0.0000001);
+        assertEquals(statistics.getKurtosis(), merged.getKurtosis(), 0.0000001);
+    }
+}
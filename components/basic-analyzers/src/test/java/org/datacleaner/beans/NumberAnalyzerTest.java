@@ -19,10 +19,14 @@
  */
 package org.datacleaner.beans;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.datacleaner.data.MockInputColumn;
 import org.datacleaner.data.MockInputRow;
 import org.datacleaner.result.CrosstabResult;
 import org.datacleaner.result.renderer.CrosstabTextRenderer;
+import org.datacleaner.storage.RowAnnotations;
 
 import junit.framework.TestCase;
 
@@ -107,4 +111,32 @@ public class NumberAnalyzerTest extends TestCase {
         assertEquals("Sum of squares     337624.39 33762440   1300 ", resultLines[11]);
     }
 
+    public void testApproximateDescriptiveStatisticsReduced() throws Exception {
+        final List<NumberAnalyzerResult> results = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            final NumberAnalyzer analyzer = new NumberAnalyzer();
+            analyzer._columns = new MockInputColumn[] { col2 };
+            analyzer._annotationFactory = RowAnnotations.getDefaultFactory();
+            analyzer.descriptiveStatistics = true;
+            analyzer.approximateDescriptiveStatistics = true;
+            analyzer.init();
+
+            for (long value = 1; value <= 10; value++) {
+                analyzer.run(new MockInputRow().put(col2, value + i * 10), 1);
+            }
+            results.add(analyzer.getResult());
+        }
+
+        assertEquals(5.5, results.get(0).getMedian(col2).doubleValue());
+        assertEquals(15.5, results.get(1).getMedian(col2).doubleValue());
+
+        final NumberAnalyzerResult reduced = new NumberAnalyzerResultReducer().reduce(results);
+        assertEquals(20, reduced.getRowCount(col2).intValue());
+        assertEquals(10.5, reduced.getMedian(col2).doubleValue());
+        assertEquals(5.25, reduced.getPercentile25(col2).doubleValue());
+        assertEquals(15.75, reduced.getPercentile75(col2).doubleValue());
+        assertEquals(0.0, reduced.getSkewness(col2).doubleValue(), 0.0000001);
+        assertEquals(-1.2, reduced.getKurtosis(col2).doubleValue(), 0.0000001);
+        assertNotNull(reduced.getSketch(col2));
+    }
 }
@@ -19,38 +19,67 @@
  */
 package org.datacleaner.components.group;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
-import org.apache.metamodel.util.AggregateBuilder;
 import org.apache.metamodel.util.ObjectComparator;
 
-abstract class AbstractRowNumberAwareAggregateBuilder<T> implements AggregateBuilder<T> {
+abstract class AbstractRowNumberAwareAggregateBuilder<T> implements MergeableAggregateBuilder<T> {
+
+    private static final long serialVersionUID = 1L;
 
     private final SortationType _sortationType;
-    private final Object _values;
     private final boolean _skipNulls;
+    private final boolean _buffered;
+
+    /**
+     * The values added, in a structure depending on the sortation type, or
+     * null if values are passed directly to {@link #addSorted(Object)}. Not
+     * serialized directly since the comparator of sorted sets is not
+     * serializable.
+     */
+    private transient Object _values;
 
-    public AbstractRowNumberAwareAggregateBuilder(final SortationType sortationType, final boolean skipNulls) {
+    /**
+     * Creates the builder.
+     *
+     * @param sortationType
+     * @param skipNulls
+     * @param mergeable
+     *            whether the builder may be merged with another builder (see
+     *            {@link #merge(MergeableAggregateBuilder)}). Unsorted values
+     *            are only buffered if this is true, otherwise they are passed
+     *            directly to {@link #addSorted(Object)}.
+     */
+    public AbstractRowNumberAwareAggregateBuilder(final SortationType sortationType, final boolean skipNulls,
+            final boolean mergeable) {
         _sortationType = sortationType;
         _skipNulls = skipNulls;
+        _buffered = mergeable || sortationType != SortationType.NONE;
+        _values = createValues();
+    }
 
-        switch (sortationType) {
+    private Object createValues() {
+        if (!_buffered) {
+            return null;
+        }
+
+        switch (_sortationType) {
         case NONE:
-            _values = null;
-            break;
+            return new ArrayList<>();
         case NATURAL_SORT_ASC:
-            _values = new TreeSet<>(ObjectComparator.getComparator());
-            break;
+            return new TreeSet<>(ObjectComparator.getComparator());
         case NATURAL_SORT_DESC:
-            _values = new TreeSet<>(Collections.reverseOrder(ObjectComparator.getComparator()));
-            break;
+            return new TreeSet<>(Collections.reverseOrder(ObjectComparator.getComparator()));
         case RECORD_ORDER:
-            _values = new TreeMap<Long, Object>();
-            break;
+            return new TreeMap<Long, Object>();
         default:
             throw new UnsupportedOperationException();
         }
@@ -66,50 +95,95 @@ abstract class AbstractRowNumberAwareAggregateBuilder<T> implements AggregateBui
             return;
         }
 
+        if (!_buffered) {
+            addSorted(o);
+            return;
+        }
+
         switch (_sortationType) {
         case NONE:
-            addSorted(o);
-            break;
         case NATURAL_SORT_ASC:
         case NATURAL_SORT_DESC:
-            @SuppressWarnings("unchecked") final Collection<Object> collection = (Collection<Object>) _values;
-            collection.add(o);
+            getCollection().add(o);
             break;
         case RECORD_ORDER:
-            @SuppressWarnings("unchecked") final Map<Long, Object> map = (Map<Long, Object>) _values;
-            map.put(rowNumber, o);
+            getMap().put(rowNumber, o);
             break;
         default:
             throw new UnsupportedOperationException();
         }
     }
 
+    @Override
+    public final void merge(final MergeableAggregateBuilder<?> later) {
+        if (!_buffered) {
+            throw new IllegalStateException("Aggregate builder was not created as mergeable");
+        }
+
+        final AbstractRowNumberAwareAggregateBuilder<?> other = (AbstractRowNumberAwareAggregateBuilder<?>) later;
+        if (_sortationType == SortationType.RECORD_ORDER) {
+            getMap().putAll(other.getMap());
+        } else {
+            getCollection().addAll(other.getCollection());
+        }
+    }
+
     @Override
     public final T getAggregate() {
-        switch (_sortationType) {
-        case NONE:
-            break;
-        case NATURAL_SORT_ASC:
-        case NATURAL_SORT_DESC:
-            @SuppressWarnings("unchecked") final Collection<Object> collection = (Collection<Object>) _values;
-            for (final Object o : collection) {
-                addSorted(o);
+        if (_buffered) {
+            final Collection<Object> values;
+            if (_sortationType == SortationType.RECORD_ORDER) {
+                values = getMap().values();
+            } else {
+                values = getCollection();
             }
-            break;
-        case RECORD_ORDER:
-            @SuppressWarnings("unchecked") final Map<Integer, Object> map = (Map<Integer, Object>) _values;
-            final Collection<Object> objects = map.values();
-            for (final Object o : objects) {
+            for (final Object o : values) {
                 addSorted(o);
             }
-            break;
-        default:
-            throw new UnsupportedOperationException();
+
+            // the values are now part of the sorted aggregate, so they must
+            // not be added again by subsequent calls
+            values.clear();
         }
 
         return getAggregateSorted();
     }
 
+    @SuppressWarnings("unchecked")
+    private Collection<Object> getCollection() {
+        return (Collection<Object>) _values;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Object> getMap() {
+        return (Map<Long, Object>) _values;
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        if (!_buffered) {
+            return;
+        }
+        if (_sortationType == SortationType.RECORD_ORDER) {
+            out.writeObject(_values);
+        } else {
+            out.writeObject(new ArrayList<>(getCollection()));
+        }
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (!_buffered) {
+            return;
+        }
+        if (_sortationType == SortationType.RECORD_ORDER) {
+            _values = in.readObject();
+        } else {
+            _values = createValues();
+            getCollection().addAll((Collection<?>) in.readObject());
+        }
+    }
+
     protected abstract T getAggregateSorted();
 
     protected abstract void addSorted(Object o);
@@ -0,0 +1,57 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.components.group;
+
+import org.apache.metamodel.util.AbstractNumberAggregateBuilder;
+
+/**
+ * Calculates the average of the numbers added.
+ */
+final class AverageAggregateBuilder extends AbstractNumberAggregateBuilder<Double>
+        implements MergeableAggregateBuilder<Double> {
+
+    private static final long serialVersionUID = 1L;
+
+    private double _average;
+    private long _numValues;
+
+    @Override
+    protected void add(final Number number) {
+        final double total = _average * _numValues + number.doubleValue();
+        _numValues++;
+        _average = total / _numValues;
+    }
+
+    @Override
+    public Double getAggregate() {
+        return _average;
+    }
+
+    @Override
+    public void merge(final MergeableAggregateBuilder<?> later) {
+        final AverageAggregateBuilder other = (AverageAggregateBuilder) later;
+        if (other._numValues == 0) {
+            return;
+        }
+        final long numValues = _numValues + other._numValues;
+        _average = (_average * _numValues + other._average * other._numValues) / numValues;
+        _numValues = numValues;
+    }
+}
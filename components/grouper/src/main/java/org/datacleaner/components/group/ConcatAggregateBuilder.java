@@ -23,12 +23,14 @@ import com.google.common.base.Strings;
 
 final class ConcatAggregateBuilder extends AbstractRowNumberAwareAggregateBuilder<String> {
 
+    private static final long serialVersionUID = 1L;
+
     private final String _concatenationSeparator;
     private final StringBuilder _result;
 
     public ConcatAggregateBuilder(final SortationType sortationType, final boolean skipNulls,
-            final String concatenationSeparator) {
-        super(sortationType, skipNulls);
+            final boolean mergeable, final String concatenationSeparator) {
+        super(sortationType, skipNulls, mergeable);
         _concatenationSeparator = concatenationSeparator;
         _result = new StringBuilder();
     }
@@ -27,10 +27,13 @@ import org.apache.metamodel.util.AggregateBuilder;
 final class CreateListAggregateBuilder extends AbstractRowNumberAwareAggregateBuilder<List<?>>
         implements AggregateBuilder<List<?>> {
 
+    private static final long serialVersionUID = 1L;
+
     private final List<Object> _result;
 
-    public CreateListAggregateBuilder(final SortationType sortationType, final boolean skipNulls) {
-        super(sortationType, skipNulls);
+    public CreateListAggregateBuilder(final SortationType sortationType, final boolean skipNulls,
+            final boolean mergeable) {
+        super(sortationType, skipNulls, mergeable);
         _result = new ArrayList<>();
     }
 
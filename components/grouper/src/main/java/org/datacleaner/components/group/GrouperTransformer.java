@@ -20,19 +20,13 @@
 package org.datacleaner.components.group;
 
 import java.util.ArrayList;
-import java.util.List;
-import java.util.Map.Entry;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Named;
 
-import org.apache.metamodel.query.FunctionType;
 import org.apache.metamodel.query.Query;
 import org.apache.metamodel.schema.ColumnType;
-import org.apache.metamodel.util.AggregateBuilder;
 import org.apache.metamodel.util.HasName;
+import org.apache.metamodel.util.ObjectComparator;
 import org.datacleaner.api.Categorized;
 import org.datacleaner.api.Close;
 import org.datacleaner.api.Configured;
@@ -48,7 +42,17 @@ import org.datacleaner.api.OutputRowCollector;
 import org.datacleaner.components.categories.CompositionCategory;
 import org.datacleaner.job.output.OutputDataStreamBuilder;
 import org.datacleaner.job.output.OutputDataStreams;
+import org.datacleaner.util.sort.SerializableRowCodec;
+import org.datacleaner.util.sort.SpillableAggregator;
+import org.datacleaner.util.sort.TypedValueRowCodec;
 
+/**
+ * Groups and aggregates values with the same key. The aggregates are kept in a
+ * {@link SpillableAggregator}, so if the number of groups exceeds the
+ * configured memory budget, partial aggregates are spilled to disk and merged
+ * when the groups are written. In that case the groups are written ordered by
+ * the type of their keys and then by the natural order of their keys.
+ */
 @Named("Grouper")
 @Description("A component that allows grouping and aggregating values with the same key.")
 @Categorized(value = CompositionCategory.class)
@@ -71,23 +75,23 @@ public class GrouperTransformer extends MultiStreamComponent {
             return _name;
         }
 
-        public AggregateBuilder<?> createAggregateBuilder(final SortationType sortationType, final boolean skipNulls,
-                final String concatenationSeparator) {
+        public MergeableAggregateBuilder<?> createAggregateBuilder(final SortationType sortationType,
+                final boolean skipNulls, final boolean mergeable, final String concatenationSeparator) {
             switch (this) {
             case CONCAT_VALUES:
-                return new ConcatAggregateBuilder(sortationType, skipNulls, concatenationSeparator);
+                return new ConcatAggregateBuilder(sortationType, skipNulls, mergeable, concatenationSeparator);
             case CREATE_LIST:
-                return new CreateListAggregateBuilder(sortationType, skipNulls);
+                return new CreateListAggregateBuilder(sortationType, skipNulls, mergeable);
             case FIRST_VALUE:
-                return FunctionType.FIRST.createAggregateBuilder();
+                return new FirstValueAggregateBuilder();
             case LAST_VALUE:
-                return FunctionType.LAST.createAggregateBuilder();
+                return new LastValueAggregateBuilder();
             case SUM:
-                return FunctionType.SUM.createAggregateBuilder();
+                return new SumAggregateBuilder();
             case AVG:
-                return FunctionType.AVG.createAggregateBuilder();
+                return new AverageAggregateBuilder();
             case RANDOM_VALUE:
-                return FunctionType.RANDOM.createAggregateBuilder();
+                return new RandomValueAggregateBuilder();
             default:
                 throw new UnsupportedOperationException();
             }
@@ -122,8 +126,6 @@ public class GrouperTransformer extends MultiStreamComponent {
     public static final String PROPERTY_AGGREGATED_VALUES = "Aggregated values";
     public static final String PROPERTY_AGGREGATION_TYPES = "AggregationTypes";
     public static final String PROPERTY_VALUE_SORTATION = "Value sortation";
-    private static final Object NULL_KEY = new Object();
-    private final ConcurrentMap<Object, List<AggregateBuilder<?>>> _aggregateBuilders = new ConcurrentHashMap<>();
     @Configured(order = 1, value = PROPERTY_GROUP_KEY)
     InputColumn<?> groupKey;
     @Configured(order = 2, value = PROPERTY_AGGREGATED_VALUES)
@@ -140,10 +142,35 @@ public class GrouperTransformer extends MultiStreamComponent {
     @Configured
     boolean skipNullValues = true;
     private OutputRowCollector _rowCollector;
+    private SpillableAggregator<Object, ArrayList<MergeableAggregateBuilder<?>>> _aggregateBuilders;
 
     @Initialize
     public void init() {
-        _aggregateBuilders.clear();
+        _aggregateBuilders = new SpillableAggregator<>(GrouperTransformer::compareGroupKeys, new TypedValueRowCodec(),
+                new SerializableRowCodec<>(), key -> createAggregateBuilders(),
+                GrouperTransformer::mergeAggregateBuilders);
+    }
+
+    /**
+     * Compares group keys when spilling to disk. Unlike
+     * {@link ObjectComparator}, this only treats keys as equal if they are of
+     * the same type, since e.g. 1, 1L and "1" are distinct groups.
+     *
+     * @param key1
+     * @param key2
+     * @return
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compareGroupKeys(final Object key1, final Object key2) {
+        // null keys are never spilled, so they are not compared
+        final int diff = key1.getClass().getName().compareTo(key2.getClass().getName());
+        if (diff != 0) {
+            return diff;
+        }
+        if (key1 instanceof Comparable) {
+            return ((Comparable) key1).compareTo(key2);
+        }
+        return ObjectComparator.getComparator().compare(key1, key2);
     }
 
     @Override
@@ -178,77 +205,71 @@ public class GrouperTransformer extends MultiStreamComponent {
             return;
         }
 
-        Object key = row.getValue(groupKey);
-        if (key == null) {
-            if (skipNullGroupKeys) {
-                // skip it
-                return;
-            } else {
-                key = NULL_KEY;
-            }
+        final Object key = row.getValue(groupKey);
+        if (key == null && skipNullGroupKeys) {
+            // skip it
+            return;
         }
 
-        synchronized (_aggregateBuilders) {
-            final List<AggregateBuilder<?>> aggregateBuilders = getAggregateBuilders(key);
-            final long rowId = row.getId();
+        _aggregateBuilders.update(key, aggregateBuilders -> {
+            synchronized (aggregateBuilders) {
+                final long rowId = row.getId();
 
-            // send rowId to COUNT function
-            aggregateBuilders.get(0).add(rowId);
+                // send rowId to COUNT function
+                aggregateBuilders.get(0).add(rowId);
 
-            for (int i = 0; i < aggregatedValues.length; i++) {
-                final Object value = row.getValue(aggregatedValues[i]);
-                final AggregateBuilder<?> aggregateBuilder = aggregateBuilders.get(i + 1);
-                if (aggregateBuilder instanceof AbstractRowNumberAwareAggregateBuilder) {
-                    ((AbstractRowNumberAwareAggregateBuilder<?>) aggregateBuilder).add(value, rowId);
-                } else {
-                    aggregateBuilder.add(value);
+                for (int i = 0; i < aggregatedValues.length; i++) {
+                    final Object value = row.getValue(aggregatedValues[i]);
+                    final MergeableAggregateBuilder<?> aggregateBuilder = aggregateBuilders.get(i + 1);
+                    if (aggregateBuilder instanceof AbstractRowNumberAwareAggregateBuilder) {
+                        ((AbstractRowNumberAwareAggregateBuilder<?>) aggregateBuilder).add(value, rowId);
+                    } else {
+                        aggregateBuilder.add(value);
+                    }
                 }
             }
-        }
+        });
     }
 
-    private List<AggregateBuilder<?>> getAggregateBuilders(final Object key) {
-        List<AggregateBuilder<?>> collectionOfAggregateBuilders = _aggregateBuilders.get(key);
-        if (collectionOfAggregateBuilders == null) {
-            final List<AggregateBuilder<?>> newCollectionOfValues = new ArrayList<>(aggregationTypes.length);
+    private ArrayList<MergeableAggregateBuilder<?>> createAggregateBuilders() {
+        final ArrayList<MergeableAggregateBuilder<?>> aggregateBuilders = new ArrayList<>(aggregationTypes.length + 1);
 
-            // add COUNT aggregation as first
-            newCollectionOfValues.add(FunctionType.COUNT.createAggregateBuilder());
+        // add COUNT aggregation as first
+        aggregateBuilders.add(new RowCountAggregateBuilder());
 
-            for (final AggregationType aggregationType : aggregationTypes) {
-                final AggregateBuilder<?> aggregateBuilder =
-                        aggregationType.createAggregateBuilder(valueSortation, skipNullValues, concatenationSeparator);
-                newCollectionOfValues.add(aggregateBuilder);
-            }
+        // builders only need to be mergeable if partial aggregates may be
+        // spilled to disk
+        final boolean mergeable = _aggregateBuilders.isSpillingEnabled();
+        for (final AggregationType aggregationType : aggregationTypes) {
+            aggregateBuilders.add(aggregationType.createAggregateBuilder(valueSortation, skipNullValues, mergeable,
+                    concatenationSeparator));
+        }
+        return aggregateBuilders;
+    }
 
-            final List<AggregateBuilder<?>> previousCollectionOfValues =
-                    _aggregateBuilders.putIfAbsent(key, newCollectionOfValues);
-            if (previousCollectionOfValues == null) {
-                collectionOfAggregateBuilders = newCollectionOfValues;
-            } else {
-                collectionOfAggregateBuilders = previousCollectionOfValues;
-            }
+    private static ArrayList<MergeableAggregateBuilder<?>> mergeAggregateBuilders(
+            final ArrayList<MergeableAggregateBuilder<?>> earlier,
+            final ArrayList<MergeableAggregateBuilder<?>> later) {
+        for (int i = 0; i < earlier.size(); i++) {
+            earlier.get(i).merge(later.get(i));
         }
-        return collectionOfAggregateBuilders;
+        return earlier;
     }
 
     @Close
     public void close() {
-        final Set<Entry<Object, List<AggregateBuilder<?>>>> entrySet = _aggregateBuilders.entrySet();
-        for (final Entry<Object, List<AggregateBuilder<?>>> entry : entrySet) {
-            final Object key = entry.getKey();
-            final List<AggregateBuilder<?>> aggregateBuilders = entry.getValue();
-
+        _aggregateBuilders.forEach((key, aggregateBuilders) -> {
             final Object[] values = new Object[2 + aggregatedValues.length];
-            values[0] = key == NULL_KEY ? null : key;
+            values[0] = key;
             values[1] = aggregateBuilders.get(0).getAggregate();
 
             for (int i = 1; i < aggregateBuilders.size(); i++) {
-                final AggregateBuilder<?> aggregateBuilder = aggregateBuilders.get(i);
+                final MergeableAggregateBuilder<?> aggregateBuilder = aggregateBuilders.get(i);
                 values[i + 1] = aggregateBuilder.getAggregate();
             }
 
             _rowCollector.putValues(values);
-        }
+        });
+        _aggregateBuilders.close();
     }
 }
@@ -0,0 +1,47 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.components.group;
+
+/**
+ * Selects the last non-null value added.
+ */
+final class LastValueAggregateBuilder implements MergeableAggregateBuilder<Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    private Object _result;
+
+    @Override
+    public void add(final Object o) {
+        if (o != null) {
+            _result = o;
+        }
+    }
+
+    @Override
+    public Object getAggregate() {
+        return _result;
+    }
+
+    @Override
+    public void merge(final MergeableAggregateBuilder<?> later) {
+        add(((LastValueAggregateBuilder) later)._result);
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.components.group;
+
+import java.io.Serializable;
+
+import org.apache.metamodel.util.AggregateBuilder;
+
+/**
+ * An {@link AggregateBuilder} which can be serialized and merged with another
+ * builder of the same kind. This allows the {@link GrouperTransformer} to spill
+ * partial aggregates to disk and combine them afterwards.
+ *
+ * @param <T>
+ *            the aggregate type
+ */
+public interface MergeableAggregateBuilder<T> extends AggregateBuilder<T>, Serializable {
+
+    /**
+     * Merges another builder of the same kind into this one. The other builder
+     * holds the partial aggregate of rows that were processed after the rows
+     * of this builder.
+     *
+     * @param later
+     */
+    void merge(MergeableAggregateBuilder<?> later);
+}
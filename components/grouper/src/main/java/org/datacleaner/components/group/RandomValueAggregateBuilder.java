@@ -0,0 +1,69 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.components.group;
+
+import java.util.Random;
+
+/**
+ * Selects a random non-null value, giving each value added the same
+ * probability of being selected.
+ */
+final class RandomValueAggregateBuilder implements MergeableAggregateBuilder<Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Random _random;
+    private Object _result;
+    private long _count;
+
+    RandomValueAggregateBuilder() {
+        _random = new Random();
+    }
+
+    @Override
+    public void add(final Object o) {
+        if (o == null) {
+            return;
+        }
+        _count++;
+        if (_random.nextDouble() < 1d / _count) {
+            _result = o;
+        }
+    }
+
+    @Override
+    public Object getAggregate() {
+        return _result;
+    }
+
+    @Override
+    public void merge(final MergeableAggregateBuilder<?> later) {
+        final RandomValueAggregateBuilder other = (RandomValueAggregateBuilder) later;
+        if (other._count == 0) {
+            return;
+        }
+        _count += other._count;
+        // keep the selection uniform by weighing the other selection by the
+        // number of values it was selected from
+        if (_random.nextDouble() < (double) other._count / _count) {
+            _result = other._result;
+        }
+    }
+}
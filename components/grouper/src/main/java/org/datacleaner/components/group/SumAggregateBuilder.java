@@ -0,0 +1,48 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.components.group;
+
+import org.apache.metamodel.util.AbstractNumberAggregateBuilder;
+
+/**
+ * Calculates the sum of the numbers added.
+ */
+final class SumAggregateBuilder extends AbstractNumberAggregateBuilder<Double>
+        implements MergeableAggregateBuilder<Double> {
+
+    private static final long serialVersionUID = 1L;
+
+    private double _sum;
+
+    @Override
+    protected void add(final Number number) {
+        _sum += number.doubleValue();
+    }
+
+    @Override
+    public Double getAggregate() {
+        return _sum;
+    }
+
+    @Override
+    public void merge(final MergeableAggregateBuilder<?> later) {
+        _sum += ((SumAggregateBuilder) later)._sum;
+    }
+}
@@ -23,11 +23,13 @@ import static org.junit.Assert.assertEquals;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.data.MockInputColumn;
 import org.datacleaner.data.MockInputRow;
 import org.datacleaner.test.MockOutputRowCollector;
+import org.datacleaner.util.SystemProperties;
 import org.junit.Test;
 
 public class GrouperTransformerTest {
@@ -125,4 +127,135 @@ public class GrouperTransformerTest {
         assertEquals("[A, 4, world;there;hi;hello, D;C;B;A]", Arrays.toString(output.get(0)));
         assertEquals("[B, 1, hola, E]", Arrays.toString(output.get(1)));
     }
+
+    @Test
+    public void testSpilledAggregationGivesSameResult() throws Exception {
+        final List<Object[]> inMemoryOutput = runAllAggregationTypes(SortationType.RECORD_ORDER);
+
+        System.setProperty(SystemProperties.AGGREGATION_MAX_ENTRIES_IN_MEMORY, "2");
+        final List<Object[]> spilledOutput;
+        try {
+            spilledOutput = runAllAggregationTypes(SortationType.RECORD_ORDER);
+        } finally {
+            System.clearProperty(SystemProperties.AGGREGATION_MAX_ENTRIES_IN_MEMORY);
+        }
+
+        assertEquals(5, inMemoryOutput.size());
+        assertEquals(toSortedStrings(inMemoryOutput), toSortedStrings(spilledOutput));
+        assertEquals("[A, 4, 3.0, 1.0, hello, there, [hello, world, hi, there], hello;world;hi;there]",
+                toSortedStrings(spilledOutput).get(0));
+
+        // spilled groups are written in key order, with the null key first
+        assertEquals(null, spilledOutput.get(0)[0]);
+        assertEquals("A", spilledOutput.get(1)[0]);
+        assertEquals("D", spilledOutput.get(4)[0]);
+    }
+
+    @Test
+    public void testSpilledUnsortedAggregationGivesSameResult() throws Exception {
+        final List<Object[]> inMemoryOutput = runAllAggregationTypes(SortationType.NONE);
+
+        System.setProperty(SystemProperties.AGGREGATION_MAX_ENTRIES_IN_MEMORY, "2");
+        final List<Object[]> spilledOutput;
+        try {
+            spilledOutput = runAllAggregationTypes(SortationType.NONE);
+        } finally {
+            System.clearProperty(SystemProperties.AGGREGATION_MAX_ENTRIES_IN_MEMORY);
+        }
+
+        assertEquals(toSortedStrings(inMemoryOutput), toSortedStrings(spilledOutput));
+        assertEquals("[A, 4, 3.0, 1.0, hello, there, [hello, world, hi, there], hello;world;hi;there]",
+                toSortedStrings(spilledOutput).get(0));
+    }
+
+    @Test
+    public void testSpilledAggregationKeepsKeysOfDifferentTypesApart() throws Exception {
+        final MockInputColumn<Object> objectKey = new MockInputColumn<>("key", Object.class);
+
+        final GrouperTransformer grouper = new GrouperTransformer();
+        grouper.groupKey = objectKey;
+        grouper.aggregatedValues = new InputColumn[] { value1 };
+        grouper.aggregationTypes =
+                new GrouperTransformer.AggregationType[] { GrouperTransformer.AggregationType.CONCAT_VALUES };
+        grouper.concatenationSeparator = ";";
+
+        System.setProperty(SystemProperties.AGGREGATION_MAX_ENTRIES_IN_MEMORY, "1");
+        try {
+            grouper.init();
+        } finally {
+            System.clearProperty(SystemProperties.AGGREGATION_MAX_ENTRIES_IN_MEMORY);
+        }
+
+        final MockOutputRowCollector collector = new MockOutputRowCollector();
+        grouper.initializeOutputDataStream(null, null, collector);
+
+        grouper.transform(new MockInputRow(1).put(objectKey, 1).put(value1, "int"));
+        grouper.transform(new MockInputRow(2).put(objectKey, 1L).put(value1, "long"));
+        grouper.transform(new MockInputRow(3).put(objectKey, "1").put(value1, "string"));
+        grouper.transform(new MockInputRow(4).put(objectKey, 1).put(value1, "int again"));
+
+        grouper.close();
+
+        final List<Object[]> output = collector.getOutput();
+        assertEquals(3, output.size());
+        assertEquals("[1, 2, int;int again]", Arrays.toString(output.get(0)));
+        assertEquals(Integer.class, output.get(0)[0].getClass());
+        assertEquals("[1, 1, long]", Arrays.toString(output.get(1)));
+        assertEquals("[1, 1, string]", Arrays.toString(output.get(2)));
+    }
+
+    @Test
+    public void testGetAggregateIsIdempotent() throws Exception {
+        for (final SortationType sortationType : SortationType.values()) {
+            for (final boolean mergeable : new boolean[] { false, true }) {
+                final ConcatAggregateBuilder builder = new ConcatAggregateBuilder(sortationType, true, mergeable, ";");
+                builder.add("foo", 1);
+                builder.add("bar", 2);
+
+                final String aggregate = builder.getAggregate();
+                assertEquals(sortationType + ", mergeable=" + mergeable, aggregate, builder.getAggregate());
+                assertEquals(2, aggregate.split(";").length);
+            }
+        }
+    }
+
+    private List<Object[]> runAllAggregationTypes(final SortationType sortationType) {
+        final MockInputColumn<Integer> number = new MockInputColumn<>("number", Integer.class);
+
+        final GrouperTransformer grouper = new GrouperTransformer();
+        grouper.groupKey = groupKey;
+        grouper.aggregatedValues = new InputColumn[] { number, number, value1, value1, value1, value1 };
+        grouper.aggregationTypes =
+                new GrouperTransformer.AggregationType[] { GrouperTransformer.AggregationType.SUM,
+                        GrouperTransformer.AggregationType.AVG, GrouperTransformer.AggregationType.FIRST_VALUE,
+                        GrouperTransformer.AggregationType.LAST_VALUE,
+                        GrouperTransformer.AggregationType.CREATE_LIST,
+                        GrouperTransformer.AggregationType.CONCAT_VALUES };
+        grouper.valueSortation = sortationType;
+        grouper.concatenationSeparator = ";";
+        grouper.skipNullGroupKeys = false;
+
+        grouper.init();
+
+        final MockOutputRowCollector collector = new MockOutputRowCollector();
+        grouper.initializeOutputDataStream(null, null, collector);
+
+        grouper.transform(new MockInputRow(1).put(groupKey, "A").put(value1, "hello").put(number, 1));
+        grouper.transform(new MockInputRow(2).put(groupKey, "B").put(value1, "hola").put(number, 5));
+        grouper.transform(new MockInputRow(3).put(groupKey, "A").put(value1, "world").put(number, 0));
+        grouper.transform(new MockInputRow(4).put(groupKey, "C").put(value1, "hej").put(number, 2));
+        grouper.transform(new MockInputRow(5).put(groupKey, null).put(value1, "null").put(number, 7));
+        grouper.transform(new MockInputRow(6).put(groupKey, "D").put(value1, "hallo").put(number, 3));
+        grouper.transform(new MockInputRow(7).put(groupKey, "A").put(value1, "hi").put(number, null));
+        grouper.transform(new MockInputRow(8).put(groupKey, "B").put(value1, "que tal").put(number, 4));
+        grouper.transform(new MockInputRow(9).put(groupKey, "A").put(value1, "there").put(number, 2));
+
+        grouper.close();
+
+        return collector.getOutput();
+    }
+
+    private List<String> toSortedStrings(final List<Object[]> output) {
+        return output.stream().map(Arrays::toString).sorted().collect(Collectors.toList());
+    }
 }
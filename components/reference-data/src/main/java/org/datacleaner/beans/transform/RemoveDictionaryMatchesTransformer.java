@@ -20,13 +20,11 @@
 package org.datacleaner.beans.transform;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -50,6 +48,8 @@ import org.datacleaner.components.categories.ReferenceDataCategory;
 import org.datacleaner.configuration.DataCleanerConfiguration;
 import org.datacleaner.reference.Dictionary;
 import org.datacleaner.reference.DictionaryConnection;
+import org.datacleaner.util.AhoCorasickMatcher;
+import org.datacleaner.util.AhoCorasickMatcher.Match;
 import org.datacleaner.util.StringUtils;
 
 import com.google.common.base.Joiner;
@@ -100,7 +100,7 @@ public class RemoveDictionaryMatchesTransformer implements Transformer {
     DataCleanerConfiguration _configuration;
 
     private DictionaryConnection _dictionaryConnection;
-    private Map<String, Pattern> multiWordDictionaryPatterns;
+    private AhoCorasickMatcher<String> _multiWordMatcher;
 
     public RemoveDictionaryMatchesTransformer() {
     }
@@ -140,21 +140,16 @@ public class RemoveDictionaryMatchesTransformer implements Transformer {
     @Initialize
     public void init() {
         _dictionaryConnection = _dictionary.openConnection(_configuration);
-        multiWordDictionaryPatterns = new LinkedHashMap<>();
 
+        final Map<String, String> multiWordValues = new HashMap<>();
         final Iterator<String> allValues = _dictionaryConnection.getLengthSortedValues();
         while (allValues.hasNext()) {
             final String value = allValues.next();
             if (!StringUtils.isSingleWord(value)) {
-                final Pattern pattern;
-                if (_dictionary.isCaseSensitive()) {
-                    pattern = Pattern.compile("\\b" + Pattern.quote(value) + "\\b");
-                } else {
-                    pattern = Pattern.compile("\\b" + Pattern.quote(value.toLowerCase()) + "\\b");
-                }
-                multiWordDictionaryPatterns.put(value, pattern);
+                multiWordValues.put(value, value);
             }
         }
+        _multiWordMatcher = new AhoCorasickMatcher<>(multiWordValues, _dictionary.isCaseSensitive(), true);
     }
 
     @Close
@@ -165,6 +160,31 @@ public class RemoveDictionaryMatchesTransformer implements Transformer {
         }
     }
 
+    /**
+     * Removes matches from a value, along with one adjacent space of each
+     * match (preferably the preceding one).
+     *
+     * @param value
+     * @param matches
+     *            the matches, ordered by their position in the value
+     * @return
+     */
+    private static String removeMatches(final String value, final List<Match<String>> matches) {
+        final StringBuilder sb = new StringBuilder(value.length());
+        int index = 0;
+        for (final Match<String> match : matches) {
+            sb.append(value, index, match.getStart());
+            index = match.getEnd();
+            if (sb.length() > 0 && sb.charAt(sb.length() - 1) == ' ') {
+                sb.setLength(sb.length() - 1);
+            } else if (index < value.length() && value.charAt(index) == ' ') {
+                index++;
+            }
+        }
+        sb.append(value, index, value.length());
+        return sb.toString();
+    }
+
     @Override
     public Object[] transform(final InputRow inputRow) {
         final String value = inputRow.getValue(_column);
@@ -174,31 +194,15 @@ public class RemoveDictionaryMatchesTransformer implements Transformer {
     public Object[] transform(String value) {
         final List<String> removedParts = new ArrayList<>(2);
         if (!Strings.isNullOrEmpty(value)) {
-            for (final Entry<String, Pattern> entry : multiWordDictionaryPatterns.entrySet()) {
-                final Pattern pattern = entry.getValue();
-                final Matcher matcher;
-                if (_dictionary.isCaseSensitive()) {
-                    matcher = pattern.matcher(value);
-                } else {
-                    matcher = pattern.matcher(value.toLowerCase());
-                }
-                while (matcher.find()) {
-                    final int start;
-                    final int end;
-                    if (matcher.start() > 0 && value.charAt(matcher.start() - 1) == ' ') {
-                        start = matcher.start() - 1;
-                        end = matcher.end();
-                    } else if (matcher.end() < value.length() && value.charAt(matcher.end()) == ' ') {
-                        start = matcher.start();
-                        end = matcher.end() + 1;
-                    } else {
-                        start = matcher.start();
-                        end = matcher.end();
-                    }
-
-                    value = value.substring(0, start) + value.substring(end);
-                    removedParts.add(entry.getKey());
+            // remove multi-word matches in a single pass, with longer entries
+            // taking precedence over shorter ones
+            final List<Match<String>> matches = _multiWordMatcher.findLongestNonOverlapping(value);
+            if (!matches.isEmpty()) {
+                for (final Match<String> match : matches) {
+                    removedParts.add(match.getValue());
                 }
+                matches.sort(Comparator.comparingInt(Match::getStart));
+                value = removeMatches(value, matches);
             }
 
             // do word-by-word dictionary lookups
@@ -0,0 +1,190 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.uniqueness;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjIntConsumer;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Counts occurrences of keys in memory. Keys are held in open addressing hash
+ * tables of primitive arrays and looked up by a 64 bit fingerprint, so that
+ * keys are only compared exactly when their fingerprints match. The tables are
+ * split into separately locked segments to allow concurrent counting.
+ *
+ * Once drained, the counter rejects any further keys.
+ */
+final class InMemoryKeyCounter {
+
+    private static final class Segment {
+
+        private long[] _fingerprints = new long[INITIAL_CAPACITY];
+        private String[] _keys = new String[INITIAL_CAPACITY];
+        private int[] _counts = new int[INITIAL_CAPACITY];
+        private int _size = 0;
+        private boolean _drained = false;
+
+        /**
+         * @return 1 if the key was added, 0 if it was already present and -1
+         *         if the segment has been drained
+         */
+        int add(final long fingerprint, final String key, final int count) {
+            if (_drained) {
+                return -1;
+            }
+
+            final int mask = _keys.length - 1;
+            int index = (int) fingerprint & mask;
+            while (_keys[index] != null) {
+                if (_fingerprints[index] == fingerprint && _keys[index].equals(key)) {
+                    _counts[index] += count;
+                    return 0;
+                }
+                index = (index + 1) & mask;
+            }
+
+            _fingerprints[index] = fingerprint;
+            _keys[index] = key;
+            _counts[index] = count;
+            _size++;
+            if (_size * 4 > _keys.length * 3) {
+                grow();
+            }
+            return 1;
+        }
+
+        private void grow() {
+            final long[] fingerprints = _fingerprints;
+            final String[] keys = _keys;
+            final int[] counts = _counts;
+
+            _fingerprints = new long[keys.length * 2];
+            _keys = new String[keys.length * 2];
+            _counts = new int[keys.length * 2];
+
+            final int mask = _keys.length - 1;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    int index = (int) fingerprints[i] & mask;
+                    while (_keys[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    _fingerprints[index] = fingerprints[i];
+                    _keys[index] = keys[i];
+                    _counts[index] = counts[i];
+                }
+            }
+        }
+
+        void forEach(final ObjIntConsumer<String> consumer) {
+            for (int i = 0; i < _keys.length; i++) {
+                if (_keys[i] != null) {
+                    consumer.accept(_keys[i], _counts[i]);
+                }
+            }
+        }
+
+        void drain(final ObjIntConsumer<String> consumer) {
+            if (_drained) {
+                return;
+            }
+            forEach(consumer);
+            _drained = true;
+            _fingerprints = null;
+            _keys = null;
+            _counts = null;
+        }
+    }
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int SEGMENT_BITS = 4;
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final Segment[] _segments;
+    private final AtomicInteger _size;
+
+    public InMemoryKeyCounter() {
+        _segments = new Segment[1 << SEGMENT_BITS];
+        for (int i = 0; i < _segments.length; i++) {
+            _segments[i] = new Segment();
+        }
+        _size = new AtomicInteger();
+    }
+
+    /**
+     * Adds a number of occurrences of a key.
+     *
+     * @param key
+     * @param count
+     * @return false if the counter has been drained and the key was not added
+     */
+    public boolean add(final String key, final int count) {
+        final long fingerprint = HASH_FUNCTION.hashString(key, StandardCharsets.UTF_8).asLong();
+        // the high bits select the segment, the low bits the slot within it
+        final Segment segment = _segments[(int) (fingerprint >>> (64 - SEGMENT_BITS))];
+        final int added;
+        synchronized (segment) {
+            added = segment.add(fingerprint, key, count);
+        }
+        if (added == 1) {
+            _size.incrementAndGet();
+        }
+        return added != -1;
+    }
+
+    /**
+     * Gets the number of distinct keys counted.
+     *
+     * @return
+     */
+    public int size() {
+        return _size.get();
+    }
+
+    /**
+     * Passes all keys and their counts to a consumer.
+     *
+     * @param consumer
+     */
+    public void forEach(final ObjIntConsumer<String> consumer) {
+        for (final Segment segment : _segments) {
+            synchronized (segment) {
+                segment.forEach(consumer);
+            }
+        }
+    }
+
+    /**
+     * Passes all keys and their counts to a consumer and releases them from
+     * memory. Keys added after this will be rejected.
+     *
+     * @param consumer
+     */
+    public void drain(final ObjIntConsumer<String> consumer) {
+        for (final Segment segment : _segments) {
+            synchronized (segment) {
+                segment.drain(consumer);
+            }
+        }
+    }
+}
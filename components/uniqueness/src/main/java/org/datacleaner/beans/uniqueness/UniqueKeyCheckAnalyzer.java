@@ -22,7 +22,9 @@ package org.datacleaner.beans.uniqueness;
 import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -36,14 +38,17 @@ import org.apache.metamodel.util.FileHelper;
 import org.apache.metamodel.util.Resource;
 import org.apache.metamodel.util.ToStringComparator;
 import org.datacleaner.api.Analyzer;
+import org.datacleaner.api.Close;
 import org.datacleaner.api.Concurrent;
 import org.datacleaner.api.Configured;
 import org.datacleaner.api.Description;
 import org.datacleaner.api.Initialize;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
+import org.datacleaner.util.ImmutableEntry;
 import org.datacleaner.util.WriteBuffer;
 import org.datacleaner.util.sort.SortMergeWriter;
+import org.datacleaner.util.sort.StringRowCodec;
 
 @Named("Unique key check")
 @Description("Check your keys (or other fields) for uniqueness")
@@ -56,10 +61,16 @@ public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerRe
     InputColumn<?> column;
 
     @Configured
-    @Description( "How many values to buffer before loading them to disk. For high volume data, "
-            + "consider increasing the buffer to minimize the amount of open disk handles.")
+    @Description("How many values to buffer before loading them to disk. For high volume data, "
+            + "consider increasing the buffer to minimize the amount of temporary files.")
     int _bufferSize = 20000;
 
+    @Configured
+    @Description("How many distinct values to count in memory before falling back to sorting them on disk. "
+            + "Set to 0 to always sort on disk.")
+    int _maxKeysInMemory = 500000;
+
+    private volatile InMemoryKeyCounter _keyCounter;
     private WriteBuffer _writeBuffer;
     private SortMergeWriter<String, Writer> _sorter;
     private AtomicInteger _rowCount;
@@ -76,7 +87,9 @@ public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerRe
     public void init() {
         _rowCount = new AtomicInteger();
         _nullCount = new AtomicInteger();
-        _sorter = new SortMergeWriter<String, Writer>(_bufferSize, ToStringComparator.getComparator()) {
+        _keyCounter = _maxKeysInMemory > 0 ? new InMemoryKeyCounter() : null;
+        _sorter = new SortMergeWriter<String, Writer>(_bufferSize, ToStringComparator.getComparator(),
+                new StringRowCodec()) {
             private final CsvWriter csvWriter = new CsvWriter(CSV_CONFIGURATION);
 
             @Override
@@ -102,7 +115,8 @@ public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerRe
         _writeBuffer = new WriteBuffer(_bufferSize, rows -> {
             for (final Object[] objects : rows) {
                 final String string = (String) objects[0];
-                _sorter.append(string);
+                final Integer count = (Integer) objects[1];
+                _sorter.append(string, count);
             }
         });
     }
@@ -118,14 +132,51 @@ public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerRe
         } else {
             final String str = value.toString();
 
-            for (int i = 0; i < distinctCount; i++) {
-                _writeBuffer.addToBuffer(new Object[] { str });
+            final InMemoryKeyCounter keyCounter = _keyCounter;
+            if (keyCounter != null && keyCounter.add(str, distinctCount)) {
+                if (keyCounter.size() > _maxKeysInMemory) {
+                    spillKeyCounter(keyCounter);
+                }
+            } else {
+                _writeBuffer.addToBuffer(new Object[] { str, distinctCount });
+            }
+        }
+    }
+
+    /**
+     * Moves the keys counted in memory to the disk based sorter. Keys that
+     * are added to the in-memory counter concurrently are rejected by it once
+     * drained, and go to the sorter instead.
+     *
+     * @param keyCounter
+     */
+    private void spillKeyCounter(final InMemoryKeyCounter keyCounter) {
+        synchronized (this) {
+            if (_keyCounter != keyCounter) {
+                // already spilled by another thread
+                return;
             }
+            _keyCounter = null;
+        }
+        keyCounter.drain((key, count) -> _sorter.append(key, count));
+    }
+
+    @Close
+    public void close() {
+        // also stops background writes and deletes the temporary files if
+        // the job failed before the result was written
+        if (_sorter != null) {
+            _sorter.close();
         }
     }
 
     @Override
     public UniqueKeyCheckAnalyzerResult getResult() {
+        final InMemoryKeyCounter keyCounter = _keyCounter;
+        if (keyCounter != null) {
+            return getInMemoryResult(keyCounter);
+        }
+
         _writeBuffer.flushBuffer();
 
         File file;
@@ -169,4 +220,33 @@ public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerRe
 
         return new UniqueKeyCheckAnalyzerResult(rowCount, uniqueCount, nonUniqueCount, nullCount, samples);
     }
+
+    private UniqueKeyCheckAnalyzerResult getInMemoryResult(final InMemoryKeyCounter keyCounter) {
+        final List<Map.Entry<String, Integer>> nonUniqueKeys = new ArrayList<>();
+        keyCounter.forEach((key, count) -> {
+            if (count > 1) {
+                nonUniqueKeys.add(new ImmutableEntry<>(key, count));
+            }
+        });
+
+        // sort in the same order as when sorting on disk
+        nonUniqueKeys.sort((entry1, entry2) -> ToStringComparator.getComparator()
+                .compare(entry1.getKey(), entry2.getKey()));
+
+        int nonUniqueCount = 0;
+        final Map<String, Integer> samples = new LinkedHashMap<>();
+        for (final Map.Entry<String, Integer> entry : nonUniqueKeys) {
+            if (samples.size() < 1000) {
+                // only build up to 1000 records in the sample
+                samples.put(entry.getKey(), entry.getValue());
+            }
+            nonUniqueCount += entry.getValue();
+        }
+
+        final int rowCount = _rowCount.get();
+        final int nullCount = _nullCount.get();
+        final int uniqueCount = rowCount - nullCount - nonUniqueCount;
+
+        return new UniqueKeyCheckAnalyzerResult(rowCount, uniqueCount, nonUniqueCount, nullCount, samples);
+    }
 }
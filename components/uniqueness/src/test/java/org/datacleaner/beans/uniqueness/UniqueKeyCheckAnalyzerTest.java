@@ -69,4 +69,32 @@ public class UniqueKeyCheckAnalyzerTest extends TestCase {
                 "Unique key check result:\n" + " - Row count: 73\n" + " - Null count: 0\n" + " - Unique count: 60\n"
                         + " - Non-unique count: 13", result.toString());
     }
+
+    @Test
+    public void testSameResultInMemoryAndOnDisk() throws Exception {
+        // 0 = only on disk, 10 = spilling half way, default = only in memory
+        for (final int maxKeysInMemory : new int[] { 0, 10, 500000 }) {
+            final MockInputColumn<String> col = new MockInputColumn<>("foo");
+            final UniqueKeyCheckAnalyzer analyzer = new UniqueKeyCheckAnalyzer(5);
+            analyzer.column = col;
+            analyzer._maxKeysInMemory = maxKeysInMemory;
+
+            analyzer.init();
+
+            analyzer.run(new MockInputRow().put(col, null), 2);
+            for (int i = 0; i < 40; i++) {
+                analyzer.run(new MockInputRow().put(col, "key" + (i % 30)), 1);
+            }
+            analyzer.run(new MockInputRow().put(col, "key100"), 3);
+            analyzer.run(new MockInputRow().put(col, "key101"), 1);
+
+            final UniqueKeyCheckAnalyzerResult result = analyzer.getResult();
+            assertEquals(46, result.getRowCount());
+            assertEquals(2, result.getNullCount());
+            assertEquals(21, result.getUniqueCount());
+            assertEquals(23, result.getNonUniqueCount());
+            assertEquals("{key0=2, key1=2, key100=3, key2=2, key3=2, key4=2, key5=2, key6=2, key7=2, key8=2, "
+                    + "key9=2}", result.getNonUniqueSamples().toString());
+        }
+    }
 }
@@ -0,0 +1,173 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.valuedist;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.TreeSet;
+
+import org.datacleaner.result.AnnotatedRowsResult;
+import org.datacleaner.result.CompositeValueFrequency;
+import org.datacleaner.result.SingleValueFrequency;
+import org.datacleaner.result.ValueCountList;
+import org.datacleaner.result.ValueCountListImpl;
+import org.datacleaner.result.ValueFrequency;
+import org.datacleaner.util.LabelUtils;
+import org.datacleaner.util.NullTolerableComparator;
+
+/**
+ * A {@link ValueDistributionAnalyzerResult} of the approximate mode of the
+ * {@link ValueDistributionAnalyzer}, based on a
+ * {@link ValueDistributionSketch}. Distinct and unique counts are estimates,
+ * and only the most frequent values are known (with possibly overestimated
+ * counts). Unique values and annotated rows are not available.
+ */
+public class ApproximateValueDistributionResult extends ValueDistributionAnalyzerResult
+        implements Comparable<ApproximateValueDistributionResult> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String _name;
+    private final ValueDistributionSketch _sketch;
+
+    public ApproximateValueDistributionResult(final String name, final ValueDistributionSketch sketch) {
+        _name = name;
+        _sketch = sketch;
+    }
+
+    public ValueDistributionSketch getSketch() {
+        return _sketch;
+    }
+
+    /**
+     * Determines whether the distinct and unique counts of this result are
+     * exact, which is the case when the number of distinct values was small
+     * enough to be counted within the memory bounds of the approximation.
+     *
+     * @return
+     */
+    public boolean isExact() {
+        return _sketch.isExact();
+    }
+
+    @Override
+    public String getName() {
+        return _name;
+    }
+
+    public ValueCountList getTopValues() {
+        final ValueCountListImpl topValues = ValueCountListImpl.createFullList();
+        for (final SpaceSavingSummary.Counter counter : _sketch.getTopValueCounters()) {
+            if (counter.getCount() > 1) {
+                topValues.register(new SingleValueFrequency(counter.getValue(), toInt(counter.getCount())));
+            }
+        }
+        return topValues;
+    }
+
+    @Override
+    public Collection<ValueFrequency> getValueCounts() {
+        final Collection<ValueFrequency> result = new TreeSet<>(getTopValues().getValueCounts());
+        final int nullCount = getNullCount();
+        if (nullCount > 0) {
+            result.add(new SingleValueFrequency(null, nullCount));
+        }
+        final int uniqueCount = getUniqueCount();
+        if (uniqueCount > 0) {
+            result.add(new CompositeValueFrequency(LabelUtils.UNIQUE_LABEL, uniqueCount));
+        }
+        return result;
+    }
+
+    @Override
+    public Integer getCount(final String value) {
+        if (value == null) {
+            return getNullCount();
+        }
+        final Long count = _sketch.getCount(value);
+        if (count == null) {
+            return null;
+        }
+        return toInt(count);
+    }
+
+    @Override
+    public Integer getUnexpectedValueCount() {
+        return 0;
+    }
+
+    @Override
+    public boolean hasAnnotatedRows(final String value) {
+        return false;
+    }
+
+    @Override
+    public AnnotatedRowsResult getAnnotatedRowsForValue(final String value) {
+        return null;
+    }
+
+    @Override
+    public AnnotatedRowsResult getAnnotatedRowsForNull() {
+        return null;
+    }
+
+    @Override
+    public AnnotatedRowsResult getAnnotatedRowsForUnexpectedValues() {
+        return null;
+    }
+
+    @Override
+    public Collection<String> getUniqueValues() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public int getTotalCount() {
+        return toInt(_sketch.getTotalCount());
+    }
+
+    @Override
+    public int getNullCount() {
+        return toInt(_sketch.getNullCount());
+    }
+
+    @Override
+    public Integer getUniqueCount() {
+        return toInt(_sketch.getUniqueValueCount());
+    }
+
+    @Override
+    public Integer getDistinctCount() {
+        final long distinctCount = _sketch.getDistinctValueCount();
+        if (_sketch.getNullCount() > 0) {
+            return toInt(distinctCount + 1);
+        }
+        return toInt(distinctCount);
+    }
+
+    @Override
+    public int compareTo(final ApproximateValueDistributionResult o) {
+        return NullTolerableComparator.get(String.class).compare(getName(), o.getName());
+    }
+
+    private static int toInt(final long value) {
+        return (int) Math.min(Integer.MAX_VALUE, value);
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.valuedist;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A thread-safe map of groups in the {@link ValueDistributionAnalyzer}, which
+ * creates each group exactly once and allows lock-free lookup of existing
+ * groups. Unlike a plain {@link ConcurrentHashMap} it supports a null group
+ * name, since group column values may be null.
+ *
+ * @param <V>
+ *            the type of the group objects
+ */
+final class ConcurrentGroupMap<V> {
+
+    private final ConcurrentHashMap<String, V> _groups;
+    private volatile V _nullGroup;
+
+    public ConcurrentGroupMap() {
+        _groups = new ConcurrentHashMap<>();
+    }
+
+    public V get(final String groupName, final Function<String, V> groupFactory) {
+        if (groupName == null) {
+            V nullGroup = _nullGroup;
+            if (nullGroup == null) {
+                synchronized (this) {
+                    nullGroup = _nullGroup;
+                    if (nullGroup == null) {
+                        nullGroup = groupFactory.apply(null);
+                        _nullGroup = nullGroup;
+                    }
+                }
+            }
+            return nullGroup;
+        }
+
+        final V group = _groups.get(groupName);
+        if (group != null) {
+            return group;
+        }
+        return _groups.computeIfAbsent(groupName, groupFactory);
+    }
+
+    public int size() {
+        return _groups.size() + (_nullGroup == null ? 0 : 1);
+    }
+
+    public void forEach(final BiConsumer<String, V> action) {
+        final V nullGroup = _nullGroup;
+        if (nullGroup != null) {
+            action.accept(null, nullGroup);
+        }
+        _groups.forEach(action);
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.valuedist;
+
+import java.io.Serializable;
+
+/**
+ * A HyperLogLog cardinality sketch. Estimates the number of distinct 64 bit
+ * hashes added to it, using 2^precision single byte registers. The relative
+ * standard error of the estimate is approximately 1.04 / sqrt(2^precision).
+ *
+ * Two sketches with the same precision can be merged, yielding the sketch of
+ * the union of their inputs.
+ */
+final class HyperLogLog implements Serializable {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+
+    private static final long serialVersionUID = 1L;
+
+    private final int _precision;
+    private final byte[] _registers;
+
+    public HyperLogLog(final int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException(
+                    "Precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION + ": " + precision);
+        }
+        _precision = precision;
+        _registers = new byte[1 << precision];
+    }
+
+    /**
+     * Gets the smallest precision which yields a relative standard error of at
+     * most the given error.
+     *
+     * @param relativeError
+     * @return
+     */
+    public static int getPrecision(final double relativeError) {
+        if (relativeError <= 0) {
+            return MAX_PRECISION;
+        }
+        final double registers = Math.pow(1.04 / relativeError, 2);
+        final int precision = (int) Math.ceil(Math.log(registers) / Math.log(2));
+        return Math.max(MIN_PRECISION, Math.min(MAX_PRECISION, precision));
+    }
+
+    public int getPrecision() {
+        return _precision;
+    }
+
+    public void add(final long hash) {
+        final int index = (int) (hash >>> (64 - _precision));
+        final long remainder = hash << _precision;
+        final int rank = Math.min(Long.numberOfLeadingZeros(remainder), 64 - _precision) + 1;
+        if (rank > _registers[index]) {
+            _registers[index] = (byte) rank;
+        }
+    }
+
+    public void merge(final HyperLogLog other) {
+        if (other._precision != _precision) {
+            throw new IllegalArgumentException(
+                    "Cannot merge sketches of different precision: " + _precision + " and " + other._precision);
+        }
+        for (int i = 0; i < _registers.length; i++) {
+            if (other._registers[i] > _registers[i]) {
+                _registers[i] = other._registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        final int m = _registers.length;
+        double sum = 0;
+        int zeroRegisters = 0;
+        for (final byte register : _registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeroRegisters++;
+            }
+        }
+
+        final double estimate = getAlpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeroRegisters > 0) {
+            // small range correction: linear counting
+            return Math.round(m * Math.log((double) m / zeroRegisters));
+        }
+        return Math.round(estimate);
+    }
+
+    private static double getAlpha(final int registerCount) {
+        switch (registerCount) {
+        case 16:
+            return 0.673;
+        case 32:
+            return 0.697;
+        case 64:
+            return 0.709;
+        default:
+            return 0.7213 / (1 + 1.079 / registerCount);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.valuedist;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A Space-Saving summary of the most frequent values of a stream, monitoring
+ * at most a fixed number of values. The count of a monitored value is never
+ * underestimated, and overestimated by at most the total count divided by the
+ * capacity of the summary.
+ *
+ * Summaries can be merged, yielding a summary of the combined streams with
+ * the same error guarantee.
+ */
+final class SpaceSavingSummary implements Serializable {
+
+    /**
+     * A monitored value, its (over)estimated count and the maximum
+     * overestimation of the count.
+     */
+    static final class Counter implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String _value;
+        private long _count;
+        private long _error;
+
+        Counter(final String value, final long count, final long error) {
+            _value = value;
+            _count = count;
+            _error = error;
+        }
+
+        public String getValue() {
+            return _value;
+        }
+
+        public long getCount() {
+            return _count;
+        }
+
+        public long getError() {
+            return _error;
+        }
+    }
+
+    private static final class CounterComparator implements Comparator<Counter>, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int compare(final Counter o1, final Counter o2) {
+            final int diff = Long.compare(o1._count, o2._count);
+            if (diff != 0) {
+                return diff;
+            }
+            return o1._value.compareTo(o2._value);
+        }
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    private final int _capacity;
+    private final Map<String, Counter> _counters;
+    private final TreeSet<Counter> _orderedCounters;
+
+    public SpaceSavingSummary(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be a positive number: " + capacity);
+        }
+        _capacity = capacity;
+        _counters = new HashMap<>();
+        _orderedCounters = new TreeSet<>(new CounterComparator());
+    }
+
+    public int getCapacity() {
+        return _capacity;
+    }
+
+    public void add(final String value, final long count) {
+        Counter counter = _counters.get(value);
+        if (counter != null) {
+            _orderedCounters.remove(counter);
+            counter._count += count;
+        } else if (_counters.size() < _capacity) {
+            counter = new Counter(value, count, 0);
+            _counters.put(value, counter);
+        } else {
+            // replace the least frequent value, inheriting its count as error
+            final Counter minimum = _orderedCounters.pollFirst();
+            _counters.remove(minimum._value);
+            counter = new Counter(value, minimum._count + count, minimum._count);
+            _counters.put(value, counter);
+        }
+        _orderedCounters.add(counter);
+    }
+
+    public void merge(final SpaceSavingSummary other) {
+        final long minimum = getMinimumCount();
+        final long otherMinimum = other.getMinimumCount();
+
+        final Set<String> values = new HashSet<>(_counters.keySet());
+        values.addAll(other._counters.keySet());
+
+        final List<Counter> merged = new ArrayList<>(values.size());
+        for (final String value : values) {
+            final Counter counter = _counters.get(value);
+            final Counter otherCounter = other._counters.get(value);
+            // a value that is not monitored may have occurred up to the
+            // minimum count of a full summary
+            final long count = (counter == null ? minimum : counter._count)
+                    + (otherCounter == null ? otherMinimum : otherCounter._count);
+            final long error = (counter == null ? minimum : counter._error)
+                    + (otherCounter == null ? otherMinimum : otherCounter._error);
+            merged.add(new Counter(value, count, error));
+        }
+        merged.sort(new CounterComparator().reversed());
+
+        _counters.clear();
+        _orderedCounters.clear();
+        for (final Counter counter : merged.subList(0, Math.min(_capacity, merged.size()))) {
+            _counters.put(counter._value, counter);
+            _orderedCounters.add(counter);
+        }
+    }
+
+    /**
+     * Gets the count that any value which is not monitored may have occurred
+     * with. Zero as long as the summary is not full.
+     *
+     * @return
+     */
+    public long getMinimumCount() {
+        if (_counters.size() < _capacity) {
+            return 0;
+        }
+        return _orderedCounters.first()._count;
+    }
+
+    public Counter getCounter(final String value) {
+        return _counters.get(value);
+    }
+
+    /**
+     * Gets the monitored values, most frequent first.
+     *
+     * @return
+     */
+    public List<Counter> getCounters() {
+        return new ArrayList<>(_orderedCounters.descendingSet());
+    }
+}
@@ -19,15 +19,14 @@
  */
 package org.datacleaner.beans.valuedist;
 
-import java.util.Map;
 import java.util.SortedSet;
-import java.util.TreeMap;
 import java.util.TreeSet;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.datacleaner.api.Analyzer;
+import org.datacleaner.api.Close;
 import org.datacleaner.api.ColumnProperty;
 import org.datacleaner.api.Concurrent;
 import org.datacleaner.api.Configured;
@@ -41,7 +40,6 @@ import org.datacleaner.api.Provided;
 import org.datacleaner.storage.CollectionFactory;
 import org.datacleaner.storage.RowAnnotationFactory;
 import org.datacleaner.storage.RowAnnotations;
-import org.datacleaner.util.NullTolerableComparator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,9 +57,13 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
     public static final String PROPERTY_GROUP_COLUMN = "Group column";
     public static final String PROPERTY_RECORD_UNIQUE_VALUES = "Record unique values";
     public static final String PROPERTY_RECORD_DRILL_DOWN_INFORMATION = "Record drill-down information";
+    public static final String PROPERTY_APPROXIMATE = "Approximate";
+    public static final String PROPERTY_APPROXIMATION_ERROR = "Approximation error";
+    public static final String PROPERTY_APPROXIMATE_TOP_VALUES = "Approximate top values";
 
     private static final Logger logger = LoggerFactory.getLogger(ValueDistributionAnalyzer.class);
-    private final Map<String, ValueDistributionGroup> _valueDistributionGroups;
+    private final ConcurrentGroupMap<ValueDistributionGroup> _valueDistributionGroups;
+    private final ConcurrentGroupMap<ValueDistributionSketch> _valueDistributionSketches;
     @Inject
     @Configured(value = PROPERTY_COLUMN, order = 1)
     @ColumnProperty(escalateToMultipleJobs = true)
@@ -86,6 +88,20 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
     @Deprecated
     Integer _bottomFrequentValues;
     @Inject
+    @Configured(value = PROPERTY_APPROXIMATE, required = false, order = 7)
+    @Description("Count values within a bounded amount of memory. Distinct and unique counts are estimated, only "
+            + "the most frequent values are reported and no drill-down information is recorded.")
+    boolean _approximate = false;
+    @Inject
+    @Configured(value = PROPERTY_APPROXIMATION_ERROR, required = false, order = 8)
+    @Description("The relative standard error of the estimated distinct and unique counts in approximate mode.")
+    double _approximationError = ValueDistributionSketch.DEFAULT_RELATIVE_ERROR;
+    @Inject
+    @Configured(value = PROPERTY_APPROXIMATE_TOP_VALUES, required = false, order = 9)
+    @Description("The number of most frequent values to keep track of in approximate mode. Their counts are "
+            + "overestimated by at most the total count divided by this number.")
+    int _approximateTopValues = ValueDistributionSketch.DEFAULT_TOP_VALUES_CAPACITY;
+    @Inject
     @Provided
     RowAnnotationFactory _annotationFactory;
 
@@ -119,7 +135,8 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
      * Main constructor
      */
     public ValueDistributionAnalyzer() {
-        _valueDistributionGroups = new TreeMap<>(NullTolerableComparator.get(String.class));
+        _valueDistributionGroups = new ConcurrentGroupMap<>();
+        _valueDistributionSketches = new ConcurrentGroupMap<>();
     }
 
     @Override
@@ -138,7 +155,6 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
     }
 
     public void runInternal(final InputRow row, final Object value, final String group, final int distinctCount) {
-        final ValueDistributionGroup valueDistributionGroup = getValueDistributionGroup(group);
         final String stringValue;
         if (value == null) {
             logger.debug("value is null");
@@ -146,33 +162,36 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
         } else {
             stringValue = value.toString();
         }
-        valueDistributionGroup.run(row, stringValue, distinctCount);
+        if (_approximate) {
+            getValueDistributionSketch(group).add(stringValue, distinctCount);
+        } else {
+            getValueDistributionGroup(group).run(row, stringValue, distinctCount);
+        }
+    }
+
+    private ValueDistributionSketch getValueDistributionSketch(final String group) {
+        return _valueDistributionSketches
+                .get(group, groupName -> new ValueDistributionSketch(_approximationError, _approximateTopValues));
     }
 
     private ValueDistributionGroup getValueDistributionGroup(final String group) {
-        ValueDistributionGroup valueDistributionGroup = _valueDistributionGroups.get(group);
-        if (valueDistributionGroup == null) {
-            synchronized (this) {
-                valueDistributionGroup = _valueDistributionGroups.get(group);
-                if (valueDistributionGroup == null) {
-                    final InputColumn<?>[] inputColumns;
-                    if (_groupColumn == null) {
-                        inputColumns = new InputColumn[] { _column };
-                    } else {
-                        inputColumns = new InputColumn[] { _column, _groupColumn };
-                    }
-                    valueDistributionGroup =
-                            new ValueDistributionGroup(group, _annotationFactory, _recordDrillDownInformation,
-                                    inputColumns);
-                    _valueDistributionGroups.put(group, valueDistributionGroup);
-                }
+        return _valueDistributionGroups.get(group, groupName -> {
+            final InputColumn<?>[] inputColumns;
+            if (_groupColumn == null) {
+                inputColumns = new InputColumn[] { _column };
+            } else {
+                inputColumns = new InputColumn[] { _column, _groupColumn };
             }
-        }
-        return valueDistributionGroup;
+            return new ValueDistributionGroup(groupName, _annotationFactory, _recordDrillDownInformation,
+                    inputColumns);
+        });
     }
 
     @Override
     public ValueDistributionAnalyzerResult getResult() {
+        if (_approximate) {
+            return getApproximateResult();
+        }
         if (_groupColumn == null) {
             logger.info("getResult() invoked, processing single group");
             final ValueDistributionGroup valueDistributionGroup = getValueDistributionGroup(_column.getName());
@@ -182,16 +201,29 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
             logger.info("getResult() invoked, processing {} groups", _valueDistributionGroups.size());
 
             final SortedSet<SingleValueDistributionResult> groupedResults = new TreeSet<>();
-            for (final String group : _valueDistributionGroups.keySet()) {
-                final ValueDistributionGroup valueDistributibutionGroup = getValueDistributionGroup(group);
-                final SingleValueDistributionResult result =
-                        valueDistributibutionGroup.createResult(_recordUniqueValues);
-                groupedResults.add(result);
-            }
+            _valueDistributionGroups.forEach((group, valueDistributionGroup) -> groupedResults
+                    .add(valueDistributionGroup.createResult(_recordUniqueValues)));
             return new GroupedValueDistributionResult(_column, _groupColumn, groupedResults);
         }
     }
 
+    private ValueDistributionAnalyzerResult getApproximateResult() {
+        if (_groupColumn == null) {
+            final String group = _column.getName();
+            return new ApproximateValueDistributionResult(group, getValueDistributionSketch(group));
+        }
+
+        final SortedSet<ApproximateValueDistributionResult> groupedResults = new TreeSet<>();
+        _valueDistributionSketches.forEach(
+                (group, sketch) -> groupedResults.add(new ApproximateValueDistributionResult(group, sketch)));
+        return new GroupedValueDistributionResult(_column, _groupColumn, groupedResults);
+    }
+
+    @Close
+    public void close() {
+        _valueDistributionGroups.forEach((group, valueDistributionGroup) -> valueDistributionGroup.close());
+    }
+
     public void setAnnotationFactory(final RowAnnotationFactory annotationFactory) {
         _annotationFactory = annotationFactory;
     }
@@ -222,4 +254,16 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
     public void setRecordUniqueValues(final boolean recordUniqueValues) {
         _recordUniqueValues = recordUniqueValues;
     }
+
+    public void setApproximate(final boolean approximate) {
+        _approximate = approximate;
+    }
+
+    public void setApproximationError(final double approximationError) {
+        _approximationError = approximationError;
+    }
+
+    public void setApproximateTopValues(final int approximateTopValues) {
+        _approximateTopValues = approximateTopValues;
+    }
 }
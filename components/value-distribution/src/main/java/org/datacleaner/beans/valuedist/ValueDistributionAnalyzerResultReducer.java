@@ -56,6 +56,10 @@ public class ValueDistributionAnalyzerResultReducer implements AnalyzerResultRed
 
     private ValueDistributionAnalyzerResult reduceSingleResults(
             final Collection<? extends ValueDistributionAnalyzerResult> analyzerResults) {
+        if (hasApproximateResults(analyzerResults)) {
+            return reduceApproximateResults(analyzerResults);
+        }
+
         final Map<String, Integer> reducedValueCounts = new HashMap<>();
         Integer nullCount = 0;
 
@@ -75,6 +79,32 @@ public class ValueDistributionAnalyzerResultReducer implements AnalyzerResultRed
         return new ReducedSingleValueDistributionResult(first.getName(), reducedValueCounts, nullCount);
     }
 
+    private boolean hasApproximateResults(
+            final Collection<? extends ValueDistributionAnalyzerResult> analyzerResults) {
+        for (final ValueDistributionAnalyzerResult valueDistributionAnalyzerResult : analyzerResults) {
+            if (valueDistributionAnalyzerResult instanceof ApproximateValueDistributionResult) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ValueDistributionAnalyzerResult reduceApproximateResults(
+            final Collection<? extends ValueDistributionAnalyzerResult> analyzerResults) {
+        final List<ValueDistributionSketch> sketches = new ArrayList<>(analyzerResults.size());
+        for (final ValueDistributionAnalyzerResult partialResult : analyzerResults) {
+            if (partialResult instanceof ApproximateValueDistributionResult) {
+                sketches.add(((ApproximateValueDistributionResult) partialResult).getSketch());
+            } else {
+                throw new IllegalStateException("Cannot reduce approximate and exact results together: "
+                        + partialResult.getClass().getSimpleName());
+            }
+        }
+
+        final ValueDistributionAnalyzerResult first = analyzerResults.iterator().next();
+        return new ApproximateValueDistributionResult(first.getName(), ValueDistributionSketch.merge(sketches));
+    }
+
     private boolean hasGroupedResults(final Collection<? extends ValueDistributionAnalyzerResult> analyzerResults) {
         for (final ValueDistributionAnalyzerResult valueDistributionAnalyzerResult : analyzerResults) {
             if (valueDistributionAnalyzerResult instanceof GroupedValueDistributionResult) {
@@ -19,13 +19,19 @@
  */
 package org.datacleaner.beans.valuedist;
 
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
@@ -35,6 +41,9 @@ import org.datacleaner.result.ValueFrequency;
 import org.datacleaner.storage.RowAnnotation;
 import org.datacleaner.storage.RowAnnotationFactory;
 import org.datacleaner.storage.RowAnnotationImpl;
+import org.datacleaner.util.sort.RowCodec;
+import org.datacleaner.util.sort.SpillableAggregator;
+import org.datacleaner.util.sort.StringRowCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,19 +52,53 @@ import org.slf4j.LoggerFactory;
  * {@link ValueDistributionGroup} contains the counted values within a single
  * group.
  *
+ * Values are counted in a {@link ConcurrentHashMap}, so that worker threads
+ * only contend when they count the very same value. If drill-down information
+ * is recorded, each value is mapped to a {@link RowAnnotation}, otherwise to a
+ * {@link LongAdder}. In the latter case the counters are kept in a
+ * {@link SpillableAggregator}, which spills to disk if the number of distinct
+ * values exceeds the configured memory budget.
  *
+ * Spilling only bounds the memory used while rows are processed. The exact
+ * result still holds the count of every non-unique value (and every unique
+ * value, if these are recorded), since it can be queried and reduced by value.
+ * For a result with a bounded number of values, the analyzer's approximate
+ * mode should be used instead.
  */
-class ValueDistributionGroup {
+class ValueDistributionGroup implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(ValueDistributionGroup.class);
 
-    private final Map<String, RowAnnotation> _annotationMap;
+    private static final RowCodec<LongAdder> COUNTER_CODEC = new RowCodec<LongAdder>() {
+        @Override
+        public void write(final DataOutput out, final LongAdder counter) throws IOException {
+            out.writeLong(counter.sum());
+        }
+
+        @Override
+        public LongAdder read(final DataInput in) throws IOException {
+            final LongAdder counter = new LongAdder();
+            counter.add(in.readLong());
+            return counter;
+        }
+    };
+
+    /**
+     * The sample size hinted for the annotation of each distinct value. There
+     * may be very many of these, and since the rows of a value have the value
+     * in common, a smaller sample illustrates them just as well.
+     */
+    private static final int VALUE_SAMPLE_SIZE = 100;
+
+    private final ConcurrentHashMap<String, RowAnnotation> _annotationMap;
+    private final SpillableAggregator<String, LongAdder> _counterAggregator;
     private final RowAnnotation _nullValueAnnotation;
+    private final LongAdder _nullValueCounter;
     private final RowAnnotationFactory _annotationFactory;
     private final String _groupName;
     private final boolean _recordAnnotations;
     private final InputColumn<?>[] _inputColumns;
-    private final AtomicInteger _totalCount;
+    private final LongAdder _totalCount;
 
     public ValueDistributionGroup(final String groupName, final RowAnnotationFactory annotationFactory,
             final boolean recordAnnotations, final InputColumn<?>[] inputColumns) {
@@ -63,43 +106,51 @@ class ValueDistributionGroup {
         _annotationFactory = annotationFactory;
         _recordAnnotations = recordAnnotations;
         _inputColumns = inputColumns;
-        _totalCount = new AtomicInteger();
-        _annotationMap = new HashMap<>();
+        _totalCount = new LongAdder();
         if (recordAnnotations) {
+            _annotationMap = new ConcurrentHashMap<>();
+            _counterAggregator = null;
             _nullValueAnnotation = _annotationFactory.createAnnotation();
+            _nullValueCounter = null;
         } else {
-            _nullValueAnnotation = new RowAnnotationImpl();
+            _annotationMap = null;
+            _counterAggregator = new SpillableAggregator<>(Comparator.naturalOrder(), new StringRowCodec(),
+                    COUNTER_CODEC, value -> new LongAdder(), (earlier, later) -> {
+                        earlier.add(later.sum());
+                        return earlier;
+                    });
+            _nullValueAnnotation = null;
+            _nullValueCounter = new LongAdder();
         }
     }
 
     public void run(final InputRow row, final String value, final int distinctCount) {
-        if (value == null) {
-            if (_recordAnnotations) {
-                _annotationFactory.annotate(row, distinctCount, _nullValueAnnotation);
+        if (_recordAnnotations) {
+            final RowAnnotation annotation;
+            if (value == null) {
+                annotation = _nullValueAnnotation;
             } else {
-                ((RowAnnotationImpl) _nullValueAnnotation).incrementRowCount(distinctCount);
+                annotation = getOrCreateAnnotation(value);
             }
+            _annotationFactory.annotate(row, distinctCount, annotation);
         } else {
-            RowAnnotation annotation;
-            synchronized (this) {
-                annotation = _annotationMap.get(value);
-                if (annotation == null) {
-                    if (_recordAnnotations) {
-                        annotation = _annotationFactory.createAnnotation();
-                    } else {
-                        annotation = new RowAnnotationImpl();
-                    }
-                    _annotationMap.put(value, annotation);
-                }
-            }
-
-            if (_recordAnnotations) {
-                _annotationFactory.annotate(row, distinctCount, annotation);
+            if (value == null) {
+                _nullValueCounter.add(distinctCount);
             } else {
-                ((RowAnnotationImpl) annotation).incrementRowCount(distinctCount);
+                _counterAggregator.update(value, counter -> counter.add(distinctCount));
             }
         }
-        _totalCount.addAndGet(distinctCount);
+        _totalCount.add(distinctCount);
+    }
+
+    private RowAnnotation getOrCreateAnnotation(final String value) {
+        // plain get() first, since computeIfAbsent() locks even if the value
+        // is already present
+        final RowAnnotation annotation = _annotationMap.get(value);
+        if (annotation != null) {
+            return annotation;
+        }
+        return _annotationMap.computeIfAbsent(value, v -> _annotationFactory.createAnnotation(VALUE_SAMPLE_SIZE));
     }
 
     public SingleValueDistributionResult createResult(final boolean recordUniqueValues) {
@@ -112,35 +163,63 @@ class ValueDistributionGroup {
             uniqueValues = null;
         }
 
+        final Map<String, RowAnnotation> annotationMap;
+        final RowAnnotation nullValueAnnotation;
+        final int entryCount;
         int uniqueCount = 0;
-        final int entryCount = _annotationMap.size();
-        final Set<Entry<String, RowAnnotation>> entrySet = _annotationMap.entrySet();
+        if (!_recordAnnotations && _counterAggregator.getSpillCount() > 0) {
+            // the counts are merged from disk and registered directly, without
+            // an intermediate map of annotations. The result itself still
+            // holds all the non-unique values.
+            annotationMap = Collections.emptyMap();
+            nullValueAnnotation = new RowAnnotationImpl(_nullValueCounter.intValue());
+            final int[] counts = new int[2];
+            _counterAggregator.forEach((value, counter) -> {
+                counts[1] = countValue(recordUniqueValues, topValues, uniqueValues, counts[1], value,
+                        counter.intValue());
+                counts[0]++;
+            });
+            entryCount = counts[0];
+            uniqueCount = counts[1];
+        } else {
+            if (_recordAnnotations) {
+                annotationMap = _annotationMap;
+                nullValueAnnotation = _nullValueAnnotation;
+            } else {
+                annotationMap = new HashMap<>();
+                _counterAggregator.forEach(
+                        (value, counter) -> annotationMap.put(value, new RowAnnotationImpl(counter.intValue())));
+                nullValueAnnotation = new RowAnnotationImpl(_nullValueCounter.intValue());
+            }
 
-        int i = 0;
-        for (final Entry<String, RowAnnotation> entry : entrySet) {
-            if (i % 100000 == 0 && i != 0) {
-                logger.info("Processing unique value entry no. {}", i);
+            entryCount = annotationMap.size();
+            int i = 0;
+            for (final Entry<String, RowAnnotation> entry : annotationMap.entrySet()) {
+                if (i % 100000 == 0 && i != 0) {
+                    logger.info("Processing unique value entry no. {}", i);
+                }
+                final String value = entry.getKey();
+                final RowAnnotation annotation = entry.getValue();
+                final int count = annotation.getRowCount();
+                uniqueCount = countValue(recordUniqueValues, topValues, uniqueValues, uniqueCount, value, count);
+                i++;
             }
-            final String value = entry.getKey();
-            final RowAnnotation annotation = entry.getValue();
-            final int count = annotation.getRowCount();
-            uniqueCount = countValue(recordUniqueValues, topValues, uniqueValues, uniqueCount, value, count);
-            i++;
         }
 
         final int distinctCount;
-        if (_nullValueAnnotation.getRowCount() > 0) {
+        if (nullValueAnnotation.getRowCount() > 0) {
             distinctCount = 1 + entryCount;
         } else {
             distinctCount = entryCount;
         }
 
+        final int totalCount = _totalCount.intValue();
         if (recordUniqueValues) {
             return new SingleValueDistributionResult(_groupName, topValues, uniqueValues, uniqueCount, distinctCount,
-                    _totalCount.get(), _annotationMap, _nullValueAnnotation, _annotationFactory, _inputColumns);
+                    totalCount, annotationMap, nullValueAnnotation, _annotationFactory, _inputColumns);
         } else {
-            return new SingleValueDistributionResult(_groupName, topValues, uniqueCount, distinctCount,
-                    _totalCount.get(), _annotationMap, _nullValueAnnotation, _annotationFactory, _inputColumns);
+            return new SingleValueDistributionResult(_groupName, topValues, uniqueCount, distinctCount, totalCount,
+                    annotationMap, nullValueAnnotation, _annotationFactory, _inputColumns);
         }
     }
 
@@ -157,4 +236,11 @@ class ValueDistributionGroup {
         }
         return uniqueCount;
     }
+
+    @Override
+    public void close() {
+        if (_counterAggregator != null) {
+            _counterAggregator.close();
+        }
+    }
 }
@@ -0,0 +1,237 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.valuedist;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * A bounded-memory summary of a value distribution, used by the approximate
+ * mode of the {@link ValueDistributionAnalyzer}. It consists of:
+ *
+ * <ul>
+ * <li>A {@link HyperLogLog} sketch for estimating the distinct count.</li>
+ * <li>A sample of the values with the smallest hashes (a "bottom-k" sample)
+ * with exact counts, from which the fraction of unique values is estimated. As
+ * long as the number of distinct values does not exceed the sample size, the
+ * distinct and unique counts are exact.</li>
+ * <li>A {@link SpaceSavingSummary} of the most frequent values.</li>
+ * </ul>
+ *
+ * Null and total counts are always exact. Sketches created with the same
+ * settings can be merged, which is how partial results are reduced.
+ */
+public final class ValueDistributionSketch implements Serializable {
+
+    public static final double DEFAULT_RELATIVE_ERROR = 0.02;
+    public static final int DEFAULT_TOP_VALUES_CAPACITY = 1000;
+
+    private static final long serialVersionUID = 1L;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    private static final int MIN_SAMPLE_SIZE = 16;
+    private static final int MAX_SAMPLE_SIZE = 65536;
+
+    private final HyperLogLog _distinctValues;
+    private final TreeMap<Long, Long> _sample;
+    private final int _sampleSize;
+    private final SpaceSavingSummary _topValues;
+    private long _nullCount;
+    private long _totalCount;
+
+    /**
+     * Creates a sketch.
+     *
+     * @param relativeError
+     *            the desired relative standard error of the distinct and
+     *            unique count estimates
+     * @param topValuesCapacity
+     *            the number of most frequent values to monitor. The counts of
+     *            the most frequent values are overestimated by at most the
+     *            total count divided by this number.
+     */
+    public ValueDistributionSketch(final double relativeError, final int topValuesCapacity) {
+        this(HyperLogLog.getPrecision(relativeError), getSampleSize(relativeError), topValuesCapacity);
+    }
+
+    private ValueDistributionSketch(final int precision, final int sampleSize, final int topValuesCapacity) {
+        _distinctValues = new HyperLogLog(precision);
+        _sampleSize = sampleSize;
+        _sample = new TreeMap<>();
+        _topValues = new SpaceSavingSummary(topValuesCapacity);
+    }
+
+    /**
+     * Creates a new sketch which is the merge of a number of sketches, created
+     * with the same settings. The merged sketches are left untouched.
+     *
+     * @param sketches
+     * @return
+     */
+    public static ValueDistributionSketch merge(final Collection<ValueDistributionSketch> sketches) {
+        final ValueDistributionSketch first = sketches.iterator().next();
+        final ValueDistributionSketch result = new ValueDistributionSketch(first._distinctValues.getPrecision(),
+                first._sampleSize, first._topValues.getCapacity());
+        for (final ValueDistributionSketch sketch : sketches) {
+            result.merge(sketch);
+        }
+        return result;
+    }
+
+    private static int getSampleSize(final double relativeError) {
+        if (relativeError <= 0) {
+            return MAX_SAMPLE_SIZE;
+        }
+        final double sampleSize = Math.ceil(1 / (relativeError * relativeError));
+        return (int) Math.max(MIN_SAMPLE_SIZE, Math.min(MAX_SAMPLE_SIZE, sampleSize));
+    }
+
+    public synchronized void add(final String value, final int count) {
+        _totalCount += count;
+        if (value == null) {
+            _nullCount += count;
+            return;
+        }
+
+        final long hash = HASH_FUNCTION.hashString(value, StandardCharsets.UTF_8).asLong();
+        _distinctValues.add(hash);
+        addToSample(hash >>> 1, count);
+        _topValues.add(value, count);
+    }
+
+    private void addToSample(final Long sampleKey, final long count) {
+        final Long existingCount = _sample.get(sampleKey);
+        if (existingCount != null) {
+            _sample.put(sampleKey, existingCount + count);
+        } else if (_sample.size() < _sampleSize) {
+            _sample.put(sampleKey, count);
+        } else if (sampleKey < _sample.lastKey()) {
+            // once evicted, a key is never again among the smallest keys, so
+            // the counts of the sampled keys remain exact
+            _sample.pollLastEntry();
+            _sample.put(sampleKey, count);
+        }
+    }
+
+    /**
+     * Merges another sketch, created with the same settings, into this one.
+     *
+     * @param other
+     */
+    public synchronized void merge(final ValueDistributionSketch other) {
+        synchronized (other) {
+            _distinctValues.merge(other._distinctValues);
+            for (final Entry<Long, Long> entry : other._sample.entrySet()) {
+                addToSample(entry.getKey(), entry.getValue());
+            }
+            _topValues.merge(other._topValues);
+            _nullCount += other._nullCount;
+            _totalCount += other._totalCount;
+        }
+    }
+
+    public synchronized long getNullCount() {
+        return _nullCount;
+    }
+
+    public synchronized long getTotalCount() {
+        return _totalCount;
+    }
+
+    /**
+     * Determines whether the distinct and unique counts are exact, which is
+     * the case when all non-null values fit in the sample.
+     *
+     * @return
+     */
+    public synchronized boolean isExact() {
+        return _sample.size() < _sampleSize;
+    }
+
+    /**
+     * Gets the (estimated) number of distinct non-null values.
+     *
+     * @return
+     */
+    public synchronized long getDistinctValueCount() {
+        if (isExact()) {
+            return _sample.size();
+        }
+        return Math.max(_sample.size(), _distinctValues.estimate());
+    }
+
+    /**
+     * Gets the (estimated) number of values that occur exactly once.
+     *
+     * @return
+     */
+    public synchronized long getUniqueValueCount() {
+        long sampledUniqueCount = 0;
+        for (final Long count : _sample.values()) {
+            if (count == 1) {
+                sampledUniqueCount++;
+            }
+        }
+        if (isExact()) {
+            return sampledUniqueCount;
+        }
+        return Math.round((double) getDistinctValueCount() * sampledUniqueCount / _sample.size());
+    }
+
+    /**
+     * Gets the (over)estimated count of a value, or null if the value is not
+     * among the monitored most frequent values.
+     *
+     * @param value
+     * @return
+     */
+    public synchronized Long getCount(final String value) {
+        final SpaceSavingSummary.Counter counter = _topValues.getCounter(value);
+        if (counter == null) {
+            return null;
+        }
+        return counter.getCount();
+    }
+
+    /**
+     * Gets the maximum overestimation of the counts of the most frequent
+     * values.
+     *
+     * @return
+     */
+    public synchronized long getMaximumCountError() {
+        long maximum = 0;
+        for (final SpaceSavingSummary.Counter counter : _topValues.getCounters()) {
+            maximum = Math.max(maximum, counter.getError());
+        }
+        return maximum;
+    }
+
+    synchronized List<SpaceSavingSummary.Counter> getTopValueCounters() {
+        return _topValues.getCounters();
+    }
+}
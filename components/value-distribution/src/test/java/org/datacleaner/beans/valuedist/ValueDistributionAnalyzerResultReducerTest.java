@@ -209,4 +209,37 @@ public class ValueDistributionAnalyzerResultReducerTest {
         }
     }
 
+
+    @Test
+    public void testReduceApproximateResults() throws Exception {
+        final List<ValueDistributionAnalyzerResult> partialResults = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            final ValueDistributionAnalyzer valueDist =
+                    new ValueDistributionAnalyzer(new MetaModelInputColumn(new MutableColumn("col")), true);
+            valueDist.setApproximate(true);
+            valueDist.runInternal(new MockInputRow(), "hello", 2);
+            valueDist.runInternal(new MockInputRow(), "world", 3);
+            valueDist.runInternal(new MockInputRow(), "unique" + i, 1);
+            valueDist.runInternal(new MockInputRow(), null, 1);
+            partialResults.add(valueDist.getResult());
+        }
+
+        final ApproximateValueDistributionResult partialResult =
+                (ApproximateValueDistributionResult) partialResults.get(0);
+        assertEquals(7, partialResult.getTotalCount());
+        assertEquals(Integer.valueOf(4), partialResult.getDistinctCount());
+        assertEquals(Integer.valueOf(1), partialResult.getUniqueCount());
+
+        final ValueDistributionAnalyzerResultReducer reducer = new ValueDistributionAnalyzerResultReducer();
+        final ApproximateValueDistributionResult reducedResult =
+                (ApproximateValueDistributionResult) reducer.reduce(partialResults);
+
+        assertTrue(reducedResult.isExact());
+        assertEquals("col", reducedResult.getName());
+        assertEquals(14, reducedResult.getTotalCount());
+        assertEquals(2, reducedResult.getNullCount());
+        assertEquals(Integer.valueOf(5), reducedResult.getDistinctCount());
+        assertEquals(Integer.valueOf(2), reducedResult.getUniqueCount());
+        assertEquals("[[world->6], [hello->4]]", reducedResult.getTopValues().getValueCounts().toString());
+    }
 }
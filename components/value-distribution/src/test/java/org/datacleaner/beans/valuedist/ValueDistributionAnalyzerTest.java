@@ -22,7 +22,14 @@ package org.datacleaner.beans.valuedist;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.metamodel.schema.MutableColumn;
 import org.datacleaner.configuration.DataCleanerConfigurationImpl;
@@ -40,6 +47,7 @@ import org.datacleaner.result.GroupedValueCountingAnalyzerResult;
 import org.datacleaner.result.ValueCountList;
 import org.datacleaner.result.ValueCountingAnalyzerResult;
 import org.datacleaner.test.TestHelper;
+import org.datacleaner.util.SystemProperties;
 import org.junit.Test;
 
 public class ValueDistributionAnalyzerTest {
@@ -68,7 +76,7 @@ public class ValueDistributionAnalyzerTest {
     public void testDescriptor() {
         final AnalyzerDescriptor<?> desc = Descriptors.ofAnalyzer(ValueDistributionAnalyzer.class);
         assertEquals(0, desc.getInitializeMethods().size());
-        assertEquals(6, desc.getConfiguredProperties().size());
+        assertEquals(9, desc.getConfiguredProperties().size());
         assertEquals(1, desc.getProvidedProperties().size());
         assertEquals("Value distribution", desc.getDisplayName());
     }
@@ -207,4 +215,92 @@ public class ValueDistributionAnalyzerTest {
         assertEquals("Group: 2200", resultLines[i++]);
         assertEquals(" - Copenhagen N: 3", resultLines[i++]);
     }
+
+    @Test
+    public void testConcurrentRunGivesSameResultAsSequentialRun() throws Exception {
+        final MockInputColumn<String> column = new MockInputColumn<>("col", String.class);
+        final MockInputColumn<String> groupColumn = new MockInputColumn<>("group", String.class);
+        final ValueDistributionAnalyzer sequential = new ValueDistributionAnalyzer(column, groupColumn, true);
+        final ValueDistributionAnalyzer concurrent = new ValueDistributionAnalyzer(column, groupColumn, true);
+
+        final int numThreads = 4;
+        final int rowsPerThread = 5000;
+        for (int i = 0; i < numThreads * rowsPerThread; i++) {
+            runGroupedRow(sequential, i);
+        }
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                final int offset = t * rowsPerThread;
+                futures.add(executorService.submit(() -> {
+                    for (int i = offset; i < offset + rowsPerThread; i++) {
+                        runGroupedRow(concurrent, i);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        final GroupedValueDistributionResult expected = (GroupedValueDistributionResult) sequential.getResult();
+        final GroupedValueDistributionResult actual = (GroupedValueDistributionResult) concurrent.getResult();
+        assertEquals(4, actual.getGroupResults().size());
+
+        final Iterator<? extends ValueCountingAnalyzerResult> expectedGroups = expected.getGroupResults().iterator();
+        for (final ValueCountingAnalyzerResult actualGroup : actual.getGroupResults()) {
+            final ValueCountingAnalyzerResult expectedGroup = expectedGroups.next();
+            assertEquals(expectedGroup.getName(), actualGroup.getName());
+            assertEquals(expectedGroup.getTotalCount(), actualGroup.getTotalCount());
+            assertEquals(expectedGroup.getNullCount(), actualGroup.getNullCount());
+            assertEquals(expectedGroup.getDistinctCount(), actualGroup.getDistinctCount());
+            assertEquals(expectedGroup.getUniqueCount(), actualGroup.getUniqueCount());
+            assertEquals(new HashSet<>(expectedGroup.getUniqueValues()),
+                    new HashSet<>(actualGroup.getUniqueValues()));
+            assertEquals(expectedGroup.getValueCounts().toString(), actualGroup.getValueCounts().toString());
+        }
+    }
+
+    private void runGroupedRow(final ValueDistributionAnalyzer analyzer, final int rowNumber) {
+        final String group = (rowNumber % 4 == 0) ? null : "group" + (rowNumber % 4);
+        final String value =
+                (rowNumber % 7 == 0) ? null : "value" + (rowNumber % 1000 == 999 ? rowNumber : rowNumber % 100);
+        analyzer.runInternal(new MockInputRow(), value, group, 1);
+    }
+
+    @Test
+    public void testSpilledCountingGivesSameResult() throws Exception {
+        final MockInputColumn<String> column = new MockInputColumn<>("col", String.class);
+        final ValueDistributionAnalyzer inMemory = new ValueDistributionAnalyzer(column, true);
+        inMemory.setRecordDrillDownInformation(false);
+
+        final ValueDistributionAnalyzer spilled;
+        System.setProperty(SystemProperties.AGGREGATION_MAX_ENTRIES_IN_MEMORY, "10");
+        try {
+            spilled = new ValueDistributionAnalyzer(column, true);
+            spilled.setRecordDrillDownInformation(false);
+            for (int i = 0; i < 1000; i++) {
+                final String value = (i % 7 == 0) ? null : (i % 3 == 0 ? "unique" + i : "value" + (i % 50));
+                inMemory.runInternal(new MockInputRow(), value, 1);
+                spilled.runInternal(new MockInputRow(), value, 1);
+            }
+        } finally {
+            System.clearProperty(SystemProperties.AGGREGATION_MAX_ENTRIES_IN_MEMORY);
+        }
+
+        final SingleValueDistributionResult expected = (SingleValueDistributionResult) inMemory.getResult();
+        final SingleValueDistributionResult actual = (SingleValueDistributionResult) spilled.getResult();
+        spilled.close();
+
+        assertEquals(1000, actual.getTotalCount());
+        assertEquals(expected.getNullCount(), actual.getNullCount());
+        assertEquals(expected.getDistinctCount(), actual.getDistinctCount());
+        assertEquals(expected.getUniqueCount(), actual.getUniqueCount());
+        assertEquals(new HashSet<>(expected.getUniqueValues()), new HashSet<>(actual.getUniqueValues()));
+        assertEquals(expected.getValueCounts().toString(), actual.getValueCounts().toString());
+    }
 }
@@ -0,0 +1,104 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.valuedist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ValueDistributionSketchTest {
+
+    @Test
+    public void testExactForLowCardinality() {
+        final ValueDistributionSketch sketch = new ValueDistributionSketch(0.02, 10);
+        sketch.add("foo", 3);
+        sketch.add("bar", 1);
+        sketch.add("baz", 1);
+        sketch.add("foo", 1);
+        sketch.add(null, 2);
+
+        assertTrue(sketch.isExact());
+        assertEquals(8, sketch.getTotalCount());
+        assertEquals(2, sketch.getNullCount());
+        assertEquals(3, sketch.getDistinctValueCount());
+        assertEquals(2, sketch.getUniqueValueCount());
+        assertEquals(Long.valueOf(4), sketch.getCount("foo"));
+        assertNull(sketch.getCount("hello"));
+    }
+
+    @Test
+    public void testEstimateHighCardinality() {
+        final ValueDistributionSketch sketch = new ValueDistributionSketch(0.02, 100);
+        final int numValues = 200000;
+        for (int i = 0; i < numValues; i++) {
+            sketch.add("value" + i, 1);
+            if (i % 4 == 0) {
+                sketch.add("value" + i, 1);
+            }
+        }
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("frequent", 1);
+        }
+
+        assertFalse(sketch.isExact());
+        assertEquals(numValues + numValues / 4 + 1000, sketch.getTotalCount());
+        assertWithinError(numValues + 1, sketch.getDistinctValueCount(), 0.06);
+        assertWithinError(numValues * 3 / 4, sketch.getUniqueValueCount(), 0.06);
+
+        final long count = sketch.getCount("frequent");
+        assertTrue(count >= 1000);
+        assertTrue(count <= 1000 + sketch.getTotalCount() / 100);
+    }
+
+    @Test
+    public void testMerge() {
+        final ValueDistributionSketch sketch1 = new ValueDistributionSketch(0.02, 100);
+        final ValueDistributionSketch sketch2 = new ValueDistributionSketch(0.02, 100);
+        for (int i = 0; i < 100000; i++) {
+            sketch1.add("value" + i, 1);
+            sketch2.add("value" + (i + 50000), 1);
+        }
+        sketch1.add("frequent", 500);
+        sketch2.add("frequent", 700);
+        sketch2.add(null, 1);
+
+        final ValueDistributionSketch merged = ValueDistributionSketch.merge(Arrays.asList(sketch1, sketch2));
+
+        // the merged sketches are not modified
+        assertEquals(100500, sketch1.getTotalCount());
+
+        assertEquals(201201, merged.getTotalCount());
+        assertEquals(1, merged.getNullCount());
+        assertWithinError(150001, merged.getDistinctValueCount(), 0.06);
+        assertWithinError(100000, merged.getUniqueValueCount(), 0.06);
+        assertTrue(merged.getCount("frequent") >= 1200);
+        assertTrue(merged.getCount("frequent") <= 1200 + merged.getTotalCount() / 100);
+    }
+
+    private void assertWithinError(final long expected, final long actual, final double relativeError) {
+        final double error = Math.abs(actual - expected) / (double) expected;
+        assertTrue("Expected " + expected + " but got " + actual, error <= relativeError);
+    }
+}
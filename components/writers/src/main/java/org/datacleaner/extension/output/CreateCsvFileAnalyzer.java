@@ -64,6 +64,7 @@ import org.datacleaner.job.builder.AnalysisJobBuilder;
 import org.datacleaner.output.OutputWriter;
 import org.datacleaner.output.csv.CsvOutputWriterFactory;
 import org.datacleaner.user.UserPreferences;
+import org.datacleaner.util.sort.MetaModelRowCodec;
 import org.datacleaner.util.sort.SortMergeWriter;
 
 import com.google.common.base.Strings;
@@ -255,7 +256,8 @@ public class CreateCsvFileAnalyzer extends AbstractOutputWriterAnalyzer
                     SortHelper.createComparator(columnToBeSortedOn, _indexOfColumnToBeSortedOn);
 
             final CsvWriter csvWriter = new CsvWriter(csvConfiguration);
-            final SortMergeWriter<Row, Writer> sortMergeWriter = new SortMergeWriter<Row, Writer>(comparator) {
+            final SortMergeWriter<Row, Writer> sortMergeWriter = new SortMergeWriter<Row, Writer>(comparator,
+                    new MetaModelRowCodec()) {
 
                 @Override
                 protected void writeHeader(final Writer writer) throws IOException {
@@ -304,9 +306,11 @@ public class CreateCsvFileAnalyzer extends AbstractOutputWriterAnalyzer
                     final Row row = dataSet.getRow();
                     sortMergeWriter.append(row);
                 }
-            }
 
-            sortMergeWriter.write(file);
+                sortMergeWriter.write(file);
+            } finally {
+                sortMergeWriter.close();
+            }
         }
         
         final Datastore datastore = new CsvDatastore(file.getName(), file, csvConfiguration);
@@ -65,6 +65,7 @@ import org.datacleaner.job.builder.AnalysisJobBuilder;
 import org.datacleaner.output.OutputWriter;
 import org.datacleaner.output.csv.CsvOutputWriterFactory;
 import org.datacleaner.output.excel.ExcelOutputWriterFactory;
+import org.datacleaner.util.sort.MetaModelRowCodec;
 import org.datacleaner.util.sort.SortMergeWriter;
 
 @Named("Create Excel spreadsheet")
@@ -278,7 +279,7 @@ public class CreateExcelSpreadsheetAnalyzer extends AbstractOutputWriterAnalyzer
                 SortHelper.createComparator(columnToBeSortedOn, indexOfColumnToBeSortedOn);
 
         final SortMergeWriter<Row, ExcelDataContextWriter> sortMergeWriter =
-                new SortMergeWriter<Row, ExcelDataContextWriter>(comparator) {
+                new SortMergeWriter<Row, ExcelDataContextWriter>(comparator, new MetaModelRowCodec()) {
 
                     @Override
                     protected ExcelDataContextWriter createWriter(final Resource resource) {
@@ -316,8 +317,10 @@ public class CreateExcelSpreadsheetAnalyzer extends AbstractOutputWriterAnalyzer
                 final Row row = dataSet.getRow();
                 sortMergeWriter.append(row);
             }
+            sortMergeWriter.write(file);
+        } finally {
+            sortMergeWriter.close();
         }
-        sortMergeWriter.write(file);
     }
 
     public void setFile(final File file) {
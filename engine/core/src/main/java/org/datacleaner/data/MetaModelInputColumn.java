@@ -30,6 +30,12 @@ public final class MetaModelInputColumn extends AbstractInputColumn<Object> {
 
     private final Column _column;
 
+    /**
+     * The slot index + 1, so that the default value of a transient int (0)
+     * means "no slot assigned", also after deserialization.
+     */
+    private transient int _slot;
+
     public MetaModelInputColumn(final Column column) {
         if (column == null) {
             throw new IllegalArgumentException("column cannot be null");
@@ -46,6 +52,29 @@ public final class MetaModelInputColumn extends AbstractInputColumn<Object> {
         throw new IllegalArgumentException("Can only narrow this column to supertypes of: " + javaEquivalentClass);
     }
 
+    /**
+     * Gets the slot index of this column, which is its position among the
+     * source columns of the job it is part of. Used by
+     * {@link MetaModelRowProjection} to resolve the column's value index in
+     * an array instead of a map.
+     *
+     * @return the slot index, or -1 if no slot has been assigned
+     */
+    public int getSlotIndex() {
+        return _slot - 1;
+    }
+
+    /**
+     * Sets the slot index of this column. Slot indexes are assigned when a job
+     * is built, see {@link org.datacleaner.job.builder.AnalysisJobBuilder}.
+     *
+     * @param slotIndex
+     *            the slot index, or -1 to unassign the slot
+     */
+    public void setSlotIndex(final int slotIndex) {
+        _slot = slotIndex + 1;
+    }
+
     @Override
     public String getName() {
         return _column.getName();
@@ -51,10 +51,28 @@ public final class MetaModelInputRow extends AbstractLegacyAwareInputRow {
 
     private final Row _row;
     private final long _id;
+    private final transient MetaModelRowProjection _projection;
 
     public MetaModelInputRow(final long rowNumber, final Row row) {
+        this(rowNumber, row, null);
+    }
+
+    /**
+     * Creates a {@link MetaModelInputRow} which looks up values by index,
+     * using a {@link MetaModelRowProjection} that is shared between all rows of
+     * the same data set.
+     *
+     * @param rowNumber
+     * @param row
+     * @param projection
+     *            the projection of the row's select items, or null to look up
+     *            values by matching select items. Columns that the projection
+     *            did not resolve are also looked up by matching select items.
+     */
+    public MetaModelInputRow(final long rowNumber, final Row row, final MetaModelRowProjection projection) {
         _id = rowNumber;
         _row = row;
+        _projection = projection;
     }
 
     @Override
@@ -90,6 +108,9 @@ public final class MetaModelInputRow extends AbstractLegacyAwareInputRow {
         if (!inputColumn.isPhysicalColumn()) {
             return false;
         }
+        if (_projection != null && _projection.indexOf(inputColumn) != -1) {
+            return true;
+        }
         final Column physicalColumn = inputColumn.getPhysicalColumn();
         final List<SelectItem> selectItems = _row.getSelectItems();
         for (final SelectItem selectItem : selectItems) {
@@ -109,8 +130,13 @@ public final class MetaModelInputRow extends AbstractLegacyAwareInputRow {
         if (!column.isPhysicalColumn()) {
             return null;
         }
-        final Column physicalColumn = column.getPhysicalColumn();
-        Object value = _row.getValue(physicalColumn);
+        final int index = _projection == null ? -1 : _projection.indexOf(column);
+        Object value;
+        if (index == -1) {
+            value = _row.getValue(column.getPhysicalColumn());
+        } else {
+            value = _row.getValue(index);
+        }
 
         value = convertValue(value);
 
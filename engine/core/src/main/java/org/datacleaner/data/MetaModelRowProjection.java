@@ -0,0 +1,152 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.data;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.datacleaner.api.InputColumn;
+
+/**
+ * A mapping of source {@link InputColumn}s to value indexes in the {@link Row}s
+ * of a {@link DataSet}. Every {@link MetaModelInputColumn} of a job gets a slot
+ * index when the job is built (its position among the job's source columns).
+ * The value indexes of the source columns are resolved once when the
+ * projection is created, typically when the source query of a job is
+ * executed, and stored in an array by slot. Value lookups are then an array
+ * access, instead of going through the row's data set header.
+ *
+ * Instances are immutable and thus thread-safe.
+ */
+public final class MetaModelRowProjection {
+
+    private final SelectItem[] _selectItems;
+    private final InputColumn<?>[] _slotColumns;
+    private final int[] _valueIndexes;
+
+    /**
+     * Creates a projection which resolves the value indexes of a set of source
+     * columns. The physical columns of the source columns may be equal to,
+     * but not the same instances as, the selected columns.
+     *
+     * @param selectItems
+     * @param sourceColumns
+     */
+    public MetaModelRowProjection(final List<SelectItem> selectItems,
+            final Collection<? extends InputColumn<?>> sourceColumns) {
+        _selectItems = selectItems.toArray(new SelectItem[selectItems.size()]);
+
+        int slotCount = 0;
+        for (final InputColumn<?> sourceColumn : sourceColumns) {
+            slotCount = Math.max(slotCount, getSlotIndex(sourceColumn) + 1);
+        }
+        _slotColumns = new InputColumn<?>[slotCount];
+        _valueIndexes = new int[slotCount];
+
+        for (final InputColumn<?> sourceColumn : sourceColumns) {
+            final int slot = getSlotIndex(sourceColumn);
+            if (slot != -1) {
+                final int valueIndex = resolveValueIndex(sourceColumn.getPhysicalColumn());
+                if (valueIndex != -1) {
+                    _slotColumns[slot] = sourceColumn;
+                    _valueIndexes[slot] = valueIndex;
+                }
+            }
+        }
+    }
+
+    private static int getSlotIndex(final InputColumn<?> inputColumn) {
+        if (inputColumn instanceof MetaModelInputColumn) {
+            return ((MetaModelInputColumn) inputColumn).getSlotIndex();
+        }
+        return -1;
+    }
+
+    private int resolveValueIndex(final Column column) {
+        if (column == null) {
+            return -1;
+        }
+        // the query is usually built from the very same column objects
+        for (int i = 0; i < _selectItems.length; i++) {
+            if (isPlainColumn(_selectItems[i]) && _selectItems[i].getColumn() == column) {
+                return i;
+            }
+        }
+        for (int i = 0; i < _selectItems.length; i++) {
+            if (isPlainColumn(_selectItems[i]) && column.equals(_selectItems[i].getColumn())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isPlainColumn(final SelectItem selectItem) {
+        return selectItem.getColumn() != null && selectItem.getAggregateFunction() == null;
+    }
+
+    /**
+     * Gets the resolved index of a source column's value in the projected
+     * rows.
+     *
+     * @param inputColumn
+     * @return the value index, or -1 if the column was not resolved by this
+     *         projection
+     */
+    public int indexOf(final InputColumn<?> inputColumn) {
+        final int slot = getSlotIndex(inputColumn);
+        if (slot >= 0 && slot < _slotColumns.length && _slotColumns[slot] == inputColumn) {
+            return _valueIndexes[slot];
+        }
+        return -1;
+    }
+
+    /**
+     * Determines if this projection was made for a particular list of select
+     * items. Rows of the same data set share the very same select items, so
+     * this is a (cheap) identity check of the items.
+     *
+     * @param selectItems
+     * @return
+     */
+    public boolean isProjectionOf(final List<SelectItem> selectItems) {
+        if (selectItems.size() != _selectItems.length) {
+            return false;
+        }
+        for (int i = 0; i < _selectItems.length; i++) {
+            if (selectItems.get(i) != _selectItems[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of values in the projected rows
+     *
+     * @return
+     */
+    public int size() {
+        return _selectItems.length;
+    }
+}
@@ -49,6 +49,12 @@ public class TransformedInputColumn<E> implements MutableInputColumn<E>, Seriali
     private String _initialName;
     private boolean _hidden;
 
+    /**
+     * The slot index + 1, so that the default value of a transient int (0)
+     * means "no slot assigned", also after deserialization.
+     */
+    private transient int _slot;
+
     public TransformedInputColumn(final String name, final IdGenerator idGenerator) {
         this(name, idGenerator.nextId());
     }
@@ -115,6 +121,28 @@ public class TransformedInputColumn<E> implements MutableInputColumn<E>, Seriali
         return true;
     }
 
+    /**
+     * Gets the dense slot index of this column within the job it is part of,
+     * used by {@link TransformedInputRow} to store values in an array instead
+     * of a map.
+     *
+     * @return the slot index, or -1 if no slot has been assigned
+     */
+    public int getSlotIndex() {
+        return _slot - 1;
+    }
+
+    /**
+     * Sets the slot index of this column. Slot indexes are assigned when a job
+     * is built, see {@link org.datacleaner.job.builder.AnalysisJobBuilder}.
+     *
+     * @param slotIndex
+     *            the slot index, or -1 to unassign the slot
+     */
+    public void setSlotIndex(final int slotIndex) {
+        _slot = slotIndex + 1;
+    }
+
     @Override
     public String toString() {
         return "TransformedInputColumn[id=" + _id + ",name=" + _name + "]";
@@ -21,9 +21,11 @@ package org.datacleaner.data;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -36,6 +38,10 @@ import org.slf4j.LoggerFactory;
 /**
  * Represents a row with transformed values as well as a delegate row (typically
  * a {@link MetaModelInputRow} delegate).
+ *
+ * Values of {@link TransformedInputColumn}s that have a slot index assigned are
+ * stored in a flat array, indexed by the slot. Other columns (or columns whose
+ * slot is already occupied by a column of another job) are stored in a map.
  */
 public final class TransformedInputRow extends AbstractLegacyAwareInputRow {
 
@@ -43,9 +49,13 @@ public final class TransformedInputRow extends AbstractLegacyAwareInputRow {
 
     private static final Logger logger = LoggerFactory.getLogger(TransformedInputRow.class);
 
+    private static final int MIN_SLOT_CAPACITY = 8;
+
     private final InputRow _delegate;
-    private final Map<InputColumn<?>, Object> _values;
     private final long _id;
+    private Map<InputColumn<?>, Object> _values;
+    private transient InputColumn<?>[] _slotColumns;
+    private transient Object[] _slotValues;
 
     /**
      * Constructs a {@link TransformedInputRow} based on another row and a row
@@ -64,7 +74,6 @@ public final class TransformedInputRow extends AbstractLegacyAwareInputRow {
         } else {
             _id = rowId.longValue();
         }
-        _values = new LinkedHashMap<>();
     }
 
     public TransformedInputRow(final InputRow delegate, final long rowId) {
@@ -73,7 +82,6 @@ public final class TransformedInputRow extends AbstractLegacyAwareInputRow {
         }
         _delegate = delegate;
         _id = rowId;
-        _values = new LinkedHashMap<>();
     }
 
     /**
@@ -111,6 +119,70 @@ public final class TransformedInputRow extends AbstractLegacyAwareInputRow {
         doReadObject(stream);
     }
 
+    private void writeObject(final ObjectOutputStream stream) throws IOException {
+        // always write the values as a map, to stay compatible with the
+        // serialized form of older versions
+        final ObjectOutputStream.PutField fields = stream.putFields();
+        fields.put("_delegate", _delegate);
+        fields.put("_id", _id);
+        fields.put("_values", getValuesMap());
+        stream.writeFields();
+    }
+
+    private static int getSlotIndex(final InputColumn<?> inputColumn) {
+        if (inputColumn instanceof TransformedInputColumn) {
+            return ((TransformedInputColumn<?>) inputColumn).getSlotIndex();
+        }
+        return -1;
+    }
+
+    private boolean isInSlot(final InputColumn<?> inputColumn, final int slot) {
+        return slot >= 0 && _slotColumns != null && slot < _slotColumns.length && _slotColumns[slot] == inputColumn;
+    }
+
+    private boolean storeInSlot(final InputColumn<?> inputColumn, final int slot, final Object value) {
+        if (_slotColumns == null) {
+            final int capacity = Math.max(MIN_SLOT_CAPACITY, slot + 1);
+            _slotColumns = new InputColumn<?>[capacity];
+            _slotValues = new Object[capacity];
+        } else if (slot >= _slotColumns.length) {
+            final int capacity = Math.max(_slotColumns.length * 2, slot + 1);
+            _slotColumns = Arrays.copyOf(_slotColumns, capacity);
+            _slotValues = Arrays.copyOf(_slotValues, capacity);
+        }
+
+        final InputColumn<?> existingColumn = _slotColumns[slot];
+        if (existingColumn != null && existingColumn != inputColumn) {
+            // slot occupied by a column with the same slot index from another
+            // job
+            return false;
+        }
+        _slotColumns[slot] = inputColumn;
+        _slotValues[slot] = value;
+        return true;
+    }
+
+    /**
+     * Builds a map of all the transformed values of this row (not including
+     * the delegate's values).
+     *
+     * @return
+     */
+    private Map<InputColumn<?>, Object> getValuesMap() {
+        final Map<InputColumn<?>, Object> result = new LinkedHashMap<>();
+        if (_slotColumns != null) {
+            for (int i = 0; i < _slotColumns.length; i++) {
+                if (_slotColumns[i] != null) {
+                    result.put(_slotColumns[i], _slotValues[i]);
+                }
+            }
+        }
+        if (_values != null) {
+            result.putAll(_values);
+        }
+        return result;
+    }
+
     @Override
     public long getId() {
         return _id;
@@ -118,8 +190,13 @@ public final class TransformedInputRow extends AbstractLegacyAwareInputRow {
 
     @Override
     public boolean containsInputColumn(final InputColumn<?> inputColumn) {
-        if (inputColumn.isVirtualColumn() && _values.containsKey(inputColumn)) {
-            return true;
+        if (inputColumn.isVirtualColumn()) {
+            if (isInSlot(inputColumn, getSlotIndex(inputColumn))) {
+                return true;
+            }
+            if (_values != null && _values.containsKey(inputColumn)) {
+                return true;
+            }
         }
         return _delegate.containsInputColumn(inputColumn);
     }
@@ -128,6 +205,13 @@ public final class TransformedInputRow extends AbstractLegacyAwareInputRow {
         if (inputColumn.isPhysicalColumn()) {
             throw new IllegalArgumentException("Cannot add physical column values to transformed InputRow.");
         }
+        final int slot = getSlotIndex(inputColumn);
+        if (slot >= 0 && storeInSlot(inputColumn, slot, value)) {
+            return;
+        }
+        if (_values == null) {
+            _values = new LinkedHashMap<>();
+        }
         _values.put(inputColumn, value);
     }
 
@@ -138,7 +222,11 @@ public final class TransformedInputRow extends AbstractLegacyAwareInputRow {
             logger.debug("Column is physical, delegating.");
             return _delegate.getValue(column);
         }
-        if (_values.containsKey(column)) {
+        final int slot = getSlotIndex(column);
+        if (isInSlot(column, slot)) {
+            return (E) _slotValues[slot];
+        }
+        if (_values != null && _values.containsKey(column)) {
             return (E) _values.get(column);
         }
         return _delegate.getValue(column);
@@ -151,16 +239,22 @@ public final class TransformedInputRow extends AbstractLegacyAwareInputRow {
     @Override
     public List<InputColumn<?>> getInputColumns() {
         final List<InputColumn<?>> inputColumns = _delegate.getInputColumns();
-        inputColumns.addAll(_values.keySet());
+        inputColumns.addAll(getTransformedInputColumns());
         return inputColumns;
     }
 
     public Set<InputColumn<?>> getTransformedInputColumns() {
-        return _values.keySet();
+        if (_slotColumns == null) {
+            if (_values == null) {
+                return new LinkedHashSet<>();
+            }
+            return _values.keySet();
+        }
+        return getValuesMap().keySet();
     }
 
     @Override
     public String toString() {
-        return "TransformedInputRow[values=" + _values + ",delegate=" + _delegate + "]";
+        return "TransformedInputRow[values=" + getValuesMap() + ",delegate=" + _delegate + "]";
     }
 }
@@ -48,6 +48,7 @@ import org.datacleaner.connection.DatastoreConnection;
 import org.datacleaner.connection.SchemaNavigator;
 import org.datacleaner.data.MetaModelInputColumn;
 import org.datacleaner.data.MutableInputColumn;
+import org.datacleaner.data.TransformedInputColumn;
 import org.datacleaner.descriptors.AnalyzerDescriptor;
 import org.datacleaner.descriptors.ComponentDescriptor;
 import org.datacleaner.descriptors.ConfiguredPropertyDescriptor;
@@ -840,6 +841,7 @@ public final class AnalysisJobBuilder implements Closeable {
             final TransformerJob componentJob = immutabilizer.getOrCreateTransformerJob(validate, tjb);
             transformerJobs.add(componentJob);
         }
+        assignSlotIndexes(transformerJobs);
 
         final Collection<AnalyzerJob> analyzerJobs = new LinkedList<>();
         for (final AnalyzerComponentBuilder<?> ajb : _analyzerComponentBuilders) {
@@ -861,9 +863,59 @@ public final class AnalysisJobBuilder implements Closeable {
             metadata = _analysisJobMetadata;
         }
 
+        assignSourceColumnSlotIndexes(_sourceColumns);
+
         return new ImmutableAnalysisJob(metadata, datastore, _sourceColumns, filterJobs, transformerJobs, analyzerJobs);
     }
 
+    /**
+     * Assigns every {@link MetaModelInputColumn} of the job its position among
+     * the source columns as slot index, allowing rows to resolve source values
+     * by array index. Slots that were assigned by a previous build are
+     * retained, since rows of an already running job may depend on them.
+     *
+     * @param sourceColumns
+     */
+    private static void assignSourceColumnSlotIndexes(final List<MetaModelInputColumn> sourceColumns) {
+        for (int i = 0; i < sourceColumns.size(); i++) {
+            final MetaModelInputColumn sourceColumn = sourceColumns.get(i);
+            if (sourceColumn.getSlotIndex() == -1) {
+                sourceColumn.setSlotIndex(i);
+            }
+        }
+    }
+
+    /**
+     * Assigns a dense slot index to every {@link TransformedInputColumn} of
+     * the job, allowing rows to store transformed values in an array. Slots
+     * that were assigned by a previous build are retained, since rows of an
+     * already running job may depend on them.
+     *
+     * @param transformerJobs
+     */
+    private static void assignSlotIndexes(final Collection<TransformerJob> transformerJobs) {
+        int nextSlotIndex = 0;
+        final List<TransformedInputColumn<?>> unassignedColumns = new ArrayList<>();
+        for (final TransformerJob transformerJob : transformerJobs) {
+            for (final InputColumn<?> outputColumn : transformerJob.getOutput()) {
+                if (outputColumn instanceof TransformedInputColumn) {
+                    final TransformedInputColumn<?> transformedColumn = (TransformedInputColumn<?>) outputColumn;
+                    final int slotIndex = transformedColumn.getSlotIndex();
+                    if (slotIndex == -1) {
+                        unassignedColumns.add(transformedColumn);
+                    } else {
+                        nextSlotIndex = Math.max(nextSlotIndex, slotIndex + 1);
+                    }
+                }
+            }
+        }
+
+        for (final TransformedInputColumn<?> transformedColumn : unassignedColumns) {
+            transformedColumn.setSlotIndex(nextSlotIndex);
+            nextSlotIndex++;
+        }
+    }
+
     public AnalysisJobMetadata createMetadata() {
         final MutableAnalysisJobMetadata mutableAnalysisJobMetadata = getAnalysisJobMetadata();
 
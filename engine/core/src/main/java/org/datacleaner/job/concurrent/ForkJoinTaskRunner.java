@@ -0,0 +1,236 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.concurrent;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.datacleaner.job.tasks.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TaskRunner} implementation based on a work-stealing
+ * {@link ForkJoinPool}. Every worker thread has it's own task deque, so
+ * producers and workers do not contend on a single shared queue lock like in
+ * {@link MultiThreadedTaskRunner}.
+ *
+ * Backpressure is applied to the submitting threads (typically the row
+ * processing publisher) by a bounded number of in-flight tasks. Submitters
+ * block (in a {@link ForkJoinPool.ManagedBlocker} when they are pool workers
+ * themselves) until capacity is available again.
+ */
+public final class ForkJoinTaskRunner implements ScheduledTaskRunner {
+
+    /**
+     * {@link ForkJoinPool} subclass which exposes the otherwise protected
+     * ability to poll externally submitted tasks.
+     */
+    private static final class AssistableForkJoinPool extends ForkJoinPool {
+
+        AssistableForkJoinPool(final int parallelism) {
+            super(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        }
+
+        ForkJoinTask<?> pollExternalTask() {
+            return pollSubmission();
+        }
+    }
+
+    /**
+     * {@link ForkJoinTask} wrapper for a {@link TaskRunnable}, which gives
+     * back it's in-flight permit once executed.
+     */
+    private static final class TaskRunnableAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient TaskRunnable _taskRunnable;
+        private final transient Semaphore _permits;
+
+        TaskRunnableAction(final TaskRunnable taskRunnable, final Semaphore permits) {
+            _taskRunnable = taskRunnable;
+            _permits = permits;
+        }
+
+        static ForkJoinTask<?> pollWorkerTask() {
+            return pollTask();
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                _taskRunnable.run();
+            } finally {
+                _permits.release();
+            }
+        }
+    }
+
+    /**
+     * {@link ForkJoinPool.ManagedBlocker} that acquires an in-flight permit,
+     * allowing the pool to compensate with a spare thread if a worker blocks.
+     */
+    private static final class PermitBlocker implements ForkJoinPool.ManagedBlocker {
+
+        private final Semaphore _permits;
+        private boolean _acquired = false;
+
+        PermitBlocker(final Semaphore permits) {
+            _permits = permits;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            if (!_acquired) {
+                _permits.acquire();
+                _acquired = true;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            if (!_acquired) {
+                _acquired = _permits.tryAcquire();
+            }
+            return _acquired;
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ForkJoinTaskRunner.class);
+    private final AssistableForkJoinPool _pool;
+    private final ScheduledThreadPoolExecutor _executorScheduledService;
+    private final Semaphore _permits;
+    private final int _numThreads;
+
+    public ForkJoinTaskRunner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ForkJoinTaskRunner(final int numThreads) {
+        _numThreads = numThreads;
+
+        // same task capacity as the MultiThreadedTaskRunner, to prepare tasks
+        // for working threads in advance without unbounded buffering.
+        final int taskCapacity = Math.max(1000, numThreads * 10);
+        _permits = new Semaphore(taskCapacity);
+
+        _pool = new AssistableForkJoinPool(numThreads);
+
+        _executorScheduledService = new ScheduledThreadPoolExecutor(1);
+        _executorScheduledService.setMaximumPoolSize(50);
+    }
+
+    /**
+     * @return the parallelism level of the fork join pool
+     */
+    public int getNumThreads() {
+        return _numThreads;
+    }
+
+    @Override
+    public void run(final Task task, final TaskListener listener) {
+        logger.debug("run({},{})", task, listener);
+        executeInternal(new TaskRunnable(task, listener));
+    }
+
+    @Override
+    public void run(final TaskRunnable taskRunnable) {
+        logger.debug("run({})", taskRunnable);
+        executeInternal(taskRunnable);
+    }
+
+    private void executeInternal(final TaskRunnable taskRunnable) {
+        try {
+            ForkJoinPool.managedBlock(new PermitBlocker(_permits));
+        } catch (final InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+
+        final TaskRunnableAction action = new TaskRunnableAction(taskRunnable, _permits);
+        try {
+            if (isWorkerThread()) {
+                // push to the local deque - idle workers will steal from it
+                action.fork();
+            } else {
+                _pool.execute(action);
+            }
+        } catch (final RejectedExecutionException e) {
+            _permits.release();
+            logger.error("Unexpected rejected execution!", e);
+        }
+    }
+
+    private boolean isWorkerThread() {
+        return ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == _pool;
+    }
+
+    @Override
+    public void runScheduled(final Task task, final TaskListener listener, final long initialDelay, final long delay,
+            final TimeUnit unit) {
+        logger.debug("Schedule task ({},{}), delay {} {}", task, listener, delay, unit);
+        _executorScheduledService.scheduleWithFixedDelay(new TaskRunnable(task, listener), initialDelay, delay, unit);
+    }
+
+    @Override
+    public void runScheduled(final TaskRunnable taskRunnable, final long initialDelay, final long delay,
+            final TimeUnit unit) {
+        logger.debug("Schedule task ({}), delay {} {}", taskRunnable, delay, unit);
+        _executorScheduledService.scheduleWithFixedDelay(taskRunnable, initialDelay, delay, unit);
+    }
+
+    @Override
+    public void shutdown() {
+        logger.info("shutdown() called, shutting down fork join pool");
+        _pool.shutdown();
+        _executorScheduledService.shutdown();
+    }
+
+    public ForkJoinPool getForkJoinPool() {
+        return _pool;
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        shutdown();
+    }
+
+    @Override
+    public void assistExecution() {
+        final ForkJoinTask<?> task;
+        if (isWorkerThread()) {
+            task = TaskRunnableAction.pollWorkerTask();
+        } else {
+            task = _pool.pollExternalTask();
+        }
+
+        if (task == null) {
+            Thread.yield();
+        } else {
+            task.invoke();
+        }
+    }
+}
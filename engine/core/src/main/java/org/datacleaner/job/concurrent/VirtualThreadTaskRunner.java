@@ -0,0 +1,181 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import org.datacleaner.job.tasks.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TaskRunner} which runs every task on it's own (virtual) thread.
+ * This is suitable for jobs that are dominated by blocking components, such
+ * as HTTP requests, DNS lookups or table lookups, where a fixed size thread
+ * pool either becomes the bottleneck or wastes memory and context switches.
+ *
+ * Virtual threads are used when the JVM provides them (Java 21 and later). On
+ * older JVMs the runner falls back to a cached pool of daemon platform
+ * threads.
+ *
+ * The number of tasks in flight is bounded by a number of permits. Submitters
+ * block until a permit is available, which provides backpressure towards the
+ * row processing publisher. A task that submits other tasks, or that waits for
+ * other tasks via {@link #assistExecution()}, gives up its permit first, so
+ * that it does not take a permit away from the tasks it depends on. Otherwise
+ * a small limit would deadlock, e.g. with a limit of 1 the publisher task
+ * would hold the only permit while waiting to submit its first row.
+ */
+public final class VirtualThreadTaskRunner implements TaskRunner {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1000;
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadTaskRunner.class);
+    private final ExecutorService _executorService;
+    private final Semaphore _permits;
+    private final int _maxInFlight;
+    private final boolean _virtualThreads;
+
+    // marks the threads that currently hold a permit for the task they run.
+    // Every task runs on its own thread and the mark is removed when the task
+    // completes, so no state is left on (pooled) threads.
+    private final ThreadLocal<Boolean> _permitHolder = new ThreadLocal<>();
+
+    public VirtualThreadTaskRunner() {
+        this(DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    public VirtualThreadTaskRunner(final int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Max in-flight tasks must be a positive number");
+        }
+        _maxInFlight = maxInFlight;
+        _permits = new Semaphore(maxInFlight);
+
+        final ExecutorService virtualThreadExecutor = createVirtualThreadExecutor();
+        if (virtualThreadExecutor == null) {
+            logger.info("Virtual threads not available, falling back to a cached thread pool");
+            _executorService = Executors.newCachedThreadPool(new DaemonThreadFactory());
+            _virtualThreads = false;
+        } else {
+            _executorService = virtualThreadExecutor;
+            _virtualThreads = true;
+        }
+    }
+
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            final Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (final NoSuchMethodException e) {
+            return null;
+        } catch (final Exception e) {
+            logger.warn("Failed to create virtual thread executor", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the maximum number of tasks that may be in flight at the same
+     *         time
+     */
+    public int getMaxInFlight() {
+        return _maxInFlight;
+    }
+
+    /**
+     * @return whether or not tasks are run on virtual threads (as opposed to
+     *         platform threads)
+     */
+    public boolean isVirtualThreads() {
+        return _virtualThreads;
+    }
+
+    @Override
+    public void run(final Task task, final TaskListener listener) {
+        logger.debug("run({},{})", task, listener);
+        executeInternal(new TaskRunnable(task, listener));
+    }
+
+    @Override
+    public void run(final TaskRunnable taskRunnable) {
+        logger.debug("run({})", taskRunnable);
+        executeInternal(taskRunnable);
+    }
+
+    private void executeInternal(final TaskRunnable taskRunnable) {
+        releaseOwnPermit();
+
+        try {
+            _permits.acquire();
+        } catch (final InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+
+        try {
+            _executorService.execute(() -> {
+                _permitHolder.set(Boolean.TRUE);
+                try {
+                    taskRunnable.run();
+                } finally {
+                    releaseOwnPermit();
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            _permits.release();
+            logger.error("Unexpected rejected execution!", e);
+        }
+    }
+
+    /**
+     * Releases the permit of the task that the current thread is running, if
+     * it has not been released already.
+     */
+    private void releaseOwnPermit() {
+        if (_permitHolder.get() != null) {
+            _permitHolder.remove();
+            _permits.release();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        logger.info("shutdown() called, shutting down executor service");
+        _executorService.shutdown();
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        shutdown();
+    }
+
+    @Override
+    public void assistExecution() {
+        // the awaited tasks may need the permit of a waiting task
+        releaseOwnPermit();
+
+        // every task has it's own thread, so there's no queue to assist with
+        Thread.yield();
+    }
+}
@@ -149,6 +149,11 @@ abstract class AbstractRowProcessingConsumer implements RowProcessingConsumer {
         return new InputColumn[0];
     }
 
+    @Override
+    public Collection<Object> getPartialComponents() {
+        return Collections.emptyList();
+    }
+
     @Override
     public boolean isResultProducer() {
         return getComponent() instanceof HasAnalyzerResult;
@@ -49,6 +49,7 @@ public abstract class AbstractRowProcessingPublisher implements RowProcessingPub
     private final RowProcessingStream _stream;
     private final List<RowProcessingConsumer> _consumers;
     private final SourceColumnFinder _sourceColumnFinder;
+    private final RowProcessingProgressDispatcher _progressDispatcher;
 
     public AbstractRowProcessingPublisher(final RowProcessingPublishers publishers, final RowProcessingStream stream) {
         if (publishers == null) {
@@ -63,6 +64,7 @@ public abstract class AbstractRowProcessingPublisher implements RowProcessingPub
         _sourceColumnFinder.addSources(stream.getAnalysisJob());
         _consumers = new ArrayList<>();
         _success = new AtomicBoolean(true);
+        _progressDispatcher = new RowProcessingProgressDispatcher(publishers.getAnalysisListener());
     }
 
     @Override
@@ -178,7 +180,12 @@ public abstract class AbstractRowProcessingPublisher implements RowProcessingPub
             final Queue<JobAndResult> resultQueue) {
         final Object component = consumer.getComponent();
         if (component instanceof HasAnalyzerResult) {
-            final HasAnalyzerResult<?> hasAnalyzerResult = (HasAnalyzerResult<?>) component;
+            final HasAnalyzerResult<?> hasAnalyzerResult;
+            if (consumer instanceof AnalyzerConsumer) {
+                hasAnalyzerResult = ((AnalyzerConsumer) consumer).getResultProducer();
+            } else {
+                hasAnalyzerResult = (HasAnalyzerResult<?>) component;
+            }
             final AnalysisListener analysisListener = _publishers.getAnalysisListener();
             return new CollectResultsTask(hasAnalyzerResult, _stream.getAnalysisJob(), consumer.getComponentJob(),
                     resultQueue, analysisListener);
@@ -203,7 +210,7 @@ public abstract class AbstractRowProcessingPublisher implements RowProcessingPub
 
     @Override
     public final void processRows(final RowProcessingMetrics rowProcessingMetrics) {
-        final AnalysisListener analysisListener = getAnalysisListener();
+        final AnalysisListener analysisListener = getRowProcessingProgressListener();
 
         final boolean success = processRowsInternal(analysisListener, rowProcessingMetrics);
 
@@ -282,6 +289,11 @@ public abstract class AbstractRowProcessingPublisher implements RowProcessingPub
         return getPublishers().getAnalysisListener();
     }
 
+    @Override
+    public final AnalysisListener getRowProcessingProgressListener() {
+        return _progressDispatcher;
+    }
+
     /**
      * Initializes consumers of this {@link SourceTableRowProcessingPublisher}.
      *
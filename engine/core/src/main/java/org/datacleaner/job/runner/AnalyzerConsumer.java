@@ -19,19 +19,58 @@
  */
 package org.datacleaner.job.runner;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.datacleaner.api.Analyzer;
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.api.AnalyzerResultReducer;
 import org.datacleaner.api.Concurrent;
+import org.datacleaner.api.HasAnalyzerResult;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
+import org.datacleaner.descriptors.AnalyzerDescriptor;
+import org.datacleaner.descriptors.ComponentDescriptor;
+import org.datacleaner.descriptors.Descriptors;
 import org.datacleaner.job.AnalyzerJob;
 import org.datacleaner.job.FilterOutcomes;
+import org.datacleaner.job.concurrent.ForkJoinTaskRunner;
+import org.datacleaner.job.concurrent.MultiThreadedTaskRunner;
+import org.datacleaner.job.concurrent.SingleThreadedTaskRunner;
+import org.datacleaner.job.concurrent.TaskRunner;
+import org.datacleaner.lifecycle.LifeCycleHelper;
+import org.datacleaner.util.SystemProperties;
 
+/**
+ * {@link RowProcessingConsumer} for {@link Analyzer}s.
+ *
+ * If partitioned execution is enabled (see
+ * {@link SystemProperties#ANALYZER_PARTITIONED}), non-concurrent analyzers
+ * that are distributable are invoked through a bounded pool of analyzer
+ * instances instead of being invoked in a synchronized manner. Each row checks
+ * out an idle instance and returns it afterwards. The pool holds at most as
+ * many instances as the task runner has threads, so task runners that run
+ * every task on a new thread do not create an instance per row. The partial
+ * results of the instances are combined using the analyzer's
+ * {@link AnalyzerResultReducer} when the result is collected.
+ */
 final class AnalyzerConsumer extends AbstractRowProcessingConsumer implements RowProcessingConsumer {
 
     private final AnalyzerJob _analyzerJob;
     private final Analyzer<?> _analyzer;
     private final InputColumn<?>[] _inputColumns;
     private final boolean _concurrent;
+    private final boolean _partitioned;
+    private final RowProcessingPublisher _publisher;
+    private final BlockingQueue<Analyzer<?>> _idleAnalyzers;
+    private final AtomicInteger _analyzerCount;
+    private final int _maxAnalyzers;
+    private final List<Analyzer<?>> _partialAnalyzers;
+    private volatile LifeCycleHelper _lifeCycleHelper;
 
     public AnalyzerConsumer(final Analyzer<?> analyzer, final AnalyzerJob analyzerJob,
             final InputColumn<?>[] inputColumns, final RowProcessingPublisher publisher) {
@@ -39,7 +78,55 @@ final class AnalyzerConsumer extends AbstractRowProcessingConsumer implements Ro
         _analyzer = analyzer;
         _analyzerJob = analyzerJob;
         _inputColumns = inputColumns;
+        _publisher = publisher;
         _concurrent = determineConcurrent();
+        _partitioned = determinePartitioned();
+        _idleAnalyzers = new LinkedBlockingQueue<>();
+        _partialAnalyzers = new ArrayList<>();
+        if (_partitioned) {
+            // the regularly initialized instance is the first in the pool
+            _idleAnalyzers.add(analyzer);
+            _analyzerCount = new AtomicInteger(1);
+            _maxAnalyzers = determineMaxAnalyzers();
+        } else {
+            _analyzerCount = null;
+            _maxAnalyzers = 1;
+        }
+    }
+
+    /**
+     * Determines the maximum number of analyzer instances of a partitioned
+     * consumer, which is the number of threads that the task runner runs tasks
+     * on concurrently, or the number of processors if that is not known.
+     */
+    private int determineMaxAnalyzers() {
+        TaskRunner taskRunner = _publisher.getPublishers().getTaskRunner();
+        if (taskRunner instanceof ErrorAwareTaskRunnerWrapper) {
+            taskRunner = ((ErrorAwareTaskRunnerWrapper) taskRunner).getWrappedTaskRunner();
+        }
+        if (taskRunner instanceof SingleThreadedTaskRunner) {
+            return 1;
+        }
+        if (taskRunner instanceof MultiThreadedTaskRunner) {
+            return Math.max(1, ((MultiThreadedTaskRunner) taskRunner).getNumThreads());
+        }
+        if (taskRunner instanceof ForkJoinTaskRunner) {
+            return Math.max(1, ((ForkJoinTaskRunner) taskRunner).getNumThreads());
+        }
+        // e.g. task runners that run each task on a new (virtual) thread
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    private boolean determinePartitioned() {
+        if (_concurrent || !SystemProperties.getBoolean(SystemProperties.ANALYZER_PARTITIONED, false)) {
+            return false;
+        }
+        if (_analyzerJob.getOutputDataStreamJobs().length > 0) {
+            // output data streams cannot be split across instances
+            return false;
+        }
+        final AnalyzerDescriptor<?> descriptor = _analyzerJob.getDescriptor();
+        return descriptor.isDistributable() && descriptor.getResultReducerClass() != null;
     }
 
     private boolean determineConcurrent() {
@@ -58,7 +145,26 @@ final class AnalyzerConsumer extends AbstractRowProcessingConsumer implements Ro
 
     @Override
     public boolean isConcurrent() {
-        return _concurrent;
+        // partitioned analyzers are only invoked by a single thread per
+        // instance, so the consumer itself is safe to invoke concurrently
+        return _concurrent || _partitioned;
+    }
+
+    /**
+     * Determines if this consumer runs rows through a pool of analyzer
+     * instances
+     *
+     * @return
+     */
+    public boolean isPartitioned() {
+        return _partitioned;
+    }
+
+    @Override
+    public Collection<Object> getPartialComponents() {
+        synchronized (_partialAnalyzers) {
+            return new ArrayList<>(_partialAnalyzers);
+        }
     }
 
     @Override
@@ -69,10 +175,127 @@ final class AnalyzerConsumer extends AbstractRowProcessingConsumer implements Ro
     @Override
     public void consumeInternal(final InputRow row, final int distinctCount, final FilterOutcomes outcomes,
             final RowProcessingChain chain) {
-        _analyzer.run(row, distinctCount);
+        if (_partitioned) {
+            final Analyzer<?> analyzer = checkOutAnalyzer();
+            try {
+                analyzer.run(row, distinctCount);
+            } finally {
+                _idleAnalyzers.add(analyzer);
+            }
+        } else {
+            _analyzer.run(row, distinctCount);
+        }
         chain.processNext(row, distinctCount, outcomes);
     }
 
+    /**
+     * Takes an idle analyzer instance from the pool. If there is none, a new
+     * partial analyzer is created, unless the pool is at its maximum size, in
+     * which case this waits for an instance to be returned.
+     */
+    private Analyzer<?> checkOutAnalyzer() {
+        final Analyzer<?> idleAnalyzer = _idleAnalyzers.poll();
+        if (idleAnalyzer != null) {
+            return idleAnalyzer;
+        }
+
+        int count = _analyzerCount.get();
+        while (count < _maxAnalyzers) {
+            if (_analyzerCount.compareAndSet(count, count + 1)) {
+                try {
+                    return createPartialAnalyzer();
+                } catch (final RuntimeException e) {
+                    _analyzerCount.decrementAndGet();
+                    throw e;
+                }
+            }
+            count = _analyzerCount.get();
+        }
+
+        try {
+            return _idleAnalyzers.take();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an instance of " + _analyzer, e);
+        }
+    }
+
+    private Analyzer<?> createPartialAnalyzer() {
+        final AnalyzerDescriptor<?> descriptor = _analyzerJob.getDescriptor();
+        final LifeCycleHelper lifeCycleHelper = getLifeCycleHelper();
+
+        final Analyzer<?> analyzer = descriptor.newInstance();
+        lifeCycleHelper.assignConfiguredProperties(descriptor, analyzer, _analyzerJob.getConfiguration());
+        lifeCycleHelper.assignProvidedProperties(descriptor, analyzer);
+        lifeCycleHelper.validate(descriptor, analyzer);
+
+        // register before initializing, to make sure that it is closed
+        synchronized (_partialAnalyzers) {
+            _partialAnalyzers.add(analyzer);
+        }
+        lifeCycleHelper.initialize(descriptor, analyzer);
+        return analyzer;
+    }
+
+    private LifeCycleHelper getLifeCycleHelper() {
+        if (_lifeCycleHelper == null) {
+            _lifeCycleHelper = _publisher.getPublishers().getConsumerSpecificLifeCycleHelper(this);
+        }
+        return _lifeCycleHelper;
+    }
+
+    /**
+     * Gets the {@link HasAnalyzerResult} to collect the result of this
+     * consumer from. For partitioned consumers, this will reduce the results
+     * of all analyzer instances into one.
+     *
+     * @return
+     */
+    public HasAnalyzerResult<?> getResultProducer() {
+        if (!_partitioned) {
+            return (HasAnalyzerResult<?>) _analyzer;
+        }
+
+        // partial analyzers are created during row processing, so they are
+        // looked up when the result is requested
+        return () -> {
+            final HasAnalyzerResult<?> primaryAnalyzer = (HasAnalyzerResult<?>) _analyzer;
+            final Collection<Object> partialAnalyzers = getPartialComponents();
+            if (partialAnalyzers.isEmpty()) {
+                return primaryAnalyzer.getResult();
+            }
+
+            final List<AnalyzerResult> results = new ArrayList<>(partialAnalyzers.size() + 1);
+            results.add(primaryAnalyzer.getResult());
+            for (final Object partialAnalyzer : partialAnalyzers) {
+                results.add(((HasAnalyzerResult<?>) partialAnalyzer).getResult());
+            }
+            return reduce(results);
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private AnalyzerResult reduce(final List<AnalyzerResult> results) {
+        final Class<? extends AnalyzerResultReducer<?>> reducerClass =
+                _analyzerJob.getDescriptor().getResultReducerClass();
+        final ComponentDescriptor<? extends AnalyzerResultReducer<?>> reducerDescriptor =
+                Descriptors.ofComponent(reducerClass);
+        final LifeCycleHelper lifeCycleHelper = getLifeCycleHelper();
+
+        final AnalyzerResultReducer<AnalyzerResult> reducer =
+                (AnalyzerResultReducer<AnalyzerResult>) reducerDescriptor.newInstance();
+        boolean success = false;
+        try {
+            lifeCycleHelper.assignProvidedProperties(reducerDescriptor, reducer);
+            lifeCycleHelper.initialize(reducerDescriptor, reducer);
+            final AnalyzerResult result = reducer.reduce(results);
+            success = true;
+            return result;
+        } finally {
+            lifeCycleHelper.close(reducerDescriptor, reducer, success);
+        }
+    }
+
     @Override
     public AnalyzerJob getComponentJob() {
         return _analyzerJob;
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.metamodel.schema.Table;
 import org.datacleaner.api.Analyzer;
@@ -58,8 +59,18 @@ public class ConsumeRowHandler {
     }
 
     private static final Logger logger = LoggerFactory.getLogger(ConsumeRowHandler.class);
+
+    /**
+     * The number of idle delegates that are kept for reuse. Delegates are
+     * checked out per row, so this only needs to cover the number of threads
+     * that consume rows at the same time.
+     */
+    private static final int DELEGATE_POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+
     private final List<RowProcessingConsumer> _consumers;
     private final Collection<? extends FilterOutcome> _alwaysSatisfiedOutcomes;
+    private final AtomicReferenceArray<ConsumeRowHandlerDelegate> _idleDelegates =
+            new AtomicReferenceArray<>(DELEGATE_POOL_SIZE);
 
     /**
      * Builds a {@link ConsumeRowHandler} based on a job, and the configuration
@@ -140,9 +151,70 @@ public class ConsumeRowHandler {
      * @return
      */
     public ConsumeRowResult consumeRow(final InputRow row) {
-        final FilterOutcomes outcomes = new FilterOutcomesImpl(_alwaysSatisfiedOutcomes);
-        final ConsumeRowHandlerDelegate delegate = new ConsumeRowHandlerDelegate(_consumers, row, 0, outcomes);
-        return delegate.consume();
+        final ConsumeRowHandlerDelegate delegate = checkOutDelegate();
+        try {
+            return delegate.consume(row, createOutcomes(), true);
+        } finally {
+            returnDelegate(delegate);
+        }
+    }
+
+    /**
+     * Consumes a {@link InputRow} by applying all transformations etc. to it,
+     * without collecting the transformed rows. Use this method instead of
+     * {@link #consumeRow(InputRow)} when the result is not needed, since it
+     * avoids allocating the result structures.
+     *
+     * @param row
+     */
+    public void consumeRowWithoutResult(final InputRow row) {
+        final ConsumeRowHandlerDelegate delegate = checkOutDelegate();
+        try {
+            delegate.consume(row, createOutcomes(), false);
+        } finally {
+            returnDelegate(delegate);
+        }
+    }
+
+    private FilterOutcomes createOutcomes() {
+        return new FilterOutcomesImpl(_alwaysSatisfiedOutcomes);
+    }
+
+    /**
+     * Takes an idle delegate from the pool, or creates a new one if none is
+     * idle (e.g. when more threads than the pool size consume rows, or on
+     * re-entrant invocations).
+     */
+    private ConsumeRowHandlerDelegate checkOutDelegate() {
+        final int start = getPoolStartIndex();
+        for (int i = 0; i < DELEGATE_POOL_SIZE; i++) {
+            final int index = (start + i) % DELEGATE_POOL_SIZE;
+            if (_idleDelegates.get(index) != null) {
+                final ConsumeRowHandlerDelegate delegate = _idleDelegates.getAndSet(index, null);
+                if (delegate != null) {
+                    return delegate;
+                }
+            }
+        }
+        return new ConsumeRowHandlerDelegate(_consumers);
+    }
+
+    /**
+     * Puts a delegate back into the pool, or discards it if the pool is full.
+     */
+    private void returnDelegate(final ConsumeRowHandlerDelegate delegate) {
+        final int start = getPoolStartIndex();
+        for (int i = 0; i < DELEGATE_POOL_SIZE; i++) {
+            final int index = (start + i) % DELEGATE_POOL_SIZE;
+            if (_idleDelegates.get(index) == null && _idleDelegates.compareAndSet(index, null, delegate)) {
+                return;
+            }
+        }
+    }
+
+    private static int getPoolStartIndex() {
+        // spread threads over the pool to avoid contending on the same slots
+        return (int) (Thread.currentThread().getId() % DELEGATE_POOL_SIZE);
     }
 
     private List<RowProcessingConsumer> extractConsumers(final AnalysisJob analysisJob,
@@ -26,68 +26,87 @@ import org.datacleaner.api.InputRow;
 import org.datacleaner.job.FilterOutcomes;
 
 /**
- * Delegate execution object for {@link ConsumeRowHandler}. Contains state
- * particular to processing of a single consumer in the chain, and also handles
- * recursive logic coming from {@link RowProcessingChain} callbacks.
+ * Delegate execution object for {@link ConsumeRowHandler}. Walks the chain of
+ * consumers for a row, and also handles the (possibly repeated) callbacks
+ * coming from {@link RowProcessingChain}.
+ *
+ * The delegate keeps track of the current position in the chain as mutable
+ * state instead of creating a new object per consumer step, which means that
+ * it can be reused for many rows, but only by a single thread at a time.
  */
 final class ConsumeRowHandlerDelegate implements RowProcessingChain {
 
     private final List<RowProcessingConsumer> _consumers;
-    private final InputRow _row;
-    private final int _consumerIndex;
-    private final FilterOutcomes _outcomes;
-    private final List<InputRow> _resultRecords;
-    private final List<FilterOutcomes> _resultOutcomes;
-
-    public ConsumeRowHandlerDelegate(final List<RowProcessingConsumer> consumers, final InputRow row,
-            final int consumerIndex, final FilterOutcomes outcomes) {
-        this(consumers, row, consumerIndex, outcomes, new ArrayList<>(1), new ArrayList<>(1));
-    }
+    private int _consumerIndex;
+    private List<InputRow> _resultRecords;
+    private List<FilterOutcomes> _resultOutcomes;
 
-    private ConsumeRowHandlerDelegate(final List<RowProcessingConsumer> consumers, final InputRow row,
-            final int consumerIndex, final FilterOutcomes outcomes, final List<InputRow> resultRecords,
-            final List<FilterOutcomes> resultOutcomes) {
+    public ConsumeRowHandlerDelegate(final List<RowProcessingConsumer> consumers) {
         _consumers = consumers;
-        _row = row;
-        _consumerIndex = consumerIndex;
-        _outcomes = outcomes;
-        _resultRecords = resultRecords;
-        _resultOutcomes = resultOutcomes;
+        _consumerIndex = -1;
     }
 
-    public ConsumeRowResult consume() {
-        final RowProcessingConsumer consumer = _consumers.get(_consumerIndex);
+    /**
+     * Consumes a row through the whole chain of consumers.
+     *
+     * @param row
+     * @param outcomes
+     * @param collectResults
+     *            whether or not to collect the resulting rows and outcomes.
+     *            If false, null will be returned.
+     * @return
+     */
+    public ConsumeRowResult consume(final InputRow row, final FilterOutcomes outcomes, final boolean collectResults) {
+        if (collectResults) {
+            _resultRecords = new ArrayList<>(1);
+            _resultOutcomes = new ArrayList<>(1);
+        }
+        try {
+            consumeFrom(0, row, outcomes);
+            if (collectResults) {
+                return new ConsumeRowResult(_resultRecords, _resultOutcomes);
+            }
+            return null;
+        } finally {
+            _consumerIndex = -1;
+            _resultRecords = null;
+            _resultOutcomes = null;
+        }
+    }
 
-        final boolean process = consumer.satisfiedForConsume(_outcomes, _row);
-        if (process) {
-            if (consumer.isConcurrent()) {
-                consumer.consume(_row, 1, _outcomes, this);
-            } else {
-                synchronized (consumer) {
-                    consumer.consume(_row, 1, _outcomes, this);
+    private void consumeFrom(final int startIndex, final InputRow row, final FilterOutcomes outcomes) {
+        final int numConsumers = _consumers.size();
+        for (int i = startIndex; i < numConsumers; i++) {
+            final RowProcessingConsumer consumer = _consumers.get(i);
+            if (consumer.satisfiedForConsume(outcomes, row)) {
+                final int previousIndex = _consumerIndex;
+                _consumerIndex = i;
+                try {
+                    if (consumer.isConcurrent()) {
+                        consumer.consume(row, 1, outcomes, this);
+                    } else {
+                        synchronized (consumer) {
+                            consumer.consume(row, 1, outcomes, this);
+                        }
+                    }
+                } finally {
+                    _consumerIndex = previousIndex;
                 }
+                return;
             }
-        } else {
-            // jump to the next step
-            processNext(_row, 1, _outcomes);
+            // else: jump to the next step
         }
 
-        return new ConsumeRowResult(_resultRecords, _resultOutcomes);
-    }
-
-    @Override
-    public void processNext(final InputRow row, final int distinctCount, final FilterOutcomes outcomes) {
-        final int nextIndex = _consumerIndex + 1;
-        if (nextIndex >= _consumers.size()) {
-            // finished!
+        // finished!
+        if (_resultRecords != null) {
             _resultRecords.add(row);
             _resultOutcomes.add(outcomes);
-            return;
         }
+    }
 
-        final ConsumeRowHandlerDelegate subDelegate =
-                new ConsumeRowHandlerDelegate(_consumers, row, nextIndex, outcomes, _resultRecords, _resultOutcomes);
-        subDelegate.consume();
+    @Override
+    public void processNext(final InputRow row, final int distinctCount, final FilterOutcomes outcomes) {
+        consumeFrom(_consumerIndex + 1, row, outcomes);
     }
 
 }
@@ -52,6 +52,15 @@ final class ErrorAwareTaskRunnerWrapper implements TaskRunner, ErrorAware {
         _errorAware = errorAware;
     }
 
+    /**
+     * Gets the {@link TaskRunner} that this wrapper submits tasks to.
+     *
+     * @return
+     */
+    public TaskRunner getWrappedTaskRunner() {
+        return _taskRunner;
+    }
+
     @Override
     public void run(final Task task, final TaskListener taskListener) {
         if (isErrornous()) {
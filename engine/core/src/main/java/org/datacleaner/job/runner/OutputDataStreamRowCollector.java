@@ -31,6 +31,7 @@ import org.datacleaner.api.HasOutputDataStreams;
 import org.datacleaner.api.OutputDataStream;
 import org.datacleaner.api.OutputRowCollector;
 import org.datacleaner.data.MetaModelInputRow;
+import org.datacleaner.data.MetaModelRowProjection;
 import org.datacleaner.job.OutputDataStreamJob;
 import org.datacleaner.job.concurrent.PreviousErrorsExistException;
 
@@ -45,11 +46,13 @@ public class OutputDataStreamRowCollector implements OutputRowCollector {
     private final AtomicInteger _rowCounter;
     private final ConsumeRowHandler _consumeRowHandler;
     private final RowProcessingPublisher _publisher;
+    private final MetaModelRowProjection _projection;
 
     public OutputDataStreamRowCollector(final RowProcessingPublisher publisher, final List<SelectItem> selectItems,
             final ConsumeRowHandler consumeRowHandler) {
         _publisher = publisher;
         _dataSetHeader = new CachingDataSetHeader(selectItems);
+        _projection = new MetaModelRowProjection(selectItems, publisher.getAnalysisJob().getSourceColumns());
         _consumeRowHandler = consumeRowHandler;
         _rowCounter = new AtomicInteger();
     }
@@ -67,10 +70,18 @@ public class OutputDataStreamRowCollector implements OutputRowCollector {
             throw new PreviousErrorsExistException();
         }
         final int rowNumber = _rowCounter.incrementAndGet();
-        final MetaModelInputRow inputRow = new MetaModelInputRow(rowNumber, row);
+        final MetaModelInputRow inputRow = new MetaModelInputRow(rowNumber, row, getProjection(row));
         _consumeRowHandler.consumeRow(inputRow);
-        _publisher.getAnalysisListener()
+        _publisher.getRowProcessingProgressListener()
                 .rowProcessingProgress(_publisher.getAnalysisJob(), _publisher.getRowProcessingMetrics(), inputRow,
                         rowNumber);
     }
+
+    private MetaModelRowProjection getProjection(final Row row) {
+        // rows put with other select items are looked up by matching them
+        if (_projection.isProjectionOf(row.getSelectItems())) {
+            return _projection;
+        }
+        return null;
+    }
 }
@@ -0,0 +1,161 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.metamodel.MetaModelException;
+import org.apache.metamodel.data.AbstractDataSet;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.Row;
+import org.datacleaner.job.concurrent.DaemonThreadFactory;
+
+/**
+ * {@link DataSet} wrapper which reads the rows of another {@link DataSet} on a
+ * separate reader thread into a bounded buffer. This way the source datastore
+ * can be read while the consuming thread is blocked, eg. because the task queue
+ * of the worker threads is full.
+ */
+final class ReadAheadDataSet extends AbstractDataSet {
+
+    /**
+     * Marker object which signals that the reader has no more rows
+     */
+    private static final Object END_OF_ROWS = new Object();
+
+    private static final int OCCUPANCY_SAMPLE_INTERVAL = 64;
+
+    private final DataSet _dataSet;
+    private final BlockingQueue<Object> _buffer;
+    private final ReadAheadMetrics _metrics;
+    private final Thread _readerThread;
+    private volatile boolean _closed;
+    private volatile Throwable _readerError;
+    private boolean _endOfRows;
+    private long _rowsTaken;
+    private Row _row;
+
+    public ReadAheadDataSet(final DataSet dataSet, final int bufferSize, final ReadAheadMetrics metrics) {
+        super(dataSet);
+        _dataSet = dataSet;
+        _buffer = new ArrayBlockingQueue<>(bufferSize);
+        _metrics = metrics;
+        _closed = false;
+        _endOfRows = false;
+        _readerThread = new DaemonThreadFactory().newThread(this::readRows);
+        _readerThread.start();
+    }
+
+    private void readRows() {
+        try {
+            while (!_closed && _dataSet.next()) {
+                put(_dataSet.getRow());
+                _metrics.rowRead();
+            }
+        } catch (final InterruptedException e) {
+            // closed while waiting for buffer space
+            return;
+        } catch (final Throwable e) {
+            _readerError = e;
+        } finally {
+            _dataSet.close();
+        }
+
+        try {
+            put(END_OF_ROWS);
+        } catch (final InterruptedException e) {
+            // closed while waiting for buffer space
+        }
+    }
+
+    private void put(final Object element) throws InterruptedException {
+        if (!_buffer.offer(element)) {
+            final long start = System.nanoTime();
+            _buffer.put(element);
+            _metrics.readerStalled(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean next() {
+        if (_endOfRows) {
+            return false;
+        }
+
+        if (_rowsTaken++ % OCCUPANCY_SAMPLE_INTERVAL == 0) {
+            _metrics.sampleOccupancy(_buffer.size());
+        }
+
+        Object element = _buffer.poll();
+        if (element == null) {
+            final long start = System.nanoTime();
+            try {
+                element = _buffer.take();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MetaModelException("Interrupted while waiting for rows to be read", e);
+            } finally {
+                _metrics.dispatcherStalled(System.nanoTime() - start);
+            }
+        }
+
+        if (element == END_OF_ROWS) {
+            _endOfRows = true;
+            _row = null;
+            final Throwable readerError = _readerError;
+            if (readerError instanceof RuntimeException) {
+                throw (RuntimeException) readerError;
+            } else if (readerError instanceof Error) {
+                throw (Error) readerError;
+            } else if (readerError != null) {
+                throw new MetaModelException("Failed to read rows", (Exception) readerError);
+            }
+            return false;
+        }
+
+        _row = (Row) element;
+        return true;
+    }
+
+    @Override
+    public Row getRow() {
+        return _row;
+    }
+
+    @Override
+    public void close() {
+        if (_closed) {
+            return;
+        }
+        _closed = true;
+        _readerThread.interrupt();
+        try {
+            _readerThread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        _buffer.clear();
+    }
+
+    public ReadAheadMetrics getMetrics() {
+        return _metrics;
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of the read-ahead buffer which decouples reading of source rows from
+ * the dispatching of rows to the worker threads.
+ *
+ * A high reader stall time means that the workers (or the task queue) are the
+ * bottleneck, while a high dispatcher stall time means that the source
+ * datastore is the bottleneck.
+ */
+public final class ReadAheadMetrics {
+
+    private final int _capacity;
+    private final AtomicLong _rowsRead;
+    private final AtomicLong _occupancySamples;
+    private final AtomicLong _occupancySum;
+    private final AtomicLong _maxOccupancy;
+    private final AtomicLong _readerStallNanos;
+    private final AtomicLong _dispatcherStallNanos;
+
+    public ReadAheadMetrics(final int capacity) {
+        _capacity = capacity;
+        _rowsRead = new AtomicLong();
+        _occupancySamples = new AtomicLong();
+        _occupancySum = new AtomicLong();
+        _maxOccupancy = new AtomicLong();
+        _readerStallNanos = new AtomicLong();
+        _dispatcherStallNanos = new AtomicLong();
+    }
+
+    void rowRead() {
+        _rowsRead.incrementAndGet();
+    }
+
+    void sampleOccupancy(final int occupancy) {
+        _occupancySamples.incrementAndGet();
+        _occupancySum.addAndGet(occupancy);
+        _maxOccupancy.accumulateAndGet(occupancy, Math::max);
+    }
+
+    void readerStalled(final long nanos) {
+        _readerStallNanos.addAndGet(nanos);
+    }
+
+    void dispatcherStalled(final long nanos) {
+        _dispatcherStallNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Gets the maximum number of rows that the buffer can hold
+     *
+     * @return
+     */
+    public int getCapacity() {
+        return _capacity;
+    }
+
+    /**
+     * Gets the number of rows read into the buffer
+     *
+     * @return
+     */
+    public long getRowsRead() {
+        return _rowsRead.get();
+    }
+
+    /**
+     * Gets the highest observed number of rows in the buffer
+     *
+     * @return
+     */
+    public long getMaxOccupancy() {
+        return _maxOccupancy.get();
+    }
+
+    /**
+     * Gets the average observed number of rows in the buffer
+     *
+     * @return
+     */
+    public double getAverageOccupancy() {
+        final long samples = _occupancySamples.get();
+        if (samples == 0) {
+            return 0;
+        }
+        return _occupancySum.get() / (double) samples;
+    }
+
+    /**
+     * Gets the total time that the reader has waited because the buffer was
+     * full.
+     *
+     * @return
+     */
+    public long getReaderStallMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(_readerStallNanos.get());
+    }
+
+    /**
+     * Gets the total time that the dispatcher has waited because the buffer
+     * was empty.
+     *
+     * @return
+     */
+    public long getDispatcherStallMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(_dispatcherStallNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return "ReadAheadMetrics[capacity=" + _capacity + ",rowsRead=" + getRowsRead() + ",maxOccupancy="
+                + getMaxOccupancy() + ",averageOccupancy=" + String.format("%.1f", getAverageOccupancy())
+                + ",readerStallMillis=" + getReaderStallMillis() + ",dispatcherStallMillis="
+                + getDispatcherStallMillis() + "]";
+    }
+}
@@ -104,6 +104,15 @@ public interface RowProcessingConsumer {
      */
     Object getComponent();
 
+    /**
+     * Gets additional instances of the component, used when the component is
+     * run with a separate instance per thread. These instances are closed
+     * together with {@link #getComponent()}.
+     *
+     * @return the partial component instances, or an empty collection
+     */
+    Collection<Object> getPartialComponents();
+
     /**
      * Determines if the {@link ComponentJob} represented in this consumer is
      * expected to produce an {@link AnalyzerResult}
@@ -0,0 +1,197 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.api.ComponentMessage;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.ComponentJob;
+import org.datacleaner.util.SystemProperties;
+
+/**
+ * {@link AnalysisListener} decorator which aggregates
+ * {@link #rowProcessingProgress(AnalysisJob, RowProcessingMetrics, InputRow, int)}
+ * notifications of a single {@link RowProcessingPublisher} and only passes them
+ * on to the delegate at a configurable row and/or time interval. All other
+ * notifications are passed on directly.
+ *
+ * The row number passed on to the delegate is the number of rows processed so
+ * far. Before {@link #rowProcessingSuccess(AnalysisJob, RowProcessingMetrics)}
+ * is passed on, the exact final row count is always dispatched.
+ */
+final class RowProcessingProgressDispatcher implements AnalysisListener {
+
+    /**
+     * The number of rows (by row number) between checks of the time interval,
+     * to avoid consulting the clock and the counter for every row.
+     */
+    private static final int DEFAULT_CHECK_STRIDE = 16;
+
+    private static final long DEFAULT_INTERVAL_MILLIS = 250;
+
+    private final AnalysisListener _delegate;
+    private final long _rowInterval;
+    private final long _intervalNanos;
+    private final int _checkStride;
+    private final LongAdder _processedRows;
+    private final AtomicBoolean _dispatching;
+    private volatile long _lastDispatchedCount;
+    private volatile long _lastDispatchNanos;
+    private volatile InputRow _lastRow;
+
+    public RowProcessingProgressDispatcher(final AnalysisListener delegate) {
+        this(delegate, SystemProperties.getLong(SystemProperties.ROW_PROCESSING_PROGRESS_INTERVAL_ROWS, 0),
+                SystemProperties.getLong(SystemProperties.ROW_PROCESSING_PROGRESS_INTERVAL_MILLIS,
+                        DEFAULT_INTERVAL_MILLIS));
+    }
+
+    /**
+     * Creates a {@link RowProcessingProgressDispatcher}.
+     *
+     * @param delegate
+     *            the listener to pass notifications on to
+     * @param rowInterval
+     *            the number of rows between progress notifications, or 0 to
+     *            disable row based notifications
+     * @param intervalMillis
+     *            the number of milliseconds between progress notifications, or
+     *            0 to disable time based notifications
+     */
+    public RowProcessingProgressDispatcher(final AnalysisListener delegate, final long rowInterval,
+            final long intervalMillis) {
+        _delegate = delegate;
+        if (rowInterval <= 0 && intervalMillis <= 0) {
+            // no throttling at all - dispatch every row
+            _rowInterval = 1;
+        } else {
+            _rowInterval = rowInterval <= 0 ? Long.MAX_VALUE : rowInterval;
+        }
+        _intervalNanos = intervalMillis <= 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        // a stride which divides the row interval makes sure that row based
+        // notifications are not skipped or delayed when processing in order
+        if (_rowInterval == Long.MAX_VALUE) {
+            _checkStride = DEFAULT_CHECK_STRIDE;
+        } else {
+            _checkStride = (int) Math.min(DEFAULT_CHECK_STRIDE, Long.lowestOneBit(_rowInterval));
+        }
+        _processedRows = new LongAdder();
+        _dispatching = new AtomicBoolean(false);
+        _lastDispatchedCount = 0;
+        _lastDispatchNanos = System.nanoTime();
+    }
+
+    /**
+     * Gets the exact number of rows that has been processed so far.
+     *
+     * @return
+     */
+    public long getProcessedRows() {
+        return _processedRows.sum();
+    }
+
+    @Override
+    public void rowProcessingProgress(final AnalysisJob job, final RowProcessingMetrics metrics, final InputRow row,
+            final int rowNumber) {
+        _processedRows.increment();
+
+        if (rowNumber % _checkStride != 0 && _lastRow != null) {
+            return;
+        }
+        _lastRow = row;
+
+        final long count = _processedRows.sum();
+        final long now = System.nanoTime();
+        if (count - _lastDispatchedCount < _rowInterval && now - _lastDispatchNanos < _intervalNanos) {
+            return;
+        }
+
+        if (!_dispatching.compareAndSet(false, true)) {
+            // another thread is already notifying the delegate
+            return;
+        }
+        try {
+            if (count > _lastDispatchedCount) {
+                _lastDispatchedCount = count;
+                _lastDispatchNanos = now;
+                _delegate.rowProcessingProgress(job, metrics, row, (int) count);
+            }
+        } finally {
+            _dispatching.set(false);
+        }
+    }
+
+    @Override
+    public void rowProcessingSuccess(final AnalysisJob job, final RowProcessingMetrics metrics) {
+        final long count = _processedRows.sum();
+        if (count != _lastDispatchedCount) {
+            _lastDispatchedCount = count;
+            _lastDispatchNanos = System.nanoTime();
+            _delegate.rowProcessingProgress(job, metrics, _lastRow, (int) count);
+        }
+        _delegate.rowProcessingSuccess(job, metrics);
+    }
+
+    @Override
+    public void jobBegin(final AnalysisJob job, final AnalysisJobMetrics metrics) {
+        _delegate.jobBegin(job, metrics);
+    }
+
+    @Override
+    public void jobSuccess(final AnalysisJob job, final AnalysisJobMetrics metrics) {
+        _delegate.jobSuccess(job, metrics);
+    }
+
+    @Override
+    public void rowProcessingBegin(final AnalysisJob job, final RowProcessingMetrics metrics) {
+        _delegate.rowProcessingBegin(job, metrics);
+    }
+
+    @Override
+    public void onComponentMessage(final AnalysisJob job, final ComponentJob componentJob,
+            final ComponentMessage message) {
+        _delegate.onComponentMessage(job, componentJob, message);
+    }
+
+    @Override
+    public void componentBegin(final AnalysisJob job, final ComponentJob componentJob, final ComponentMetrics metrics) {
+        _delegate.componentBegin(job, componentJob, metrics);
+    }
+
+    @Override
+    public void componentSuccess(final AnalysisJob job, final ComponentJob componentJob, final AnalyzerResult result) {
+        _delegate.componentSuccess(job, componentJob, result);
+    }
+
+    @Override
+    public void errorInComponent(final AnalysisJob job, final ComponentJob componentJob, final InputRow row,
+            final Throwable throwable) {
+        _delegate.errorInComponent(job, componentJob, row, throwable);
+    }
+
+    @Override
+    public void errorUnknown(final AnalysisJob job, final Throwable throwable) {
+        _delegate.errorUnknown(job, throwable);
+    }
+}
@@ -111,6 +111,15 @@ public interface RowProcessingPublisher {
 
     AnalysisListener getAnalysisListener();
 
+    /**
+     * Gets the {@link AnalysisListener} to notify of row processing progress.
+     * Notifications are aggregated and passed on to
+     * {@link #getAnalysisListener()} at a throttled rate.
+     *
+     * @return
+     */
+    AnalysisListener getRowProcessingProgressListener();
+
     ConsumeRowHandler createConsumeRowHandler();
 
     ErrorAware getErrorAware();
@@ -0,0 +1,214 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.jdbc.JdbcDataContext;
+import org.apache.metamodel.query.FunctionType;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Splits the query of a {@link SourceTableRowProcessingPublisher} into a number
+ * of partition queries which together select the same rows, so that the
+ * partitions can be read concurrently.
+ *
+ * Queries are only partitioned for JDBC databases, which evaluate the where
+ * clause and the firstRow/maxRows window of each partition query on the server.
+ * Other datastores (CSV, Excel etc.) would scan the source from the beginning
+ * for every partition, which multiplies the I/O instead of dividing it.
+ *
+ * Two strategies are applied:
+ * <ul>
+ * <li>If the table has a single numeric primary key, the range between its
+ * minimum and maximum value is split into key ranges.</li>
+ * <li>Otherwise, if the table has a primary key to get a stable row order, the
+ * query is split into firstRow/maxRows windows ordered by the primary key.</li>
+ * </ul>
+ *
+ * If none of these apply, or the query already has a firstRow or maxRows
+ * setting, the query is not partitioned.
+ */
+final class SourceTablePartitioner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SourceTablePartitioner.class);
+
+    private final DataContext _dataContext;
+    private final Table _table;
+
+    public SourceTablePartitioner(final DataContext dataContext, final Table table) {
+        _dataContext = dataContext;
+        _table = table;
+    }
+
+    /**
+     * Creates the partition queries for a query.
+     *
+     * @param query
+     *            the query to partition
+     * @param numPartitions
+     *            the desired number of partitions
+     * @param expectedRows
+     *            the (possibly approximated) number of rows that the query
+     *            will return, or -1 if unknown
+     * @return a list of partition queries. If the query cannot be
+     *         partitioned, a list containing only the query itself is
+     *         returned.
+     */
+    public List<Query> partition(final Query query, final int numPartitions, final int expectedRows) {
+        if (numPartitions <= 1 || !isPartitionable(query)) {
+            return Collections.singletonList(query);
+        }
+
+        if (!(_dataContext instanceof JdbcDataContext)) {
+            logger.info("Not partitioning query on table {}: Datastore does not push down partition queries",
+                    _table.getName());
+            return Collections.singletonList(query);
+        }
+
+        final List<Column> primaryKeys = _table.getPrimaryKeys();
+        if (primaryKeys != null && primaryKeys.size() == 1) {
+            final Column primaryKey = primaryKeys.get(0);
+            final ColumnType type = primaryKey.getType();
+            if (type != null && type.isNumber()) {
+                final List<Query> keyRangeQueries = createKeyRangeQueries(query, primaryKey, numPartitions);
+                if (keyRangeQueries != null) {
+                    return keyRangeQueries;
+                }
+            }
+        }
+
+        if (primaryKeys == null || primaryKeys.isEmpty()) {
+            logger.info("Cannot partition query on table {}: No primary keys to get a stable row order",
+                    _table.getName());
+            return Collections.singletonList(query);
+        }
+
+        if (expectedRows < numPartitions * 2) {
+            return Collections.singletonList(query);
+        }
+
+        return createWindowQueries(query, primaryKeys, numPartitions, expectedRows);
+    }
+
+    private boolean isPartitionable(final Query query) {
+        if (query.getFirstRow() != null || query.getMaxRows() != null) {
+            return false;
+        }
+        if (!query.getGroupByClause().isEmpty() || !query.getHavingClause().isEmpty()) {
+            return false;
+        }
+        return query.getFromClause().getItemCount() == 1;
+    }
+
+    private List<Query> createKeyRangeQueries(final Query query, final Column primaryKey, final int numPartitions) {
+        final Query minMaxQuery = query.clone();
+        minMaxQuery.getSelectClause().removeItems();
+        minMaxQuery.getOrderByClause().removeItems();
+        minMaxQuery.select(FunctionType.MIN, primaryKey);
+        minMaxQuery.select(FunctionType.MAX, primaryKey);
+
+        final Number min;
+        final Number max;
+        try (DataSet dataSet = _dataContext.executeQuery(minMaxQuery)) {
+            if (!dataSet.next()) {
+                return null;
+            }
+            final Row row = dataSet.getRow();
+            if (!(row.getValue(0) instanceof Number) || !(row.getValue(1) instanceof Number)) {
+                return null;
+            }
+            min = (Number) row.getValue(0);
+            max = (Number) row.getValue(1);
+        }
+
+        final long lowerBound = (long) Math.floor(min.doubleValue());
+        final long upperBound = (long) Math.ceil(max.doubleValue());
+        final long span;
+        try {
+            span = Math.addExact(Math.subtractExact(upperBound, lowerBound), 1);
+        } catch (final ArithmeticException e) {
+            return null;
+        }
+        if (span < numPartitions) {
+            return null;
+        }
+
+        final long rangeSize = span / numPartitions + (span % numPartitions == 0 ? 0 : 1);
+        final List<Query> queries = new ArrayList<>(numPartitions);
+        long rangeStart = lowerBound;
+        for (int i = 0; i < numPartitions && rangeStart <= upperBound; i++) {
+            final Query partitionQuery = query.clone();
+            final long rangeEnd = rangeStart + rangeSize;
+            if (i > 0) {
+                partitionQuery.where(primaryKey, OperatorType.GREATER_THAN_OR_EQUAL, rangeStart);
+            }
+            if (i < numPartitions - 1 && rangeEnd <= upperBound) {
+                partitionQuery.where(primaryKey, OperatorType.LESS_THAN, rangeEnd);
+            }
+            queries.add(partitionQuery);
+            rangeStart = rangeEnd;
+        }
+
+        logger.info("Partitioned query on table {} into {} ranges of primary key {}", _table.getName(),
+                queries.size(), primaryKey.getName());
+        return queries;
+    }
+
+    private List<Query> createWindowQueries(final Query query, final List<Column> orderColumns,
+            final int numPartitions, final int expectedRows) {
+        final int windowSize = expectedRows / numPartitions;
+
+        final List<Query> queries = new ArrayList<>(numPartitions);
+        for (int i = 0; i < numPartitions; i++) {
+            final Query partitionQuery = query.clone();
+            partitionQuery.getOrderByClause().removeItems();
+            for (final Column orderColumn : orderColumns) {
+                partitionQuery.orderBy(orderColumn);
+            }
+            final int firstRow = 1 + i * windowSize;
+            partitionQuery.setFirstRow(firstRow);
+            if (i < numPartitions - 1) {
+                partitionQuery.setMaxRows(windowSize);
+            } else {
+                // the last window is open-ended since the expected row count
+                // may be approximated. Not all datastores support a firstRow
+                // without maxRows, so an upper bound is set anyway.
+                partitionQuery.setMaxRows(Integer.MAX_VALUE - firstRow);
+            }
+            queries.add(partitionQuery);
+        }
+
+        logger.info("Partitioned query on table {} into {} windows of {} rows", _table.getName(), numPartitions,
+                windowSize);
+        return queries;
+    }
+}
@@ -21,27 +21,39 @@ package org.datacleaner.job.runner;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.metamodel.DataContext;
 import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.data.Row;
 import org.apache.metamodel.jdbc.JdbcDataContext;
 import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Table;
 import org.apache.metamodel.util.CollectionUtils;
 import org.apache.metamodel.util.LazyRef;
 import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
 import org.datacleaner.connection.Datastore;
 import org.datacleaner.connection.DatastoreConnection;
 import org.datacleaner.data.MetaModelInputRow;
+import org.datacleaner.data.MetaModelRowProjection;
+import org.datacleaner.job.concurrent.DaemonThreadFactory;
 import org.datacleaner.job.concurrent.ForkTaskListener;
 import org.datacleaner.job.concurrent.RunNextTaskTaskListener;
 import org.datacleaner.job.concurrent.TaskListener;
 import org.datacleaner.job.concurrent.TaskRunnable;
+import org.datacleaner.job.tasks.ConsumeRowBatchTask;
 import org.datacleaner.job.tasks.ConsumeRowTask;
 import org.datacleaner.job.tasks.RunRowProcessingPublisherTask;
 import org.datacleaner.util.SystemProperties;
@@ -57,6 +69,7 @@ public final class SourceTableRowProcessingPublisher extends AbstractRowProcessi
 
     private final Set<Column> _physicalColumns = new LinkedHashSet<>();
     private final LazyRef<RowProcessingQueryOptimizer> _queryOptimizerRef;
+    private final List<ReadAheadMetrics> _readAheadMetrics = new CopyOnWriteArrayList<>();
 
     /**
      * Constructor to use for creating a
@@ -191,56 +204,272 @@ public final class SourceTableRowProcessingPublisher extends AbstractRowProcessi
 
         analysisListener.rowProcessingBegin(getAnalysisJob(), rowProcessingMetrics);
 
+        _readAheadMetrics.clear();
+
         final ConsumeRowHandler consumeRowHandler = createConsumeRowHandler();
 
         final RowConsumerTaskListener taskListener =
                 new RowConsumerTaskListener(getAnalysisJob(), analysisListener, getTaskRunner());
 
+        // resolve the value indexes of the source columns once, up front
+        final MetaModelRowProjection projection = new MetaModelRowProjection(finalQuery.getSelectClause().getItems(),
+                getAnalysisJob().getSourceColumns());
+
+        final RowDispatcher rowDispatcher =
+                new RowDispatcher(consumeRowHandler, rowProcessingMetrics, analysisListener, taskListener,
+                        projection);
+
         final Datastore datastore = getAnalysisJob().getDatastore();
 
         try (DatastoreConnection con = datastore.openConnection()) {
             final DataContext dataContext = con.getDataContext();
 
-            if (logger.isDebugEnabled()) {
-                final String queryString;
-                if (dataContext instanceof JdbcDataContext) {
-                    final JdbcDataContext jdbcDataContext = (JdbcDataContext) dataContext;
-                    queryString = jdbcDataContext.getQueryRewriter().rewriteQuery(finalQuery);
-                } else {
-                    queryString = finalQuery.toSql();
+            final List<Query> partitionQueries = createPartitionQueries(dataContext, finalQuery, rowProcessingMetrics);
+            if (partitionQueries.size() > 1) {
+                processPartitions(datastore, partitionQueries, rowDispatcher);
+            } else {
+                logQuery(dataContext, finalQuery);
+                try (DataSet dataSet = executeQuery(dataContext, finalQuery)) {
+                    rowDispatcher.dispatchRows(dataSet, idGenerator);
                 }
-                logger.debug("Final query: {}", queryString);
-                logger.debug("Final query firstRow={}, maxRows={}", finalQuery.getFirstRow(), finalQuery.getMaxRows());
+                rowDispatcher.awaitTasks();
             }
+        }
 
-            // represents the distinct count of rows as well as the number of
-            // tasks to execute
-            int numTasks = 0;
+        if (!_readAheadMetrics.isEmpty()) {
+            logger.info("Read-ahead of table {}: {}", getTable().getName(), _readAheadMetrics);
+        }
+
+        return !taskListener.isErrornous();
+    }
+
+    private List<Query> createPartitionQueries(final DataContext dataContext, final Query finalQuery,
+            final RowProcessingMetrics rowProcessingMetrics) {
+        final int numPartitions = getNumPartitions();
+        if (numPartitions <= 1) {
+            return Collections.singletonList(finalQuery);
+        }
+        final SourceTablePartitioner partitioner = new SourceTablePartitioner(dataContext, getTable());
+        return partitioner.partition(finalQuery, numPartitions, rowProcessingMetrics.getExpectedRows());
+    }
+
+    /**
+     * Reads a number of partition queries concurrently, each over a separate
+     * {@link DatastoreConnection}. The connections are kept open until all
+     * rows have been consumed.
+     *
+     * @param datastore
+     * @param partitionQueries
+     * @param rowDispatcher
+     */
+    private void processPartitions(final Datastore datastore, final List<Query> partitionQueries,
+            final RowDispatcher rowDispatcher) {
+        // key range partitions share row ids, window partitions offset their
+        // row ids to reflect the physical row position
+        final RowIdGenerator sharedIdGenerator = new SimpleRowIdGenerator();
+
+        final List<DatastoreConnection> connections = new ArrayList<>(partitionQueries.size());
+        final ExecutorService executorService =
+                Executors.newFixedThreadPool(partitionQueries.size(), new DaemonThreadFactory());
+        try {
+            final List<Future<?>> futures = new ArrayList<>(partitionQueries.size());
+            for (final Query partitionQuery : partitionQueries) {
+                final DatastoreConnection connection = datastore.openConnection();
+                connections.add(connection);
+
+                final RowIdGenerator idGenerator;
+                if (partitionQuery.getFirstRow() == null) {
+                    idGenerator = sharedIdGenerator;
+                } else {
+                    idGenerator = new SimpleRowIdGenerator(partitionQuery.getFirstRow() - 1);
+                }
 
-            try (DataSet dataSet = dataContext.executeQuery(finalQuery)) {
-                while (dataSet.next()) {
-                    if (taskListener.isErrornous()) {
-                        break;
+                futures.add(executorService.submit(() -> {
+                    final DataContext dataContext = connection.getDataContext();
+                    logQuery(dataContext, partitionQuery);
+                    try (DataSet dataSet = executeQuery(dataContext, partitionQuery)) {
+                        rowDispatcher.dispatchRows(dataSet, idGenerator);
                     }
+                }));
+            }
 
-                    numTasks++;
+            for (final Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while reading partitions of " + getTable(), e);
+                } catch (final ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
 
-                    final Row metaModelRow = dataSet.getRow();
-                    final int rowId = idGenerator.nextPhysicalRowId();
+            rowDispatcher.awaitTasks();
+        } finally {
+            executorService.shutdownNow();
+            connections.forEach(DatastoreConnection::close);
+        }
+    }
 
-                    final MetaModelInputRow inputRow = new MetaModelInputRow(rowId, metaModelRow);
+    /**
+     * Executes a query, optionally reading the resulting rows ahead on a
+     * separate thread (see {@link SystemProperties#ROW_PROCESSING_READ_AHEAD}).
+     *
+     * @param dataContext
+     * @param query
+     * @return
+     */
+    private DataSet executeQuery(final DataContext dataContext, final Query query) {
+        final DataSet dataSet = dataContext.executeQuery(query);
+        final int readAheadBufferSize = getReadAheadBufferSize();
+        if (readAheadBufferSize <= 0) {
+            return dataSet;
+        }
+        final ReadAheadMetrics metrics = new ReadAheadMetrics(readAheadBufferSize);
+        _readAheadMetrics.add(metrics);
+        return new ReadAheadDataSet(dataSet, readAheadBufferSize, metrics);
+    }
 
-                    final ConsumeRowTask task =
-                            new ConsumeRowTask(consumeRowHandler, rowProcessingMetrics, inputRow, analysisListener,
-                                    numTasks);
-                    getTaskRunner().run(task, taskListener);
+    /**
+     * Gets the metrics of the read-ahead buffers used in the latest row
+     * processing of this publisher. There is one buffer per partition that was
+     * read. If no read-ahead buffer is configured, the list is empty.
+     *
+     * @return
+     */
+    public List<ReadAheadMetrics> getReadAheadMetrics() {
+        return Collections.unmodifiableList(_readAheadMetrics);
+    }
+
+    private void logQuery(final DataContext dataContext, final Query query) {
+        if (logger.isDebugEnabled()) {
+            final String queryString;
+            if (dataContext instanceof JdbcDataContext) {
+                final JdbcDataContext jdbcDataContext = (JdbcDataContext) dataContext;
+                queryString = jdbcDataContext.getQueryRewriter().rewriteQuery(query);
+            } else {
+                queryString = query.toSql();
+            }
+            logger.debug("Final query: {}", queryString);
+            logger.debug("Final query firstRow={}, maxRows={}", query.getFirstRow(), query.getMaxRows());
+        }
+    }
+
+    private int getReadAheadBufferSize() {
+        return SystemProperties.getInt(SystemProperties.ROW_PROCESSING_READ_AHEAD, 0);
+    }
+
+    private int getNumPartitions() {
+        return SystemProperties.getInt(SystemProperties.ROW_PROCESSING_PARTITIONS, 1);
+    }
+
+    private int getBatchSize() {
+        return SystemProperties.getInt(SystemProperties.ROW_PROCESSING_BATCH_SIZE, 1);
+    }
+
+    /**
+     * Turns the rows of one or more {@link DataSet}s into consume row tasks.
+     * Thread-safe, so that several partitions can be dispatched concurrently.
+     */
+    private final class RowDispatcher {
+
+        private final ConsumeRowHandler _consumeRowHandler;
+        private final RowProcessingMetrics _rowProcessingMetrics;
+        private final AnalysisListener _analysisListener;
+        private final RowConsumerTaskListener _taskListener;
+        private final MetaModelRowProjection _projection;
+        private final int _batchSize;
+
+        // represents the distinct count of rows
+        private final AtomicInteger _numRows;
+
+        // represents the number of tasks to execute
+        private final AtomicInteger _numTasks;
+
+        RowDispatcher(final ConsumeRowHandler consumeRowHandler, final RowProcessingMetrics rowProcessingMetrics,
+                final AnalysisListener analysisListener, final RowConsumerTaskListener taskListener,
+                final MetaModelRowProjection projection) {
+            _consumeRowHandler = consumeRowHandler;
+            _rowProcessingMetrics = rowProcessingMetrics;
+            _analysisListener = analysisListener;
+            _taskListener = taskListener;
+            _projection = projection;
+            _batchSize = getBatchSize();
+            _numRows = new AtomicInteger();
+            _numTasks = new AtomicInteger();
+        }
+
+        void dispatchRows(final DataSet dataSet, final RowIdGenerator idGenerator) {
+            List<InputRow> batch = null;
+            MetaModelRowProjection projection = null;
+            while (dataSet.next()) {
+                if (_taskListener.isErrornous()) {
+                    break;
+                }
 
+                final Row metaModelRow = dataSet.getRow();
+                final int rowId = idGenerator.nextPhysicalRowId();
+
+                if (projection == null) {
+                    // all rows of a data set share its select items
+                    projection = getProjection(metaModelRow.getSelectItems());
+                }
+
+                final MetaModelInputRow inputRow = new MetaModelInputRow(rowId, metaModelRow, projection);
+
+                if (_batchSize <= 1) {
+                    final int rowNumber = _numRows.incrementAndGet();
+                    _numTasks.incrementAndGet();
+                    final ConsumeRowTask task =
+                            new ConsumeRowTask(_consumeRowHandler, _rowProcessingMetrics, inputRow, _analysisListener,
+                                    rowNumber);
+                    getTaskRunner().run(task, _taskListener);
+                } else {
+                    if (batch == null) {
+                        batch = new ArrayList<>(_batchSize);
+                    }
+                    batch.add(inputRow);
+                    if (batch.size() == _batchSize) {
+                        runBatch(batch);
+                        batch = null;
+                    }
                 }
             }
-            taskListener.awaitTasks(numTasks);
+
+            if (batch != null && !_taskListener.isErrornous()) {
+                runBatch(batch);
+            }
         }
 
-        return !taskListener.isErrornous();
+        /**
+         * Gets the projection for the rows of a data set. Data sets of
+         * partition queries or of a rewritten query may have select items that
+         * are copies of the final query's, in which case the indexes are
+         * resolved again for that data set.
+         */
+        private MetaModelRowProjection getProjection(final List<SelectItem> selectItems) {
+            if (_projection.isProjectionOf(selectItems)) {
+                return _projection;
+            }
+            return new MetaModelRowProjection(selectItems, getAnalysisJob().getSourceColumns());
+        }
+
+        private void runBatch(final List<InputRow> batch) {
+            final int firstRowNumber = _numRows.addAndGet(batch.size()) - batch.size() + 1;
+            _numTasks.incrementAndGet();
+            final ConsumeRowBatchTask task =
+                    new ConsumeRowBatchTask(_consumeRowHandler, _rowProcessingMetrics, batch, _analysisListener,
+                            firstRowNumber);
+            getTaskRunner().run(task, _taskListener);
+        }
+
+        void awaitTasks() {
+            _taskListener.awaitTasks(_numTasks.get());
+        }
     }
 
     @Override
@@ -73,6 +73,9 @@ public class CloseTaskListener implements TaskListener {
 
             // close can occur AFTER completion
             _lifeCycleHelper.close(descriptor, component, _success.get());
+            for (final Object partialComponent : _consumer.getPartialComponents()) {
+                _lifeCycleHelper.close(descriptor, partialComponent, _success.get());
+            }
 
             _consumer.getActiveOutputDataStreams().forEach(ActiveOutputDataStream::close);
         }
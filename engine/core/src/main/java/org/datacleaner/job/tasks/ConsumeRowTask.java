@@ -48,7 +48,7 @@ public final class ConsumeRowTask implements Task {
 
     @Override
     public void execute() {
-        _consumeRowHandler.consumeRow(_row).getRows();
+        _consumeRowHandler.consumeRowWithoutResult(_row);
         _analysisListener.rowProcessingProgress(_rowProcessingMetrics.getAnalysisJobMetrics().getAnalysisJob(),
                 _rowProcessingMetrics, _row, _rowNumber);
     }
@@ -0,0 +1,281 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * Compact, immutable set of strings, used as the value store of dictionaries.
+ *
+ * Values are stored as UTF-8 bytes in a single array, in code point order,
+ * and looked up with a binary search. This takes a fraction of the heap of a
+ * {@link java.util.HashSet} of strings. The order of values by descending
+ * length is precomputed, so that length sorted iteration does not require
+ * sorting.
+ *
+ * The set can optionally fold the case of values when it is created, and then
+ * supports case insensitive lookups via {@link #contains(String, boolean)},
+ * which fold the characters of the probed value during comparison instead of
+ * creating a lower-cased copy of it. Case is folded per code point using
+ * {@link Character#toLowerCase(int)}.
+ */
+public final class CompactStringSet extends AbstractSet<String> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final byte[] EMPTY_DATA = new byte[0];
+
+    private final byte[] _data;
+    private final int[] _offsets;
+    private final int[] _lengthOrder;
+
+    /**
+     * Creates a set of values.
+     *
+     * @param values
+     *            the values of the set. Null values are ignored. Objects that
+     *            are not strings are converted using {@link Object#toString()}.
+     * @param foldCase
+     *            whether or not to fold the case of the values
+     */
+    public CompactStringSet(final Iterator<?> values, final boolean foldCase) {
+        byte[][] encoded = new byte[16][];
+        int count = 0;
+        while (values.hasNext()) {
+            final Object value = values.next();
+            if (value != null) {
+                if (count == encoded.length) {
+                    encoded = Arrays.copyOf(encoded, count + (count >> 1));
+                }
+                String str = value.toString();
+                if (foldCase) {
+                    str = foldCase(str);
+                }
+                encoded[count] = str.getBytes(StandardCharsets.UTF_8);
+                count++;
+            }
+        }
+        // byte-wise order of UTF-8 is code point order
+        Arrays.sort(encoded, 0, count, UnsignedBytes.lexicographicalComparator());
+
+        int size = 0;
+        int dataLength = 0;
+        for (int i = 0; i < count; i++) {
+            if (size == 0 || !Arrays.equals(encoded[size - 1], encoded[i])) {
+                encoded[size] = encoded[i];
+                dataLength += encoded[i].length;
+                size++;
+            }
+        }
+
+        _data = dataLength == 0 ? EMPTY_DATA : new byte[dataLength];
+        _offsets = new int[size + 1];
+        final long[] lengthKeys = new long[size];
+        int offset = 0;
+        for (int i = 0; i < size; i++) {
+            final byte[] bytes = encoded[i];
+            encoded[i] = null;
+            System.arraycopy(bytes, 0, _data, offset, bytes.length);
+            _offsets[i] = offset;
+            offset += bytes.length;
+            // longest first, then in code point order
+            lengthKeys[i] = ((long) (Integer.MAX_VALUE - getCharLength(bytes)) << 32) | i;
+        }
+        _offsets[size] = offset;
+
+        Arrays.sort(lengthKeys);
+        _lengthOrder = new int[size];
+        for (int i = 0; i < size; i++) {
+            _lengthOrder[i] = (int) lengthKeys[i];
+        }
+    }
+
+    /**
+     * Folds the case of a string in the same way as the set does.
+     *
+     * @param str
+     * @return
+     */
+    public static String foldCase(final String str) {
+        final StringBuilder sb = new StringBuilder(str.length());
+        for (int i = 0; i < str.length(); ) {
+            final int codePoint = str.codePointAt(i);
+            sb.appendCodePoint(Character.toLowerCase(codePoint));
+            i += Character.charCount(codePoint);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gets the number of UTF-16 chars of a UTF-8 encoded string
+     */
+    private static int getCharLength(final byte[] bytes) {
+        int length = 0;
+        for (final byte b : bytes) {
+            if ((b & 0xC0) != 0x80) {
+                // a leading byte, with 4 byte sequences making up two chars
+                length += (b & 0xF8) == 0xF0 ? 2 : 1;
+            }
+        }
+        return length;
+    }
+
+    @Override
+    public int size() {
+        return _lengthOrder.length;
+    }
+
+    @Override
+    public boolean contains(final Object value) {
+        if (value instanceof String) {
+            return contains((String) value, false);
+        }
+        return false;
+    }
+
+    /**
+     * Determines if the set contains a value.
+     *
+     * @param value
+     * @param foldCase
+     *            whether to fold the case of the value while comparing. Should
+     *            be used if the set was created with folded case.
+     * @return
+     */
+    public boolean contains(final String value, final boolean foldCase) {
+        if (value == null) {
+            return false;
+        }
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int comparison = compare(mid, value, foldCase);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares the value at an index with a probed value, in code point order,
+     * decoding the stored UTF-8 bytes while comparing.
+     */
+    private int compare(final int index, final String value, final boolean foldCase) {
+        int position = _offsets[index];
+        final int end = _offsets[index + 1];
+        int i = 0;
+        while (position < end && i < value.length()) {
+            final int lead = _data[position] & 0xFF;
+            final int storedCodePoint;
+            if (lead < 0x80) {
+                storedCodePoint = lead;
+                position += 1;
+            } else if (lead < 0xE0) {
+                storedCodePoint = ((lead & 0x1F) << 6) | (_data[position + 1] & 0x3F);
+                position += 2;
+            } else if (lead < 0xF0) {
+                storedCodePoint =
+                        ((lead & 0x0F) << 12) | ((_data[position + 1] & 0x3F) << 6) | (_data[position + 2] & 0x3F);
+                position += 3;
+            } else {
+                storedCodePoint = ((lead & 0x07) << 18) | ((_data[position + 1] & 0x3F) << 12)
+                        | ((_data[position + 2] & 0x3F) << 6) | (_data[position + 3] & 0x3F);
+                position += 4;
+            }
+
+            int codePoint = value.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (foldCase) {
+                codePoint = Character.toLowerCase(codePoint);
+            }
+            if (storedCodePoint != codePoint) {
+                return storedCodePoint < codePoint ? -1 : 1;
+            }
+        }
+        if (position < end) {
+            return 1;
+        }
+        if (i < value.length()) {
+            return -1;
+        }
+        return 0;
+    }
+
+    private String get(final int index) {
+        final int offset = _offsets[index];
+        return new String(_data, offset, _offsets[index + 1] - offset, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Iterates the values in code point order.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new IndexIterator(null);
+    }
+
+    /**
+     * Iterates the values ordered by descending length, and then by code point
+     * order.
+     *
+     * @return
+     */
+    public Iterator<String> lengthSortedIterator() {
+        return new IndexIterator(_lengthOrder);
+    }
+
+    private final class IndexIterator implements Iterator<String> {
+
+        private final int[] _order;
+        private int _next;
+
+        IndexIterator(final int[] order) {
+            _order = order;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _next < size();
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final int index = _order == null ? _next : _order[_next];
+            _next++;
+            return get(index);
+        }
+    }
+}
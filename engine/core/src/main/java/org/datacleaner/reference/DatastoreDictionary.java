@@ -21,9 +21,9 @@ package org.datacleaner.reference;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
-import java.util.Set;
 
 import org.apache.metamodel.DataContext;
 import org.apache.metamodel.data.DataSet;
@@ -89,7 +89,8 @@ public final class DatastoreDictionary extends AbstractReferenceData implements
             query.getSelectClause().setDistinct(true);
         }
 
-        final Set<String> values = new HashSet<>();
+        // duplicates are removed by the compact value set of the dictionary
+        final List<String> values = new ArrayList<>();
 
         try (DataSet dataSet = dataContext.executeQuery(query)) {
             while (dataSet.next()) {
@@ -110,17 +111,22 @@ public final class DatastoreDictionary extends AbstractReferenceData implements
             throw new NoSuchDatastoreException(_datastoreName);
         }
 
-        final DatastoreConnection datastoreConnection = datastore.openConnection();
-
         if (_loadIntoMemory) {
-            final SimpleDictionary simpleDictionary = loadIntoMemory(datastoreConnection);
+            final List<Object> cacheKey = ReferenceDataCache.createKey(this, datastore, _qualifiedColumnName);
+            final SimpleDictionary simpleDictionary =
+                    ReferenceDataCatalogImpl.getSharedCache().getDictionary(cacheKey, () -> {
+                        final DatastoreConnection datastoreConnection = datastore.openConnection();
+                        final SimpleDictionary dictionary = loadIntoMemory(datastoreConnection);
 
-            // no need for the connection anymore
-            datastoreConnection.close();
+                        // no need for the connection anymore
+                        datastoreConnection.close();
+                        return dictionary;
+                    });
 
             return simpleDictionary.openConnection(configuration);
         }
 
+        final DatastoreConnection datastoreConnection = datastore.openConnection();
         return new DatastoreDictionaryConnection(this, datastoreConnection);
     }
 
@@ -19,34 +19,177 @@
  */
 package org.datacleaner.reference;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.metamodel.DataContext;
 import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.schema.Column;
 import org.datacleaner.connection.DatastoreConnection;
+import org.datacleaner.util.CollectionUtils2;
+import org.datacleaner.util.SystemProperties;
 
+import com.google.common.cache.Cache;
+
+/**
+ * Connection to a {@link DatastoreDictionary} that is not loaded into memory.
+ *
+ * Lookups are answered from a bounded cache of positive and negative results
+ * when possible. Other lookups are queued, and the queue is drained into
+ * "WHERE column IN (...)" queries by one thread at a time: while a query is
+ * running, lookups of other threads accumulate in the queue and are resolved
+ * by the next query. A single thread thus sees no added latency, while
+ * concurrent lookups (e.g. from the worker threads of a job) are batched into
+ * few round trips.
+ */
 final class DatastoreDictionaryConnection implements DictionaryConnection {
 
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final int DEFAULT_LOOKUP_CACHE_SIZE = 10000;
+    private static final long LOOKUP_CACHE_EXPIRY_SECONDS = 5 * 60;
+
     private final DatastoreConnection _datastoreConnection;
     private final DatastoreDictionary _dictionary;
+    private final Cache<String, Boolean> _lookupCache;
+    private final Queue<Lookup> _pendingLookups;
+    private final ReentrantLock _queryLock;
+    private Column _column;
 
     public DatastoreDictionaryConnection(final DatastoreDictionary dictionary,
             final DatastoreConnection datastoreConnection) {
         _dictionary = dictionary;
         _datastoreConnection = datastoreConnection;
+        final int cacheSize =
+                SystemProperties.getInt(SystemProperties.REFERENCE_DATA_LOOKUP_CACHE_SIZE, DEFAULT_LOOKUP_CACHE_SIZE);
+        _lookupCache = CollectionUtils2.createCache(Math.max(0, cacheSize), LOOKUP_CACHE_EXPIRY_SECONDS);
+        _pendingLookups = new ConcurrentLinkedQueue<>();
+        _queryLock = new ReentrantLock();
     }
 
     @Override
     public boolean containsValue(final String value) {
+        if (value == null) {
+            return false;
+        }
+
+        final Boolean cachedResult = _lookupCache.getIfPresent(value);
+        if (cachedResult != null) {
+            return cachedResult;
+        }
+
+        final Lookup lookup = new Lookup(value);
+        _pendingLookups.add(lookup);
+        while (!lookup.isDone()) {
+            _queryLock.lock();
+            try {
+                // the lookup may have been resolved by another thread while
+                // waiting for the lock
+                if (!lookup.isDone()) {
+                    runBatch();
+                }
+            } finally {
+                _queryLock.unlock();
+            }
+        }
+        return lookup.getResult();
+    }
+
+    /**
+     * Resolves a batch of pending lookups. Must be invoked while holding the
+     * query lock.
+     */
+    private void runBatch() {
+        final List<Lookup> lookups = new ArrayList<>();
+        final Set<String> values = new HashSet<>();
+        while (values.size() < MAX_BATCH_SIZE) {
+            final Lookup lookup = _pendingLookups.poll();
+            if (lookup == null) {
+                break;
+            }
+            lookups.add(lookup);
+            values.add(lookup.getValue());
+        }
+        if (lookups.isEmpty()) {
+            return;
+        }
+
+        final Set<String> foundValues;
+        try {
+            foundValues = queryValues(values);
+        } catch (final RuntimeException e) {
+            // the error is rethrown to each of the waiting threads
+            for (final Lookup lookup : lookups) {
+                lookup.fail(e);
+            }
+            return;
+        }
+
+        for (final String value : values) {
+            _lookupCache.put(value, foundValues.contains(value));
+        }
+        for (final Lookup lookup : lookups) {
+            lookup.complete(foundValues.contains(lookup.getValue()));
+        }
+    }
+
+    /**
+     * Determines which of a set of values are contained in the dictionary
+     * column.
+     *
+     * @param values
+     * @return
+     */
+    private Set<String> queryValues(final Set<String> values) {
+        if (_column == null) {
+            _column = _dictionary.getColumn(_datastoreConnection);
+        }
         final DataContext dataContext = _datastoreConnection.getDataContext();
-        final Column column = _dictionary.getColumn(_datastoreConnection);
-        try (DataSet dataSet = dataContext.query().from(column.getTable()).select(column).where(column).eq(value)
-                .maxRows(1).execute()) {
-            if (dataSet.next()) {
-                return true;
+
+        if (values.size() == 1) {
+            final String value = values.iterator().next();
+            return queryValue(dataContext, value) ? values : new HashSet<>();
+        }
+
+        final Set<String> foundValues = new HashSet<>();
+        boolean inexactMatches = false;
+        try (DataSet dataSet = dataContext.query().from(_column.getTable()).select(_column).where(_column)
+                .in(values).execute()) {
+            while (dataSet.next()) {
+                final Object value = dataSet.getRow().getValue(0);
+                if (value != null) {
+                    final String stringValue = value.toString();
+                    if (values.contains(stringValue)) {
+                        foundValues.add(stringValue);
+                    } else {
+                        inexactMatches = true;
+                    }
+                }
+            }
+        }
+
+        if (inexactMatches) {
+            // the datastore compares values differently (e.g. case
+            // insensitive), so resolve the values that were not matched
+            // exactly one at a time, like a single lookup would
+            for (final String value : values) {
+                if (!foundValues.contains(value) && queryValue(dataContext, value)) {
+                    foundValues.add(value);
+                }
             }
-            return false;
+        }
+        return foundValues;
+    }
+
+    private boolean queryValue(final DataContext dataContext, final String value) {
+        try (DataSet dataSet = dataContext.query().from(_column.getTable()).select(_column).where(_column).eq(value)
+                .maxRows(1).execute()) {
+            return dataSet.next();
         }
     }
 
@@ -65,4 +208,43 @@ final class DatastoreDictionaryConnection implements DictionaryConnection {
         _datastoreConnection.close();
     }
 
+    /**
+     * A pending lookup of a single value.
+     */
+    private static final class Lookup {
+
+        private final String _value;
+        private volatile boolean _done;
+        private boolean _result;
+        private RuntimeException _error;
+
+        Lookup(final String value) {
+            _value = value;
+        }
+
+        String getValue() {
+            return _value;
+        }
+
+        boolean isDone() {
+            return _done;
+        }
+
+        void complete(final boolean result) {
+            _result = result;
+            _done = true;
+        }
+
+        void fail(final RuntimeException error) {
+            _error = error;
+            _done = true;
+        }
+
+        boolean getResult() {
+            if (_error != null) {
+                throw _error;
+            }
+            return _result;
+        }
+    }
 }
@@ -108,20 +108,32 @@ public final class DatastoreSynonymCatalog extends AbstractReferenceData impleme
             throw new NoSuchDatastoreException(_datastoreName);
         }
 
-        final DatastoreConnection datastoreConnection = datastore.openConnection();
-
         if (_loadIntoMemory) {
-            final SimpleSynonymCatalog simpleSynonymCatalog = loadIntoMemory(datastoreConnection);
+            final List<Object> cacheKey = ReferenceDataCache.createKey(this, datastore, getColumnPaths());
+            final SimpleSynonymCatalog simpleSynonymCatalog =
+                    ReferenceDataCatalogImpl.getSharedCache().getSynonymCatalog(cacheKey, () -> {
+                        final DatastoreConnection datastoreConnection = datastore.openConnection();
+                        final SimpleSynonymCatalog synonymCatalog = loadIntoMemory(datastoreConnection);
 
-            // no need for the connection anymore
-            datastoreConnection.close();
+                        // no need for the connection anymore
+                        datastoreConnection.close();
+                        return synonymCatalog;
+                    });
 
             return simpleSynonymCatalog.openConnection(configuration);
         }
 
+        final DatastoreConnection datastoreConnection = datastore.openConnection();
         return new DatastoreSynonymCatalogConnection(this, datastoreConnection);
     }
 
+    private String[] getColumnPaths() {
+        final String[] columnPaths = new String[_synonymColumnPaths.length + 1];
+        columnPaths[0] = _masterTermColumnPath;
+        System.arraycopy(_synonymColumnPaths, 0, columnPaths, 1, _synonymColumnPaths.length);
+        return columnPaths;
+    }
+
     public Column[] getSynonymColumns(final DatastoreConnection datastoreConnection) {
         final Column[] columns = new Column[_synonymColumnPaths.length];
         for (int i = 0; i < columns.length; i++) {
@@ -20,37 +20,108 @@
 package org.datacleaner.reference;
 
 import java.util.Collection;
+import java.util.Optional;
 
 import org.apache.metamodel.DataContext;
 import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.query.builder.SatisfiedWhereBuilder;
 import org.apache.metamodel.schema.Column;
 import org.datacleaner.connection.DatastoreConnection;
+import org.datacleaner.util.CollectionUtils2;
+import org.datacleaner.util.SystemProperties;
 
+import com.google.common.cache.Cache;
+
+/**
+ * Connection to a {@link DatastoreSynonymCatalog} that is not loaded into
+ * memory when opened.
+ *
+ * Inline replacement and listing of synonyms requires the whole catalog, so
+ * on first use the catalog is loaded into an in-memory index (a hash of terms
+ * and a multi-word matcher) which is kept for the lifetime of the connection
+ * and also serves subsequent master term lookups. Until then, master terms are
+ * looked up with a query per term, with the results kept in a bounded LRU
+ * cache.
+ */
 final class DatastoreSynonymCatalogConnection implements SynonymCatalogConnection {
 
+    private static final int DEFAULT_LOOKUP_CACHE_SIZE = 10000;
+    private static final long LOOKUP_CACHE_EXPIRY_SECONDS = 5 * 60;
+
     private final DatastoreConnection _datastoreConnection;
     private final DatastoreSynonymCatalog _synonymCatalog;
+    private final Cache<String, Optional<String>> _masterTermCache;
+    private volatile SynonymCatalogConnection _inMemoryConnection;
+    private volatile Column _masterTermColumn;
+    private volatile Column[] _synonymColumns;
 
     public DatastoreSynonymCatalogConnection(final DatastoreSynonymCatalog synonymCatalog,
             final DatastoreConnection datastoreConnection) {
         _synonymCatalog = synonymCatalog;
         _datastoreConnection = datastoreConnection;
+        final int cacheSize =
+                SystemProperties.getInt(SystemProperties.REFERENCE_DATA_LOOKUP_CACHE_SIZE, DEFAULT_LOOKUP_CACHE_SIZE);
+        _masterTermCache = CollectionUtils2.createCache(Math.max(0, cacheSize), LOOKUP_CACHE_EXPIRY_SECONDS);
+    }
+
+    /**
+     * Gets a connection to the catalog loaded into memory, loading it on first
+     * invocation.
+     *
+     * @return
+     */
+    private SynonymCatalogConnection getInMemoryConnection() {
+        SynonymCatalogConnection inMemoryConnection = _inMemoryConnection;
+        if (inMemoryConnection == null) {
+            synchronized (this) {
+                inMemoryConnection = _inMemoryConnection;
+                if (inMemoryConnection == null) {
+                    final SimpleSynonymCatalog simpleSynonymCatalog =
+                            _synonymCatalog.loadIntoMemory(_datastoreConnection);
+                    inMemoryConnection = simpleSynonymCatalog.openConnection(null);
+                    _inMemoryConnection = inMemoryConnection;
+                    _masterTermCache.invalidateAll();
+                }
+            }
+        }
+        return inMemoryConnection;
     }
 
     @Override
     public Collection<Synonym> getSynonyms() {
-        final SimpleSynonymCatalog simpleSynonymCatalog = _synonymCatalog.loadIntoMemory(_datastoreConnection);
-        return simpleSynonymCatalog.openConnection(null).getSynonyms();
+        return getInMemoryConnection().getSynonyms();
     }
 
     @Override
     public String getMasterTerm(final String term) {
-        final DataContext dataContext = _datastoreConnection.getDataContext();
+        if (term == null) {
+            return null;
+        }
+
+        final SynonymCatalogConnection inMemoryConnection = _inMemoryConnection;
+        if (inMemoryConnection != null) {
+            return inMemoryConnection.getMasterTerm(term);
+        }
+
+        final Optional<String> cachedMasterTerm = _masterTermCache.getIfPresent(term);
+        if (cachedMasterTerm != null) {
+            return cachedMasterTerm.orElse(null);
+        }
 
-        final Column masterTermColumn = _synonymCatalog.getMasterTermColumn(_datastoreConnection);
-        final Column[] columns = _synonymCatalog.getSynonymColumns(_datastoreConnection);
+        final String masterTerm = queryMasterTerm(term);
+        _masterTermCache.put(term, Optional.ofNullable(masterTerm));
+        return masterTerm;
+    }
 
+    private String queryMasterTerm(final String term) {
+        if (_masterTermColumn == null) {
+            _synonymColumns = _synonymCatalog.getSynonymColumns(_datastoreConnection);
+            _masterTermColumn = _synonymCatalog.getMasterTermColumn(_datastoreConnection);
+        }
+        final Column masterTermColumn = _masterTermColumn;
+        final Column[] columns = _synonymColumns;
+
+        final DataContext dataContext = _datastoreConnection.getDataContext();
         SatisfiedWhereBuilder<?> queryBuilder =
                 dataContext.query().from(masterTermColumn.getTable()).select(masterTermColumn).where(columns[0])
                         .eq(term);
@@ -74,8 +145,7 @@ final class DatastoreSynonymCatalogConnection implements SynonymCatalogConnectio
 
     @Override
     public Replacement replaceInline(final String sentence) {
-        final SimpleSynonymCatalog simpleSynonymCatalog = _synonymCatalog.loadIntoMemory(_datastoreConnection);
-        return simpleSynonymCatalog.openConnection(null).replaceInline(sentence);
+        return getInMemoryConnection().replaceInline(sentence);
     }
 
     @Override
@@ -0,0 +1,236 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.metamodel.util.Resource;
+import org.datacleaner.connection.Datastore;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Cache of reference data that has been loaded into memory, such as the values
+ * of text file and datastore based dictionaries and synonym catalogs. The
+ * loaded structures are immutable and are shared across jobs, connections and
+ * threads, so that e.g. a large dictionary is only read once by many short
+ * jobs.
+ *
+ * Entries are keyed by the type and name of the reference data and its source,
+ * which for file based reference data includes the last modified time of the
+ * file, so that changed files are reloaded, and for datastore based reference
+ * data includes the datastore definition. Entries are evicted when the
+ * total number of cached values exceeds a maximum, and after an expiry time,
+ * which bounds how long changes in datastores go unnoticed.
+ *
+ * A JVM-wide instance is available from
+ * {@link ReferenceDataCatalogImpl#getSharedCache()}.
+ */
+public final class ReferenceDataCache {
+
+    public static final long DEFAULT_MAX_ENTRIES = 5000000;
+    public static final long DEFAULT_EXPIRY_SECONDS = 5 * 60;
+
+    /**
+     * The age of a file below which its last modified time is not trusted to
+     * tell versions apart. Many file systems (and File.lastModified() on some
+     * JVMs) only have a resolution of one second, so a file that is rewritten
+     * with the same size within the same second would keep its key.
+     */
+    private static final long RECENT_MODIFICATION_MILLIS = 2000;
+
+    private final Cache<List<Object>, Object> _cache;
+    private final AtomicLong _uncachedLoads;
+
+    /**
+     *
+     * @param maxEntries
+     *            the maximum total number of values (dictionary values or
+     *            synonyms) to keep in the cache. A value of 0 disables caching.
+     * @param expirySeconds
+     *            the number of seconds after which a loaded entry is reloaded
+     */
+    public ReferenceDataCache(final long maxEntries, final long expirySeconds) {
+        if (maxEntries <= 0) {
+            _cache = null;
+        } else {
+            // a single segment, since the maximum weight is otherwise divided
+            // between segments, which would evict large dictionaries. Reads
+            // are lock-free regardless.
+            _cache = CacheBuilder.newBuilder().concurrencyLevel(1).maximumWeight(maxEntries)
+                    .weigher((final List<Object> key, final Object value) -> getWeight(value))
+                    .expireAfterWrite(expirySeconds, TimeUnit.SECONDS).recordStats().build();
+        }
+        _uncachedLoads = new AtomicLong();
+    }
+
+    private static int getWeight(final Object value) {
+        if (value instanceof SimpleDictionary) {
+            return Math.max(1, ((SimpleDictionary) value).getValueSet().size());
+        }
+        if (value instanceof SimpleSynonymCatalog) {
+            return Math.max(1, ((SimpleSynonymCatalog) value).getSynonymMap().size());
+        }
+        return 1;
+    }
+
+    /**
+     * Creates a cache key for reference data loaded from a resource, or null if
+     * the resource has no last modified time to tell versions apart, or was
+     * modified so recently that it may still change without a new last
+     * modified time. In these cases the reference data should not be cached.
+     *
+     * @param referenceData
+     * @param resource
+     * @param options
+     *            other properties that affect the loaded structure, such as
+     *            encoding and case sensitivity
+     * @return
+     */
+    public static List<Object> createKey(final ReferenceData referenceData, final Resource resource,
+            final Object... options) {
+        final long lastModified = resource.getLastModified();
+        if (lastModified <= 0) {
+            return null;
+        }
+        if (System.currentTimeMillis() - lastModified < RECENT_MODIFICATION_MILLIS) {
+            return null;
+        }
+        return Arrays.asList(referenceData.getClass().getName(), referenceData.getName(),
+                resource.getQualifiedPath(), lastModified, resource.getSize(), Arrays.asList(options));
+    }
+
+    /**
+     * Creates a cache key for reference data loaded from a datastore. The
+     * datastore itself is part of the key, so that datastores that are
+     * redefined with the same name, or that have the same name in different
+     * configurations, do not share entries. Most datastore types compare their
+     * definition (e.g. connection properties) in {@link Object#equals(Object)},
+     * others are compared by identity.
+     *
+     * @param referenceData
+     * @param datastore
+     * @param columnPaths
+     * @return
+     */
+    public static List<Object> createKey(final ReferenceData referenceData, final Datastore datastore,
+            final String... columnPaths) {
+        return Arrays.asList(referenceData.getClass().getName(), referenceData.getName(), datastore,
+                Arrays.asList(columnPaths));
+    }
+
+    public SimpleDictionary getDictionary(final List<Object> key, final Supplier<SimpleDictionary> loader) {
+        return get(key, loader);
+    }
+
+    public SimpleSynonymCatalog getSynonymCatalog(final List<Object> key,
+            final Supplier<SimpleSynonymCatalog> loader) {
+        return get(key, loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(final List<Object> key, final Supplier<T> loader) {
+        if (_cache == null || key == null) {
+            _uncachedLoads.incrementAndGet();
+            return loader.get();
+        }
+        try {
+            // concurrent requests for the same key wait for a single load
+            return (T) _cache.get(key, loader::get);
+        } catch (final ExecutionException | UncheckedExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Failed to load reference data", cause);
+        }
+    }
+
+    /**
+     * Discards all cached reference data.
+     */
+    public void invalidateAll() {
+        if (_cache != null) {
+            _cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Gets the number of cached reference data structures
+     *
+     * @return
+     */
+    public long getSize() {
+        if (_cache == null) {
+            return 0;
+        }
+        return _cache.size();
+    }
+
+    /**
+     * Gets the number of times reference data was served from the cache
+     *
+     * @return
+     */
+    public long getHitCount() {
+        return getStats().hitCount();
+    }
+
+    /**
+     * Gets the number of times reference data had to be loaded, either because
+     * it was not cached or because it could not be cached.
+     *
+     * @return
+     */
+    public long getMissCount() {
+        return getStats().missCount() + _uncachedLoads.get();
+    }
+
+    /**
+     * Gets the number of cached reference data structures that were evicted
+     * because of the size bound or the expiry time.
+     *
+     * @return
+     */
+    public long getEvictionCount() {
+        return getStats().evictionCount();
+    }
+
+    private CacheStats getStats() {
+        if (_cache == null) {
+            return new CacheStats(0, 0, 0, 0, 0, 0);
+        }
+        return _cache.stats();
+    }
+
+    @Override
+    public String toString() {
+        return "ReferenceDataCache[size=" + getSize() + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount() + "]";
+    }
+}
@@ -29,10 +29,18 @@ import java.util.Set;
 import org.apache.metamodel.util.CollectionUtils;
 import org.apache.metamodel.util.HasName;
 import org.apache.metamodel.util.HasNameMapper;
+import org.datacleaner.util.SystemProperties;
 
 public class ReferenceDataCatalogImpl implements ReferenceDataCatalog {
 
     private static final long serialVersionUID = 1L;
+
+    private static final ReferenceDataCache SHARED_CACHE = new ReferenceDataCache(
+            SystemProperties.getLong(SystemProperties.REFERENCE_DATA_CACHE_MAX_ENTRIES,
+                    ReferenceDataCache.DEFAULT_MAX_ENTRIES),
+            SystemProperties.getLong(SystemProperties.REFERENCE_DATA_CACHE_EXPIRY_SECONDS,
+                    ReferenceDataCache.DEFAULT_EXPIRY_SECONDS));
+
     private final Collection<Dictionary> _dictionaries;
     private final Collection<SynonymCatalog> _synonymCatalogs;
     private final Collection<StringPattern> _stringPatterns;
@@ -86,6 +94,16 @@ public class ReferenceDataCatalogImpl implements ReferenceDataCatalog {
         _stringPatterns = stringPatterns;
     }
 
+    /**
+     * Gets the JVM-wide cache of reference data that has been loaded into
+     * memory, which is shared by all jobs and reference data catalogs.
+     *
+     * @return
+     */
+    public static ReferenceDataCache getSharedCache() {
+        return SHARED_CACHE;
+    }
+
     @Override
     public String[] getDictionaryNames() {
         return getNames(_dictionaries);
@@ -23,29 +23,25 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.lang.reflect.Field;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.Iterator;
 import java.util.Objects;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 import org.datacleaner.configuration.DataCleanerConfiguration;
 import org.datacleaner.util.ReadObjectBuilder;
 import org.datacleaner.util.ReadObjectBuilder.Adaptor;
 
 import com.google.common.collect.Iterators;
-import com.google.common.collect.Sets;
 
 /**
  * The simplest possible Dictionary implementation. Based on an in-memory
- * {@link Set} of values.
+ * {@link CompactStringSet} of values.
  */
 public final class SimpleDictionary extends AbstractReferenceData implements Dictionary {
 
     private static final long serialVersionUID = 1L;
 
-    private final Set<String> _valueSet;
+    private final CompactStringSet _valueSet;
     private final boolean _caseSensitive;
 
     public SimpleDictionary(final String name, final String... values) {
@@ -61,32 +57,21 @@ public final class SimpleDictionary extends AbstractReferenceData implements Dic
     }
 
     public SimpleDictionary(final String name, final Collection<String> values, final boolean caseSensitive) {
+        this(name, createValueSet(values.iterator(), caseSensitive), caseSensitive);
+    }
+
+    private SimpleDictionary(final String name, final CompactStringSet valueSet, final boolean caseSensitive) {
         super(name);
-        if (caseSensitive) {
-            _valueSet = Sets.newHashSet(values);
-        } else {
-            _valueSet = createValueSet(values.iterator(), caseSensitive);
-        }
+        _valueSet = valueSet;
         _caseSensitive = caseSensitive;
     }
 
-    private static Set<String> createValueSet(final Object[] array, final boolean caseSensitive) {
+    private static CompactStringSet createValueSet(final Object[] array, final boolean caseSensitive) {
         return createValueSet(Iterators.forArray(array), caseSensitive);
     }
 
-    private static Set<String> createValueSet(final Iterator<?> iterator, final boolean caseSensitive) {
-        final Set<String> valueSet = Sets.newHashSet();
-        while (iterator.hasNext()) {
-            final Object value = iterator.next();
-            if (value != null) {
-                if (caseSensitive) {
-                    valueSet.add(value.toString());
-                } else {
-                    valueSet.add(value.toString().toLowerCase());
-                }
-            }
-        }
-        return valueSet;
+    private static CompactStringSet createValueSet(final Iterator<?> iterator, final boolean caseSensitive) {
+        return new CompactStringSet(iterator, !caseSensitive);
     }
 
     private void readObject(final ObjectInputStream stream) throws IOException, ClassNotFoundException {
@@ -107,19 +92,27 @@ public final class SimpleDictionary extends AbstractReferenceData implements Dic
                     @SuppressWarnings("deprecation") final SimpleReferenceValues srv =
                             (SimpleReferenceValues) oldValues;
                     @SuppressWarnings("deprecation") final Object[] values = srv.getValues();
-                    final Set<String> valueSet = createValueSet(values, caseSensitive);
-
-                    final Field valuesField = SimpleDictionary.class.getDeclaredField("_valueSet");
-                    valuesField.setAccessible(true);
-                    valuesField.set(serializable, valueSet);
+                    setValueSet(serializable, createValueSet(values, caseSensitive));
                 }
             } catch (final IllegalArgumentException e) {
                 // happens for newer versions of the object type.
             }
+
+            // handle legacy value sets, e.g. a HashSet of values
+            final Object valueSet = getField.get("_valueSet", null);
+            if (valueSet != null && !(valueSet instanceof CompactStringSet)) {
+                setValueSet(serializable, createValueSet(((Set<?>) valueSet).iterator(), caseSensitive));
+            }
         };
         ReadObjectBuilder.create(this, SimpleDictionary.class).readObject(stream, adaptor);
     }
 
+    private static void setValueSet(final Object serializable, final CompactStringSet valueSet) throws Exception {
+        final Field valuesField = SimpleDictionary.class.getDeclaredField("_valueSet");
+        valuesField.setAccessible(true);
+        valuesField.set(serializable, valueSet);
+    }
+
     @Override
     public boolean equals(final Object obj) {
         if (super.equals(obj)) {
@@ -140,21 +133,12 @@ public final class SimpleDictionary extends AbstractReferenceData implements Dic
 
             @Override
             public Iterator<String> getLengthSortedValues() {
-                final SortedSet<String> connectionValueSet = new TreeSet<>(
-                        Comparator.comparingInt(String::length).reversed().thenComparing(String::compareTo));
-                connectionValueSet.addAll(_valueSet);
-                return connectionValueSet.iterator();
+                return _valueSet.lengthSortedIterator();
             }
 
             @Override
-            public boolean containsValue(String value) {
-                if (value == null) {
-                    return false;
-                }
-                if (!_caseSensitive) {
-                    value = value.toLowerCase();
-                }
-                return _valueSet.contains(value);
+            public boolean containsValue(final String value) {
+                return _valueSet.contains(value, !_caseSensitive);
             }
 
             @Override
@@ -31,12 +31,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
-import java.util.SortedMap;
 import java.util.TreeMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.util.AhoCorasickMatcher;
+import org.datacleaner.util.AhoCorasickMatcher.Match;
 import org.datacleaner.util.ReadObjectBuilder;
 import org.datacleaner.util.ReadObjectBuilder.Adaptor;
 import org.datacleaner.util.StringUtils;
@@ -99,9 +98,8 @@ public final class SimpleSynonymCatalog extends AbstractReferenceData implements
         return synonymMap;
     }
 
-    private SortedMap<String, String> createMultiWordSynonymMap() {
-        final SortedMap<String, String> synonymMap =
-                new TreeMap<>(Comparator.comparingInt(String::length).reversed().thenComparing(String::compareTo));
+    private AhoCorasickMatcher<String> createMultiWordSynonymMatcher() {
+        final Map<String, String> synonymMap = new HashMap<>();
         final Set<Entry<String, String>> entries = _synonymMap.entrySet();
         for (final Entry<String, String> entry : entries) {
             final String synonym = entry.getKey();
@@ -114,7 +112,7 @@ public final class SimpleSynonymCatalog extends AbstractReferenceData implements
                 }
             }
         }
-        return synonymMap;
+        return new AhoCorasickMatcher<>(synonymMap, _caseSensitive, true);
     }
 
     private void readObject(final ObjectInputStream stream) throws IOException, ClassNotFoundException {
@@ -154,7 +152,7 @@ public final class SimpleSynonymCatalog extends AbstractReferenceData implements
     public SynonymCatalogConnection openConnection(final DataCleanerConfiguration configuration) {
         return new SynonymCatalogConnection() {
 
-            private final SortedMap<String, String> _sortedMultiWordSynonymMap = createMultiWordSynonymMap();
+            private final AhoCorasickMatcher<String> _multiWordSynonymMatcher = createMultiWordSynonymMatcher();
             private final Map<String, String> _singleWordSynonymMap = createSingleWordSynonymMap();
 
             @Override
@@ -189,31 +187,25 @@ public final class SimpleSynonymCatalog extends AbstractReferenceData implements
                 final List<String> synonyms = new ArrayList<>();
                 final List<String> masterTerms = new ArrayList<>();
 
-                // matchString will contain a copy of "sentence" but potentially
-                // lower-cased for case-insensitive matching
-                String matchString;
-                if (!_caseSensitive) {
-                    matchString = sentence.toLowerCase();
-                } else {
-                    matchString = sentence;
-                }
-
-                final Set<Entry<String, String>> entries = _sortedMultiWordSynonymMap.entrySet();
-                for (final Entry<String, String> entry : entries) {
-                    final String synonym = entry.getKey();
-                    final String masterTerm = entry.getValue();
-                    final Matcher matcher = Pattern.compile("\\b" + synonym + "\\b").matcher(matchString);
-                    while (matcher.find()) {
-                        sentence =
-                                sentence.substring(0, matcher.start()) + masterTerm + sentence.substring(matcher.end());
-                        if (_caseSensitive) {
-                            matchString = sentence.toLowerCase();
-                        } else {
-                            matchString = sentence;
-                        }
-                        synonyms.add(synonym);
-                        masterTerms.add(masterTerm);
+                // replace multi-word synonyms in a single pass, with longer
+                // synonyms taking precedence over shorter ones
+                final List<Match<String>> matches = _multiWordSynonymMatcher.findLongestNonOverlapping(sentence);
+                if (!matches.isEmpty()) {
+                    for (final Match<String> match : matches) {
+                        synonyms.add(match.getTerm());
+                        masterTerms.add(match.getValue());
+                    }
+                    matches.sort(Comparator.comparingInt(Match::getStart));
+
+                    final StringBuilder sb = new StringBuilder();
+                    int index = 0;
+                    for (final Match<String> match : matches) {
+                        sb.append(sentence, index, match.getStart());
+                        sb.append(match.getValue());
+                        index = match.getEnd();
                     }
+                    sb.append(sentence, index, sentence.length());
+                    sentence = sb.toString();
                 }
 
                 final StringBuilder sb = new StringBuilder();
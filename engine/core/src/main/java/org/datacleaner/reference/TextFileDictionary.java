@@ -23,9 +23,9 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.lang.reflect.Field;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
-import java.util.Set;
 
 import org.apache.metamodel.util.FileHelper;
 import org.apache.metamodel.util.Resource;
@@ -87,15 +87,22 @@ public final class TextFileDictionary extends AbstractReferenceData implements D
     public DictionaryConnection openConnection(final DataCleanerConfiguration configuration) {
         final ResourceConverter rc = new ResourceConverter(configuration);
         final Resource resource = rc.fromString(Resource.class, _filename);
-        final Set<String> values = resource.read(in -> {
-            final Set<String> values1 = new HashSet<>();
+
+        final List<Object> cacheKey = ReferenceDataCache.createKey(this, resource, _encoding, _caseSensitive);
+        final SimpleDictionary simpleDictionary =
+                ReferenceDataCatalogImpl.getSharedCache().getDictionary(cacheKey, () -> loadIntoMemory(resource));
+        return simpleDictionary.openConnection(configuration);
+    }
+
+    private SimpleDictionary loadIntoMemory(final Resource resource) {
+        // duplicates and case are handled by the compact value set of the
+        // dictionary, so a list is sufficient here
+        final List<String> values = resource.read(in -> {
+            final List<String> values1 = new ArrayList<>();
             final BufferedReader reader = FileHelper.getBufferedReader(in, getEncoding());
             try {
                 String line = reader.readLine();
                 while (line != null) {
-                    if (!_caseSensitive) {
-                        line = line.toLowerCase();
-                    }
                     values1.add(line);
                     line = reader.readLine();
                 }
@@ -107,8 +114,7 @@ public final class TextFileDictionary extends AbstractReferenceData implements D
             return values1;
         });
 
-        final SimpleDictionary simpleDictionary = new SimpleDictionary(getName(), values, _caseSensitive);
-        return simpleDictionary.openConnection(configuration);
+        return new SimpleDictionary(getName(), values, _caseSensitive);
     }
 
     @Override
@@ -24,6 +24,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -75,6 +76,13 @@ public final class TextFileSynonymCatalog extends AbstractReferenceData implemen
         final ResourceConverter rc = new ResourceConverter(configuration);
         final Resource resource = rc.fromString(Resource.class, _filename);
 
+        final List<Object> cacheKey = ReferenceDataCache.createKey(this, resource, _encoding, _caseSensitive);
+        final SimpleSynonymCatalog simpleSynonymCatalog =
+                ReferenceDataCatalogImpl.getSharedCache().getSynonymCatalog(cacheKey, () -> loadIntoMemory(resource));
+        return simpleSynonymCatalog.openConnection(configuration);
+    }
+
+    private SimpleSynonymCatalog loadIntoMemory(final Resource resource) {
         final Map<String, String> synonyms = resource.read(in -> {
             final Map<String, String> synonyms1 = new HashMap<>();
 
@@ -107,7 +115,7 @@ public final class TextFileSynonymCatalog extends AbstractReferenceData implemen
             return synonyms1;
         });
 
-        return new SimpleSynonymCatalog(getName(), synonyms, _caseSensitive).openConnection(configuration);
+        return new SimpleSynonymCatalog(getName(), synonyms, _caseSensitive);
     }
 
     private void readObject(final ObjectInputStream stream) throws IOException, ClassNotFoundException {
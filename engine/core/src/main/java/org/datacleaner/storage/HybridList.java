@@ -0,0 +1,160 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.datacleaner.util.sort.RowCodec;
+
+/**
+ * List of a {@link HybridStorageProvider}. Elements are kept in an
+ * {@link ArrayList} until the list grows past the size threshold, after which
+ * they are stored in a {@link MappedRecordFile} and only their offsets are
+ * kept on the heap.
+ *
+ * @param <E>
+ */
+final class HybridList<E> extends AbstractList<E> implements RandomAccess {
+
+    private final HybridStorageProvider _storageProvider;
+    private final RowCodec<E> _codec;
+    private List<E> _memoryList;
+    private MappedRecordFile _file;
+    private long[] _offsets;
+    private int _size;
+
+    HybridList(final HybridStorageProvider storageProvider, final RowCodec<E> codec) {
+        _storageProvider = storageProvider;
+        _codec = codec;
+        _memoryList = new ArrayList<>();
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        super.finalize();
+        // collections are usually just dropped, so release the file when the
+        // collection is collected
+        final MappedRecordFile file = _file;
+        if (file != null) {
+            file.close();
+        }
+    }
+
+    boolean isSpilled() {
+        return _memoryList == null;
+    }
+
+    @Override
+    public E get(final int index) {
+        if (_memoryList != null) {
+            return _memoryList.get(index);
+        }
+        checkIndex(index, _size);
+        return HybridStorageProvider.decode(_codec, _file.read(_offsets[index]));
+    }
+
+    @Override
+    public int size() {
+        if (_memoryList != null) {
+            return _memoryList.size();
+        }
+        return _size;
+    }
+
+    @Override
+    public void add(final int index, final E element) {
+        if (_memoryList != null) {
+            _memoryList.add(index, element);
+            if (_storageProvider.isSpillRequired(_memoryList.size())) {
+                spill();
+            }
+        } else {
+            checkIndex(index, _size + 1);
+            if (_size == _offsets.length) {
+                _offsets = Arrays.copyOf(_offsets, _size + (_size >> 1) + 1);
+            }
+            System.arraycopy(_offsets, index, _offsets, index + 1, _size - index);
+            _offsets[index] = append(element);
+            _size++;
+        }
+        modCount++;
+    }
+
+    @Override
+    public E set(final int index, final E element) {
+        if (_memoryList != null) {
+            return _memoryList.set(index, element);
+        }
+        final E previous = get(index);
+        // the previous record is left unreferenced in the file
+        _offsets[index] = append(element);
+        return previous;
+    }
+
+    @Override
+    public E remove(final int index) {
+        if (_memoryList != null) {
+            modCount++;
+            return _memoryList.remove(index);
+        }
+        final E previous = get(index);
+        System.arraycopy(_offsets, index + 1, _offsets, index, _size - index - 1);
+        _size--;
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        if (_file != null) {
+            _file.close();
+            _file = null;
+            _offsets = null;
+            _size = 0;
+        }
+        _memoryList = new ArrayList<>();
+        modCount++;
+    }
+
+    private void spill() {
+        final List<E> memoryList = _memoryList;
+        _file = _storageProvider.createRecordFile(List.class, memoryList.size());
+        _offsets = new long[memoryList.size() + (memoryList.size() >> 1)];
+        for (final E element : memoryList) {
+            _offsets[_size] = append(element);
+            _size++;
+        }
+        _memoryList = null;
+    }
+
+    private long append(final E element) {
+        return _storageProvider.append(_file, HybridStorageProvider.encode(_codec, element));
+    }
+
+    private static void checkIndex(final int index, final int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
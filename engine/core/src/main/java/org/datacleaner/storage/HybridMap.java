@@ -0,0 +1,341 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import org.datacleaner.util.sort.RowCodec;
+
+/**
+ * Map of a {@link HybridStorageProvider}. Entries are kept in a
+ * {@link HashMap} until the map grows past the size threshold, after which
+ * they are stored as key/value records in a {@link MappedRecordFile}. The heap
+ * then only holds an open addressing table of key hashes and record offsets.
+ *
+ * @param <K>
+ * @param <V>
+ */
+final class HybridMap<K, V> extends AbstractMap<K, V> {
+
+    private static final long EMPTY = 0;
+    private static final long DELETED = -1;
+
+    private final HybridStorageProvider _storageProvider;
+    private final RowCodec<K> _keyCodec;
+    private final RowCodec<V> _valueCodec;
+    private Map<K, V> _memoryMap;
+    private MappedRecordFile _file;
+
+    // slots hold the record offset + 1, or EMPTY/DELETED
+    private long[] _slots;
+    private int[] _hashes;
+    private int _size;
+    private int _deleted;
+    private int _modCount;
+
+    HybridMap(final HybridStorageProvider storageProvider, final RowCodec<K> keyCodec,
+            final RowCodec<V> valueCodec) {
+        _storageProvider = storageProvider;
+        _keyCodec = keyCodec;
+        _valueCodec = valueCodec;
+        _memoryMap = new HashMap<>();
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        super.finalize();
+        final MappedRecordFile file = _file;
+        if (file != null) {
+            file.close();
+        }
+    }
+
+    boolean isSpilled() {
+        return _memoryMap == null;
+    }
+
+    @Override
+    public int size() {
+        if (_memoryMap != null) {
+            return _memoryMap.size();
+        }
+        return _size;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        if (_memoryMap != null) {
+            return _memoryMap.containsKey(key);
+        }
+        return findSlot(key, hash(key)) >= 0;
+    }
+
+    @Override
+    public V get(final Object key) {
+        if (_memoryMap != null) {
+            return _memoryMap.get(key);
+        }
+        final int index = findSlot(key, hash(key));
+        if (index < 0) {
+            return null;
+        }
+        return readEntry(_slots[index]).getValue();
+    }
+
+    @Override
+    public V put(final K key, final V value) {
+        if (_memoryMap != null) {
+            final V previous = _memoryMap.put(key, value);
+            if (_storageProvider.isSpillRequired(_memoryMap.size())) {
+                spill();
+            }
+            return previous;
+        }
+
+        final int hash = hash(key);
+        final int index = findSlot(key, hash);
+        if (index >= 0) {
+            final V previous = readEntry(_slots[index]).getValue();
+            // the previous record is left unreferenced in the file
+            _slots[index] = append(key, value) + 1;
+            return previous;
+        }
+        insert(hash, append(key, value));
+        return null;
+    }
+
+    @Override
+    public V remove(final Object key) {
+        if (_memoryMap != null) {
+            return _memoryMap.remove(key);
+        }
+        final int index = findSlot(key, hash(key));
+        if (index < 0) {
+            return null;
+        }
+        final V previous = readEntry(_slots[index]).getValue();
+        removeSlot(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        if (_file != null) {
+            _file.close();
+            _file = null;
+            _slots = null;
+            _hashes = null;
+            _size = 0;
+            _deleted = 0;
+        }
+        _memoryMap = new HashMap<>();
+        _modCount++;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                if (_memoryMap != null) {
+                    return _memoryMap.entrySet().iterator();
+                }
+                return new SpilledEntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return HybridMap.this.size();
+            }
+
+            @Override
+            public void clear() {
+                HybridMap.this.clear();
+            }
+        };
+    }
+
+    private void spill() {
+        final Map<K, V> memoryMap = _memoryMap;
+        _file = _storageProvider.createRecordFile(Map.class, memoryMap.size());
+        int capacity = 16;
+        while (capacity < memoryMap.size() * 4) {
+            capacity <<= 1;
+        }
+        _slots = new long[capacity];
+        _hashes = new int[capacity];
+        for (final Entry<K, V> entry : memoryMap.entrySet()) {
+            insert(hash(entry.getKey()), append(entry.getKey(), entry.getValue()));
+        }
+        _memoryMap = null;
+    }
+
+    private static int hash(final Object key) {
+        final int hash = Objects.hashCode(key);
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Finds the slot index of a key in the spilled table.
+     *
+     * @param key
+     * @param hash
+     * @return the slot index, or -1 if the key is not in the table
+     */
+    private int findSlot(final Object key, final int hash) {
+        final int mask = _slots.length - 1;
+        int index = hash & mask;
+        while (true) {
+            final long slot = _slots[index];
+            if (slot == EMPTY) {
+                return -1;
+            }
+            if (slot != DELETED && _hashes[index] == hash && Objects.equals(key, readEntry(slot).getKey())) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void insert(final int hash, final long offset) {
+        if ((_size + _deleted + 1) * 2 > _slots.length) {
+            rehash(_size * 4 > _slots.length ? _slots.length * 2 : _slots.length);
+        }
+        final int mask = _slots.length - 1;
+        int index = hash & mask;
+        while (_slots[index] != EMPTY && _slots[index] != DELETED) {
+            index = (index + 1) & mask;
+        }
+        if (_slots[index] == DELETED) {
+            _deleted--;
+        }
+        _slots[index] = offset + 1;
+        _hashes[index] = hash;
+        _size++;
+        _modCount++;
+    }
+
+    private void removeSlot(final int index) {
+        _slots[index] = DELETED;
+        _size--;
+        _deleted++;
+        _modCount++;
+    }
+
+    private void rehash(final int capacity) {
+        final long[] slots = _slots;
+        final int[] hashes = _hashes;
+        _slots = new long[capacity];
+        _hashes = new int[capacity];
+        _deleted = 0;
+        final int mask = capacity - 1;
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != EMPTY && slots[i] != DELETED) {
+                int index = hashes[i] & mask;
+                while (_slots[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                _slots[index] = slots[i];
+                _hashes[index] = hashes[i];
+            }
+        }
+    }
+
+    private long append(final K key, final V value) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            HybridStorageProvider.writeValue(out, _keyCodec, key);
+            HybridStorageProvider.writeValue(out, _valueCodec, value);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not encode entry with key: " + key, e);
+        }
+        return _storageProvider.append(_file, bytes.toByteArray());
+    }
+
+    private Entry<K, V> readEntry(final long slot) {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(_file.read(slot - 1)));
+        try {
+            final K key = HybridStorageProvider.readValue(in, _keyCodec);
+            final V value = HybridStorageProvider.readValue(in, _valueCodec);
+            return new SimpleImmutableEntry<>(key, value);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not decode entry", e);
+        }
+    }
+
+    private final class SpilledEntryIterator implements Iterator<Entry<K, V>> {
+
+        private int _expectedModCount = _modCount;
+        private int _nextIndex = advance(0);
+        private int _lastIndex = -1;
+
+        private int advance(final int fromIndex) {
+            int index = fromIndex;
+            while (index < _slots.length && (_slots[index] == EMPTY || _slots[index] == DELETED)) {
+                index++;
+            }
+            return index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _nextIndex < _slots.length;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (_expectedModCount != _modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            _lastIndex = _nextIndex;
+            _nextIndex = advance(_nextIndex + 1);
+            return readEntry(_slots[_lastIndex]);
+        }
+
+        @Override
+        public void remove() {
+            if (_lastIndex == -1) {
+                throw new IllegalStateException();
+            }
+            if (_expectedModCount != _modCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeSlot(_lastIndex);
+            _lastIndex = -1;
+            _expectedModCount = _modCount;
+        }
+    }
+}
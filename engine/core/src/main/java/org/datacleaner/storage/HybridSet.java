@@ -0,0 +1,72 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+/**
+ * Set of a {@link HybridStorageProvider}, backed by the keys of a
+ * {@link HybridMap}.
+ *
+ * @param <E>
+ */
+final class HybridSet<E> extends AbstractSet<E> {
+
+    private final HybridMap<E, Boolean> _map;
+
+    HybridSet(final HybridMap<E, Boolean> map) {
+        _map = map;
+    }
+
+    boolean isSpilled() {
+        return _map.isSpilled();
+    }
+
+    @Override
+    public boolean add(final E element) {
+        return _map.put(element, Boolean.TRUE) == null;
+    }
+
+    @Override
+    public boolean contains(final Object element) {
+        return _map.containsKey(element);
+    }
+
+    @Override
+    public boolean remove(final Object element) {
+        return _map.remove(element) != null;
+    }
+
+    @Override
+    public void clear() {
+        _map.clear();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return _map.keySet().iterator();
+    }
+
+    @Override
+    public int size() {
+        return _map.size();
+    }
+}
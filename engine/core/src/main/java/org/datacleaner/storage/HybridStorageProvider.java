@@ -0,0 +1,253 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.datacleaner.util.TypedValueCodec;
+import org.datacleaner.util.sort.RowCodec;
+import org.datacleaner.util.sort.StringRowCodec;
+import org.datacleaner.util.sort.TypedValueRowCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * StorageProvider which keeps collections in memory while they are small, and
+ * transparently migrates a collection to memory-mapped file storage once it
+ * grows past a per-collection size threshold. Spilled collections keep only a
+ * compact index on the heap, while their elements are stored in binary form
+ * using a {@link RowCodec} for the key/value type. Codecs for custom types can
+ * be registered using {@link #registerCodec(Class, RowCodec)}, other types are
+ * encoded using {@link TypedValueCodec}. The file of a spilled collection is
+ * closed and deleted when the collection is cleared or garbage collected.
+ *
+ * Row annotations are kept in memory like in the
+ * {@link InMemoryStorageProvider}.
+ */
+public final class HybridStorageProvider implements StorageProvider {
+
+    public static final int DEFAULT_MAX_ELEMENTS_IN_MEMORY = 100000;
+
+    private static final Logger logger = LoggerFactory.getLogger(HybridStorageProvider.class);
+
+    private static final RowCodec<Object> TYPED_VALUE_CODEC = new TypedValueRowCodec();
+
+    private final File _directory;
+    private final int _maxElementsInMemory;
+    private final int _maxSampleSets;
+    private final int _maxSampleRecords;
+    private final Map<Class<?>, RowCodec<?>> _codecs;
+    private final AtomicInteger _spilledCollections;
+    private final AtomicLong _spilledElements;
+    private final AtomicLong _spilledBytes;
+    private int _segmentSize = MappedRecordFile.DEFAULT_SEGMENT_SIZE;
+
+    public HybridStorageProvider(final File directory) {
+        this(directory, DEFAULT_MAX_ELEMENTS_IN_MEMORY);
+    }
+
+    public HybridStorageProvider(final File directory, final int maxElementsInMemory) {
+        this(directory, maxElementsInMemory, InMemoryStorageProvider.DEFAULT_MAX_SAMPLE_SETS,
+                InMemoryStorageProvider.DEFAULT_MAX_SAMPLE_RECORDS);
+    }
+
+    public HybridStorageProvider(final File directory, final int maxElementsInMemory, final int maxSampleSets,
+            final int maxSampleRecords) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory cannot be null");
+        }
+        if (!directory.exists()) {
+            if (!directory.mkdirs()) {
+                throw new IllegalArgumentException("Could not create directory: " + directory);
+            }
+        }
+        _directory = directory;
+        _maxElementsInMemory = Math.max(0, maxElementsInMemory);
+        _maxSampleSets = Math.max(0, maxSampleSets);
+        _maxSampleRecords = Math.max(0, maxSampleRecords);
+        _codecs = new ConcurrentHashMap<>();
+        _codecs.put(String.class, new StringRowCodec());
+        _spilledCollections = new AtomicInteger();
+        _spilledElements = new AtomicLong();
+        _spilledBytes = new AtomicLong();
+    }
+
+    /**
+     * Registers a codec to use for encoding keys/values of a particular type in
+     * spilled collections. Null values are handled by the collections, so
+     * codecs are never invoked with null.
+     *
+     * @param type
+     * @param codec
+     */
+    public <E> void registerCodec(final Class<E> type, final RowCodec<E> codec) {
+        _codecs.put(type, codec);
+    }
+
+    public File getDirectory() {
+        return _directory;
+    }
+
+    public int getMaxElementsInMemory() {
+        return _maxElementsInMemory;
+    }
+
+    /**
+     * Sets the size of the memory-mapped segments of spilled collections.
+     * Mostly useful for testing, since segments are mapped lazily.
+     *
+     * @param segmentSize
+     */
+    public void setSegmentSize(final int segmentSize) {
+        _segmentSize = Math.max(1024, segmentSize);
+    }
+
+    /**
+     * Gets the number of collections that have been migrated to memory-mapped
+     * file storage.
+     *
+     * @return
+     */
+    public int getSpilledCollectionCount() {
+        return _spilledCollections.get();
+    }
+
+    /**
+     * Gets the number of elements (or map entries) that have been written to
+     * memory-mapped file storage, including elements that were migrated when
+     * their collection was spilled.
+     *
+     * @return
+     */
+    public long getSpilledElementCount() {
+        return _spilledElements.get();
+    }
+
+    /**
+     * Gets the number of bytes that have been written to memory-mapped file
+     * storage.
+     *
+     * @return
+     */
+    public long getSpilledBytes() {
+        return _spilledBytes.get();
+    }
+
+    @Override
+    public <E> List<E> createList(final Class<E> valueType) throws IllegalStateException {
+        return new HybridList<>(this, getCodec(valueType));
+    }
+
+    @Override
+    public <K, V> Map<K, V> createMap(final Class<K> keyType, final Class<V> valueType) throws IllegalStateException {
+        return new HybridMap<>(this, getCodec(keyType), getCodec(valueType));
+    }
+
+    @Override
+    public <E> Set<E> createSet(final Class<E> valueType) throws IllegalStateException {
+        return new HybridSet<>(new HybridMap<>(this, getCodec(valueType), getCodec(Boolean.class)));
+    }
+
+    @Override
+    public RowAnnotationFactory createRowAnnotationFactory() {
+        return RowAnnotations.getInMemoryFactory(_maxSampleSets, _maxSampleRecords);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E> RowCodec<E> getCodec(final Class<E> type) {
+        final RowCodec<?> codec = _codecs.get(type);
+        if (codec == null) {
+            return (RowCodec<E>) TYPED_VALUE_CODEC;
+        }
+        return (RowCodec<E>) codec;
+    }
+
+    boolean isSpillRequired(final int size) {
+        return size > _maxElementsInMemory;
+    }
+
+    MappedRecordFile createRecordFile(final Class<?> collectionType, final int size) {
+        _spilledCollections.incrementAndGet();
+        logger.info("Migrating {} of {} elements to memory-mapped file storage", collectionType.getSimpleName(),
+                size);
+        try {
+            return new MappedRecordFile(_directory, _segmentSize);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not create file for spilled collection", e);
+        }
+    }
+
+    long append(final MappedRecordFile file, final byte[] record) {
+        _spilledElements.incrementAndGet();
+        _spilledBytes.addAndGet(record.length);
+        try {
+            return file.append(record);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not write to spilled collection", e);
+        }
+    }
+
+    static <E> void writeValue(final DataOutput out, final RowCodec<E> codec, final E value) throws IOException {
+        if (value == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            codec.write(out, value);
+        }
+    }
+
+    static <E> E readValue(final DataInput in, final RowCodec<E> codec) throws IOException {
+        if (in.readBoolean()) {
+            return codec.read(in);
+        }
+        return null;
+    }
+
+    static <E> byte[] encode(final RowCodec<E> codec, final E value) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeValue(out, codec, value);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not encode value: " + value, e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static <E> E decode(final RowCodec<E> codec, final byte[] record) {
+        try {
+            return readValue(new DataInputStream(new ByteArrayInputStream(record)), codec);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not decode value", e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only file of length prefixed binary records, accessed through
+ * memory-mapped segments. Records are addressed by their offset in the file
+ * and never span two segments.
+ */
+final class MappedRecordFile implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedRecordFile.class);
+
+    static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private final File _file;
+    private final FileChannel _channel;
+    private final int _segmentSize;
+    private final TreeMap<Long, MappedByteBuffer> _segments;
+    private MappedByteBuffer _currentSegment;
+    private long _currentSegmentStart;
+    private long _end;
+
+    MappedRecordFile(final File directory, final int segmentSize) throws IOException {
+        // not registered for deletion on exit, since that would keep an entry
+        // per file for the life time of the JVM. The file is deleted when it
+        // is closed, which the collections do when cleared or collected.
+        _file = File.createTempFile("hybrid_storage", ".dat", directory);
+        _channel = FileChannel.open(_file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        _segmentSize = segmentSize;
+        _segments = new TreeMap<>();
+    }
+
+    /**
+     * Appends a record to the file.
+     *
+     * @param record
+     * @return the offset to read the record from
+     * @throws IOException
+     */
+    long append(final byte[] record) throws IOException {
+        final int length = record.length + 4;
+        if (_currentSegment == null || _currentSegment.remaining() < length) {
+            // start a new segment where the current one ends, wasting the
+            // remainder of it
+            final long start =
+                    _currentSegment == null ? 0 : _currentSegmentStart + _currentSegment.capacity();
+            _currentSegment = _channel.map(MapMode.READ_WRITE, start, Math.max(_segmentSize, length));
+            _currentSegmentStart = start;
+            _segments.put(start, _currentSegment);
+            _end = start;
+        }
+        final long offset = _end;
+        _currentSegment.putInt(record.length);
+        _currentSegment.put(record);
+        _end += length;
+        return offset;
+    }
+
+    /**
+     * Reads the record at an offset that was previously returned by
+     * {@link #append(byte[])}.
+     *
+     * @param offset
+     * @return
+     */
+    byte[] read(final long offset) {
+        final Entry<Long, MappedByteBuffer> segment = _segments.floorEntry(offset);
+        final ByteBuffer buffer = segment.getValue().duplicate();
+        buffer.position((int) (offset - segment.getKey()));
+        final byte[] record = new byte[buffer.getInt()];
+        buffer.get(record);
+        return record;
+    }
+
+    /**
+     * Gets the number of bytes that are mapped for this file.
+     *
+     * @return
+     */
+    long getMappedSize() {
+        if (_currentSegment == null) {
+            return 0;
+        }
+        return _currentSegmentStart + _currentSegment.capacity();
+    }
+
+    @Override
+    public void close() {
+        _segments.clear();
+        _currentSegment = null;
+        try {
+            _channel.close();
+        } catch (final IOException e) {
+            logger.warn("Could not close channel of file: {}", _file, e);
+        }
+        // mapped segments remain valid until they are garbage collected, but
+        // on most platforms the file can be deleted while they are mapped
+        if (!_file.delete()) {
+            logger.warn("Could not delete file: {}", _file);
+        }
+    }
+}
@@ -0,0 +1,390 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.data.MockInputRow;
+import org.datacleaner.util.TypedValueCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link RowAnnotationFactory} which stores sample records outside of the
+ * heap, in direct byte buffers. Only the id and the values of the input columns
+ * of a row are stored, not the row object itself (which may reference a whole
+ * graph of parent rows). Sample rows are returned as {@link MockInputRow}s
+ * with the same id and values as the annotated rows.
+ *
+ * Slots for sample records are reserved per annotation using an atomic
+ * counter, so annotating a row takes no lock, and once a sample is full the row
+ * is rejected without touching the storage at all.
+ */
+public final class OffHeapRowAnnotationFactory extends AbstractRowAnnotationFactory2
+        implements RowAnnotationFactory, Serializable {
+
+    /**
+     * The sample records of a single annotation. Records are appended to
+     * chunks of off-heap memory, and their addresses published in slots.
+     */
+    private static final class Sample {
+
+        private final AtomicInteger _reservedSlots;
+        private final AtomicLongArray _addresses;
+        private final AtomicLong _position;
+        private final AtomicReferenceArray<ByteBuffer> _chunks;
+
+        Sample(final int maxRecords) {
+            _reservedSlots = new AtomicInteger();
+            // 0 means not (yet) stored, otherwise the address + 1
+            _addresses = new AtomicLongArray(maxRecords);
+            _position = new AtomicLong();
+            _chunks = new AtomicReferenceArray<>(MAX_CHUNKS_PER_SAMPLE);
+        }
+
+        /**
+         * @return the reserved slot, or -1 if the sample is full
+         */
+        int reserveSlot() {
+            final int maxRecords = _addresses.length();
+            if (_reservedSlots.get() >= maxRecords) {
+                return -1;
+            }
+            final int slot = _reservedSlots.getAndIncrement();
+            return slot < maxRecords ? slot : -1;
+        }
+
+        int getSlotCount() {
+            return Math.min(_reservedSlots.get(), _addresses.length());
+        }
+
+        void store(final int slot, final byte[] record) {
+            final int length = record.length + 4;
+            final long address = allocate(length);
+            if (address < 0) {
+                // the storage of this sample is exhausted
+                return;
+            }
+
+            final ByteBuffer buffer = getChunk((int) (address / CHUNK_SIZE), length).duplicate();
+            buffer.position((int) (address % CHUNK_SIZE));
+            buffer.putInt(record.length);
+            buffer.put(record);
+            _addresses.set(slot, address + 1);
+        }
+
+        /**
+         * @return the record in the slot, or null if it was not stored
+         */
+        byte[] read(final int slot) {
+            final long address = _addresses.get(slot) - 1;
+            if (address < 0) {
+                return null;
+            }
+            final ByteBuffer buffer = _chunks.get((int) (address / CHUNK_SIZE)).duplicate();
+            buffer.position((int) (address % CHUNK_SIZE));
+            final byte[] record = new byte[buffer.getInt()];
+            buffer.get(record);
+            return record;
+        }
+
+        /**
+         * Allocates space for a record. Records that do not fit into a chunk
+         * get a chunk of their own.
+         *
+         * @return the address of the space, or -1 if there is no more room
+         */
+        private long allocate(final int length) {
+            while (true) {
+                final long position = _position.get();
+                final long offset = position % CHUNK_SIZE;
+                final long nextChunk = position - offset + CHUNK_SIZE;
+                final long start;
+                final long end;
+                if (length > CHUNK_SIZE) {
+                    start = offset == 0 ? position : nextChunk;
+                    end = start + CHUNK_SIZE;
+                } else if (offset + length > CHUNK_SIZE) {
+                    start = nextChunk;
+                    end = start + length;
+                } else {
+                    start = position;
+                    end = start + length;
+                }
+                if (start / CHUNK_SIZE >= MAX_CHUNKS_PER_SAMPLE) {
+                    return -1;
+                }
+                if (_position.compareAndSet(position, end)) {
+                    return start;
+                }
+            }
+        }
+
+        private ByteBuffer getChunk(final int index, final int length) {
+            final ByteBuffer chunk = _chunks.get(index);
+            if (chunk != null) {
+                return chunk;
+            }
+            final ByteBuffer newChunk = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, length));
+            if (_chunks.compareAndSet(index, null, newChunk)) {
+                return newChunk;
+            }
+            return _chunks.get(index);
+        }
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapRowAnnotationFactory.class);
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final int MAX_CHUNKS_PER_SAMPLE = 1024;
+
+    private final int _maxSampleSets;
+    private final int _maxSampleRecords;
+    private transient ConcurrentHashMap<RowAnnotation, Sample> _samples;
+    private transient List<List<InputColumn<?>>> _columnLists;
+    private transient ConcurrentHashMap<List<InputColumn<?>>, Integer> _columnListIds;
+
+    /**
+     *
+     * @param maxSampleSets
+     *            the maximum number of sample record collections to keep
+     * @param maxSampleRecords
+     *            the maximum number of records to keep in each collection
+     */
+    public OffHeapRowAnnotationFactory(final int maxSampleSets, final int maxSampleRecords) {
+        _maxSampleSets = Math.max(0, maxSampleSets);
+        _maxSampleRecords = Math.max(0, maxSampleRecords);
+        initStorage();
+    }
+
+    private void initStorage() {
+        _samples = new ConcurrentHashMap<>();
+        _columnLists = new CopyOnWriteArrayList<>();
+        _columnListIds = new ConcurrentHashMap<>();
+    }
+
+    private Sample getSample(final RowAnnotation annotation) {
+        final Sample sample = _samples.get(annotation);
+        if (sample != null) {
+            return sample;
+        }
+        if (_maxSampleRecords == 0 || _samples.size() >= _maxSampleSets) {
+            return null;
+        }
+        final Sample newSample = new Sample(_maxSampleRecords);
+        final Sample existingSample = _samples.putIfAbsent(annotation, newSample);
+        return existingSample == null ? newSample : existingSample;
+    }
+
+    @Override
+    public void annotate(final InputRow row, final RowAnnotation annotation) {
+        annotate(row, 1, annotation);
+    }
+
+    @Override
+    public void annotate(final InputRow row, final int distinctCount, final RowAnnotation annotation) {
+        final RowAnnotationImpl annotationImpl = (RowAnnotationImpl) annotation;
+        annotationImpl.incrementRowCount(distinctCount);
+
+        final Sample sample = getSample(annotation);
+        if (sample == null) {
+            return;
+        }
+
+        byte[] record = null;
+        for (int i = 0; i < distinctCount; i++) {
+            final int slot = sample.reserveSlot();
+            if (slot == -1) {
+                return;
+            }
+            if (record == null) {
+                record = encode(row);
+                if (record == null) {
+                    return;
+                }
+            }
+            sample.store(slot, record);
+        }
+    }
+
+    @Override
+    public void resetAnnotation(final RowAnnotation annotation) {
+        super.resetAnnotation(annotation);
+
+        _samples.remove(annotation);
+    }
+
+    @Override
+    public void transferAnnotations(final RowAnnotation from, final RowAnnotation to) {
+        super.transferAnnotations(from, to);
+
+        final Sample fromSample = _samples.remove(from);
+        if (fromSample == null) {
+            return;
+        }
+        final Sample toSample = getSample(to);
+        if (toSample == null) {
+            return;
+        }
+
+        for (int i = 0; i < fromSample.getSlotCount(); i++) {
+            final byte[] record = fromSample.read(i);
+            if (record != null) {
+                final int slot = toSample.reserveSlot();
+                if (slot == -1) {
+                    return;
+                }
+                toSample.store(slot, record);
+            }
+        }
+    }
+
+    @Override
+    public List<InputRow> getSampleRows(final RowAnnotation annotation) {
+        final Sample sample = _samples.get(annotation);
+        if (sample == null) {
+            return Collections.emptyList();
+        }
+
+        final int slotCount = sample.getSlotCount();
+        final List<InputRow> rows = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            final byte[] record = sample.read(i);
+            if (record != null) {
+                rows.add(decode(record));
+            }
+        }
+        return Collections.unmodifiableList(rows);
+    }
+
+    @Override
+    public boolean hasSampleRows(final RowAnnotation annotation) {
+        final Sample sample = _samples.get(annotation);
+        return sample != null && sample.getSlotCount() > 0;
+    }
+
+    private int getColumnListId(final List<InputColumn<?>> columns) {
+        final Integer id = _columnListIds.get(columns);
+        if (id != null) {
+            return id;
+        }
+        synchronized (_columnLists) {
+            final Integer existingId = _columnListIds.get(columns);
+            if (existingId != null) {
+                return existingId;
+            }
+            final List<InputColumn<?>> columnsCopy = new ArrayList<>(columns);
+            _columnLists.add(columnsCopy);
+            final int newId = _columnLists.size() - 1;
+            _columnListIds.put(columnsCopy, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * Encodes the id and values of a row.
+     *
+     * @param row
+     * @return the encoded row, or null if it could not be encoded
+     */
+    private byte[] encode(final InputRow row) {
+        final List<InputColumn<?>> columns = row.getInputColumns();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(row.getId());
+            out.writeInt(getColumnListId(columns));
+            for (final InputColumn<?> column : columns) {
+                TypedValueCodec.writeValue(out, row.getValue(column));
+            }
+        } catch (final IOException e) {
+            logger.warn("Could not store sample row {}, it will be left out of the sample", row, e);
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    private InputRow decode(final byte[] record) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            final long id = in.readLong();
+            final List<InputColumn<?>> columns = _columnLists.get(in.readInt());
+            final Map<InputColumn<?>, Object> values = new LinkedHashMap<>();
+            for (final InputColumn<?> column : columns) {
+                values.put(column, TypedValueCodec.readValue(in));
+            }
+            return new MockInputRow(id, values);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not read sample row", e);
+        }
+    }
+
+    private void writeObject(final ObjectOutputStream stream) throws IOException {
+        stream.defaultWriteObject();
+
+        final Map<RowAnnotation, List<InputRow>> samples = new LinkedHashMap<>();
+        for (final RowAnnotation annotation : _samples.keySet()) {
+            samples.put(annotation, new ArrayList<>(getSampleRows(annotation)));
+        }
+        stream.writeObject(samples);
+    }
+
+    private void readObject(final ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        initStorage();
+
+        @SuppressWarnings("unchecked") final Map<RowAnnotation, List<InputRow>> samples =
+                (Map<RowAnnotation, List<InputRow>>) stream.readObject();
+        for (final Entry<RowAnnotation, List<InputRow>> entry : samples.entrySet()) {
+            final Sample sample = getSample(entry.getKey());
+            if (sample != null) {
+                for (final InputRow row : entry.getValue()) {
+                    final int slot = sample.reserveSlot();
+                    final byte[] record = encode(row);
+                    if (slot != -1 && record != null) {
+                        sample.store(slot, record);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.datacleaner.api.InputRow;
+
+/**
+ * {@link RowAnnotationFactory} which keeps a uniform random sample of the
+ * annotated rows of each annotation in memory, using reservoir sampling. In
+ * contrast to the {@link InMemoryRowAnnotationFactory2}, which keeps the first
+ * rows of each annotation, the samples are thus representative of the whole
+ * table and not only of its beginning.
+ *
+ * Sampling is lock-free: once the reservoir of an annotation is full, a row is
+ * rejected early with a draw from a thread-local random number generator, and
+ * only the accepted rows are written into a slot of the reservoir. Under
+ * concurrent annotation the sample is approximately uniform.
+ *
+ * The sample size is configurable per annotation using the sample size hint of
+ * {@link #createAnnotation(int)} or {@link #setSampleSize(RowAnnotation, int)},
+ * with a default sample size for all other annotations. The factory is
+ * selected by configuring a {@link ReservoirSamplingStorageProvider}.
+ */
+public final class ReservoirSamplingRowAnnotationFactory extends AbstractRowAnnotationFactory2
+        implements RowAnnotationFactory, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ConcurrentHashMap<RowAnnotation, Reservoir> _storage;
+    private final int _maxSampleSets;
+    private final int _defaultSampleSize;
+
+    /**
+     *
+     * @param maxSampleSets
+     *            the maximum number of annotations to keep samples for
+     * @param defaultSampleSize
+     *            the number of records to sample for annotations that have no
+     *            specific sample size
+     */
+    public ReservoirSamplingRowAnnotationFactory(final int maxSampleSets, final int defaultSampleSize) {
+        _storage = new ConcurrentHashMap<>();
+        _maxSampleSets = Math.max(0, maxSampleSets);
+        _defaultSampleSize = Math.max(0, defaultSampleSize);
+    }
+
+    @Override
+    public RowAnnotation createAnnotation(final int sampleSize) {
+        final RowAnnotation annotation = createAnnotation();
+        setSampleSize(annotation, sampleSize);
+        return annotation;
+    }
+
+    /**
+     * Sets the sample size of an annotation. Any rows sampled so far for the
+     * annotation are discarded, so this should be invoked before rows are
+     * annotated. Annotations with a specific sample size are always sampled,
+     * but they count towards the maximum number of sample sets.
+     *
+     * @param annotation
+     * @param sampleSize
+     */
+    public void setSampleSize(final RowAnnotation annotation, final int sampleSize) {
+        _storage.put(annotation, new Reservoir(Math.max(0, sampleSize)));
+    }
+
+    public int getDefaultSampleSize() {
+        return _defaultSampleSize;
+    }
+
+    @Override
+    public void annotate(final InputRow row, final RowAnnotation annotation) {
+        super.annotate(row, annotation);
+
+        final Reservoir reservoir = getReservoir(annotation);
+        if (reservoir != null) {
+            reservoir.offer(row);
+        }
+    }
+
+    private Reservoir getReservoir(final RowAnnotation annotation) {
+        final Reservoir reservoir = _storage.get(annotation);
+        if (reservoir != null || _storage.size() >= _maxSampleSets) {
+            return reservoir;
+        }
+        return _storage.computeIfAbsent(annotation, key -> new Reservoir(_defaultSampleSize));
+    }
+
+    @Override
+    public void resetAnnotation(final RowAnnotation annotation) {
+        super.resetAnnotation(annotation);
+
+        final Reservoir reservoir = _storage.get(annotation);
+        if (reservoir != null) {
+            // retain the sample size of the annotation
+            _storage.put(annotation, new Reservoir(reservoir.getSampleSize()));
+        }
+    }
+
+    @Override
+    public List<InputRow> getSampleRows(final RowAnnotation annotation) {
+        final Reservoir reservoir = _storage.get(annotation);
+        if (reservoir == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(reservoir.getRows());
+    }
+
+    @Override
+    public void transferAnnotations(final RowAnnotation from, final RowAnnotation to) {
+        super.transferAnnotations(from, to);
+
+        final Reservoir fromReservoir = _storage.remove(from);
+        if (fromReservoir == null || fromReservoir.getSeen() == 0) {
+            return;
+        }
+
+        final Reservoir toReservoir = getReservoir(to);
+        if (toReservoir != null) {
+            _storage.put(to, toReservoir.merge(fromReservoir));
+        }
+    }
+
+    /**
+     * Reservoir of sampled rows of a single annotation.
+     */
+    static final class Reservoir implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicLong _seen;
+        private final AtomicReferenceArray<InputRow> _rows;
+
+        Reservoir(final int sampleSize) {
+            _seen = new AtomicLong();
+            _rows = new AtomicReferenceArray<>(sampleSize);
+        }
+
+        int getSampleSize() {
+            return _rows.length();
+        }
+
+        long getSeen() {
+            return _seen.get();
+        }
+
+        void offer(final InputRow row) {
+            final int sampleSize = _rows.length();
+            final long seen = _seen.incrementAndGet();
+            if (seen <= sampleSize) {
+                _rows.set((int) (seen - 1), row);
+                return;
+            }
+            // keep the row with a probability of sampleSize / seen
+            final long index = ThreadLocalRandom.current().nextLong(seen);
+            if (index < sampleSize) {
+                _rows.set((int) index, row);
+            }
+        }
+
+        List<InputRow> getRows() {
+            final int size = (int) Math.min(_seen.get(), _rows.length());
+            final List<InputRow> rows = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                final InputRow row = _rows.get(i);
+                // a slot may not yet be written by a concurrent offer
+                if (row != null) {
+                    rows.add(row);
+                }
+            }
+            return rows;
+        }
+
+        /**
+         * Creates a reservoir with a uniform sample of the rows seen by this
+         * and another reservoir, drawing from each sample in proportion to the
+         * number of rows it represents.
+         *
+         * @param other
+         * @return
+         */
+        Reservoir merge(final Reservoir other) {
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            final List<InputRow> rows1 = getRows();
+            final List<InputRow> rows2 = other.getRows();
+            Collections.shuffle(rows1, random);
+            Collections.shuffle(rows2, random);
+            long remaining1 = getSeen();
+            long remaining2 = other.getSeen();
+
+            final Reservoir result = new Reservoir(getSampleSize());
+            result._seen.set(remaining1 + remaining2);
+            int index1 = 0;
+            int index2 = 0;
+            int size = 0;
+            while (size < result.getSampleSize() && (index1 < rows1.size() || index2 < rows2.size())) {
+                final boolean pickFirst;
+                if (index1 == rows1.size()) {
+                    pickFirst = false;
+                } else if (index2 == rows2.size()) {
+                    pickFirst = true;
+                } else {
+                    pickFirst = random.nextLong(remaining1 + remaining2) < remaining1;
+                }
+                if (pickFirst) {
+                    result._rows.set(size, rows1.get(index1));
+                    index1++;
+                    remaining1--;
+                } else {
+                    result._rows.set(size, rows2.get(index2));
+                    index2++;
+                    remaining2--;
+                }
+                size++;
+            }
+            if (size < result.getSampleSize()) {
+                // fewer rows than the sample size, further offers go into the
+                // free slots
+                result._seen.set(size);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * StorageProvider which keeps collections in memory like the
+ * {@link InMemoryStorageProvider}, but samples the records of row annotations
+ * using a {@link ReservoirSamplingRowAnnotationFactory}. The samples are thus
+ * uniform random samples of all annotated rows instead of the first annotated
+ * rows, and components may hint a sample size per annotation.
+ */
+public final class ReservoirSamplingStorageProvider implements StorageProvider {
+
+    private final int _maxSampleSets;
+    private final int _maxSampleRecords;
+
+    public ReservoirSamplingStorageProvider() {
+        this(InMemoryStorageProvider.DEFAULT_MAX_SAMPLE_SETS, InMemoryStorageProvider.DEFAULT_MAX_SAMPLE_RECORDS);
+    }
+
+    public ReservoirSamplingStorageProvider(final int maxSampleSets, final int maxSampleRecords) {
+        _maxSampleSets = Math.max(0, maxSampleSets);
+        _maxSampleRecords = Math.max(0, maxSampleRecords);
+    }
+
+    @Override
+    public <E> List<E> createList(final Class<E> valueType) throws IllegalStateException {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public <K, V> Map<K, V> createMap(final Class<K> keyType, final Class<V> valueType) throws IllegalStateException {
+        return new HashMap<>();
+    }
+
+    @Override
+    public <E> Set<E> createSet(final Class<E> valueType) throws IllegalStateException {
+        return new HashSet<>();
+    }
+
+    @Override
+    public RowAnnotationFactory createRowAnnotationFactory() {
+        return RowAnnotations.getReservoirSamplingFactory(_maxSampleSets, _maxSampleRecords);
+    }
+}
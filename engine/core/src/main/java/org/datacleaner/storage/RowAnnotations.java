@@ -32,4 +32,13 @@ public class RowAnnotations {
     public static RowAnnotationFactory getInMemoryFactory(final int maxSampleSets, final int maxSampledRecords) {
         return new InMemoryRowAnnotationFactory2(maxSampleSets, maxSampledRecords);
     }
+
+    public static RowAnnotationFactory getReservoirSamplingFactory(final int maxSampleSets,
+            final int maxSampledRecords) {
+        return new ReservoirSamplingRowAnnotationFactory(maxSampleSets, maxSampledRecords);
+    }
+
+    public static RowAnnotationFactory getOffHeapFactory(final int maxSampleSets, final int maxSampledRecords) {
+        return new OffHeapRowAnnotationFactory(maxSampleSets, maxSampledRecords);
+    }
 }
@@ -0,0 +1,338 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Matcher which finds occurrences of many terms in a text in a single pass,
+ * using the Aho-Corasick algorithm. The automaton is built once for a set of
+ * terms, after which the cost of matching a text is linear in the length of
+ * the text (plus the number of matches), regardless of the number of terms.
+ *
+ * Matching can optionally be case insensitive, in which case characters are
+ * folded using {@link Character#toLowerCase(char)}, and can optionally be
+ * restricted to whole words, using the same definition of word boundaries as
+ * the "\b" construct of regular expressions.
+ *
+ * Instances are immutable and thus safe to share between threads.
+ *
+ * @param <V>
+ *            the type of value associated with each term
+ */
+public final class AhoCorasickMatcher<V> {
+
+    /**
+     * A match of a term in a text.
+     *
+     * @param <V>
+     */
+    public static final class Match<V> {
+
+        private final int _start;
+        private final int _end;
+        private final String _term;
+        private final V _value;
+
+        private Match(final int start, final int end, final String term, final V value) {
+            _start = start;
+            _end = end;
+            _term = term;
+            _value = value;
+        }
+
+        /**
+         * Gets the index of the first character of the match in the text
+         *
+         * @return
+         */
+        public int getStart() {
+            return _start;
+        }
+
+        /**
+         * Gets the index after the last character of the match in the text
+         *
+         * @return
+         */
+        public int getEnd() {
+            return _end;
+        }
+
+        /**
+         * Gets the term that was matched, as it was given to the matcher
+         *
+         * @return
+         */
+        public String getTerm() {
+            return _term;
+        }
+
+        public V getValue() {
+            return _value;
+        }
+
+        @Override
+        public String toString() {
+            return "Match[" + _term + "," + _start + "-" + _end + "]";
+        }
+    }
+
+    private static final int NONE = -1;
+
+    private static final Comparator<Match<?>> LONGEST_FIRST = (match1, match2) -> {
+        final int diff = (match2._end - match2._start) - (match1._end - match1._start);
+        if (diff != 0) {
+            return diff;
+        }
+        return match1._start - match2._start;
+    };
+
+    private final boolean _caseSensitive;
+    private final boolean _wholeWords;
+    private final String[] _terms;
+    private final Object[] _values;
+
+    // the automaton, with the root at node 0. Transitions of each node are
+    // sorted by their character label.
+    private final char[][] _labels;
+    private final int[][] _targets;
+    private final int[] _failures;
+    private final int[] _outputs;
+    private final int[] _outputLinks;
+
+    /**
+     * Creates a matcher for a map of terms and associated values.
+     *
+     * @param terms
+     *            the terms to match and their values. Empty terms are ignored.
+     *            If the matcher is case insensitive and two terms are equal
+     *            when folded, the latter term is retained.
+     * @param caseSensitive
+     *            whether or not matching should be case sensitive
+     * @param wholeWords
+     *            whether or not only matches on word boundaries should be
+     *            found
+     */
+    public AhoCorasickMatcher(final Map<String, ? extends V> terms, final boolean caseSensitive,
+            final boolean wholeWords) {
+        _caseSensitive = caseSensitive;
+        _wholeWords = wholeWords;
+
+        final List<TreeMap<Character, Integer>> transitions = new ArrayList<>();
+        final List<Integer> outputs = new ArrayList<>();
+        transitions.add(new TreeMap<>());
+        outputs.add(NONE);
+
+        final List<String> termList = new ArrayList<>(terms.size());
+        final List<V> valueList = new ArrayList<>(terms.size());
+        for (final Entry<String, ? extends V> entry : terms.entrySet()) {
+            final String term = entry.getKey();
+            if (term == null || term.isEmpty()) {
+                continue;
+            }
+            int node = 0;
+            for (int i = 0; i < term.length(); i++) {
+                final Character c = fold(term.charAt(i));
+                Integer target = transitions.get(node).get(c);
+                if (target == null) {
+                    target = transitions.size();
+                    transitions.add(new TreeMap<>());
+                    outputs.add(NONE);
+                    transitions.get(node).put(c, target);
+                }
+                node = target;
+            }
+            if (outputs.get(node) == NONE) {
+                outputs.set(node, termList.size());
+                termList.add(term);
+                valueList.add(entry.getValue());
+            } else {
+                termList.set(outputs.get(node), term);
+                valueList.set(outputs.get(node), entry.getValue());
+            }
+        }
+
+        _terms = termList.toArray(new String[termList.size()]);
+        _values = valueList.toArray();
+
+        final int nodeCount = transitions.size();
+        _labels = new char[nodeCount][];
+        _targets = new int[nodeCount][];
+        _outputs = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            final TreeMap<Character, Integer> nodeTransitions = transitions.get(node);
+            final char[] labels = new char[nodeTransitions.size()];
+            final int[] targets = new int[nodeTransitions.size()];
+            int i = 0;
+            for (final Entry<Character, Integer> transition : nodeTransitions.entrySet()) {
+                labels[i] = transition.getKey();
+                targets[i] = transition.getValue();
+                i++;
+            }
+            _labels[node] = labels;
+            _targets[node] = targets;
+            _outputs[node] = outputs.get(node);
+            // release the build structure as we go
+            transitions.set(node, null);
+        }
+
+        _failures = new int[nodeCount];
+        _outputLinks = new int[nodeCount];
+        _outputLinks[0] = NONE;
+        buildFailureLinks();
+    }
+
+    private void buildFailureLinks() {
+        final Queue<Integer> queue = new ArrayDeque<>();
+        for (final int child : _targets[0]) {
+            _failures[child] = 0;
+            _outputLinks[child] = NONE;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            final int node = queue.poll();
+            final char[] labels = _labels[node];
+            final int[] targets = _targets[node];
+            for (int i = 0; i < labels.length; i++) {
+                final int child = targets[i];
+                int failure = _failures[node];
+                int next = transition(failure, labels[i]);
+                while (next == NONE && failure != 0) {
+                    failure = _failures[failure];
+                    next = transition(failure, labels[i]);
+                }
+                final int childFailure = next == NONE ? 0 : next;
+                _failures[child] = childFailure;
+                _outputLinks[child] = _outputs[childFailure] != NONE ? childFailure : _outputLinks[childFailure];
+                queue.add(child);
+            }
+        }
+    }
+
+    private int transition(final int node, final char c) {
+        final int index = Arrays.binarySearch(_labels[node], c);
+        if (index < 0) {
+            return NONE;
+        }
+        return _targets[node][index];
+    }
+
+    private char fold(final char c) {
+        if (_caseSensitive) {
+            return c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    private static boolean isWordChar(final char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    private boolean isBoundary(final CharSequence text, final int index) {
+        final boolean wordBefore = index > 0 && isWordChar(text.charAt(index - 1));
+        final boolean wordAfter = index < text.length() && isWordChar(text.charAt(index));
+        return wordBefore != wordAfter;
+    }
+
+    /**
+     * Determines if the matcher has any terms to match
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return _terms.length == 0;
+    }
+
+    /**
+     * Finds all (possibly overlapping) matches of the terms in a text, ordered
+     * by their end index.
+     *
+     * @param text
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public List<Match<V>> findAll(final CharSequence text) {
+        final List<Match<V>> matches = new ArrayList<>();
+        if (text == null || isEmpty()) {
+            return matches;
+        }
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = fold(text.charAt(i));
+            int next = transition(node, c);
+            while (next == NONE && node != 0) {
+                node = _failures[node];
+                next = transition(node, c);
+            }
+            node = next == NONE ? 0 : next;
+
+            int output = _outputs[node] != NONE ? node : _outputLinks[node];
+            while (output != NONE) {
+                final int termIndex = _outputs[output];
+                final String term = _terms[termIndex];
+                final int end = i + 1;
+                final int start = end - term.length();
+                if (!_wholeWords || (isBoundary(text, start) && isBoundary(text, end))) {
+                    matches.add(new Match<>(start, end, term, (V) _values[termIndex]));
+                }
+                output = _outputLinks[output];
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Finds non-overlapping matches of the terms in a text. Longer matches take
+     * precedence over shorter ones, and for matches of equal length the first
+     * one takes precedence. The returned matches are ordered by that
+     * precedence.
+     *
+     * @param text
+     * @return
+     */
+    public List<Match<V>> findLongestNonOverlapping(final CharSequence text) {
+        final List<Match<V>> matches = findAll(text);
+        if (matches.size() <= 1) {
+            return matches;
+        }
+        matches.sort(LONGEST_FIRST);
+
+        final BitSet covered = new BitSet(text.length());
+        final List<Match<V>> result = new ArrayList<>(matches.size());
+        for (final Match<V> match : matches) {
+            final int coveredIndex = covered.nextSetBit(match._start);
+            if (coveredIndex == -1 || coveredIndex >= match._end) {
+                covered.set(match._start, match._end);
+                result.add(match);
+            }
+        }
+        return result;
+    }
+}
@@ -130,6 +130,81 @@ public class SystemProperties {
      */
     public static final String QUERY_SELECTCLAUSE_OPTIMIZE = "datacleaner.query.selectclause.optimize";
 
+    /**
+     * Determines the number of source rows that are handed to a worker thread
+     * as a single task during row processing. A value of 1 (the default) means
+     * that every row is dispatched as an individual task.
+     */
+    public static final String ROW_PROCESSING_BATCH_SIZE = "datacleaner.rowprocessing.batchsize";
+
+    /**
+     * Determines the number of partitions that a source table is split into
+     * for concurrent reading, each over a separate connection. Tables are
+     * split by ranges of a numeric primary key, or otherwise into windows of
+     * rows. Only tables of JDBC databases are partitioned. A value of 1 (the
+     * default) means that tables are read in one go.
+     */
+    public static final String ROW_PROCESSING_PARTITIONS = "datacleaner.rowprocessing.partitions";
+
+    /**
+     * Determines the number of source rows that are read ahead into a buffer
+     * by a separate reader thread, so that reading from the source is not
+     * stalled while rows are being dispatched to worker threads. A value of 0
+     * (the default) disables reading ahead.
+     */
+    public static final String ROW_PROCESSING_READ_AHEAD = "datacleaner.rowprocessing.readahead";
+
+    /**
+     * Determines the number of processed rows between row processing progress
+     * notifications to analysis listeners. A value of 0 (the default) disables
+     * row based progress notifications.
+     */
+    public static final String ROW_PROCESSING_PROGRESS_INTERVAL_ROWS = "datacleaner.rowprocessing.progress.rows";
+
+    /**
+     * Determines the number of milliseconds between row processing progress
+     * notifications to analysis listeners. Defaults to 250. If both this and
+     * {@link #ROW_PROCESSING_PROGRESS_INTERVAL_ROWS} are set to 0, listeners are
+     * notified of every row.
+     */
+    public static final String ROW_PROCESSING_PROGRESS_INTERVAL_MILLIS = "datacleaner.rowprocessing.progress.millis";
+
+    /**
+     * Property which in case of a "true" value makes non-concurrent,
+     * distributable analyzers run with a separate instance per worker thread.
+     * The partial results are combined using the analyzer's result reducer.
+     */
+    public static final String ANALYZER_PARTITIONED = "datacleaner.analyzer.partitioned";
+
+    /**
+     * Determines the maximum number of groups (e.g. distinct values or group
+     * keys) that a spillable aggregation holds in memory. When exceeded, the
+     * groups are written to a sorted temporary file and merged back when the
+     * aggregation is complete. A value of 0 (the default) means that
+     * aggregations are held entirely in memory.
+     */
+    public static final String AGGREGATION_MAX_ENTRIES_IN_MEMORY = "datacleaner.aggregation.maxentries";
+
+    /**
+     * Determines the maximum total number of values (dictionary values or
+     * synonyms) that the shared reference data cache keeps in memory across
+     * jobs. A value of 0 disables the cache. Defaults to 5 million.
+     */
+    public static final String REFERENCE_DATA_CACHE_MAX_ENTRIES = "datacleaner.referencedata.cache.maxentries";
+
+    /**
+     * Determines the number of seconds after which reference data in the
+     * shared reference data cache is reloaded from its source. Defaults to 300.
+     */
+    public static final String REFERENCE_DATA_CACHE_EXPIRY_SECONDS = "datacleaner.referencedata.cache.expiry";
+
+    /**
+     * Determines the number of lookup results that connections to datastore
+     * based reference data, which is not loaded into memory, keep in an LRU
+     * cache. A value of 0 disables the cache. Defaults to 10000.
+     */
+    public static final String REFERENCE_DATA_LOOKUP_CACHE_SIZE = "datacleaner.referencedata.lookup.cachesize";
+
     /**
      * Gets a system property string, or a replacement value if the property is
      * null or blank.
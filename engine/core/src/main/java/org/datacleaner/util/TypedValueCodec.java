@@ -0,0 +1,140 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * Compact binary encoding of single values, used when values are stored
+ * outside of the heap or in temporary files. Each value is written with a type
+ * tag and a binary representation of common value types. Other value types
+ * are written using Java serialization.
+ */
+public final class TypedValueCodec {
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INTEGER = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_BOOLEAN = 5;
+    private static final byte TYPE_DATE = 6;
+    private static final byte TYPE_SERIALIZED = 7;
+
+    private TypedValueCodec() {
+        // prevent instantiation
+    }
+
+    public static void writeValue(final DataOutput out, final Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value.getClass() == Date.class) {
+            // only plain dates, subclasses such as java.sql.Timestamp are
+            // serialized to retain their type
+            out.writeByte(TYPE_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else {
+            out.writeByte(TYPE_SERIALIZED);
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(value);
+            }
+            out.writeInt(bytes.size());
+            out.write(bytes.toByteArray());
+        }
+    }
+
+    public static Object readValue(final DataInput in) throws IOException {
+        final byte type = in.readByte();
+        switch (type) {
+        case TYPE_NULL:
+            return null;
+        case TYPE_STRING:
+            return readString(in);
+        case TYPE_INTEGER:
+            return in.readInt();
+        case TYPE_LONG:
+            return in.readLong();
+        case TYPE_DOUBLE:
+            return in.readDouble();
+        case TYPE_BOOLEAN:
+            return in.readBoolean();
+        case TYPE_DATE:
+            return new Date(in.readLong());
+        case TYPE_SERIALIZED:
+            return readSerializedValue(in);
+        default:
+            throw new IOException("Unknown value type: " + type);
+        }
+    }
+
+    private static Object readSerializedValue(final DataInput in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return ois.readObject();
+        } catch (final ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Writes a string as length prefixed UTF-8 bytes. Unlike
+     * {@link DataOutput#writeUTF(String)} this is not limited to 64K bytes.
+     *
+     * @param out
+     * @param str
+     * @throws IOException
+     */
+    public static void writeString(final DataOutput out, final String str) throws IOException {
+        final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(final DataInput in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.metamodel.data.DataSetHeader;
+import org.apache.metamodel.data.DefaultRow;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.data.SimpleDataSetHeader;
+import org.datacleaner.util.TypedValueCodec;
+
+/**
+ * {@link RowCodec} for MetaModel {@link Row}s, writing each value using the
+ * {@link TypedValueCodec}. Styles are not retained.
+ *
+ * All rows are assumed to share the same {@link DataSetHeader}, which is
+ * either given or taken from the first row written.
+ */
+public class MetaModelRowCodec implements RowCodec<Row> {
+
+    private volatile DataSetHeader _header;
+
+    public MetaModelRowCodec() {
+        this(null);
+    }
+
+    public MetaModelRowCodec(final DataSetHeader header) {
+        _header = header;
+    }
+
+    @Override
+    public void write(final DataOutput out, final Row row) throws IOException {
+        if (_header == null) {
+            _header = new SimpleDataSetHeader(row.getSelectItems());
+        }
+
+        final Object[] values = row.getValues();
+        out.writeInt(values.length);
+        for (final Object value : values) {
+            TypedValueCodec.writeValue(out, value);
+        }
+    }
+
+    @Override
+    public Row read(final DataInput in) throws IOException {
+        final DataSetHeader header = _header;
+        if (header == null) {
+            throw new IllegalStateException("No header available for reading rows");
+        }
+
+        final Object[] values = new Object[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = TypedValueCodec.readValue(in);
+        }
+        return new DefaultRow(header, values);
+    }
+}
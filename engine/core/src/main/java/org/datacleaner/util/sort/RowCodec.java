@@ -0,0 +1,40 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Encodes and decodes rows in the temporary files ("runs") of a
+ * {@link SortMergeWriter}, or the elements of spilled collections of a
+ * {@link org.datacleaner.storage.HybridStorageProvider}. Rows are never null
+ * when passed to a codec.
+ *
+ * @param <R>
+ *            the row type
+ */
+public interface RowCodec<R> {
+
+    void write(DataOutput out, R row) throws IOException;
+
+    R read(DataInput in) throws IOException;
+}
@@ -19,28 +19,44 @@
  */
 package org.datacleaner.util.sort;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.Closeable;
-import java.io.EOFException;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import org.apache.metamodel.util.FileHelper;
 import org.apache.metamodel.util.FileResource;
 import org.apache.metamodel.util.Resource;
-import org.datacleaner.util.ImmutableEntry;
+import org.datacleaner.job.concurrent.DaemonThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,16 +64,121 @@ import org.slf4j.LoggerFactory;
  * Sorter, deduplicator and writer that uses temporary files as storage to
  * support high volume sorted data.
  *
+ * Rows are written to the temporary files using a {@link RowCodec}, which
+ * defaults to Java serialization. Row types with a specialized codec (such as
+ * {@link StringRowCodec} or {@link MetaModelRowCodec}) should use it, since it
+ * makes both writing and merging significantly faster.
+ *
+ * When the in-memory buffer is full it is handed to a background thread which
+ * writes it to a temporary file, while appending continues into a new buffer.
+ * When writing the final result, at most {@link #getMergeFanIn()} temporary
+ * files are merged at a time. If there are more, they are first merged into
+ * fewer, larger temporary files in one or more intermediate passes.
+ *
+ * The writer should be closed when it is no longer needed, also if
+ * {@link #write(Resource)} was never invoked (e.g. because the job failed), to
+ * stop the background threads and delete the temporary files.
+ *
  * @param <R>
  *            the row type, HAS to be serializable
  * @param <W>
  *            the writer type used when writing a row to the final destination
  *            file.
  */
-public abstract class SortMergeWriter<R extends Serializable, W extends Closeable> {
+public abstract class SortMergeWriter<R extends Serializable, W extends Closeable> implements Closeable {
+
+    /**
+     * Receiver of rows and their counts produced by a merge.
+     */
+    private interface MergeOutput<R> {
+
+        void write(R row, int count) throws IOException;
+    }
+
+    /**
+     * A sorted source of rows being merged, positioned at its current row.
+     */
+    private abstract class MergeSource implements Closeable {
+
+        final int _index;
+        R _row;
+        int _count;
+
+        MergeSource(final int index) {
+            _index = index;
+        }
+
+        /**
+         * Advances to the next row of the source.
+         *
+         * @return false if the source is exhausted
+         * @throws IOException
+         */
+        abstract boolean next() throws IOException;
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * A temporary file being merged.
+     */
+    private final class RunReader extends MergeSource {
+
+        private final DataInputStream _in;
+
+        RunReader(final int index, final File file) throws IOException {
+            super(index);
+            _in = new DataInputStream(openRunInputStream(file));
+        }
+
+        @Override
+        boolean next() throws IOException {
+            if (!_in.readBoolean()) {
+                _row = null;
+                return false;
+            }
+            _row = _codec.read(_in);
+            _count = _in.readInt();
+            return true;
+        }
+
+        @Override
+        public void close() {
+            FileHelper.safeClose(_in);
+        }
+    }
+
+    /**
+     * The in-memory buffer being merged with the temporary files.
+     */
+    private final class BufferReader extends MergeSource {
+
+        private final Iterator<Entry<R, Integer>> _iterator;
+
+        BufferReader(final int index, final Map<R, Integer> buffer) {
+            super(index);
+            _iterator = buffer.entrySet().iterator();
+        }
+
+        @Override
+        boolean next() {
+            if (!_iterator.hasNext()) {
+                _row = null;
+                return false;
+            }
+            final Entry<R, Integer> entry = _iterator.next();
+            _row = entry.getKey();
+            _count = entry.getValue();
+            return true;
+        }
+    }
 
     private static final Logger logger = LoggerFactory.getLogger(SortMergeWriter.class);
 
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
     /**
      * Size of the "records in memory" buffer
      */
@@ -69,26 +190,109 @@ public abstract class SortMergeWriter<R extends Serializable, W extends Closeabl
     private final Comparator<? super R> _comparator;
 
     /**
-     * List of temporary files containing values
+     * Codec used for writing and reading rows of the temporary files
+     */
+    private final RowCodec<R> _codec;
+
+    /**
+     * List of temporary files containing values, in the order of the buffers
+     * they were written from
      */
     private final List<File> _tempFiles;
 
+    /**
+     * Pending and completed background writes of temporary files
+     */
+    private final List<Future<?>> _flushFutures;
+
     /**
      * Buffer containing sorted rows in memory
      */
-    private final Map<R, Integer> _buffer;
+    private Map<R, Integer> _buffer;
     private AtomicInteger _nullCount;
+    private volatile boolean _compressTempFiles;
+    private int _flushThreads;
+    private int _mergeFanIn;
+    private ExecutorService _flushExecutor;
+    private Semaphore _flushPermits;
 
     public SortMergeWriter(final Comparator<? super R> comparator) {
         this(50000, comparator);
     }
 
+    public SortMergeWriter(final Comparator<? super R> comparator, final RowCodec<R> codec) {
+        this(50000, comparator, codec);
+    }
+
     public SortMergeWriter(final int bufferSize, final Comparator<? super R> comparator) {
+        this(bufferSize, comparator, new SerializableRowCodec<>());
+    }
+
+    public SortMergeWriter(final int bufferSize, final Comparator<? super R> comparator, final RowCodec<R> codec) {
+        if (codec == null) {
+            throw new IllegalArgumentException("Codec cannot be null");
+        }
         _bufferSize = bufferSize;
         _tempFiles = new ArrayList<>();
+        _flushFutures = new ArrayList<>();
         _buffer = new TreeMap<>(comparator);
         _comparator = comparator;
+        _codec = codec;
         _nullCount = new AtomicInteger();
+        _compressTempFiles = false;
+        _flushThreads = 1;
+        _mergeFanIn = 64;
+    }
+
+    /**
+     * Determines whether temporary files are compressed. Compression makes
+     * temporary files considerably smaller at a modest CPU cost, which pays off
+     * when disk throughput is the bottleneck.
+     *
+     * @param compressTempFiles
+     */
+    public void setCompressTempFiles(final boolean compressTempFiles) {
+        _compressTempFiles = compressTempFiles;
+    }
+
+    public boolean isCompressTempFiles() {
+        return _compressTempFiles;
+    }
+
+    /**
+     * Sets the number of background threads that write full buffers to
+     * temporary files. This is also the maximum number of full buffers held in
+     * memory while waiting to be written. A value of 0 means that buffers are
+     * written synchronously by the appending thread.
+     *
+     * @param flushThreads
+     */
+    public synchronized void setFlushThreads(final int flushThreads) {
+        if (_flushExecutor != null) {
+            throw new IllegalStateException("Cannot change flush threads after flushing has begun");
+        }
+        _flushThreads = Math.max(0, flushThreads);
+    }
+
+    public synchronized int getFlushThreads() {
+        return _flushThreads;
+    }
+
+    /**
+     * Sets the maximum number of temporary files that are opened and merged
+     * at the same time.
+     *
+     * @param mergeFanIn
+     */
+    public synchronized void setMergeFanIn(final int mergeFanIn) {
+        if (mergeFanIn < 2) {
+            throw new IllegalArgumentException("Merge fan-in must be at least 2");
+        }
+        _mergeFanIn = mergeFanIn;
+    }
+
+    public synchronized int getMergeFanIn() {
+        return _mergeFanIn;
     }
 
     public void append(final R line) {
@@ -114,32 +318,180 @@ public abstract class SortMergeWriter<R extends Serializable, W extends Closeabl
         }
     }
 
+    /**
+     * Writes the current buffer to a temporary file, either in the background
+     * or (if no flush threads are used) synchronously. Must be invoked while
+     * holding the lock of this writer.
+     */
     private void flushBuffer() {
         logger.debug("flushBuffer()");
-        ObjectOutputStream oos = null;
+        final File file;
         try {
-            final File file = createTempFile();
-            logger.info("Writing {} rows to temporary file: {}", _bufferSize, file);
+            file = createTempFile();
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
 
-            oos = new ObjectOutputStream(new FileOutputStream(file));
+        final Map<R, Integer> buffer = _buffer;
+        _buffer = new TreeMap<>(_comparator);
+        _tempFiles.add(file);
 
-            final List<Entry<R, Integer>> copyOfEntries;
-            synchronized (this) {
-                final Set<Entry<R, Integer>> entries = _buffer.entrySet();
-                copyOfEntries = new ArrayList<>(entries);
-                _buffer.clear();
-                _tempFiles.add(file);
+        if (_flushThreads == 0) {
+            writeRun(file, buffer);
+            return;
+        }
+
+        if (_flushExecutor == null) {
+            _flushExecutor = Executors.newFixedThreadPool(_flushThreads, new DaemonThreadFactory());
+            _flushPermits = new Semaphore(_flushThreads);
+        }
+
+        try {
+            // blocks while all flush threads are busy, to bound memory usage
+            _flushPermits.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+
+        final Semaphore flushPermits = _flushPermits;
+        _flushFutures.add(_flushExecutor.submit(() -> {
+            try {
+                writeRun(file, buffer);
+            } finally {
+                flushPermits.release();
             }
+        }));
+    }
 
-            for (final Entry<R, Integer> entry : copyOfEntries) {
-                oos.writeObject(entry.getKey());
-                oos.writeInt(entry.getValue());
+    private void writeRun(final File file, final Map<R, Integer> buffer) {
+        logger.info("Writing {} rows to temporary file: {}", buffer.size(), file);
+        try (DataOutputStream out = new DataOutputStream(openRunOutputStream(file))) {
+            for (final Entry<R, Integer> entry : buffer.entrySet()) {
+                writeRunEntry(out, entry.getKey(), entry.getValue());
             }
+            out.writeBoolean(false);
         } catch (final IOException e) {
             throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeRunEntry(final DataOutputStream out, final R row, final int count) throws IOException {
+        out.writeBoolean(true);
+        _codec.write(out, row);
+        out.writeInt(count);
+    }
+
+    /**
+     * Waits for all background writes of temporary files to complete.
+     */
+    private void awaitFlushes() throws InterruptedException, ExecutionException {
+        try {
+            for (final Future<?> future : _flushFutures) {
+                future.get();
+            }
         } finally {
-            FileHelper.safeClose(oos);
+            _flushFutures.clear();
+            if (_flushExecutor != null) {
+                _flushExecutor.shutdown();
+                _flushExecutor = null;
+                _flushPermits = null;
+            }
+        }
+    }
+
+    /**
+     * Stops any background writes, discards the buffered rows and deletes the
+     * temporary files of this writer.
+     */
+    @Override
+    public synchronized void close() {
+        if (_flushExecutor != null) {
+            // pending writes are cancelled, running writes are interrupted
+            _flushExecutor.shutdownNow();
+            try {
+                if (!_flushExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    logger.warn("Background writes of temporary files did not stop in time");
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            _flushExecutor = null;
+            _flushPermits = null;
+        }
+        _flushFutures.clear();
+        _buffer = new TreeMap<>(_comparator);
+
+        for (final File file : _tempFiles) {
+            if (file.exists() && !file.delete()) {
+                logger.debug("Could not delete temporary file: {}", file);
+            }
+        }
+        _tempFiles.clear();
+    }
+
+    /**
+     * Opens a buffered stream for writing a temporary file. Also used for the
+     * runs of a {@link SpillableAggregator}.
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    static OutputStream openBufferedOutputStream(final File file) throws IOException {
+        return new BufferedOutputStream(Channels.newOutputStream(
+                FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)),
+                IO_BUFFER_SIZE);
+    }
+
+    /**
+     * Opens a buffered stream for reading a temporary file. Also used for the
+     * runs of a {@link SpillableAggregator}.
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    static InputStream openBufferedInputStream(final File file) throws IOException {
+        return new BufferedInputStream(openChannelInputStream(file), IO_BUFFER_SIZE);
+    }
+
+    private static InputStream openChannelInputStream(final File file) throws IOException {
+        return Channels.newInputStream(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+    }
+
+    private OutputStream openRunOutputStream(final File file) throws IOException {
+        final OutputStream out = openBufferedOutputStream(file);
+        if (_compressTempFiles) {
+            return new DeflaterOutputStream(out, new Deflater(Deflater.BEST_SPEED), IO_BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        def.end();
+                    }
+                }
+            };
         }
+        return out;
+    }
+
+    private InputStream openRunInputStream(final File file) throws IOException {
+        if (_compressTempFiles) {
+            final InputStream in = openChannelInputStream(file);
+            return new BufferedInputStream(new InflaterInputStream(in, new Inflater(), IO_BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inf.end();
+                    }
+                }
+            }, IO_BUFFER_SIZE);
+        }
+        return openBufferedInputStream(file);
     }
 
     protected File createTempFile() throws IOException {
@@ -188,21 +540,22 @@ public abstract class SortMergeWriter<R extends Serializable, W extends Closeabl
      * @param resource
      * @return the written count of rows
      */
-    public int write(final Resource resource) {
+    public synchronized int write(final Resource resource) {
         W writer = null;
-        ObjectInputStream[] tempFileObjectInputStreams = null;
         try {
+            awaitFlushes();
+
             writer = createWriter(resource);
             writeHeader(writer);
 
-            int rowCount = 0;
+            final AtomicInteger rowCount = new AtomicInteger();
 
             final boolean writeNullsFirst = writeNullsFirst();
 
             final int nullCount = _nullCount.get();
             if (nullCount > 0 && writeNullsFirst) {
                 writeNull(writer, nullCount);
-                rowCount++;
+                rowCount.incrementAndGet();
             }
 
             if (_tempFiles.isEmpty()) {
@@ -210,118 +563,142 @@ public abstract class SortMergeWriter<R extends Serializable, W extends Closeabl
                 final Set<Entry<R, Integer>> entries = _buffer.entrySet();
                 for (final Entry<R, Integer> entry : entries) {
                     writeRow(writer, entry.getKey(), entry.getValue());
-                    rowCount++;
+                    rowCount.incrementAndGet();
                 }
                 _buffer.clear();
+            } else {
+                // the in-memory buffer takes up one slot of the final merge
+                reduceTempFiles(_buffer.isEmpty() ? _mergeFanIn : _mergeFanIn - 1);
 
-                if (nullCount > 0 && !writeNullsFirst) {
-                    writeNull(writer, nullCount);
-                    rowCount++;
+                final List<MergeSource> sources = openRunReaders(_tempFiles);
+                if (!_buffer.isEmpty()) {
+                    sources.add(new BufferReader(sources.size(), _buffer));
                 }
 
-                return rowCount;
+                final W finalWriter = writer;
+                merge(sources, (row, count) -> {
+                    writeRow(finalWriter, row, count);
+                    rowCount.incrementAndGet();
+                });
             }
 
-            if (!_buffer.isEmpty()) {
-                flushBuffer();
+            if (nullCount > 0 && !writeNullsFirst) {
+                writeNull(writer, nullCount);
+                rowCount.incrementAndGet();
             }
 
-            tempFileObjectInputStreams = createTempFileObjectInputStreams();
-
-            final List<Entry<R, Integer>> rowCandidates = new ArrayList<>(_tempFiles.size());
-            for (int i = 0; i < _tempFiles.size(); i++) {
-                rowCandidates.add(null);
-            }
+            return rowCount.get();
+        } catch (final Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            FileHelper.safeClose(writer);
+        }
+    }
 
-            while (true) {
-                readNextRows(rowCandidates, tempFileObjectInputStreams);
-
-                Entry<R, Integer> currentRow = null;
-
-                // find the next row to write
-                for (final Entry<R, Integer> rowCandidate : rowCandidates) {
-                    if (rowCandidate != null) {
-                        if (currentRow == null) {
-                            currentRow = rowCandidate;
-                        } else {
-                            if (_comparator.compare(rowCandidate.getKey(), currentRow.getKey()) < 0) {
-                                currentRow = rowCandidate;
-                            }
-                        }
-                    }
+    /**
+     * Merges temporary files into fewer, larger temporary files until there
+     * are no more than the given maximum.
+     *
+     * @param maxTempFiles
+     * @throws IOException
+     */
+    private void reduceTempFiles(final int maxTempFiles) throws IOException {
+        while (_tempFiles.size() > maxTempFiles) {
+            logger.info("Merging {} temporary files in groups of {}", _tempFiles.size(), _mergeFanIn);
+
+            final List<File> mergedFiles = new ArrayList<>();
+            for (int i = 0; i < _tempFiles.size(); i += _mergeFanIn) {
+                final List<File> group = _tempFiles.subList(i, Math.min(i + _mergeFanIn, _tempFiles.size()));
+                if (group.size() == 1) {
+                    mergedFiles.add(group.get(0));
+                    continue;
                 }
 
-                if (currentRow == null) {
-                    // the writing is done!
-                    break;
+                final File mergedFile = createTempFile();
+                try (DataOutputStream out = new DataOutputStream(openRunOutputStream(mergedFile))) {
+                    merge(openRunReaders(group), (row, count) -> writeRunEntry(out, row, count));
+                    out.writeBoolean(false);
                 }
 
-                // set count to 0 (the next loop will increment it)
-                currentRow = new ImmutableEntry<>(currentRow.getKey(), 0);
-
-                for (int i = 0; i < rowCandidates.size(); i++) {
-                    final Entry<R, Integer> rowCandidate = rowCandidates.get(i);
-                    if (rowCandidate != null) {
-                        if (_comparator.compare(rowCandidate.getKey(), currentRow.getKey()) == 0) {
-                            // sum up a new count
-                            final int newCount = currentRow.getValue().intValue() + rowCandidate.getValue().intValue();
-                            currentRow = new ImmutableEntry<>(currentRow.getKey(), newCount);
-                            rowCandidates.set(i, null);
-                        }
+                for (final File file : group) {
+                    if (!file.delete()) {
+                        logger.debug("Could not delete merged temporary file: {}", file);
                     }
                 }
-
-                writeRow(writer, currentRow.getKey(), currentRow.getValue());
-                rowCount++;
+                mergedFiles.add(mergedFile);
             }
 
-            if (nullCount > 0 && !writeNullsFirst) {
-                writeNull(writer, nullCount);
-                rowCount++;
-            }
+            _tempFiles.clear();
+            _tempFiles.addAll(mergedFiles);
+        }
+    }
 
-            return rowCount;
-        } catch (final Exception e) {
-            throw new IllegalStateException(e);
-        } finally {
-            FileHelper.safeClose(writer);
-            if (tempFileObjectInputStreams != null) {
-                for (int i = 0; i < tempFileObjectInputStreams.length; i++) {
-                    FileHelper.safeClose(tempFileObjectInputStreams[i]);
-                }
+    private List<MergeSource> openRunReaders(final List<File> files) throws IOException {
+        final List<MergeSource> runReaders = new ArrayList<>(files.size());
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                runReaders.add(new RunReader(i, files.get(i)));
+            }
+        } catch (final IOException e) {
+            for (final MergeSource runReader : runReaders) {
+                runReader.close();
             }
+            throw e;
         }
+        return runReaders;
     }
 
-    private void readNextRows(final List<Entry<R, Integer>> nextRows,
-            final ObjectInputStream[] tempFileObjectInputStreams) throws Exception {
-        for (int i = 0; i < tempFileObjectInputStreams.length; i++) {
-            if (tempFileObjectInputStreams[i] != null) {
-                if (nextRows.get(i) == null) {
+    /**
+     * Performs a k-way merge of the sources, summing up the counts of equal
+     * rows. Sources are closed when exhausted or when the merge fails.
+     *
+     * @param sources
+     * @param output
+     * @throws IOException
+     */
+    private void merge(final List<MergeSource> sources, final MergeOutput<R> output) throws IOException {
+        // ordered by row and then by source index to make the merge
+        // deterministic
+        final PriorityQueue<MergeSource> heap = new PriorityQueue<>(Math.max(1, sources.size()), (source1, source2) -> {
+            final int diff = _comparator.compare(source1._row, source2._row);
+            if (diff != 0) {
+                return diff;
+            }
+            return Integer.compare(source1._index, source2._index);
+        });
+
+        try {
+            for (final MergeSource source : sources) {
+                advance(source, heap);
+            }
 
-                    try {
-                        @SuppressWarnings("unchecked") final R row = (R) tempFileObjectInputStreams[i].readObject();
-                        final int count = tempFileObjectInputStreams[i].readInt();
-
-                        final Entry<R, Integer> entry = new ImmutableEntry<>(row, count);
-                        nextRows.set(i, entry);
-                    } catch (final EOFException e) {
-                        FileHelper.safeClose(tempFileObjectInputStreams[i]);
-                        tempFileObjectInputStreams[i] = null;
-                    }
+            while (!heap.isEmpty()) {
+                MergeSource source = heap.poll();
+                final R row = source._row;
+                int count = source._count;
+                advance(source, heap);
+
+                // sum up the counts of equal rows in other sources
+                while (!heap.isEmpty() && _comparator.compare(heap.peek()._row, row) == 0) {
+                    source = heap.poll();
+                    count += source._count;
+                    advance(source, heap);
                 }
+
+                output.write(row, count);
+            }
+        } finally {
+            for (final MergeSource source : sources) {
+                source.close();
             }
         }
     }
 
-    @SuppressWarnings("resource")
-    private ObjectInputStream[] createTempFileObjectInputStreams() throws IOException {
-        final ObjectInputStream[] tempFileObjectInputStreams = new ObjectInputStream[_tempFiles.size()];
-        for (int i = 0; i < tempFileObjectInputStreams.length; i++) {
-            final File tempFile = _tempFiles.get(i);
-            final ObjectInputStream ois = new ObjectInputStream(new FileInputStream(tempFile));
-            tempFileObjectInputStreams[i] = ois;
+    private void advance(final MergeSource source, final PriorityQueue<MergeSource> heap) throws IOException {
+        if (source.next()) {
+            heap.add(source);
+        } else {
+            source.close();
         }
-        return tempFileObjectInputStreams;
     }
 }
@@ -0,0 +1,583 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.apache.metamodel.util.FileHelper;
+import org.datacleaner.util.ImmutableEntry;
+import org.datacleaner.util.SystemProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hash aggregation which spills to disk when it exceeds its memory budget.
+ *
+ * Groups are aggregated in memory, each into a mutable, serializable aggregate
+ * object. When the number of groups in memory exceeds the budget, they are
+ * sorted by key and written to a temporary file (a "run"), and the aggregation
+ * continues with an empty map. When iterating the result, the runs and the
+ * remaining in-memory groups are merged, combining the partial aggregates of
+ * equal keys. This is the same technique as used by {@link SortMergeWriter},
+ * but for arbitrary aggregates instead of counts. Like there, at most
+ * {@link #getMergeFanIn()} runs are merged at a time. If there are more, they
+ * are first merged into fewer, larger runs in one or more intermediate passes.
+ * Runs are written in the same way as the temporary files of
+ * {@link SortMergeWriter}, encoding keys and aggregates with a {@link RowCodec}
+ * each. Unless specified, keys and aggregates are written using Java
+ * serialization.
+ *
+ * Updates may be done concurrently, but updates of the same aggregate object
+ * must be thread-safe or synchronized by the caller. A null key is supported
+ * and is always kept in memory.
+ *
+ * @param <K>
+ *            the key type, HAS to be serializable (if spilling) and have
+ *            equals/hashCode consistent with the comparator
+ * @param <V>
+ *            the aggregate type, HAS to be serializable (if spilling)
+ */
+public class SpillableAggregator<K, V> implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpillableAggregator.class);
+
+    private final int _maxEntriesInMemory;
+    private final Comparator<? super K> _comparator;
+    private final RowCodec<K> _keyCodec;
+    private final RowCodec<V> _aggregateCodec;
+    private final Function<? super K, ? extends V> _aggregateFactory;
+    private final BinaryOperator<V> _aggregateMerger;
+    private final ReadWriteLock _lock;
+    private final ConcurrentHashMap<K, V> _entries;
+    private final List<File> _runFiles;
+    private volatile V _nullKeyAggregate;
+    private int _spillCount;
+    private int _mergeFanIn;
+
+    /**
+     * Creates a {@link SpillableAggregator} with the memory budget defined by
+     * the {@link SystemProperties#AGGREGATION_MAX_ENTRIES_IN_MEMORY} property.
+     *
+     * @param comparator
+     * @param aggregateFactory
+     * @param aggregateMerger
+     */
+    public SpillableAggregator(final Comparator<? super K> comparator,
+            final Function<? super K, ? extends V> aggregateFactory, final BinaryOperator<V> aggregateMerger) {
+        this(comparator, serializableCodec(), serializableCodec(), aggregateFactory, aggregateMerger);
+    }
+
+    /**
+     * Creates a {@link SpillableAggregator} with the memory budget defined by
+     * the {@link SystemProperties#AGGREGATION_MAX_ENTRIES_IN_MEMORY} property.
+     *
+     * @param comparator
+     * @param keyCodec
+     * @param aggregateCodec
+     * @param aggregateFactory
+     * @param aggregateMerger
+     */
+    public SpillableAggregator(final Comparator<? super K> comparator, final RowCodec<K> keyCodec,
+            final RowCodec<V> aggregateCodec, final Function<? super K, ? extends V> aggregateFactory,
+            final BinaryOperator<V> aggregateMerger) {
+        this(SystemProperties.getInt(SystemProperties.AGGREGATION_MAX_ENTRIES_IN_MEMORY, 0), comparator, keyCodec,
+                aggregateCodec, aggregateFactory, aggregateMerger);
+    }
+
+    /**
+     * Creates a {@link SpillableAggregator} which writes keys and aggregates
+     * using Java serialization.
+     *
+     * @param maxEntriesInMemory
+     * @param comparator
+     * @param aggregateFactory
+     * @param aggregateMerger
+     */
+    public SpillableAggregator(final int maxEntriesInMemory, final Comparator<? super K> comparator,
+            final Function<? super K, ? extends V> aggregateFactory, final BinaryOperator<V> aggregateMerger) {
+        this(maxEntriesInMemory, comparator, serializableCodec(), serializableCodec(), aggregateFactory,
+                aggregateMerger);
+    }
+
+    /**
+     * Creates a {@link SpillableAggregator}.
+     *
+     * @param maxEntriesInMemory
+     *            the maximum number of groups to hold in memory, or 0 to hold
+     *            all groups in memory
+     * @param comparator
+     *            the comparator used to sort keys when spilling to disk
+     * @param keyCodec
+     *            the codec used to write (non-null) keys when spilling to disk
+     * @param aggregateCodec
+     *            the codec used to write aggregates when spilling to disk
+     * @param aggregateFactory
+     *            function creating a new, empty aggregate for a key
+     * @param aggregateMerger
+     *            function combining two partial aggregates of the same key. The
+     *            first argument is the partial aggregate of the earlier rows.
+     *            The function may modify and return one of its arguments.
+     */
+    public SpillableAggregator(final int maxEntriesInMemory, final Comparator<? super K> comparator,
+            final RowCodec<K> keyCodec, final RowCodec<V> aggregateCodec,
+            final Function<? super K, ? extends V> aggregateFactory, final BinaryOperator<V> aggregateMerger) {
+        if (keyCodec == null || aggregateCodec == null) {
+            throw new IllegalArgumentException("Codecs cannot be null");
+        }
+        _maxEntriesInMemory = maxEntriesInMemory;
+        _comparator = comparator;
+        _keyCodec = keyCodec;
+        _aggregateCodec = aggregateCodec;
+        _aggregateFactory = aggregateFactory;
+        _aggregateMerger = aggregateMerger;
+        _lock = new ReentrantReadWriteLock();
+        _entries = new ConcurrentHashMap<>();
+        _runFiles = new ArrayList<>();
+        _spillCount = 0;
+        _mergeFanIn = 64;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> RowCodec<E> serializableCodec() {
+        // keys and aggregates HAVE to be serializable if no codec is given
+        return (RowCodec<E>) new SerializableRowCodec<Serializable>();
+    }
+
+    /**
+     * Sets the maximum number of runs that are opened and merged at the same
+     * time.
+     *
+     * @param mergeFanIn
+     */
+    public void setMergeFanIn(final int mergeFanIn) {
+        if (mergeFanIn < 2) {
+            throw new IllegalArgumentException("Merge fan-in must be at least 2");
+        }
+        _lock.writeLock().lock();
+        try {
+            _mergeFanIn = mergeFanIn;
+        } finally {
+            _lock.writeLock().unlock();
+        }
+    }
+
+    public int getMergeFanIn() {
+        return _mergeFanIn;
+    }
+
+    /**
+     * Determines if this aggregation may spill to disk, i.e. if the aggregates
+     * have to be serializable and mergeable.
+     *
+     * @return
+     */
+    public boolean isSpillingEnabled() {
+        return _maxEntriesInMemory > 0;
+    }
+
+    /**
+     * Updates the aggregate of a key, creating it if necessary.
+     *
+     * @param key
+     * @param updater
+     */
+    public void update(final K key, final Consumer<? super V> updater) {
+        if (_maxEntriesInMemory <= 0) {
+            // never spilling, so no need to guard against concurrent spills
+            updater.accept(getAggregate(key));
+            return;
+        }
+
+        _lock.readLock().lock();
+        try {
+            updater.accept(getAggregate(key));
+        } finally {
+            _lock.readLock().unlock();
+        }
+
+        if (_entries.size() > _maxEntriesInMemory) {
+            _lock.writeLock().lock();
+            try {
+                if (_entries.size() > _maxEntriesInMemory) {
+                    spill();
+                }
+            } finally {
+                _lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private V getAggregate(final K key) {
+        if (key == null) {
+            V aggregate = _nullKeyAggregate;
+            if (aggregate == null) {
+                synchronized (this) {
+                    aggregate = _nullKeyAggregate;
+                    if (aggregate == null) {
+                        aggregate = _aggregateFactory.apply(null);
+                        _nullKeyAggregate = aggregate;
+                    }
+                }
+            }
+            return aggregate;
+        }
+
+        final V aggregate = _entries.get(key);
+        if (aggregate != null) {
+            return aggregate;
+        }
+        return _entries.computeIfAbsent(key, _aggregateFactory);
+    }
+
+    private void spill() {
+        final List<Entry<K, V>> entries = getSortedEntries();
+        _entries.clear();
+
+        final File file = createRunFile();
+        logger.info("Spilling {} aggregated entries to temporary file: {}", entries.size(), file);
+        _runFiles.add(file);
+        _spillCount++;
+
+        try (RunWriter writer = new RunWriter(file)) {
+            for (final Entry<K, V> entry : entries) {
+                writer.write(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private File createRunFile() {
+        try {
+            return createTempFile();
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<Entry<K, V>> getSortedEntries() {
+        final List<Entry<K, V>> entries = new ArrayList<>(_entries.entrySet());
+        entries.sort((o1, o2) -> _comparator.compare(o1.getKey(), o2.getKey()));
+        return entries;
+    }
+
+    protected File createTempFile() throws IOException {
+        final File file = File.createTempFile("spillable_aggregation", ".dat");
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Gets the number of times the aggregation has been spilled to disk.
+     *
+     * @return
+     */
+    public int getSpillCount() {
+        return _spillCount;
+    }
+
+    /**
+     * Iterates the complete aggregation, passing each key and its aggregate to
+     * the action. The aggregate of the null key (if any) comes first. If the
+     * aggregation has been spilled to disk, the remaining keys come in the
+     * order of the comparator, otherwise in no particular order.
+     *
+     * @param action
+     */
+    public void forEach(final BiConsumer<? super K, ? super V> action) {
+        _lock.writeLock().lock();
+        try {
+            final V nullKeyAggregate = _nullKeyAggregate;
+            if (nullKeyAggregate != null) {
+                action.accept(null, nullKeyAggregate);
+            }
+
+            if (_runFiles.isEmpty()) {
+                _entries.forEach(action);
+            } else {
+                merge(action);
+            }
+        } finally {
+            _lock.writeLock().unlock();
+        }
+    }
+
+    private void merge(final BiConsumer<? super K, ? super V> action) {
+        // the in-memory entries take up one slot of the final merge
+        reduceRunFiles(_mergeFanIn - 1);
+
+        final List<Run> runs = openRuns(_runFiles);
+        runs.add(new Run(runs.size(), getSortedEntries().iterator()));
+        mergeRuns(runs, action);
+    }
+
+    /**
+     * Merges run files into fewer, larger run files until there are no more
+     * than the given maximum. Consecutive run files are merged, so that the
+     * run order (and thereby the order of partial aggregates) is retained.
+     *
+     * @param maxRunFiles
+     */
+    private void reduceRunFiles(final int maxRunFiles) {
+        while (_runFiles.size() > maxRunFiles) {
+            logger.info("Merging {} temporary files in groups of {}", _runFiles.size(), _mergeFanIn);
+
+            final List<File> mergedFiles = new ArrayList<>();
+            for (int i = 0; i < _runFiles.size(); i += _mergeFanIn) {
+                final List<File> group = _runFiles.subList(i, Math.min(i + _mergeFanIn, _runFiles.size()));
+                if (group.size() == 1) {
+                    mergedFiles.add(group.get(0));
+                    continue;
+                }
+
+                final File mergedFile = createRunFile();
+                try (RunWriter writer = new RunWriter(mergedFile)) {
+                    mergeRuns(openRuns(group), writer::write);
+                }
+
+                for (final File file : group) {
+                    if (!file.delete()) {
+                        logger.debug("Could not delete merged temporary file: {}", file);
+                    }
+                }
+                mergedFiles.add(mergedFile);
+            }
+
+            _runFiles.clear();
+            _runFiles.addAll(mergedFiles);
+        }
+    }
+
+    private List<Run> openRuns(final List<File> files) {
+        final List<Run> runs = new ArrayList<>(files.size() + 1);
+        try {
+            for (final File file : files) {
+                runs.add(new Run(runs.size(), new FileRunIterator(file)));
+            }
+        } catch (final RuntimeException e) {
+            for (final Run run : runs) {
+                run.close();
+            }
+            throw e;
+        }
+        return runs;
+    }
+
+    /**
+     * Performs a k-way merge of the runs, combining the partial aggregates of
+     * equal keys. Runs are closed when exhausted or when the merge fails.
+     *
+     * @param runs
+     * @param action
+     */
+    private void mergeRuns(final List<Run> runs, final BiConsumer<? super K, ? super V> action) {
+        try {
+            final PriorityQueue<Run> queue = new PriorityQueue<>(Math.max(1, runs.size()), (o1, o2) -> {
+                final int diff = _comparator.compare(o1._key, o2._key);
+                if (diff != 0) {
+                    return diff;
+                }
+                return Integer.compare(o1._index, o2._index);
+            });
+
+            for (final Run run : runs) {
+                advance(run, queue);
+            }
+
+            while (!queue.isEmpty()) {
+                final Run run = queue.poll();
+                final K key = run._key;
+                V aggregate = run._aggregate;
+                advance(run, queue);
+
+                // runs are polled in run order for equal keys, so earlier
+                // partial aggregates are always merged with later ones
+                while (!queue.isEmpty() && _comparator.compare(queue.peek()._key, key) == 0) {
+                    final Run equalRun = queue.poll();
+                    aggregate = _aggregateMerger.apply(aggregate, equalRun._aggregate);
+                    advance(equalRun, queue);
+                }
+
+                action.accept(key, aggregate);
+            }
+        } finally {
+            for (final Run run : runs) {
+                run.close();
+            }
+        }
+    }
+
+    private void advance(final Run run, final PriorityQueue<Run> queue) {
+        if (run.next()) {
+            queue.add(run);
+        } else {
+            run.close();
+        }
+    }
+
+    /**
+     * Deletes the temporary files of this aggregation.
+     */
+    @Override
+    public void close() {
+        _lock.writeLock().lock();
+        try {
+            for (final File file : _runFiles) {
+                if (!file.delete()) {
+                    logger.debug("Could not delete temporary file: {}", file);
+                }
+            }
+            _runFiles.clear();
+            _entries.clear();
+            _nullKeyAggregate = null;
+            _spillCount = 0;
+        } finally {
+            _lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A sorted sequence of entries, either from a temporary file or from
+     * memory, with its current entry.
+     */
+    private final class Run implements Closeable {
+
+        private final int _index;
+        private final Iterator<Entry<K, V>> _iterator;
+        private K _key;
+        private V _aggregate;
+
+        private Run(final int index, final Iterator<Entry<K, V>> iterator) {
+            _index = index;
+            _iterator = iterator;
+        }
+
+        private boolean next() {
+            if (!_iterator.hasNext()) {
+                return false;
+            }
+            final Entry<K, V> entry = _iterator.next();
+            _key = entry.getKey();
+            _aggregate = entry.getValue();
+            return true;
+        }
+
+        @Override
+        public void close() {
+            if (_iterator instanceof Closeable) {
+                FileHelper.safeClose(_iterator);
+            }
+        }
+    }
+
+    private final class RunWriter implements Closeable {
+
+        private final DataOutputStream _out;
+
+        private RunWriter(final File file) {
+            try {
+                _out = new DataOutputStream(SortMergeWriter.openBufferedOutputStream(file));
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void write(final K key, final V aggregate) {
+            try {
+                _out.writeBoolean(true);
+                _keyCodec.write(_out, key);
+                _aggregateCodec.write(_out, aggregate);
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                _out.writeBoolean(false);
+                _out.close();
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private final class FileRunIterator implements Iterator<Entry<K, V>>, Closeable {
+
+        private final DataInputStream _in;
+        private Entry<K, V> _next;
+
+        private FileRunIterator(final File file) {
+            try {
+                _in = new DataInputStream(SortMergeWriter.openBufferedInputStream(file));
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+            _next = read();
+        }
+
+        private Entry<K, V> read() {
+            try {
+                if (!_in.readBoolean()) {
+                    return null;
+                }
+                final K key = _keyCodec.read(_in);
+                final V aggregate = _aggregateCodec.read(_in);
+                return new ImmutableEntry<>(key, aggregate);
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            final Entry<K, V> result = _next;
+            _next = read();
+            return result;
+        }
+
+        @Override
+        public void close() {
+            FileHelper.safeClose(_in);
+        }
+    }
+}
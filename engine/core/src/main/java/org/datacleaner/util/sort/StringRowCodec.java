@@ -0,0 +1,43 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.datacleaner.util.TypedValueCodec;
+
+/**
+ * {@link RowCodec} for {@link String} rows, writing them as length prefixed
+ * UTF-8 bytes.
+ */
+public class StringRowCodec implements RowCodec<String> {
+
+    @Override
+    public void write(final DataOutput out, final String row) throws IOException {
+        TypedValueCodec.writeString(out, row);
+    }
+
+    @Override
+    public String read(final DataInput in) throws IOException {
+        return TypedValueCodec.readString(in);
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.datacleaner.util.TypedValueCodec;
+
+/**
+ * {@link RowCodec} for single values of any type, writing them with a type tag
+ * using {@link TypedValueCodec}. The type of the values is retained, e.g. an
+ * {@link Integer} is not read as a {@link Long}.
+ */
+public class TypedValueRowCodec implements RowCodec<Object> {
+
+    @Override
+    public void write(final DataOutput out, final Object row) throws IOException {
+        TypedValueCodec.writeValue(out, row);
+    }
+
+    @Override
+    public Object read(final DataInput in) throws IOException {
+        return TypedValueCodec.readValue(in);
+    }
+}
@@ -19,6 +19,8 @@
  */
 package org.datacleaner.data;
 
+import java.util.Arrays;
+
 import org.apache.metamodel.data.DataSetHeader;
 import org.apache.metamodel.data.DefaultRow;
 import org.apache.metamodel.data.SimpleDataSetHeader;
@@ -41,4 +43,70 @@ public class MetaModelInputRowTest extends TestCase {
         assertTrue(row.containsInputColumn(new MetaModelInputColumn(new MutableColumn("bar"))));
         assertFalse(row.containsInputColumn(new MetaModelInputColumn(new MutableColumn("baz"))));
     }
+
+    public void testGetValueWithProjection() throws Exception {
+        final MutableColumn fooColumn = new MutableColumn("foo");
+        final MutableColumn barColumn = new MutableColumn("bar");
+        final SelectItem[] items = new SelectItem[] { new SelectItem(fooColumn), new SelectItem(barColumn) };
+
+        final MetaModelInputColumn fooInputColumn = new MetaModelInputColumn(fooColumn);
+        final MetaModelInputColumn barInputColumn = new MetaModelInputColumn(barColumn);
+        fooInputColumn.setSlotIndex(0);
+        barInputColumn.setSlotIndex(1);
+
+        final DataSetHeader header = new SimpleDataSetHeader(items);
+        final MetaModelRowProjection projection =
+                new MetaModelRowProjection(header.getSelectItems(), Arrays.asList(fooInputColumn, barInputColumn));
+        assertTrue(projection.isProjectionOf(header.getSelectItems()));
+        assertEquals(2, projection.size());
+        assertEquals(0, projection.indexOf(fooInputColumn));
+        assertEquals(1, projection.indexOf(barInputColumn));
+
+        final MetaModelInputRow row =
+                new MetaModelInputRow(1, new DefaultRow(header, new Object[] { "baz", 42 }), projection);
+
+        assertEquals("baz", row.getValue(fooInputColumn));
+        assertEquals(42, row.getValue(barInputColumn));
+
+        // columns without a (matching) slot are looked up by select item
+        assertEquals(42, row.getValue(new MetaModelInputColumn(new MutableColumn("bar"))));
+
+        assertTrue(row.containsInputColumn(new MetaModelInputColumn(new MutableColumn("foo"))));
+        assertFalse(row.containsInputColumn(new MetaModelInputColumn(new MutableColumn("baz"))));
+        assertNull(row.getValue(new MetaModelInputColumn(new MutableColumn("baz"))));
+    }
+
+    public void testProjectionResolvesSourceColumnsBySlot() throws Exception {
+        final SelectItem[] items =
+                new SelectItem[] { new SelectItem(new MutableColumn("foo")), new SelectItem(new MutableColumn("bar")) };
+        final DataSetHeader header = new SimpleDataSetHeader(items);
+
+        // equal, but not identical to the selected columns
+        final MetaModelInputColumn sourceBarColumn = new MetaModelInputColumn(new MutableColumn("bar"));
+        sourceBarColumn.setSlotIndex(0);
+        final MetaModelInputColumn sourceBazColumn = new MetaModelInputColumn(new MutableColumn("baz"));
+        sourceBazColumn.setSlotIndex(1);
+
+        // not part of the projection, but occupying the same slot
+        final MetaModelInputColumn otherFooColumn = new MetaModelInputColumn(new MutableColumn("foo"));
+        otherFooColumn.setSlotIndex(0);
+        final MetaModelInputColumn unassignedColumn = new MetaModelInputColumn(new MutableColumn("foo"));
+
+        final MetaModelRowProjection projection = new MetaModelRowProjection(header.getSelectItems(),
+                Arrays.asList(sourceBarColumn, sourceBazColumn));
+        assertEquals(1, projection.indexOf(sourceBarColumn));
+        assertEquals(-1, projection.indexOf(sourceBazColumn));
+        assertEquals(-1, projection.indexOf(otherFooColumn));
+        assertEquals(-1, projection.indexOf(unassignedColumn));
+
+        final MetaModelInputRow row =
+                new MetaModelInputRow(1, new DefaultRow(header, new Object[] { "baz", 42 }), projection);
+        assertEquals(42, row.getValue(sourceBarColumn));
+
+        // unresolved columns fall back to matching the select items
+        assertEquals("baz", row.getValue(otherFooColumn));
+        assertEquals("baz", row.getValue(unassignedColumn));
+        assertTrue(row.containsInputColumn(otherFooColumn));
+        assertFalse(row.containsInputColumn(sourceBazColumn));
+    }
 }
@@ -19,6 +19,11 @@
  */
 package org.datacleaner.data;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 import org.apache.metamodel.data.DataSetHeader;
 import org.apache.metamodel.data.DefaultRow;
 import org.apache.metamodel.data.SimpleDataSetHeader;
@@ -91,4 +96,54 @@ public class TransformedInputRowTest extends TestCase {
         assertNull(row1.getValue(inputColumn3));
         assertEquals("w", row2.getValue(inputColumn3));
     }
+
+    public void testGetValueFromSlots() throws Exception {
+        final TransformedInputColumn<String> inputColumn1 = new TransformedInputColumn<>("foo", "c1");
+        final TransformedInputColumn<String> inputColumn2 = new TransformedInputColumn<>("bar", "c2");
+        final TransformedInputColumn<String> inputColumn3 = new TransformedInputColumn<>("baz", "c3");
+        inputColumn1.setSlotIndex(0);
+        inputColumn2.setSlotIndex(20);
+        // same slot as inputColumn1, eg. a column of another job
+        inputColumn3.setSlotIndex(0);
+
+        final TransformedInputRow row1 = new TransformedInputRow(new MockInputRow(), 1);
+        row1.addValue(inputColumn1, "f");
+        row1.addValue(inputColumn2, null);
+        row1.addValue(inputColumn3, "w");
+
+        assertEquals("f", row1.getValue(inputColumn1));
+        assertNull(row1.getValue(inputColumn2));
+        assertEquals("w", row1.getValue(inputColumn3));
+        assertTrue(row1.containsInputColumn(inputColumn2));
+        assertEquals(3, row1.getTransformedInputColumns().size());
+
+        final TransformedInputRow row2 = new TransformedInputRow(row1, 2);
+        row2.addValue(inputColumn1, "g");
+        assertEquals("g", row2.getValue(inputColumn1));
+        assertEquals("w", row2.getValue(inputColumn3));
+        assertEquals("f", row1.getValue(inputColumn1));
+    }
+
+    public void testSerializeSlotValues() throws Exception {
+        final TransformedInputColumn<String> inputColumn1 = new TransformedInputColumn<>("foo", "c1");
+        inputColumn1.setSlotIndex(2);
+
+        final TransformedInputRow row = new TransformedInputRow(new MockInputRow(), 1);
+        row.addValue(inputColumn1, "f");
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(baos)) {
+            out.writeObject(row);
+        }
+
+        final TransformedInputRow deserialized;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            deserialized = (TransformedInputRow) in.readObject();
+        }
+
+        assertEquals(1, deserialized.getId());
+        final InputColumn<?> deserializedColumn = deserialized.getTransformedInputColumns().iterator().next();
+        assertEquals("foo", deserializedColumn.getName());
+        assertEquals("f", deserialized.getValue(deserializedColumn));
+    }
 }
@@ -0,0 +1,91 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.concurrent;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.datacleaner.api.InputRow;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.configuration.DataCleanerEnvironmentImpl;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.runner.AnalysisResultFuture;
+import org.datacleaner.job.runner.AnalysisRunnerImpl;
+import org.datacleaner.job.tasks.Task;
+import org.datacleaner.result.ListResult;
+import org.datacleaner.test.MockAnalyzer;
+import org.datacleaner.test.TestHelper;
+
+import junit.framework.TestCase;
+
+public class ForkJoinTaskRunnerTest extends TestCase {
+
+    public void testNestedSubmissionsDoNotDeadlock() throws Exception {
+        final ForkJoinTaskRunner taskRunner = new ForkJoinTaskRunner(2);
+        final AtomicInteger counter = new AtomicInteger();
+
+        // submit far more tasks than the in-flight capacity from within a
+        // worker thread
+        final Task producer = () -> {
+            for (int i = 0; i < 5000; i++) {
+                taskRunner.run(() -> counter.incrementAndGet(), null);
+            }
+        };
+        taskRunner.run(producer, null);
+
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (counter.get() < 5000 && System.currentTimeMillis() < deadline) {
+            taskRunner.assistExecution();
+        }
+        assertEquals(5000, counter.get());
+
+        taskRunner.shutdown();
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testRunJob() throws Throwable {
+        final ForkJoinTaskRunner taskRunner = new ForkJoinTaskRunner(4);
+        final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl().withDatastores(datastore)
+                .withEnvironment(new DataCleanerEnvironmentImpl().withTaskRunner(taskRunner));
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(datastore);
+            builder.addSourceColumns("ORDERFACT.ORDERNUMBER");
+            builder.addAnalyzer(MockAnalyzer.class).addInputColumns(builder.getSourceColumns());
+            job = builder.toAnalysisJob();
+        }
+
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+        resultFuture.await();
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+
+        final List<InputRow> rows = ((ListResult<InputRow>) resultFuture.getResults().get(0)).getValues();
+        assertEquals(2996, rows.size());
+
+        taskRunner.shutdown();
+    }
+}
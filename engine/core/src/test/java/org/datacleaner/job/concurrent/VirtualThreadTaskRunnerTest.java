@@ -0,0 +1,105 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.concurrent;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.datacleaner.api.InputRow;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.configuration.DataCleanerEnvironmentImpl;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.runner.AnalysisResultFuture;
+import org.datacleaner.job.runner.AnalysisRunnerImpl;
+import org.datacleaner.result.ListResult;
+import org.datacleaner.test.MockAnalyzer;
+import org.datacleaner.test.TestHelper;
+
+import junit.framework.TestCase;
+
+public class VirtualThreadTaskRunnerTest extends TestCase {
+
+    public void testBoundedInFlightTasks() throws Exception {
+        final VirtualThreadTaskRunner taskRunner = new VirtualThreadTaskRunner(10);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final AtomicInteger counter = new AtomicInteger();
+
+        for (int i = 0; i < 200; i++) {
+            taskRunner.run(() -> {
+                final int current = running.incrementAndGet();
+                maxRunning.accumulateAndGet(current, Math::max);
+                Thread.sleep(1);
+                running.decrementAndGet();
+                counter.incrementAndGet();
+            }, null);
+        }
+
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (counter.get() < 200 && System.currentTimeMillis() < deadline) {
+            taskRunner.assistExecution();
+        }
+        assertEquals(200, counter.get());
+        assertTrue("max running was: " + maxRunning.get(), maxRunning.get() <= 10);
+
+        taskRunner.shutdown();
+    }
+
+    public void testRunJob() throws Throwable {
+        runJobAndAssertRowCount(new VirtualThreadTaskRunner(50));
+    }
+
+    public void testRunJobWithSingleInFlightTask() throws Throwable {
+        // the publisher task submits and awaits row tasks, so it must not keep
+        // the only permit to itself
+        runJobAndAssertRowCount(new VirtualThreadTaskRunner(1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runJobAndAssertRowCount(final VirtualThreadTaskRunner taskRunner) throws Throwable {
+        final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl().withDatastores(datastore)
+                .withEnvironment(new DataCleanerEnvironmentImpl().withTaskRunner(taskRunner));
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(datastore);
+            builder.addSourceColumns("ORDERFACT.ORDERNUMBER");
+            builder.addAnalyzer(MockAnalyzer.class).addInputColumns(builder.getSourceColumns());
+            job = builder.toAnalysisJob();
+        }
+
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+        resultFuture.await(30, TimeUnit.SECONDS);
+        assertTrue("Job did not finish in time", resultFuture.isDone());
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+
+        final List<InputRow> rows = ((ListResult<InputRow>) resultFuture.getResults().get(0)).getValues();
+        assertEquals(2996, rows.size());
+
+        taskRunner.shutdown();
+    }
+}
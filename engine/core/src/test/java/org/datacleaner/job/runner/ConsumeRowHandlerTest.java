@@ -21,6 +21,9 @@ package org.datacleaner.job.runner;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.metamodel.pojo.ArrayTableDataProvider;
 import org.apache.metamodel.pojo.TableDataProvider;
@@ -114,6 +117,46 @@ public class ConsumeRowHandlerTest extends TestCase {
         assertEquals("mocked: mocked: Kasper", outputRow.getValue(outputColumns.get(4)).toString());
     }
 
+    public void testConcurrentConsumption() throws Exception {
+        final TransformerComponentBuilder<MockTransformer> tr1 = ajb.addTransformer(MockTransformer.class);
+        tr1.addInputColumn(ajb.getSourceColumnByName("name"));
+
+        final AnalyzerComponentBuilder<MockAnalyzer> analyzer = ajb.addAnalyzer(MockAnalyzer.class);
+        analyzer.addInputColumns(sourceColumns);
+
+        final AnalysisJob job = ajb.toAnalysisJob(true);
+
+        final Configuration configuration = new Configuration();
+        configuration.includeAnalyzers = false;
+
+        final ConsumeRowHandler handler = new ConsumeRowHandler(job, _configuration, configuration);
+
+        // more threads than pooled delegates, each consuming many rows
+        final int numThreads = Runtime.getRuntime().availableProcessors() * 4;
+        final ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                final String name = "name" + i;
+                futures.add(executorService.submit(() -> {
+                    for (int j = 0; j < 200; j++) {
+                        final MockInputRow inputRow = new MockInputRow().put(nameColumn, name + "-" + j);
+                        final List<InputRow> rows = handler.consumeRow(inputRow).getRows();
+                        assertEquals(1, rows.size());
+                        final InputRow outputRow = rows.get(0);
+                        assertEquals("mocked: " + name + "-" + j,
+                                outputRow.getValue(tr1.getOutputColumns().get(0)).toString());
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
     public void testMultiRecordOutputScenario() throws Exception {
         final TransformerComponentBuilder<MockMultiRowTransformer> tr1 =
                 ajb.addTransformer(MockMultiRowTransformer.class);
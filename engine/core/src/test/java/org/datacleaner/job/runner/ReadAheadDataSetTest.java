@@ -0,0 +1,143 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.data.AbstractDataSet;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.DefaultRow;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.data.SimpleDataSetHeader;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
+import org.datacleaner.connection.CsvDatastore;
+import org.datacleaner.connection.DatastoreConnection;
+
+import junit.framework.TestCase;
+
+public class ReadAheadDataSetTest extends TestCase {
+
+    /**
+     * Data set which produces a number of rows and then optionally fails
+     */
+    private static class CountingDataSet extends AbstractDataSet {
+
+        private final int _numRows;
+        private final boolean _failAtEnd;
+        private final AtomicBoolean _closed = new AtomicBoolean(false);
+        private int _rowNumber;
+
+        CountingDataSet(final int numRows, final boolean failAtEnd) {
+            super(new SelectItem[] { new SelectItem("COUNT(*)", "num") });
+            _numRows = numRows;
+            _failAtEnd = failAtEnd;
+        }
+
+        @Override
+        public boolean next() {
+            if (_rowNumber == _numRows) {
+                if (_failAtEnd) {
+                    throw new IllegalStateException("Failed at row " + _rowNumber);
+                }
+                return false;
+            }
+            _rowNumber++;
+            return true;
+        }
+
+        @Override
+        public Row getRow() {
+            return new DefaultRow(new SimpleDataSetHeader(getSelectItems()), new Object[] { _rowNumber });
+        }
+
+        @Override
+        public void close() {
+            _closed.set(true);
+        }
+    }
+
+    public void testReadAllRows() throws Exception {
+        final CsvDatastore datastore = new CsvDatastore("names", "src/test/resources/example-name-lengths.csv");
+        try (DatastoreConnection con = datastore.openConnection()) {
+            final DataContext dataContext = con.getDataContext();
+            final Query query = dataContext.query().from(dataContext.getDefaultSchema().getTable(0)).selectAll()
+                    .toQuery();
+
+            final List<List<Object>> expected = readValues(dataContext.executeQuery(query));
+
+            final ReadAheadMetrics metrics = new ReadAheadMetrics(3);
+            final List<List<Object>> actual =
+                    readValues(new ReadAheadDataSet(dataContext.executeQuery(query), 3, metrics));
+
+            assertEquals(expected, actual);
+            assertEquals(expected.size(), metrics.getRowsRead());
+            assertEquals(3, metrics.getCapacity());
+            assertTrue(metrics.getMaxOccupancy() <= 3);
+        }
+    }
+
+    public void testReaderErrorIsRethrown() throws Exception {
+        final CountingDataSet source = new CountingDataSet(10, true);
+        final ReadAheadMetrics metrics = new ReadAheadMetrics(4);
+        try (DataSet dataSet = new ReadAheadDataSet(source, 4, metrics)) {
+            int count = 0;
+            try {
+                while (dataSet.next()) {
+                    count++;
+                }
+                fail("Exception expected");
+            } catch (final IllegalStateException e) {
+                assertEquals("Failed at row 10", e.getMessage());
+            }
+            assertEquals(10, count);
+        }
+        assertTrue(source._closed.get());
+    }
+
+    public void testCloseBeforeEnd() throws Exception {
+        final CountingDataSet source = new CountingDataSet(100000, false);
+        final ReadAheadMetrics metrics = new ReadAheadMetrics(2);
+        final DataSet dataSet = new ReadAheadDataSet(source, 2, metrics);
+        assertTrue(dataSet.next());
+        assertEquals(1, dataSet.getRow().getValue(0));
+        dataSet.close();
+
+        // the reader thread closes the source data set when it stops
+        assertTrue(source._closed.get());
+        assertTrue(metrics.getRowsRead() < 100000);
+    }
+
+    private List<List<Object>> readValues(final DataSet dataSet) {
+        final List<List<Object>> values = new ArrayList<>();
+        try {
+            while (dataSet.next()) {
+                values.add(Arrays.asList(dataSet.getRow().getValues()));
+            }
+        } finally {
+            dataSet.close();
+        }
+        return values;
+    }
+}
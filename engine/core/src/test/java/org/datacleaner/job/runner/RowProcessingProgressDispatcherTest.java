@@ -0,0 +1,96 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.datacleaner.api.InputRow;
+import org.datacleaner.data.MockInputRow;
+import org.datacleaner.job.AnalysisJob;
+
+import junit.framework.TestCase;
+
+public class RowProcessingProgressDispatcherTest extends TestCase {
+
+    private final List<Integer> _notifiedRowNumbers = Collections.synchronizedList(new ArrayList<>());
+    private final AnalysisListener _listener = new AnalysisListenerAdaptor() {
+        @Override
+        public void rowProcessingProgress(final AnalysisJob job, final RowProcessingMetrics metrics,
+                final InputRow row, final int rowNumber) {
+            _notifiedRowNumbers.add(rowNumber);
+        }
+    };
+
+    public void testEveryRowWhenNotThrottled() throws Exception {
+        final RowProcessingProgressDispatcher dispatcher = new RowProcessingProgressDispatcher(_listener, 0, 0);
+        processRows(dispatcher, 1, 5);
+        dispatcher.rowProcessingSuccess(null, null);
+
+        assertEquals("[1, 2, 3, 4, 5]", _notifiedRowNumbers.toString());
+    }
+
+    public void testRowInterval() throws Exception {
+        final RowProcessingProgressDispatcher dispatcher = new RowProcessingProgressDispatcher(_listener, 300, 0);
+        processRows(dispatcher, 1, 1000);
+
+        assertEquals("[300, 600, 900]", _notifiedRowNumbers.toString());
+
+        dispatcher.rowProcessingSuccess(null, null);
+        assertEquals("[300, 600, 900, 1000]", _notifiedRowNumbers.toString());
+    }
+
+    public void testExactFinalCountWhenMultiThreaded() throws Exception {
+        final int numThreads = 4;
+        final int rowsPerThread = 10000;
+
+        final RowProcessingProgressDispatcher dispatcher = new RowProcessingProgressDispatcher(_listener, 1000, 0);
+
+        final Thread[] threads = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            final int firstRowNumber = 1 + i * rowsPerThread;
+            threads[i] = new Thread(() -> processRows(dispatcher, firstRowNumber, rowsPerThread));
+            threads[i].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        dispatcher.rowProcessingSuccess(null, null);
+
+        assertEquals(numThreads * rowsPerThread, dispatcher.getProcessedRows());
+        assertEquals(numThreads * rowsPerThread, _notifiedRowNumbers.get(_notifiedRowNumbers.size() - 1).intValue());
+
+        // the row numbers passed on are counts, so they are always increasing
+        for (int i = 1; i < _notifiedRowNumbers.size(); i++) {
+            assertTrue(_notifiedRowNumbers.get(i) > _notifiedRowNumbers.get(i - 1));
+        }
+        assertTrue(_notifiedRowNumbers.size() < numThreads * rowsPerThread / 100);
+    }
+
+    private void processRows(final RowProcessingProgressDispatcher dispatcher, final int firstRowNumber,
+            final int numRows) {
+        for (int i = 0; i < numRows; i++) {
+            final int rowNumber = firstRowNumber + i;
+            dispatcher.rowProcessingProgress(null, null, new MockInputRow(rowNumber), rowNumber);
+        }
+    }
+}
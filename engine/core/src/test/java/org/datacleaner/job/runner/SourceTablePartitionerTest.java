@@ -0,0 +1,163 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.schema.Table;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.configuration.DataCleanerEnvironmentImpl;
+import org.datacleaner.connection.CsvDatastore;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.connection.DatastoreConnection;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.result.ListResult;
+import org.datacleaner.test.MockAnalyzer;
+import org.datacleaner.test.TestEnvironment;
+import org.datacleaner.test.TestHelper;
+import org.datacleaner.util.SystemProperties;
+
+import junit.framework.TestCase;
+
+public class SourceTablePartitionerTest extends TestCase {
+
+    private final Datastore _database = TestHelper.createSampleDatabaseDatastore("orderdb");
+    private final Datastore _csv = new CsvDatastore("names", "src/test/resources/example-name-lengths.csv");
+
+    public void testKeyRangePartitions() throws Exception {
+        try (DatastoreConnection con = _database.openConnection()) {
+            final DataContext dataContext = con.getDataContext();
+            final Table table = dataContext.getDefaultSchema().getTableByName("ORDERS");
+            assertEquals(1, table.getPrimaryKeys().size());
+
+            final Query query = dataContext.query().from(table).select("ORDERNUMBER", "STATUS").toQuery();
+            final List<Query> queries = new SourceTablePartitioner(dataContext, table).partition(query, 4, -1);
+            assertEquals(4, queries.size());
+            for (final Query partitionQuery : queries) {
+                assertNull(partitionQuery.getFirstRow());
+                assertNull(partitionQuery.getMaxRows());
+            }
+
+            assertEquals(readValues(dataContext, query), readValues(dataContext, queries));
+        }
+    }
+
+    public void testWindowPartitions() throws Exception {
+        try (DatastoreConnection con = _database.openConnection()) {
+            final DataContext dataContext = con.getDataContext();
+            final Table table = dataContext.getDefaultSchema().getTableByName("PRODUCTS");
+
+            final Query query = dataContext.query().from(table).select("PRODUCTCODE", "PRODUCTNAME").toQuery();
+            final List<Query> queries = new SourceTablePartitioner(dataContext, table).partition(query, 3, 12);
+            assertEquals(3, queries.size());
+            assertEquals(1, queries.get(0).getFirstRow().intValue());
+            assertEquals(4, queries.get(0).getMaxRows().intValue());
+            assertEquals(9, queries.get(2).getFirstRow().intValue());
+
+            assertEquals(readValues(dataContext, query), readValues(dataContext, queries));
+        }
+    }
+
+    public void testNoPartitioningOfNonJdbcDatastore() throws Exception {
+        try (DatastoreConnection con = _csv.openConnection()) {
+            final DataContext dataContext = con.getDataContext();
+            final Table table = dataContext.getDefaultSchema().getTable(0);
+
+            final Query query = dataContext.query().from(table).select("name").toQuery();
+            final List<Query> queries = new SourceTablePartitioner(dataContext, table).partition(query, 3, 12);
+            assertEquals(1, queries.size());
+            assertSame(query, queries.get(0));
+        }
+    }
+
+    public void testNoPartitioningOfLimitedQuery() throws Exception {
+        try (DatastoreConnection con = _csv.openConnection()) {
+            final DataContext dataContext = con.getDataContext();
+            final Table table = dataContext.getDefaultSchema().getTable(0);
+
+            final Query query = dataContext.query().from(table).select("name").maxRows(5).toQuery();
+            final List<Query> queries = new SourceTablePartitioner(dataContext, table).partition(query, 3, 12);
+            assertEquals(1, queries.size());
+            assertSame(query, queries.get(0));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testRunJobWithPartitionedReading() throws Throwable {
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl().withEnvironment(
+                new DataCleanerEnvironmentImpl().withTaskRunner(TestEnvironment.getMultiThreadedTaskRunner()));
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder jobBuilder = new AnalysisJobBuilder(configuration)) {
+            jobBuilder.setDatastore(_database);
+            jobBuilder.addSourceColumns("ORDERS.ORDERNUMBER", "ORDERS.STATUS");
+            jobBuilder.addAnalyzer(MockAnalyzer.class).addInputColumns(jobBuilder.getSourceColumns());
+            job = jobBuilder.toAnalysisJob();
+        }
+
+        System.setProperty(SystemProperties.ROW_PROCESSING_PARTITIONS, "4");
+        final ListResult<InputRow> result;
+        try {
+            final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+            resultFuture.await();
+            if (resultFuture.isErrornous()) {
+                throw resultFuture.getErrors().get(0);
+            }
+            result = (ListResult<InputRow>) resultFuture.getResults().get(0);
+        } finally {
+            System.clearProperty(SystemProperties.ROW_PROCESSING_PARTITIONS);
+        }
+
+        final Set<Long> rowIds = new HashSet<>();
+        for (final InputRow row : result.getValues()) {
+            assertTrue(rowIds.add(row.getId()));
+        }
+        try (DatastoreConnection con = _database.openConnection()) {
+            final Number count = (Number) con.getDataContext().query().from("ORDERS").selectCount().execute()
+                    .toRows().get(0).getValue(0);
+            assertEquals(count.intValue(), rowIds.size());
+        }
+    }
+
+    private Set<List<Object>> readValues(final DataContext dataContext, final Query... queries) {
+        final Set<List<Object>> values = new HashSet<>();
+        for (final Query query : queries) {
+            try (DataSet dataSet = dataContext.executeQuery(query)) {
+                while (dataSet.next()) {
+                    assertTrue(values.add(Arrays.asList(dataSet.getRow().getValues())));
+                }
+            }
+        }
+        return values;
+    }
+
+    private Set<List<Object>> readValues(final DataContext dataContext, final List<Query> queries) {
+        return readValues(dataContext, queries.toArray(new Query[queries.size()]));
+    }
+}
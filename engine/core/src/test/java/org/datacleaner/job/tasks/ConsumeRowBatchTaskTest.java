@@ -0,0 +1,85 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.tasks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.datacleaner.api.InputRow;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.connection.CsvDatastore;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.runner.AnalysisListenerAdaptor;
+import org.datacleaner.job.runner.AnalysisResultFuture;
+import org.datacleaner.job.runner.AnalysisRunner;
+import org.datacleaner.job.runner.AnalysisRunnerImpl;
+import org.datacleaner.job.runner.RowProcessingMetrics;
+import org.datacleaner.result.ListResult;
+import org.datacleaner.test.MockAnalyzer;
+import org.datacleaner.util.SystemProperties;
+
+import junit.framework.TestCase;
+
+public class ConsumeRowBatchTaskTest extends TestCase {
+
+    @SuppressWarnings("unchecked")
+    public void testBatchedRowProcessing() throws Throwable {
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl();
+        final AnalysisJob job;
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(new CsvDatastore("Names", "src/test/resources/example-name-lengths.csv"));
+            builder.addSourceColumns("name");
+            builder.addAnalyzer(MockAnalyzer.class).addInputColumns(builder.getSourceColumns());
+            job = builder.toAnalysisJob();
+        }
+
+        final List<Integer> rowNumbers = Collections.synchronizedList(new ArrayList<>());
+
+        System.setProperty(SystemProperties.ROW_PROCESSING_BATCH_SIZE, "5");
+        System.setProperty(SystemProperties.ROW_PROCESSING_PROGRESS_INTERVAL_ROWS, "1");
+        final ListResult<InputRow> result;
+        try {
+            final AnalysisRunner runner = new AnalysisRunnerImpl(configuration, new AnalysisListenerAdaptor() {
+                @Override
+                protected void rowProcessingProgress(final AnalysisJob job, final RowProcessingMetrics metrics,
+                        final int currentRow) {
+                    rowNumbers.add(currentRow);
+                }
+            });
+            final AnalysisResultFuture resultFuture = runner.run(job);
+            if (resultFuture.isErrornous()) {
+                throw resultFuture.getErrors().get(0);
+            }
+            result = (ListResult<InputRow>) resultFuture.getResults().get(0);
+        } finally {
+            System.clearProperty(SystemProperties.ROW_PROCESSING_BATCH_SIZE);
+            System.clearProperty(SystemProperties.ROW_PROCESSING_PROGRESS_INTERVAL_ROWS);
+        }
+
+        // 12 rows, dispatched as batches of 5 + 5 + 2
+        assertEquals(12, result.getValues().size());
+
+        Collections.sort(rowNumbers);
+        assertEquals("[1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12]", rowNumbers.toString());
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import junit.framework.TestCase;
+
+public class CompactStringSetTest extends TestCase {
+
+    public void testContainsAndIterate() throws Exception {
+        final CompactStringSet set =
+                new CompactStringSet(Arrays.asList("foo", "bar", null, "foo", "baz", "").iterator(), false);
+
+        assertEquals(4, set.size());
+        assertEquals("[, bar, baz, foo]", set.toString());
+
+        assertTrue(set.contains("foo"));
+        assertTrue(set.contains(""));
+        assertFalse(set.contains("Foo"));
+        assertFalse(set.contains("fo"));
+        assertFalse(set.contains("fooo"));
+        assertFalse(set.contains(null));
+        assertFalse(set.contains(1));
+    }
+
+    public void testEmpty() throws Exception {
+        final CompactStringSet set = new CompactStringSet(Arrays.asList().iterator(), true);
+
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains("foo"));
+        assertFalse(set.iterator().hasNext());
+        assertFalse(set.lengthSortedIterator().hasNext());
+    }
+
+    public void testFoldCase() throws Exception {
+        final String oUpper = String.valueOf((char) 0xD8);
+        final String oLower = String.valueOf((char) 0xF8);
+
+        final CompactStringSet set =
+                new CompactStringSet(Arrays.asList("Hello", "WORLD", "hello", oUpper + "re").iterator(), true);
+
+        assertEquals("[hello, world, " + oLower + "re]", set.toString());
+
+        assertTrue(set.contains("HeLLo", true));
+        assertTrue(set.contains("world", true));
+        assertTrue(set.contains(oUpper + "RE", true));
+        assertTrue(set.contains(oLower + "re", false));
+        assertFalse(set.contains("World", false));
+        assertFalse(set.contains("worlds", true));
+    }
+
+    public void testNonAsciiOrder() throws Exception {
+        final String supplementary = new String(Character.toChars(0x1F600));
+        final String highBmp = String.valueOf((char) 0xFF21);
+
+        final List<String> values = Arrays.asList("z", highBmp, supplementary, "a" + supplementary, "a");
+        final CompactStringSet set = new CompactStringSet(values.iterator(), false);
+
+        // code point order, in which supplementary characters come last
+        assertEquals(Arrays.asList("a", "a" + supplementary, "z", highBmp, supplementary), Lists.newArrayList(set));
+
+        for (final String value : values) {
+            assertTrue(value, set.contains(value));
+        }
+        assertFalse(set.contains(supplementary.substring(0, 1)));
+        assertFalse(set.contains("a" + highBmp));
+    }
+
+    public void testLengthSortedIterator() throws Exception {
+        final String supplementary = new String(Character.toChars(0x1F600));
+
+        final CompactStringSet set =
+                new CompactStringSet(Arrays.asList("b", "ccc", "aa", "a", supplementary, "bb").iterator(), false);
+
+        assertEquals(Arrays.asList("ccc", "aa", "bb", supplementary, "a", "b"),
+                Lists.newArrayList(set.lengthSortedIterator()));
+    }
+
+    public void testEqualsHashSet() throws Exception {
+        final List<String> values = Arrays.asList("foo", "bar", "baz");
+        final CompactStringSet set = new CompactStringSet(values.iterator(), false);
+
+        assertEquals(set, new HashSet<>(values));
+        assertEquals(new HashSet<>(values), set);
+        assertEquals(new HashSet<>(values).hashCode(), set.hashCode());
+    }
+}
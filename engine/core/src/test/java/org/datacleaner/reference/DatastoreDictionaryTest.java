@@ -0,0 +1,95 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.metamodel.data.DataSet;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.connection.DatastoreCatalogImpl;
+import org.datacleaner.connection.DatastoreConnection;
+import org.datacleaner.test.TestHelper;
+
+import junit.framework.TestCase;
+
+public class DatastoreDictionaryTest extends TestCase {
+
+    private final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+    private final DataCleanerConfiguration configuration =
+            new DataCleanerConfigurationImpl().withDatastoreCatalog(new DatastoreCatalogImpl(datastore));
+
+    public void testContainsValueWithoutLoadingIntoMemory() throws Exception {
+        final DatastoreDictionary dictionary =
+                new DatastoreDictionary("lastnames", "orderdb", "EMPLOYEES.LASTNAME", false);
+        try (DictionaryConnection connection = dictionary.openConnection(configuration)) {
+            assertEquals(DatastoreDictionaryConnection.class, connection.getClass());
+            for (int i = 0; i < 2; i++) {
+                assertTrue(connection.containsValue("Murphy"));
+                assertFalse(connection.containsValue("murphy"));
+                assertFalse(connection.containsValue("Foobar"));
+                assertFalse(connection.containsValue(null));
+            }
+        }
+    }
+
+    public void testConcurrentLookupsAreConsistent() throws Exception {
+        final Set<String> lastnames = new HashSet<>();
+        try (DatastoreConnection datastoreConnection = datastore.openConnection();
+                DataSet dataSet = datastoreConnection.getDataContext().query().from("EMPLOYEES").select("LASTNAME")
+                        .execute()) {
+            while (dataSet.next()) {
+                lastnames.add((String) dataSet.getRow().getValue(0));
+            }
+        }
+        final List<String> values = new ArrayList<>(lastnames);
+        for (final String lastname : lastnames) {
+            values.add(lastname + "_not_in_dictionary");
+        }
+
+        final DatastoreDictionary dictionary =
+                new DatastoreDictionary("lastnames", "orderdb", "EMPLOYEES.LASTNAME", false);
+        final ExecutorService threadPool = Executors.newFixedThreadPool(8);
+        try (DictionaryConnection connection = dictionary.openConnection(configuration)) {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                final int offset = i;
+                futures.add(threadPool.submit(() -> {
+                    for (int j = 0; j < values.size(); j++) {
+                        final String value = values.get((j + offset * 3) % values.size());
+                        assertEquals(value, lastnames.contains(value), connection.containsValue(value));
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            threadPool.shutdown();
+        }
+    }
+}
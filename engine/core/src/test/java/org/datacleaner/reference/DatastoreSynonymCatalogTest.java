@@ -55,6 +55,33 @@ public class DatastoreSynonymCatalogTest {
         connection.close();
     }
 
+    @Test
+    public void shouldLookupAndReplaceWithoutLoadingIntoMemory() {
+        final DatastoreSynonymCatalog synonymCatalog = new DatastoreSynonymCatalog("my synonym catalog",
+                "region datastore", "region", new String[] { "firstsynonym", "secondsynonym", "thirdsynonym" },
+                false);
+        try (SynonymCatalogConnection connection = synonymCatalog.openConnection(_configuration)) {
+            assertEquals(DatastoreSynonymCatalogConnection.class, connection.getClass());
+
+            // per-term lookups, repeated to go through the lookup cache
+            for (int i = 0; i < 2; i++) {
+                assertEquals("DNK", connection.getMasterTerm("Denmark"));
+                assertEquals("GBR", connection.getMasterTerm("UK"));
+                assertEquals(null, connection.getMasterTerm("Sweden"));
+            }
+            assertEquals(null, connection.getMasterTerm(null));
+
+            final SynonymCatalogConnection.Replacement replacement =
+                    connection.replaceInline("Great Britain and Denmark, not Sweden");
+            assertEquals("GBR and DNK, not Sweden", replacement.getReplacedString());
+            assertEquals("[Great Britain, Denmark]", replacement.getSynonyms().toString());
+
+            // now served by the in-memory index
+            assertEquals("ALB", connection.getMasterTerm("Albania"));
+            assertEquals(null, connection.getMasterTerm("Sweden"));
+        }
+    }
+
     @Test
     public void shouldReturnAllSynonyms() {
         final SynonymCatalogConnection connection = _synonymCatalog.openConnection(_configuration);
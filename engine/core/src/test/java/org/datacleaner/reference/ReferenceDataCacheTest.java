@@ -0,0 +1,140 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.FileResource;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.connection.CsvDatastore;
+
+import junit.framework.TestCase;
+
+public class ReferenceDataCacheTest extends TestCase {
+
+    private final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl();
+
+    public void testTextFileDictionaryIsSharedUntilModified() throws Exception {
+        final File file = new File("target/ReferenceDataCacheTest_dictionary.txt");
+        FileHelper.writeStringAsFile(file, "foo\nbar");
+        file.setLastModified(1000000000000L);
+
+        final ReferenceDataCache cache = ReferenceDataCatalogImpl.getSharedCache();
+        final long hits = cache.getHitCount();
+        final long misses = cache.getMissCount();
+
+        final TextFileDictionary dictionary = new TextFileDictionary("cached", file.getPath(), "UTF-8");
+        try (DictionaryConnection connection = dictionary.openConnection(configuration)) {
+            assertTrue(connection.containsValue("foo"));
+            assertFalse(connection.containsValue("baz"));
+        }
+        try (DictionaryConnection connection = dictionary.openConnection(configuration)) {
+            assertTrue(connection.containsValue("bar"));
+        }
+        assertEquals(misses + 1, cache.getMissCount());
+        assertEquals(hits + 1, cache.getHitCount());
+
+        FileHelper.writeStringAsFile(file, "foo\nbar\nbaz");
+        file.setLastModified(1100000000000L);
+
+        try (DictionaryConnection connection = dictionary.openConnection(configuration)) {
+            assertTrue(connection.containsValue("baz"));
+        }
+        assertEquals(misses + 2, cache.getMissCount());
+    }
+
+    public void testRecentlyModifiedFileIsNotCached() throws Exception {
+        final File file = new File("target/ReferenceDataCacheTest_recent_dictionary.txt");
+        FileHelper.writeStringAsFile(file, "foo\nbar");
+
+        // the same size and last modified time may hide a rewrite of the file
+        final FileResource resource = new FileResource(file);
+        final SimpleDictionary dictionary = new SimpleDictionary("dict", "a");
+        assertNull(ReferenceDataCache.createKey(dictionary, resource, "UTF-8"));
+
+        file.setLastModified(System.currentTimeMillis() - 60000);
+        assertNotNull(ReferenceDataCache.createKey(dictionary, resource, "UTF-8"));
+    }
+
+    public void testDatastoreKeyIncludesDatastoreDefinition() throws Exception {
+        final DatastoreDictionary dictionary = new DatastoreDictionary("dict", "ds", "table.column");
+
+        final List<Object> key1 =
+                ReferenceDataCache.createKey(dictionary, new CsvDatastore("ds", "src/test/resources/foo.csv"),
+                        "table.column");
+        final List<Object> key2 =
+                ReferenceDataCache.createKey(dictionary, new CsvDatastore("ds", "src/test/resources/foo.csv"),
+                        "table.column");
+        final List<Object> key3 =
+                ReferenceDataCache.createKey(dictionary, new CsvDatastore("ds", "src/test/resources/bar.csv"),
+                        "table.column");
+
+        assertEquals(key1, key2);
+        assertFalse(key1.equals(key3));
+    }
+
+    public void testSizeBoundedEviction() throws Exception {
+        final ReferenceDataCache cache = new ReferenceDataCache(5, 60);
+        final SimpleDictionary dictionary = new SimpleDictionary("dict", "a", "b", "c");
+
+        final List<Object> key1 = Arrays.asList("key1");
+        final List<Object> key2 = Arrays.asList("key2");
+        assertSame(dictionary, cache.getDictionary(key1, () -> dictionary));
+        assertSame(dictionary, cache.getDictionary(key1, () -> {
+            throw new AssertionError("Should be cached");
+        }));
+        assertEquals(1, cache.getHitCount());
+
+        // together the two dictionaries exceed the max entries
+        cache.getDictionary(key2, () -> new SimpleDictionary("dict2", "d", "e", "f"));
+        assertEquals(1, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    public void testUncacheable() throws Exception {
+        final ReferenceDataCache disabledCache = new ReferenceDataCache(0, 60);
+        final SimpleDictionary dictionary = new SimpleDictionary("dict", "a");
+        disabledCache.getDictionary(Arrays.asList("key"), () -> dictionary);
+        disabledCache.getDictionary(Arrays.asList("key"), () -> dictionary);
+        assertEquals(0, disabledCache.getHitCount());
+        assertEquals(2, disabledCache.getMissCount());
+
+        // a resource without a last modified time can not be versioned
+        final FileResource resource = new FileResource(new File("target/non_existing_dictionary.txt"));
+        assertNull(ReferenceDataCache.createKey(dictionary, resource, "UTF-8"));
+    }
+
+    public void testLoaderExceptionIsPropagated() throws Exception {
+        final ReferenceDataCache cache = new ReferenceDataCache(100, 60);
+        try {
+            cache.getDictionary(Arrays.asList("key"), () -> {
+                throw new IllegalArgumentException("foo");
+            });
+            fail("Exception expected");
+        } catch (final IllegalArgumentException e) {
+            assertEquals("foo", e.getMessage());
+        }
+    }
+}
@@ -43,6 +43,14 @@ public class ReferenceDataDeserializationTest extends TestCase {
         assertTrue(obj.isCaseSensitive());
     }
 
+    public void testSerializeAndDeserializeSimpleDictionary() throws Exception {
+        final SimpleDictionary dict = new SimpleDictionary("simple dictionary", false, "Foo", "bar", "BAZ");
+        final SimpleDictionary obj = (SimpleDictionary) SerializationUtils.clone(dict);
+        assertEquals(dict, obj);
+        assertEquals("[bar, baz, foo]", obj.getValueSet().toString());
+        assertFalse(obj.isCaseSensitive());
+    }
+
     public void testDeserializeTextFileDictionary() throws Exception {
         final TextFileDictionary obj =
                 deserialize("src/test/resources/serialized_ref_data/dc_4_dictionary_text_file.dat");
@@ -0,0 +1,179 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class HybridStorageProviderTest extends TestCase {
+
+    private HybridStorageProvider _storageProvider;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        _storageProvider = new HybridStorageProvider(new File("target/hybrid_storage"), 10);
+        _storageProvider.setSegmentSize(1024);
+    }
+
+    public void testListStaysInMemoryBelowThreshold() throws Exception {
+        final List<String> list = _storageProvider.createList(String.class);
+        for (int i = 0; i < 10; i++) {
+            list.add("foo" + i);
+        }
+        assertFalse(((HybridList<String>) list).isSpilled());
+        assertEquals(0, _storageProvider.getSpilledCollectionCount());
+        assertEquals(0, _storageProvider.getSpilledBytes());
+    }
+
+    public void testListSpill() throws Exception {
+        final List<String> list = _storageProvider.createList(String.class);
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            final String str = i % 7 == 0 ? null : "value " + i;
+            list.add(str);
+            expected.add(str);
+        }
+        assertTrue(((HybridList<String>) list).isSpilled());
+        assertEquals(expected, list);
+
+        list.add(0, "first");
+        expected.add(0, "first");
+        assertEquals("value 2", list.set(3, "third"));
+        expected.set(3, "third");
+        assertEquals("value 100", list.remove(101));
+        expected.remove(101);
+        assertEquals(expected, list);
+
+        assertEquals(1, _storageProvider.getSpilledCollectionCount());
+        assertEquals(502, _storageProvider.getSpilledElementCount());
+        assertTrue(_storageProvider.getSpilledBytes() > 500 * 8);
+
+        list.clear();
+        assertTrue(list.isEmpty());
+        assertFalse(((HybridList<String>) list).isSpilled());
+    }
+
+    public void testMapSpill() throws Exception {
+        final Map<Integer, Object> map = _storageProvider.createMap(Integer.class, Object.class);
+        final Map<Integer, Object> expected = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            final Object value = i % 3 == 0 ? new Date(i) : "value " + i;
+            assertNull(map.put(i, value));
+            expected.put(i, value);
+        }
+        map.put(null, "null key");
+        expected.put(null, "null key");
+        map.put(-1, null);
+        expected.put(-1, null);
+        assertTrue(((HybridMap<Integer, Object>) map).isSpilled());
+
+        assertEquals("value 2", map.put(2, "two"));
+        expected.put(2, "two");
+        assertEquals("value 5", map.remove(5));
+        expected.remove(5);
+        assertNull(map.remove(5));
+        assertTrue(map.containsKey(-1));
+        assertFalse(map.containsKey(5));
+
+        assertEquals(expected, map);
+        assertEquals(expected, new HashMap<>(map));
+
+        final Iterator<Integer> it = map.keySet().iterator();
+        while (it.hasNext()) {
+            final Integer key = it.next();
+            if (key != null && key % 2 == 0) {
+                it.remove();
+            }
+        }
+        assertEquals(501, map.size());
+        assertEquals("value 1", map.get(1));
+        assertNull(map.get(4));
+
+        assertEquals(1, _storageProvider.getSpilledCollectionCount());
+    }
+
+    public void testSetSpill() throws Exception {
+        final Set<String> set = _storageProvider.createSet(String.class);
+        final Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 300; i++) {
+            final String str = "value " + (i % 200);
+            assertEquals(expected.add(str), set.add(str));
+        }
+        assertTrue(((HybridSet<String>) set).isSpilled());
+        assertEquals(200, set.size());
+        assertTrue(set.contains("value 199"));
+        assertTrue(set.remove("value 199"));
+        assertFalse(set.contains("value 199"));
+        expected.remove("value 199");
+        assertEquals(expected, set);
+        assertEquals(expected, new HashSet<>(set));
+    }
+
+    public void testDroppedSpilledCollectionsReleaseFiles() throws Exception {
+        final File directory = new File("target/hybrid_storage_dropped");
+        final HybridStorageProvider storageProvider = new HybridStorageProvider(directory, 10);
+        for (final File file : directory.listFiles()) {
+            assertTrue(file.delete());
+        }
+
+        fillAndDrop(storageProvider);
+        assertEquals(3, storageProvider.getSpilledCollectionCount());
+        assertEquals(3, directory.listFiles().length);
+
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (directory.listFiles().length > 0 && System.currentTimeMillis() < deadline) {
+            System.gc();
+            System.runFinalization();
+            Thread.sleep(10);
+        }
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    private void fillAndDrop(final HybridStorageProvider storageProvider) {
+        final List<String> list = storageProvider.createList(String.class);
+        final Map<String, String> map = storageProvider.createMap(String.class, String.class);
+        final Set<String> set = storageProvider.createSet(String.class);
+        for (int i = 0; i < 20; i++) {
+            list.add("value " + i);
+            map.put("key " + i, "value " + i);
+            set.add("value " + i);
+        }
+    }
+
+    public void testZeroThresholdSpillsImmediately() throws Exception {
+        final HybridStorageProvider storageProvider =
+                new HybridStorageProvider(new File("target/hybrid_storage"), 0);
+        final List<Long> list = storageProvider.createList(Long.class);
+        list.add(42L);
+        assertTrue(((HybridList<Long>) list).isSpilled());
+        assertEquals(Long.valueOf(42L), list.get(0));
+        assertEquals(1, storageProvider.getSpilledCollectionCount());
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.datacleaner.api.InputRow;
+import org.datacleaner.data.MockInputColumn;
+import org.datacleaner.data.MockInputRow;
+
+import com.google.common.base.Strings;
+
+import junit.framework.TestCase;
+
+public class OffHeapRowAnnotationFactoryTest extends TestCase {
+
+    private final MockInputColumn<String> col1 = new MockInputColumn<>("foo", String.class);
+    private final MockInputColumn<Object> col2 = new MockInputColumn<>("bar", Object.class);
+
+    public void testStoreAndReadSampleRows() throws Exception {
+        final OffHeapRowAnnotationFactory factory = new OffHeapRowAnnotationFactory(2, 3);
+        final RowAnnotation annotation = factory.createAnnotation();
+        assertFalse(factory.hasSampleRows(annotation));
+
+        factory.annotate(new MockInputRow(1).put(col1, "hello").put(col2, 42), annotation);
+        factory.annotate(new MockInputRow(2).put(col1, null).put(col2, new Date(1000)), annotation);
+        factory.annotate(new MockInputRow(3).put(col1, "world").put(col2, 3.5), 2, annotation);
+
+        assertTrue(factory.hasSampleRows(annotation));
+        assertEquals(4, annotation.getRowCount());
+
+        final List<InputRow> rows = factory.getSampleRows(annotation);
+        assertEquals(3, rows.size());
+        assertEquals(1, rows.get(0).getId());
+        assertEquals("hello", rows.get(0).getValue(col1));
+        assertEquals(42, rows.get(0).getValue(col2));
+        assertEquals(null, rows.get(1).getValue(col1));
+        assertEquals(new Date(1000), rows.get(1).getValue(col2));
+        assertEquals(3, rows.get(2).getId());
+        assertEquals(3.5, rows.get(2).getValue(col2));
+
+        factory.resetAnnotation(annotation);
+        assertFalse(factory.hasSampleRows(annotation));
+        assertEquals(0, annotation.getRowCount());
+    }
+
+    public void testRunningOutOfSampleSets() throws Exception {
+        final OffHeapRowAnnotationFactory factory = new OffHeapRowAnnotationFactory(2, 5);
+        final RowAnnotation a1 = factory.createAnnotation();
+        final RowAnnotation a2 = factory.createAnnotation();
+        final RowAnnotation a3 = factory.createAnnotation();
+
+        for (int i = 0; i < 10; i++) {
+            factory.annotate(new MockInputRow(i).put(col1, "a" + i), a1);
+            factory.annotate(new MockInputRow(i).put(col1, "b" + i), a2);
+            factory.annotate(new MockInputRow(i).put(col1, "c" + i), a3);
+        }
+
+        assertEquals(5, factory.getSampleRows(a1).size());
+        assertEquals(5, factory.getSampleRows(a2).size());
+        assertEquals(0, factory.getSampleRows(a3).size());
+        assertEquals(10, a3.getRowCount());
+    }
+
+    public void testLargeRecordsAndTransfer() throws Exception {
+        final OffHeapRowAnnotationFactory factory = new OffHeapRowAnnotationFactory(10, 100);
+        final RowAnnotation from = factory.createAnnotation();
+        final RowAnnotation to = factory.createAnnotation();
+
+        final String largeValue = Strings.repeat("x", 100000);
+        for (int i = 0; i < 50; i++) {
+            factory.annotate(new MockInputRow(i).put(col1, i % 10 == 0 ? largeValue : "small" + i), from);
+        }
+
+        factory.transferAnnotations(from, to);
+        assertFalse(factory.hasSampleRows(from));
+        assertEquals(50, to.getRowCount());
+
+        final List<InputRow> rows = factory.getSampleRows(to);
+        assertEquals(50, rows.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i % 10 == 0 ? largeValue : "small" + i, rows.get(i).getValue(col1));
+        }
+    }
+
+    public void testConcurrentAnnotation() throws Exception {
+        final OffHeapRowAnnotationFactory factory = new OffHeapRowAnnotationFactory(10, 1000);
+        final RowAnnotation annotation = factory.createAnnotation();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                final int offset = thread * 10000;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        factory.annotate(new MockInputRow(offset + i).put(col1, "v" + (offset + i)), annotation);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(40000, annotation.getRowCount());
+        final List<InputRow> rows = factory.getSampleRows(annotation);
+        assertEquals(1000, rows.size());
+        for (final InputRow row : rows) {
+            assertEquals("v" + row.getId(), row.getValue(col1));
+        }
+    }
+
+    public void testSerialization() throws Exception {
+        final OffHeapRowAnnotationFactory factory = new OffHeapRowAnnotationFactory(10, 10);
+        final RowAnnotation annotation = factory.createAnnotation();
+        factory.annotate(new MockInputRow(1).put(col1, "hello"), annotation);
+        factory.annotate(new MockInputRow(2).put(col1, "world"), annotation);
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(factory);
+            out.writeObject(annotation);
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            final OffHeapRowAnnotationFactory deserializedFactory = (OffHeapRowAnnotationFactory) in.readObject();
+            final RowAnnotation deserializedAnnotation = (RowAnnotation) in.readObject();
+
+            assertEquals(2, deserializedAnnotation.getRowCount());
+            final List<InputRow> rows = deserializedFactory.getSampleRows(deserializedAnnotation);
+            assertEquals(2, rows.size());
+            assertEquals("hello", rows.get(0).getValues(rows.get(0).getInputColumns()).get(0));
+            assertEquals(2, rows.get(1).getId());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.datacleaner.api.InputRow;
+import org.datacleaner.data.MockInputRow;
+
+import junit.framework.TestCase;
+
+public class ReservoirSamplingRowAnnotationFactoryTest extends TestCase {
+
+    public void testSampleSpansAllRows() throws Exception {
+        final ReservoirSamplingRowAnnotationFactory factory = new ReservoirSamplingRowAnnotationFactory(10, 100);
+        final RowAnnotation annotation = factory.createAnnotation();
+        assertFalse(factory.hasSampleRows(annotation));
+
+        for (int i = 0; i < 50; i++) {
+            factory.annotate(new MockInputRow(i), annotation);
+        }
+        assertEquals(50, factory.getSampleRows(annotation).size());
+
+        for (int i = 50; i < 10000; i++) {
+            factory.annotate(new MockInputRow(i), annotation);
+        }
+        assertEquals(10000, annotation.getRowCount());
+
+        final List<InputRow> sampleRows = factory.getSampleRows(annotation);
+        assertEquals(100, sampleRows.size());
+        assertEquals(100, getIds(sampleRows).size());
+
+        // a sample of the first rows would only contain ids below 100
+        int idsInSecondHalf = 0;
+        for (final InputRow row : sampleRows) {
+            if (row.getId() >= 5000) {
+                idsInSecondHalf++;
+            }
+        }
+        assertTrue("Too few rows from second half: " + idsInSecondHalf, idsInSecondHalf > 20);
+        assertTrue("Too many rows from second half: " + idsInSecondHalf, idsInSecondHalf < 80);
+    }
+
+    public void testSampleSizePerAnnotation() throws Exception {
+        // the sample size is a hint of the RowAnnotationFactory interface
+        final RowAnnotationFactory factory = RowAnnotations.getReservoirSamplingFactory(2, 20);
+        final RowAnnotation small = factory.createAnnotation(5);
+        final RowAnnotation large = factory.createAnnotation();
+        final RowAnnotation notSampled = factory.createAnnotation();
+
+        for (int i = 0; i < 100; i++) {
+            factory.annotate(new MockInputRow(i), small);
+            factory.annotate(new MockInputRow(i), large);
+            factory.annotate(new MockInputRow(i), notSampled);
+        }
+
+        assertEquals(5, factory.getSampleRows(small).size());
+        assertEquals(20, factory.getSampleRows(large).size());
+        assertFalse(factory.hasSampleRows(notSampled));
+        assertEquals(100, notSampled.getRowCount());
+
+        factory.resetAnnotation(small);
+        assertEquals(0, small.getRowCount());
+        assertFalse(factory.hasSampleRows(small));
+        for (int i = 0; i < 10; i++) {
+            factory.annotate(new MockInputRow(i), small);
+        }
+        assertEquals(5, factory.getSampleRows(small).size());
+    }
+
+    public void testSampleSizeHintIgnoredByOtherFactories() throws Exception {
+        final RowAnnotationFactory factory = RowAnnotations.getInMemoryFactory(2, 20);
+        final RowAnnotation annotation = factory.createAnnotation(5);
+        for (int i = 0; i < 100; i++) {
+            factory.annotate(new MockInputRow(i), annotation);
+        }
+        assertEquals(20, factory.getSampleRows(annotation).size());
+        assertEquals(100, annotation.getRowCount());
+    }
+
+    public void testTransferAnnotations() throws Exception {
+        final ReservoirSamplingRowAnnotationFactory factory = new ReservoirSamplingRowAnnotationFactory(10, 10);
+        final RowAnnotation from = factory.createAnnotation();
+        final RowAnnotation to = factory.createAnnotation();
+
+        for (int i = 0; i < 3; i++) {
+            factory.annotate(new MockInputRow(i), from);
+        }
+        for (int i = 3; i < 5; i++) {
+            factory.annotate(new MockInputRow(i), to);
+        }
+
+        factory.transferAnnotations(from, to);
+        assertEquals(0, from.getRowCount());
+        assertEquals(5, to.getRowCount());
+        assertFalse(factory.hasSampleRows(from));
+        assertEquals("[0, 1, 2, 3, 4]", getIds(factory.getSampleRows(to)).toString());
+
+        for (int i = 5; i < 100; i++) {
+            factory.annotate(new MockInputRow(i), from);
+        }
+        factory.transferAnnotations(from, to);
+        assertEquals(100, to.getRowCount());
+        assertEquals(10, getIds(factory.getSampleRows(to)).size());
+    }
+
+    public void testConcurrentAnnotation() throws Exception {
+        final ReservoirSamplingRowAnnotationFactory factory = new ReservoirSamplingRowAnnotationFactory(10, 50);
+        final RowAnnotation annotation = factory.createAnnotation();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            final int offset = t * 10000;
+            executor.execute(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    factory.annotate(new MockInputRow(offset + i), annotation);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(40000, annotation.getRowCount());
+        assertEquals(50, factory.getSampleRows(annotation).size());
+    }
+
+    private static Set<Long> getIds(final List<InputRow> rows) {
+        final Set<Long> ids = new TreeSet<>();
+        for (final InputRow row : rows) {
+            ids.add(row.getId());
+        }
+        return ids;
+    }
+}
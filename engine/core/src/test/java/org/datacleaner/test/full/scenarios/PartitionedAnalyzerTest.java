@@ -0,0 +1,170 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.test.full.scenarios;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Named;
+
+import org.apache.metamodel.schema.Table;
+import org.datacleaner.api.Analyzer;
+import org.datacleaner.api.AnalyzerResultReducer;
+import org.datacleaner.api.Close;
+import org.datacleaner.api.Configured;
+import org.datacleaner.api.Distributed;
+import org.datacleaner.api.Initialize;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.configuration.DataCleanerEnvironmentImpl;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.connection.DatastoreConnection;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.concurrent.MultiThreadedTaskRunner;
+import org.datacleaner.job.concurrent.TaskRunner;
+import org.datacleaner.job.concurrent.VirtualThreadTaskRunner;
+import org.datacleaner.job.runner.AnalysisResultFuture;
+import org.datacleaner.job.runner.AnalysisRunnerImpl;
+import org.datacleaner.result.NumberResult;
+import org.datacleaner.test.TestEnvironment;
+import org.datacleaner.test.TestHelper;
+import org.datacleaner.util.SystemProperties;
+
+import junit.framework.TestCase;
+
+public class PartitionedAnalyzerTest extends TestCase {
+
+    @Named("Row counter")
+    @Distributed(reducer = RowCountReducer.class)
+    public static class RowCountAnalyzer implements Analyzer<NumberResult> {
+
+        @Configured
+        InputColumn<?>[] columns;
+
+        // deliberately not thread-safe
+        private int _count;
+
+        @Initialize
+        public void init() {
+            INITIALIZED.incrementAndGet();
+        }
+
+        @Override
+        public void run(final InputRow row, final int distinctCount) {
+            _count += distinctCount;
+        }
+
+        @Override
+        public NumberResult getResult() {
+            return new NumberResult(_count);
+        }
+
+        @Close
+        public void close() {
+            CLOSED.incrementAndGet();
+        }
+    }
+
+    public static class RowCountReducer implements AnalyzerResultReducer<NumberResult> {
+
+        @Override
+        public NumberResult reduce(final Collection<? extends NumberResult> results) {
+            int sum = 0;
+            for (final NumberResult result : results) {
+                sum += result.getNumber().intValue();
+            }
+            return new NumberResult(sum);
+        }
+    }
+
+    private static final AtomicInteger INITIALIZED = new AtomicInteger();
+    private static final AtomicInteger CLOSED = new AtomicInteger();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        INITIALIZED.set(0);
+        CLOSED.set(0);
+        System.setProperty(SystemProperties.ANALYZER_PARTITIONED, "true");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        System.clearProperty(SystemProperties.ANALYZER_PARTITIONED);
+    }
+
+    public void testReducePartialResults() throws Throwable {
+        final MultiThreadedTaskRunner taskRunner = TestEnvironment.getMultiThreadedTaskRunner();
+        runJobAndAssertRowCount(taskRunner);
+
+        // there are never more partial analyzers than threads
+        assertTrue(INITIALIZED.get() <= taskRunner.getNumThreads());
+    }
+
+    public void testBoundedInstancesWithThreadPerTaskRunner() throws Throwable {
+        final VirtualThreadTaskRunner taskRunner = new VirtualThreadTaskRunner(100);
+        try {
+            runJobAndAssertRowCount(taskRunner);
+        } finally {
+            taskRunner.shutdown();
+        }
+
+        // not an instance per row (or per thread), but per processor
+        assertTrue(INITIALIZED.get() <= Runtime.getRuntime().availableProcessors());
+    }
+
+    private void runJobAndAssertRowCount(final TaskRunner taskRunner) throws Throwable {
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl()
+                .withEnvironment(new DataCleanerEnvironmentImpl().withTaskRunner(taskRunner));
+
+        final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+        final AnalysisJob job;
+        final int expectedRowCount;
+        try (DatastoreConnection con = datastore.openConnection();
+                AnalysisJobBuilder jobBuilder = new AnalysisJobBuilder(configuration)) {
+            final Table table = con.getDataContext().getDefaultSchema().getTableByName("ORDERFACT");
+            final Number count = (Number) con.getDataContext().query().from(table).selectCount().execute()
+                    .toRows().get(0).getValue(0);
+            expectedRowCount = count.intValue();
+
+            jobBuilder.setDatastore(datastore);
+            jobBuilder.addSourceColumns(table.getColumnByName("STATUS"));
+            jobBuilder.addAnalyzer(RowCountAnalyzer.class).addInputColumns(jobBuilder.getSourceColumns());
+            job = jobBuilder.toAnalysisJob();
+        }
+
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+        resultFuture.await();
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+
+        final NumberResult result = (NumberResult) resultFuture.getResults().get(0);
+        assertEquals(expectedRowCount, result.getNumber().intValue());
+
+        // every partial analyzer should have been initialized and closed
+        assertTrue(INITIALIZED.get() >= 1);
+        assertEquals(INITIALIZED.get(), CLOSED.get());
+    }
+}
@@ -40,11 +40,25 @@ import org.datacleaner.job.runner.AnalysisRunnerImpl;
 import org.datacleaner.job.runner.RowProcessingMetrics;
 import org.datacleaner.test.MockAnalyzer;
 import org.datacleaner.test.TestHelper;
+import org.datacleaner.util.SystemProperties;
 
 import junit.framework.TestCase;
 
 public class QueryOptimizationAndAnalysisListeningTest extends TestCase {
 
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // notify of the progress of every single row
+        System.setProperty(SystemProperties.ROW_PROCESSING_PROGRESS_INTERVAL_ROWS, "1");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        System.clearProperty(SystemProperties.ROW_PROCESSING_PROGRESS_INTERVAL_ROWS);
+    }
+
     public void testScenario() throws Exception {
         final List<Integer> rowNumbers = new ArrayList<>();
         final AtomicInteger expectedRows = new AtomicInteger(-1);
@@ -0,0 +1,95 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.datacleaner.util.AhoCorasickMatcher.Match;
+
+import junit.framework.TestCase;
+
+public class AhoCorasickMatcherTest extends TestCase {
+
+    public void testFindAllOverlapping() throws Exception {
+        final Map<String, Integer> terms = new LinkedHashMap<>();
+        terms.put("he", 1);
+        terms.put("she", 2);
+        terms.put("his", 3);
+        terms.put("hers", 4);
+        final AhoCorasickMatcher<Integer> matcher = new AhoCorasickMatcher<>(terms, true, false);
+
+        final List<Match<Integer>> matches = matcher.findAll("ushers");
+        assertEquals("[Match[she,1-4], Match[he,2-4], Match[hers,2-6]]", matches.toString());
+        assertEquals(2, matches.get(0).getValue().intValue());
+    }
+
+    public void testWholeWords() throws Exception {
+        final Map<String, String> terms = new HashMap<>();
+        terms.put("new york", "NY");
+        terms.put("york", "Y");
+        terms.put("st.", "street");
+        final AhoCorasickMatcher<String> matcher = new AhoCorasickMatcher<>(terms, true, true);
+
+        assertEquals("[Match[new york,0-8], Match[york,4-8]]", matcher.findAll("new york").toString());
+        assertEquals("[]", matcher.findAll("new yorker").toString());
+        assertEquals("[]", matcher.findAll("renew york_city").toString());
+
+        // same semantics as the regex "\b" construct: no boundary after "."
+        // unless followed by a word character
+        assertEquals("[]", matcher.findAll("main st. 5").toString());
+        assertEquals("[Match[st.,5-8]]", matcher.findAll("main st.5").toString());
+    }
+
+    public void testCaseInsensitive() throws Exception {
+        final Map<String, String> terms = new HashMap<>();
+        terms.put("The Netherlands", "NLD");
+        final AhoCorasickMatcher<String> matcher = new AhoCorasickMatcher<>(terms, false, true);
+
+        final List<Match<String>> matches = matcher.findAll("THE NETHERLANDS and the netherlands");
+        assertEquals("[Match[The Netherlands,0-15], Match[The Netherlands,20-35]]", matches.toString());
+
+        final AhoCorasickMatcher<String> caseSensitiveMatcher = new AhoCorasickMatcher<>(terms, true, true);
+        assertTrue(caseSensitiveMatcher.findAll("THE NETHERLANDS").isEmpty());
+    }
+
+    public void testFindLongestNonOverlapping() throws Exception {
+        final Map<String, String> terms = new HashMap<>();
+        terms.put("assistant to", "a");
+        terms.put("assistant to the", "b");
+        terms.put("the lead", "c");
+        terms.put("lead guru", "d");
+        final AhoCorasickMatcher<String> matcher = new AhoCorasickMatcher<>(terms, true, true);
+
+        final List<Match<String>> matches = matcher.findLongestNonOverlapping("assistant to the lead guru");
+        assertEquals("[Match[assistant to the,0-16], Match[lead guru,17-26]]", matches.toString());
+    }
+
+    public void testEmpty() throws Exception {
+        final Map<String, String> terms = new HashMap<>();
+        terms.put("", "empty");
+        final AhoCorasickMatcher<String> matcher = new AhoCorasickMatcher<>(terms, true, true);
+        assertTrue(matcher.isEmpty());
+        assertTrue(matcher.findAll("foo").isEmpty());
+        assertTrue(matcher.findLongestNonOverlapping(null).isEmpty());
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.metamodel.data.DefaultRow;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.data.SimpleDataSetHeader;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.MutableColumn;
+
+import junit.framework.TestCase;
+
+public class MetaModelRowCodecTest extends TestCase {
+
+    public void testWriteAndReadRows() throws Exception {
+        final List<SelectItem> selectItems = Arrays.asList(new SelectItem(new MutableColumn("a")),
+                new SelectItem(new MutableColumn("b")), new SelectItem(new MutableColumn("c")),
+                new SelectItem(new MutableColumn("d")));
+        final SimpleDataSetHeader header = new SimpleDataSetHeader(selectItems);
+
+        final Row row1 = new DefaultRow(header, new Object[] { "foo", 42, 1234567890123L, null });
+        final Row row2 = new DefaultRow(header, new Object[] { 3.14, true, new Date(1000), new Timestamp(2000) });
+        final Row row3 = new DefaultRow(header, new Object[] { "", new BigDecimal("1.5"), false, "æøå" });
+
+        final MetaModelRowCodec codec = new MetaModelRowCodec();
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            codec.write(out, row1);
+            codec.write(out, row2);
+            codec.write(out, row3);
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            for (final Row expected : Arrays.asList(row1, row2, row3)) {
+                final Row row = codec.read(in);
+                assertEquals(selectItems, row.getSelectItems());
+                assertEquals(Arrays.asList(expected.getValues()), Arrays.asList(row.getValues()));
+                for (int i = 0; i < selectItems.size(); i++) {
+                    final Object value = row.getValue(i);
+                    if (value != null) {
+                        assertEquals(expected.getValue(i).getClass(), value.getClass());
+                    }
+                }
+            }
+        }
+    }
+}
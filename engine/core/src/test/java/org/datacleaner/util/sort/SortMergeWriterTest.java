@@ -23,7 +23,10 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 
 import org.apache.metamodel.util.FileHelper;
 import org.apache.metamodel.util.Resource;
@@ -147,6 +150,144 @@ public class SortMergeWriterTest extends TestCase {
         assertEquals("text,count\n" + "bar,2\n" + "foo,2", str);
     }
 
+    public void testCompressedTempFilesWithStringCodec() throws Exception {
+        final SortMergeWriter<String, Writer> sorter =
+                new SortMergeWriter<String, Writer>(3, ToStringComparator.getComparator(), new StringRowCodec()) {
+
+                    @Override
+                    protected Writer createWriter(final Resource file) {
+                        return FileHelper.getWriter(file.write(), FileHelper.DEFAULT_ENCODING);
+                    }
+
+                    @Override
+                    protected void writeRow(final Writer writer, final String row, final int count) throws IOException {
+                        writer.write(row + "," + count + "\n");
+                    }
+
+                    protected void writeHeader(final Writer writer) throws IOException {
+                        writer.write("text,count\n");
+                    }
+                };
+        sorter.setCompressTempFiles(true);
+
+        for (int i = 0; i < 4; i++) {
+            sorter.append("æbler");
+            sorter.append("bar");
+            sorter.append("foo", 2);
+            sorter.append("" + i);
+        }
+
+        final File file = sorter.write("target/sort_merge_compressed.txt");
+
+        final String str = FileHelper.readFileAsString(file);
+        assertEquals("text,count\n0,1\n1,1\n2,1\n3,1\nbar,4\nfoo,8\næbler,4", str);
+    }
+
+    public void testMultiPassMerge() throws Exception {
+        doMultiPassMergeTest(0);
+        doMultiPassMergeTest(1);
+        doMultiPassMergeTest(3);
+    }
+
+    private void doMultiPassMergeTest(final int flushThreads) throws Exception {
+        final List<File> tempFiles = Collections.synchronizedList(new ArrayList<>());
+        final SortMergeWriter<String, Writer> sorter =
+                new SortMergeWriter<String, Writer>(5, ToStringComparator.getComparator(), new StringRowCodec()) {
+
+                    @Override
+                    protected Writer createWriter(final Resource file) {
+                        return FileHelper.getWriter(file.write(), FileHelper.DEFAULT_ENCODING);
+                    }
+
+                    @Override
+                    protected void writeRow(final Writer writer, final String row, final int count) throws IOException {
+                        writer.write(row + "," + count + "\n");
+                    }
+
+                    protected void writeHeader(final Writer writer) throws IOException {
+                        writer.write("text,count\n");
+                    }
+
+                    @Override
+                    protected File createTempFile() throws IOException {
+                        final File file = super.createTempFile();
+                        tempFiles.add(file);
+                        return file;
+                    }
+                };
+        sorter.setFlushThreads(flushThreads);
+        sorter.setMergeFanIn(3);
+
+        // 500 distinct values, each appended 3 times in different buffers
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 500; i++) {
+                sorter.append("value" + (1000 + (i * 7 + round * 13) % 500));
+            }
+        }
+
+        final File file = sorter.write("target/sort_merge_multi_pass_" + flushThreads + ".txt");
+
+        try (BufferedReader br = FileHelper.getBufferedReader(file)) {
+            assertEquals("text,count", br.readLine());
+            for (int i = 0; i < 500; i++) {
+                assertEquals("value" + (1000 + i) + ",3", br.readLine());
+            }
+            assertNull(br.readLine());
+        }
+
+        // intermediate merge passes should have consumed the initial runs
+        int remainingTempFiles = 0;
+        for (final File tempFile : tempFiles) {
+            if (tempFile.exists()) {
+                remainingTempFiles++;
+            }
+        }
+        assertTrue(tempFiles.size() > 300);
+        assertTrue("Remaining temp files: " + remainingTempFiles, remainingTempFiles <= 3);
+    }
+
+    public void testCloseWithoutWrite() throws Exception {
+        final List<File> tempFiles = Collections.synchronizedList(new ArrayList<>());
+        final SortMergeWriter<String, Writer> sorter =
+                new SortMergeWriter<String, Writer>(5, ToStringComparator.getComparator(), new StringRowCodec()) {
+
+                    @Override
+                    protected Writer createWriter(final Resource file) {
+                        throw new IllegalStateException("This test is not supposed to write a result!");
+                    }
+
+                    @Override
+                    protected void writeRow(final Writer writer, final String row, final int count) throws IOException {
+                        writer.write(row + "," + count + "\n");
+                    }
+
+                    protected void writeHeader(final Writer writer) throws IOException {
+                        writer.write("text,count\n");
+                    }
+
+                    @Override
+                    protected File createTempFile() throws IOException {
+                        final File file = super.createTempFile();
+                        tempFiles.add(file);
+                        return file;
+                    }
+                };
+
+        // e.g. a job that fails after some buffers have been flushed
+        for (int i = 0; i < 100; i++) {
+            sorter.append("value" + i);
+        }
+        assertTrue(tempFiles.size() > 10);
+
+        sorter.close();
+        for (final File tempFile : tempFiles) {
+            assertFalse("Temp file still exists: " + tempFile, tempFile.exists());
+        }
+
+        // closing again is harmless
+        sorter.close();
+    }
+
     public void testNullSafety() throws Exception {
         final SortMergeWriter<String, Writer> sorter =
                 new SortMergeWriter<String, Writer>(2, ToStringComparator.getComparator()) {
@@ -0,0 +1,172 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import junit.framework.TestCase;
+
+public class SpillableAggregatorTest extends TestCase {
+
+    public void testInMemoryAggregation() throws Exception {
+        final Map<String, Long> result = countWords(0);
+        assertEquals("{null=2, bar=3, baz=1, foo=4}", sortedAfterNull(result).toString());
+    }
+
+    public void testSpilledAggregation() throws Exception {
+        for (int budget = 1; budget <= 2; budget++) {
+            final Map<String, Long> result = countWords(budget);
+            // spilled aggregations are iterated in key order
+            assertEquals("{null=2, bar=3, baz=1, foo=4}", result.toString());
+        }
+    }
+
+    public void testMergeOrderOfPartialAggregates() throws Exception {
+        try (SpillableAggregator<String, ArrayList<Integer>> aggregator = new SpillableAggregator<>(1,
+                Comparator.naturalOrder(), key -> new ArrayList<>(), (earlier, later) -> {
+                    earlier.addAll(later);
+                    return earlier;
+                })) {
+            for (int i = 0; i < 10; i++) {
+                final int number = i;
+                aggregator.update(i % 2 == 0 ? "even" : "odd", list -> list.add(number));
+            }
+            assertTrue(aggregator.getSpillCount() > 0);
+
+            final List<String> result = new ArrayList<>();
+            aggregator.forEach((key, list) -> result.add(key + "=" + list));
+            assertEquals("[even=[0, 2, 4, 6, 8], odd=[1, 3, 5, 7, 9]]", result.toString());
+        }
+    }
+
+    public void testBoundedMergeFanIn() throws Exception {
+        try (SpillableAggregator<String, ArrayList<Integer>> aggregator = new SpillableAggregator<>(1,
+                Comparator.naturalOrder(), key -> new ArrayList<>(), (earlier, later) -> {
+                    final ArrayList<Integer> merged = new ArrayList<>(earlier);
+                    merged.addAll(later);
+                    return merged;
+                })) {
+            aggregator.setMergeFanIn(2);
+            for (int i = 0; i < 20; i++) {
+                final int number = i;
+                aggregator.update(i % 2 == 0 ? "even" : "odd", list -> list.add(number));
+            }
+            assertTrue(aggregator.getSpillCount() > 2);
+
+            // intermediate merge passes retain the order of partial aggregates
+            for (int i = 0; i < 2; i++) {
+                final List<String> result = new ArrayList<>();
+                aggregator.forEach((key, list) -> result.add(key + "=" + list));
+                assertEquals("[even=[0, 2, 4, 6, 8, 10, 12, 14, 16, 18], odd=[1, 3, 5, 7, 9, 11, 13, 15, 17, 19]]",
+                        result.toString());
+            }
+        }
+    }
+
+    public void testCodecs() throws Exception {
+        final RowCodec<LongAdder> counterCodec = new RowCodec<LongAdder>() {
+            @Override
+            public void write(final DataOutput out, final LongAdder counter) throws IOException {
+                out.writeLong(counter.sum());
+            }
+
+            @Override
+            public LongAdder read(final DataInput in) throws IOException {
+                final LongAdder counter = new LongAdder();
+                counter.add(in.readLong());
+                return counter;
+            }
+        };
+        final Comparator<Object> comparator = Comparator.comparing(Object::toString);
+        try (SpillableAggregator<Object, LongAdder> aggregator = new SpillableAggregator<>(1,
+                comparator.thenComparing(key -> key.getClass().getName()), new TypedValueRowCodec(), counterCodec,
+                key -> new LongAdder(), (earlier, later) -> {
+                    earlier.add(later.sum());
+                    return earlier;
+                })) {
+            final Object[] keys = { 1, "1", 1L, 2, 1, 1L };
+            for (final Object key : keys) {
+                aggregator.update(key, LongAdder::increment);
+            }
+            assertTrue(aggregator.getSpillCount() > 0);
+
+            // the key codec retains the types of the keys
+            final List<String> result = new ArrayList<>();
+            aggregator.forEach((key, count) -> result.add(key.getClass().getSimpleName() + " " + key + "=" + count));
+            assertEquals("[Integer 1=2, Long 1=2, String 1=1, Integer 2=1]", result.toString());
+        }
+    }
+
+    public void testManyKeys() throws Exception {
+        try (SpillableAggregator<Integer, LongAdder> aggregator = new SpillableAggregator<>(100,
+                Comparator.naturalOrder(), key -> new LongAdder(), (earlier, later) -> {
+                    earlier.add(later.sum());
+                    return earlier;
+                })) {
+            for (int i = 0; i < 10000; i++) {
+                aggregator.update(i % 1000, LongAdder::increment);
+            }
+            assertTrue(aggregator.getSpillCount() > 10);
+
+            final List<Integer> keys = new ArrayList<>();
+            aggregator.forEach((key, count) -> {
+                assertEquals(10, count.sum());
+                keys.add(key);
+            });
+            assertEquals(1000, keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                assertEquals(i, keys.get(i).intValue());
+            }
+        }
+    }
+
+    private Map<String, Long> countWords(final int budget) {
+        final String[] words = { "foo", "bar", null, "foo", "baz", "bar", "foo", null, "bar", "foo" };
+        try (SpillableAggregator<String, LongAdder> aggregator = new SpillableAggregator<>(budget,
+                Comparator.naturalOrder(), key -> new LongAdder(), (earlier, later) -> {
+                    earlier.add(later.sum());
+                    return earlier;
+                })) {
+            for (final String word : words) {
+                aggregator.update(word, LongAdder::increment);
+            }
+            assertEquals(budget > 0, aggregator.getSpillCount() > 0);
+
+            final Map<String, Long> result = new LinkedHashMap<>();
+            aggregator.forEach((key, count) -> result.put(key, count.sum()));
+            return result;
+        }
+    }
+
+    private Map<String, Long> sortedAfterNull(final Map<String, Long> map) {
+        final Map<String, Long> result = new LinkedHashMap<>();
+        result.put(null, map.get(null));
+        map.keySet().stream().filter(key -> key != null).sorted().forEach(key -> result.put(key, map.get(key)));
+        return result;
+    }
+}
@@ -93,9 +93,11 @@ import org.datacleaner.descriptors.CompositeDescriptorProvider;
 import org.datacleaner.descriptors.ConfiguredPropertyDescriptor;
 import org.datacleaner.descriptors.DescriptorProvider;
 import org.datacleaner.descriptors.Descriptors;
+import org.datacleaner.job.concurrent.ForkJoinTaskRunner;
 import org.datacleaner.job.concurrent.MultiThreadedTaskRunner;
 import org.datacleaner.job.concurrent.SingleThreadedTaskRunner;
 import org.datacleaner.job.concurrent.TaskRunner;
+import org.datacleaner.job.concurrent.VirtualThreadTaskRunner;
 import org.datacleaner.lifecycle.LifeCycleHelper;
 import org.datacleaner.reference.DatastoreDictionary;
 import org.datacleaner.reference.DatastoreSynonymCatalog;
@@ -119,7 +121,10 @@ import org.datacleaner.server.DirectoryBasedHadoopClusterInformation;
 import org.datacleaner.server.EnvironmentBasedHadoopClusterInformation;
 import org.datacleaner.storage.BerkeleyDbStorageProvider;
 import org.datacleaner.storage.CombinedStorageProvider;
+import org.datacleaner.storage.HybridStorageProvider;
 import org.datacleaner.storage.InMemoryStorageProvider;
+import org.datacleaner.storage.OffHeapStorageProvider;
+import org.datacleaner.storage.ReservoirSamplingStorageProvider;
 import org.datacleaner.storage.StorageProvider;
 import org.datacleaner.util.CollectionUtils2;
 import org.datacleaner.util.HadoopResource;
@@ -470,6 +475,30 @@ public final class JaxbConfigurationReader implements ConfigurationReader<InputS
             return new InMemoryStorageProvider(maxSetsThreshold, maxRowsThreshold);
         }
 
+        final InMemoryStorageProviderType offHeapStorageProvider = storageProviderType.getOffHeap();
+        if (offHeapStorageProvider != null) {
+            final int maxRowsThreshold = offHeapStorageProvider.getMaxRowsThreshold();
+            final int maxSetsThreshold = offHeapStorageProvider.getMaxSetsThreshold();
+            return new OffHeapStorageProvider(maxSetsThreshold, maxRowsThreshold);
+        }
+
+        final InMemoryStorageProviderType reservoirSamplingStorageProvider =
+                storageProviderType.getReservoirSampling();
+        if (reservoirSamplingStorageProvider != null) {
+            final int maxRowsThreshold = reservoirSamplingStorageProvider.getMaxRowsThreshold();
+            final int maxSetsThreshold = reservoirSamplingStorageProvider.getMaxSetsThreshold();
+            return new ReservoirSamplingStorageProvider(maxSetsThreshold, maxRowsThreshold);
+        }
+
+        final HybridStorageProviderType hybridStorageProvider = storageProviderType.getHybrid();
+        if (hybridStorageProvider != null) {
+            final File directory = new File(_interceptor.getTemporaryStorageDirectory());
+            final int maxElementsInMemory = hybridStorageProvider.getMaxElementsInMemory();
+            final int maxRowsThreshold = hybridStorageProvider.getMaxRowsThreshold();
+            final int maxSetsThreshold = hybridStorageProvider.getMaxSetsThreshold();
+            return new HybridStorageProvider(directory, maxElementsInMemory, maxSetsThreshold, maxRowsThreshold);
+        }
+
         final CustomElementType customStorageProvider = storageProviderType.getCustomStorageProvider();
         if (customStorageProvider != null) {
             return createCustomElement(customStorageProvider, StorageProvider.class, temporaryConfiguration, true);
@@ -1435,6 +1464,8 @@ public final class JaxbConfigurationReader implements ConfigurationReader<InputS
             final DataCleanerConfiguration temporaryConfiguration) {
         final SinglethreadedTaskrunnerType singlethreadedTaskrunner = configuration.getSinglethreadedTaskrunner();
         final MultithreadedTaskrunnerType multithreadedTaskrunner = configuration.getMultithreadedTaskrunner();
+        final ForkjoinTaskrunnerType forkjoinTaskrunner = configuration.getForkjoinTaskrunner();
+        final VirtualThreadTaskrunnerType virtualThreadTaskrunner = configuration.getVirtualThreadTaskrunner();
         final CustomElementType customTaskrunner = configuration.getCustomTaskrunner();
 
         if (singlethreadedTaskrunner != null) {
@@ -1449,6 +1480,24 @@ public final class JaxbConfigurationReader implements ConfigurationReader<InputS
                 taskRunner = new MultiThreadedTaskRunner();
             }
             environment.setTaskRunner(taskRunner);
+        } else if (forkjoinTaskrunner != null) {
+            final Short maxThreads = forkjoinTaskrunner.getMaxThreads();
+            final TaskRunner taskRunner;
+            if (maxThreads != null) {
+                taskRunner = new ForkJoinTaskRunner(maxThreads.intValue());
+            } else {
+                taskRunner = new ForkJoinTaskRunner();
+            }
+            environment.setTaskRunner(taskRunner);
+        } else if (virtualThreadTaskrunner != null) {
+            final Integer maxInFlight = virtualThreadTaskrunner.getMaxInFlight();
+            final TaskRunner taskRunner;
+            if (maxInFlight != null) {
+                taskRunner = new VirtualThreadTaskRunner(maxInFlight.intValue());
+            } else {
+                taskRunner = new VirtualThreadTaskRunner();
+            }
+            environment.setTaskRunner(taskRunner);
         } else if (customTaskrunner != null) {
             final TaskRunner taskRunner =
                     createCustomElement(customTaskrunner, TaskRunner.class, temporaryConfiguration, true);
@@ -57,7 +57,10 @@ import org.datacleaner.descriptors.CompositeDescriptorProvider;
 import org.datacleaner.descriptors.DescriptorProvider;
 import org.datacleaner.descriptors.Descriptors;
 import org.datacleaner.descriptors.RendererBeanDescriptor;
+import org.datacleaner.job.concurrent.ForkJoinTaskRunner;
 import org.datacleaner.job.concurrent.SingleThreadedTaskRunner;
+import org.datacleaner.job.concurrent.TaskRunner;
+import org.datacleaner.job.concurrent.VirtualThreadTaskRunner;
 import org.datacleaner.lifecycle.LifeCycleHelper;
 import org.datacleaner.reference.DatastoreDictionary;
 import org.datacleaner.reference.DatastoreSynonymCatalog;
@@ -75,8 +78,13 @@ import org.datacleaner.result.renderer.TextRenderingFormat;
 import org.datacleaner.server.HadoopClusterInformation;
 import org.datacleaner.storage.BerkeleyDbStorageProvider;
 import org.datacleaner.storage.CombinedStorageProvider;
+import org.datacleaner.storage.HybridStorageProvider;
 import org.datacleaner.storage.InMemoryRowAnnotationFactory2;
 import org.datacleaner.storage.InMemoryStorageProvider;
+import org.datacleaner.storage.OffHeapRowAnnotationFactory;
+import org.datacleaner.storage.OffHeapStorageProvider;
+import org.datacleaner.storage.ReservoirSamplingRowAnnotationFactory;
+import org.datacleaner.storage.ReservoirSamplingStorageProvider;
 import org.datacleaner.storage.RowAnnotationFactory;
 import org.datacleaner.storage.StorageProvider;
 import org.junit.Assert;
@@ -207,6 +215,24 @@ public class JaxbConfigurationReaderTest extends TestCase {
         assertTrue(configuration.getEnvironment().getTaskRunner() instanceof SingleThreadedTaskRunner);
     }
 
+    public void testForkJoinTaskRunner() throws Exception {
+        final DataCleanerConfiguration configuration =
+                reader.create(new File("src/test/resources/example-configuration-forkjoin-taskrunner.xml"));
+        final TaskRunner taskRunner = configuration.getEnvironment().getTaskRunner();
+
+        assertEquals(ForkJoinTaskRunner.class, taskRunner.getClass());
+        assertEquals(12, ((ForkJoinTaskRunner) taskRunner).getNumThreads());
+    }
+
+    public void testVirtualThreadTaskRunner() throws Exception {
+        final DataCleanerConfiguration configuration =
+                reader.create(new File("src/test/resources/example-configuration-virtual-thread-taskrunner.xml"));
+        final TaskRunner taskRunner = configuration.getEnvironment().getTaskRunner();
+
+        assertEquals(VirtualThreadTaskRunner.class, taskRunner.getClass());
+        assertEquals(2000, ((VirtualThreadTaskRunner) taskRunner).getMaxInFlight());
+    }
+
     public void testCombinedStorage() throws Exception {
         final DataCleanerConfiguration configuration =
                 reader.create(new File("src/test/resources/example-configuration-combined-storage.xml"));
@@ -223,6 +249,38 @@ public class JaxbConfigurationReaderTest extends TestCase {
         assertEquals(InMemoryRowAnnotationFactory2.class, rowAnnotationFactory.getClass());
     }
 
+    public void testOffHeapStorage() throws Exception {
+        final DataCleanerConfiguration configuration =
+                reader.create(new File("src/test/resources/example-configuration-off-heap-storage.xml"));
+        final StorageProvider storageProvider = configuration.getEnvironment().getStorageProvider();
+
+        assertEquals(OffHeapStorageProvider.class, storageProvider.getClass());
+
+        final RowAnnotationFactory rowAnnotationFactory = storageProvider.createRowAnnotationFactory();
+        assertEquals(OffHeapRowAnnotationFactory.class, rowAnnotationFactory.getClass());
+    }
+
+    public void testReservoirSamplingStorage() throws Exception {
+        final DataCleanerConfiguration configuration =
+                reader.create(new File("src/test/resources/example-configuration-reservoir-sampling-storage.xml"));
+        final StorageProvider storageProvider = configuration.getEnvironment().getStorageProvider();
+
+        assertEquals(ReservoirSamplingStorageProvider.class, storageProvider.getClass());
+
+        final RowAnnotationFactory rowAnnotationFactory = storageProvider.createRowAnnotationFactory();
+        assertEquals(ReservoirSamplingRowAnnotationFactory.class, rowAnnotationFactory.getClass());
+        assertEquals(50, ((ReservoirSamplingRowAnnotationFactory) rowAnnotationFactory).getDefaultSampleSize());
+    }
+
+    public void testHybridStorage() throws Exception {
+        final DataCleanerConfiguration configuration =
+                reader.create(new File("src/test/resources/example-configuration-hybrid-storage.xml"));
+        final StorageProvider storageProvider = configuration.getEnvironment().getStorageProvider();
+
+        assertEquals(HybridStorageProvider.class, storageProvider.getClass());
+        assertEquals(5000, ((HybridStorageProvider) storageProvider).getMaxElementsInMemory());
+    }
+
     public void testAllDatastoreTypes() throws Exception {
         final DatastoreCatalog datastoreCatalog = getDataStoreCatalog(getConfiguration());
         final String[] datastoreNames = datastoreCatalog.getDatastoreNames();